@@ -0,0 +1,96 @@
+package orgReport.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import orgReport.Employee;
+import orgReport.OrgAnalyzer;
+import orgReport.OrgGraph;
+import orgReport.OrgReport;
+
+/**
+ * The analysis phase on a loaded and linked hierarchy: the full analyzeStructure() and the two
+ * per-employee checks it is made of, plus the graph analysis in file order against the same graph
+ * renumbered breadth-first from the CEO.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx12g"})
+public class AnalysisBenchmark {
+    private OrgAnalyzer analyzer;
+    private Employee[] managers;
+    private Employee[] employees;
+    private OrgGraph graph;
+    private OrgGraph renumbered;
+
+    @Setup(Level.Trial)
+    public void load(OrgData data) throws IOException {
+        analyzer = new OrgAnalyzer();
+        analyzer.readMappedFile(data.csv);
+        analyzer.buildHierarchy();
+        employees = analyzer.employees().values().toArray(new Employee[0]);
+        managers = analyzer.employees().values().stream().filter(Employee::isManager).toArray(Employee[]::new);
+        analyzer.checkReportingLineLength(analyzer.ceo(), new OrgReport()); // builds the depth cache outside the measurement
+        graph = OrgGraph.of(analyzer.employees(), analyzer.ceo());
+        renumbered = graph.renumbered();
+    }
+
+    @Benchmark
+    public OrgReport analyzeStructure() {
+        return analyzer.analyzeStructure();
+    }
+
+    @Benchmark
+    public OrgReport analyzeStructureParallel() {
+        return analyzer.analyzeStructure(graph, Runtime.getRuntime().availableProcessors());
+    }
+
+    @Benchmark
+    public OrgReport analyzeMapOrder() {
+        return analyzer.analyzeStructure(graph, 1);
+    }
+
+    @Benchmark
+    public OrgReport analyzeRenumbered() {
+        return analyzer.analyzeStructure(renumbered, 1);
+    }
+
+    @Benchmark
+    public OrgGraph renumber() {
+        return graph.renumbered();
+    }
+
+    @Benchmark
+    public OrgReport checkSalaryCompliance() {
+        OrgReport report = new OrgReport();
+        for (Employee manager : managers) {
+            analyzer.checkSalaryCompliance(manager, report);
+        }
+        return report;
+    }
+
+    @Benchmark
+    public OrgReport checkReportingLineLength() {
+        OrgReport report = new OrgReport();
+        for (Employee employee : employees) {
+            if (employee != analyzer.ceo()) {
+                analyzer.checkReportingLineLength(employee, report);
+            }
+        }
+        return report;
+    }
+}
@@ -0,0 +1,56 @@
+package orgReport.bench;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import orgReport.Employee;
+import orgReport.OrgAnalyzer;
+
+/**
+ * buildHierarchy() on a loaded map. Subordinate lists are cleared and the map handed to a fresh analyzer
+ * before every call because buildHierarchy() appends to them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx12g"})
+public class HierarchyBenchmark {
+    private Map<Long, Employee> loaded;
+    private OrgAnalyzer analyzer;
+
+    @Setup(Level.Trial)
+    public void load(OrgData data) throws IOException {
+        OrgAnalyzer reader = new OrgAnalyzer();
+        reader.readMappedFile(data.csv);
+        loaded = reader.employees();
+    }
+
+    @Setup(Level.Invocation)
+    public void unlink() {
+        for (Employee e : loaded.values()) {
+            e.getSubordinates().clear();
+        }
+        analyzer = new OrgAnalyzer();
+        analyzer.employees().putAll(loaded);
+    }
+
+    @Benchmark
+    public Employee buildHierarchy() {
+        analyzer.buildHierarchy();
+        return analyzer.ceo();
+    }
+}
@@ -0,0 +1,66 @@
+package orgReport.bench;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import orgReport.Employee;
+import orgReport.OrgAnalyzer;
+import orgReport.OrgGraph;
+
+/**
+ * CSV ingestion: the Reader-based readData against the memory-mapped loader, and load-then-link
+ * against the pipelined loader that links while reading.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx12g"})
+public class LoadBenchmark {
+
+    @Benchmark
+    public Map<Long, Employee> readData(OrgData data) throws IOException {
+        OrgAnalyzer analyzer = new OrgAnalyzer();
+        try (BufferedReader reader = Files.newBufferedReader(data.csv, StandardCharsets.UTF_8)) {
+            analyzer.readData(reader);
+        }
+        return analyzer.employees();
+    }
+
+    @Benchmark
+    public Map<Long, Employee> readMappedFile(OrgData data) throws IOException {
+        OrgAnalyzer analyzer = new OrgAnalyzer();
+        analyzer.ingestThreads = 1;
+        analyzer.readMappedFile(data.csv);
+        return analyzer.employees();
+    }
+
+    @Benchmark
+    public Map<Long, Employee> readMappedFileAndBuildHierarchy(OrgData data) throws IOException {
+        OrgAnalyzer analyzer = new OrgAnalyzer();
+        analyzer.ingestThreads = 1;
+        analyzer.readMappedFile(data.csv);
+        analyzer.buildHierarchy();
+        return analyzer.employees();
+    }
+
+    // Loads straight into the graph; Employee objects would only be created by employees()
+    @Benchmark
+    public OrgGraph readPipelined(OrgData data) throws IOException {
+        OrgAnalyzer analyzer = new OrgAnalyzer();
+        analyzer.ingestThreads = 1;
+        analyzer.readPipelined(data.csv);
+        return analyzer.graph();
+    }
+}
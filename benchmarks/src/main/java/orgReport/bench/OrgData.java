@@ -0,0 +1,50 @@
+package orgReport.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import orgReport.SyntheticOrgGenerator;
+
+/**
+ * Synthetic org shared by all benchmarks. The CSV is generated once per parameter combination
+ * and cached in java.io.tmpdir, so forks and reruns do not pay for generation again.
+ */
+@State(Scope.Benchmark)
+public class OrgData {
+    @Param({"10000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"8"})
+    public int fanOut;
+
+    @Param({"0.0"})
+    public double depthSkew;
+
+    @Param({"0.0"})
+    public double malformedShare;
+
+    // Scrambled ids look like real HR exports: id lookups no longer follow the hierarchy
+    @Param({"true", "false"})
+    public boolean scrambleIds;
+
+    public Path csv;
+
+    @Setup
+    public void generate() throws IOException {
+        csv = Paths.get(System.getProperty("java.io.tmpdir"),
+                "orgReport-bench-" + size + "-" + fanOut + "-" + depthSkew + "-" + malformedShare
+                        + (scrambleIds ? "-scrambled" : "") + ".csv");
+        if (!Files.exists(csv)) {
+            Path partial = Files.createTempFile(csv.getParent(), "orgReport-bench", ".tmp");
+            new SyntheticOrgGenerator().size(size).fanOut(fanOut).depthSkew(depthSkew).malformedShare(malformedShare)
+                    .scrambleIds(scrambleIds).writeCsv(partial);
+            Files.move(partial, csv);
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package orgReport;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Analyzes many CSV exports in one JVM, each on its own {@link OrgAnalyzer} (or {@link ExternalOrgAnalyzer})
+ * instance, on a fixed pool of worker threads.
+ * <p>
+ * Before a file is loaded its worker reserves an estimate of the heap it needs from a shared memory budget,
+ * so only as many files are in memory at once as fit. A file whose estimate exceeds the per-file limit is
+ * analyzed out of core within that limit instead. Files are started largest first so a big export does not
+ * end up alone at the end of the run. Every file gets its own report (and diagnostics, when there are data
+ * problems) in the output directory; {@link #writeSummary} consolidates the results. A file that cannot be
+ * read or parsed is recorded in its result and does not stop the others; an Error such as OutOfMemoryError
+ * ends the run. Once fewer files are left than workers, the idle workers' share of the pool goes to the
+ * in-memory analyses still starting, as loader and analysis threads.
+ */
+public class BatchAnalyzer {
+    // Rough heap use of the linked in-memory hierarchy per byte of CSV (employees, map entries, names, graph)
+    static final long HEAP_BYTES_PER_CSV_BYTE = 12;
+    // Assumed inflation of a gzip-compressed export when estimating its heap use
+    static final long GZIP_EXPANSION = 6;
+    private static final long MB = 1 << 20;
+    // Output names: <export>.report.<format>, <export>.diagnostics.txt and the consolidated summary
+    static final String REPORT_SUFFIX = ".report";
+    static final String DIAGNOSTICS_SUFFIX = ".diagnostics.txt";
+    public static final String SUMMARY_FILE = "summary.csv";
+
+    /**
+     * Outcome of one file. report is null and error set when the file could not be analyzed; threads is the
+     * number of loader and analysis threads the file was given.
+     */
+    public record Result(Path csv, Path report, boolean external, int threads, long rows, long lowEarning, long highEarning,
+                         long longReportingLines, long cyclic, long orphaned, long dataProblems, long millis,
+                         String error) {
+        public long issues() {
+            return lowEarning + highEarning + longReportingLines + cyclic + orphaned;
+        }
+    }
+
+    private final int threads;
+    private final long memoryBudget;
+    private final long perFileLimit;
+    private final Path outputDir;
+    // Report format for the per-file reports: text, csv or jsonl
+    public String format = "csv";
+    // Spill directory for files analyzed out of core
+    public Path workDir = Paths.get(System.getProperty("java.io.tmpdir"));
+
+    /**
+     * @param threads      files analyzed at the same time
+     * @param memoryBudget heap bytes shared by the files in flight
+     * @param perFileLimit heap bytes one file may use; larger files are analyzed out of core
+     */
+    public BatchAnalyzer(int threads, long memoryBudget, long perFileLimit, Path outputDir) {
+        if (threads < 1 || memoryBudget < MB || perFileLimit < MB || perFileLimit > memoryBudget) {
+            throw new IllegalArgumentException("Need threads >= 1 and 1 MB <= perFileLimit <= memoryBudget: "
+                    + threads + ", " + memoryBudget + ", " + perFileLimit);
+        }
+        this.threads = threads;
+        this.memoryBudget = memoryBudget;
+        this.perFileLimit = perFileLimit;
+        this.outputDir = outputDir;
+    }
+
+    /**
+     * The CSV files among the given paths; directories contribute their *.csv and *.csv.gz files in name order,
+     * except the summary and reports of an earlier run written there.
+     */
+    public static List<Path> csvFiles(List<Path> paths) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path path : paths) {
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> listing = Files.list(path)) {
+                    listing.filter(p -> isCsvName(p.getFileName().toString()) && !isOutputName(p.getFileName().toString()))
+                            .filter(Files::isRegularFile).sorted().forEach(files::add);
+                }
+            } else {
+                files.add(path);
+            }
+        }
+        return files;
+    }
+
+    private static boolean isCsvName(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        return lower.endsWith(".csv") || lower.endsWith(".csv.gz");
+    }
+
+    private static boolean isOutputName(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        return lower.equals(SUMMARY_FILE) || lower.endsWith(REPORT_SUFFIX + ".csv");
+    }
+
+    /**
+     * Analyzes all files and returns their results in the order given. Throws IllegalArgumentException, before
+     * anything is written, when a report, diagnostics file or the summary would overwrite one of the inputs.
+     */
+    public List<Result> analyze(List<Path> files) throws IOException, InterruptedException {
+        Files.createDirectories(outputDir);
+        Path[] reports = reportPaths(files);
+        checkOutputsAreNotInputs(files, reports);
+        long[] sizes = new long[files.size()];
+        Integer[] order = new Integer[files.size()];
+        for (int k = 0; k < sizes.length; k++) {
+            Path file = files.get(k);
+            sizes[k] = Files.isRegularFile(file) ? Files.size(file) : 0;
+            if (file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".gz")) {
+                sizes[k] *= GZIP_EXPANSION;
+            }
+            order[k] = k;
+        }
+        Arrays.sort(order, Comparator.comparingLong((Integer k) -> sizes[k]).reversed());
+
+        Semaphore memory = new Semaphore(toMb(memoryBudget));
+        AtomicInteger unfinished = new AtomicInteger(files.size());
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Result>> futures = new ArrayList<>(files.size());
+            for (int k = 0; k < files.size(); k++) {
+                futures.add(null);
+            }
+            for (int k : order) {
+                futures.set(k, pool.submit(() -> analyzeFile(files.get(k), sizes[k], reports[k], memory, unfinished)));
+            }
+            List<Result> results = new ArrayList<>(files.size());
+            for (Future<Result> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (ExecutionException e) {
+            // analyzeFile() turns every other failure into a result
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private Result analyzeFile(Path csv, long size, Path report, Semaphore memory, AtomicInteger unfinished)
+            throws InterruptedException {
+        long estimate = size * HEAP_BYTES_PER_CSV_BYTE;
+        boolean external = estimate > perFileLimit;
+        int reserved = Math.max(1, toMb(external ? perFileLimit : estimate));
+        memory.acquire(reserved);
+        try {
+            return analyzeFile(csv, report, external, external ? 1 : threadsPerFile(unfinished.get()));
+        } finally {
+            unfinished.decrementAndGet();
+            memory.release(reserved);
+        }
+    }
+
+    /**
+     * Threads for a file starting while unfinished files (this one included) are queued or in flight: the whole
+     * pool as long as every worker has a file of its own, and the capacity of the idle workers split among the
+     * remaining files once the queue runs dry, so the last (smallest) files of a run load and analyze in parallel.
+     */
+    int threadsPerFile(int unfinished) {
+        return Math.max(1, threads / Math.max(1, Math.min(threads, unfinished)));
+    }
+
+    private Result analyzeFile(Path csv, Path report, boolean external, int fileThreads) {
+        long started = System.nanoTime();
+        OrgMetrics metrics = new OrgMetrics();
+        Diagnostics diagnostics = new Diagnostics();
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(report), 1 << 16)) {
+            ReportSink sink = OrgAnalyzer.outputSink(format, out);
+            if (external) {
+                ExternalOrgAnalyzer analyzer = new ExternalOrgAnalyzer(perFileLimit, workDir);
+                analyzer.metrics = metrics;
+                analyzer.diagnostics = diagnostics;
+                analyzer.analyze(csv, sink);
+            } else {
+                OrgAnalyzer analyzer = new OrgAnalyzer();
+                analyzer.metrics = metrics;
+                analyzer.diagnostics = diagnostics;
+                // No snapshots next to the exports
+                analyzer.useSnapshot = false;
+                analyzer.ingestThreads = fileThreads;
+                analyzer.analysisThreads = fileThreads;
+                analyzer.loadHierarchy(csv);
+                analyzer.analyzeStructure(sink);
+            }
+        } catch (IOException | RuntimeException e) {
+            deletePartial(report);
+            return new Result(csv, null, external, fileThreads, metrics.getRowsParsed(), 0, 0, 0, 0, 0, diagnostics.total(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), String.valueOf(e.getMessage()));
+        } catch (Error e) {
+            // Out of memory and other VM errors say nothing about this file and leave the JVM suspect: stop the batch
+            deletePartial(report);
+            throw e;
+        }
+        if (!diagnostics.isEmpty()) {
+            try (PrintStream out = new PrintStream(Files.newOutputStream(diagnosticsPath(report)), false, StandardCharsets.UTF_8)) {
+                diagnostics.print(out);
+            } catch (IOException e) {
+                System.err.println("Warning: Could not write diagnostics for " + csv + ": " + e.getMessage());
+            }
+        }
+        return new Result(csv, report, external, fileThreads, metrics.getRowsParsed(),
+                metrics.issueCount(OrgMetrics.Issue.LOW_SALARY), metrics.issueCount(OrgMetrics.Issue.HIGH_SALARY),
+                metrics.issueCount(OrgMetrics.Issue.LONG_REPORTING_LINE), metrics.issueCount(OrgMetrics.Issue.CYCLIC_REPORTING_LINE),
+                metrics.issueCount(OrgMetrics.Issue.ORPHANED_EMPLOYEE), diagnostics.total(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), null);
+    }
+
+    /**
+     * Report file per input: the CSV's name with ".report" and the format's extension, numbered when two inputs
+     * share a name.
+     */
+    private Path[] reportPaths(List<Path> files) {
+        String extension = REPORT_SUFFIX + (format.equals("text") ? ".txt" : "." + format);
+        Set<String> used = new HashSet<>();
+        Path[] reports = new Path[files.size()];
+        for (int k = 0; k < reports.length; k++) {
+            String name = files.get(k).getFileName().toString();
+            if (name.toLowerCase(Locale.ROOT).endsWith(".gz")) {
+                name = name.substring(0, name.length() - 3);
+            }
+            if (name.toLowerCase(Locale.ROOT).endsWith(".csv")) {
+                name = name.substring(0, name.length() - 4);
+            }
+            String unique = name;
+            for (int n = 2; !used.add(unique + extension); n++) {
+                unique = name + "-" + n;
+            }
+            reports[k] = outputDir.resolve(unique + extension);
+        }
+        return reports;
+    }
+
+    private void checkOutputsAreNotInputs(List<Path> files, Path[] reports) throws IOException {
+        Set<Path> inputs = new HashSet<>();
+        for (Path file : files) {
+            inputs.add(canonical(file));
+        }
+        List<Path> outputs = new ArrayList<>();
+        outputs.add(outputDir.resolve(SUMMARY_FILE));
+        for (Path report : reports) {
+            outputs.add(report);
+            outputs.add(diagnosticsPath(report));
+        }
+        for (Path output : outputs) {
+            if (inputs.contains(canonical(output))) {
+                throw new IllegalArgumentException("Output " + output + " would overwrite an input; choose another output directory");
+            }
+        }
+    }
+
+    // Real path when the file exists (links resolved), otherwise the absolute normalized path
+    private static Path canonical(Path path) throws IOException {
+        Path absolute = path.toAbsolutePath().normalize();
+        if (Files.exists(absolute)) {
+            return absolute.toRealPath();
+        }
+        Path parent = absolute.getParent();
+        return parent != null && Files.exists(parent) ? parent.toRealPath().resolve(absolute.getFileName()) : absolute;
+    }
+
+    private static void deletePartial(Path report) {
+        try {
+            Files.deleteIfExists(report);
+        } catch (IOException ignored) {
+            // leave it; the summary marks the file as failed
+        }
+    }
+
+    private static Path diagnosticsPath(Path report) {
+        String name = report.getFileName().toString();
+        return report.resolveSibling(name.substring(0, name.lastIndexOf(REPORT_SUFFIX + ".")) + DIAGNOSTICS_SUFFIX);
+    }
+
+    private static int toMb(long bytes) {
+        return (int) Math.min(Integer.MAX_VALUE, (bytes + MB - 1) / MB);
+    }
+
+    /**
+     * One CSV row per file plus a TOTAL row.
+     */
+    public static void writeSummary(List<Result> results, Writer out) throws IOException {
+        StringBuilder sb = new StringBuilder(256 + results.size() * 128);
+        sb.append("file,report,mode,rows,lowEarning,highEarning,longReportingLines,cyclic,orphaned,issues,dataProblems,millis,error\n");
+        long[] totals = new long[9];
+        for (Result r : results) {
+            CsvReportSink.appendField(sb, r.csv().toString()).append(',');
+            CsvReportSink.appendField(sb, r.report() == null ? "" : r.report().getFileName().toString()).append(',')
+                    .append(r.external() ? "external" : "memory");
+            long[] values = {r.rows(), r.lowEarning(), r.highEarning(), r.longReportingLines(), r.cyclic(), r.orphaned(),
+                    r.issues(), r.dataProblems(), r.millis()};
+            for (int v = 0; v < values.length; v++) {
+                sb.append(',').append(values[v]);
+                totals[v] += values[v];
+            }
+            CsvReportSink.appendField(sb.append(','), r.error() == null ? "" : r.error()).append('\n');
+        }
+        sb.append("TOTAL,,,");
+        for (int v = 0; v < totals.length; v++) {
+            sb.append(v == 0 ? "" : ",").append(totals[v]);
+        }
+        long failed = results.stream().filter(r -> r.error() != null).count();
+        sb.append(',').append(failed == 0 ? "" : failed + " failed").append('\n');
+        out.write(sb.toString());
+        out.flush();
+    }
+
+    /**
+     * Analyzes the CSV files and directories given as arguments. Reports and summary.csv go to
+     * -DorgReport.batchOutput (default ./reports); -DorgReport.batchThreads, -DorgReport.batchMemoryMb and
+     * -DorgReport.batchFileMemoryMb bound the pool and the heap; -DorgReport.format selects the report format.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: BatchAnalyzer <csv file or directory>...");
+            System.exit(2);
+        }
+        List<Path> paths = new ArrayList<>();
+        for (String arg : args) {
+            paths.add(Paths.get(arg));
+        }
+        List<Path> files = csvFiles(paths);
+        long budget = Long.getLong("orgReport.batchMemoryMb", Runtime.getRuntime().maxMemory() * 6 / 10 / MB) * MB;
+        long perFile = Long.getLong("orgReport.batchFileMemoryMb", budget / MB) * MB;
+        Path outputDir = Paths.get(System.getProperty("orgReport.batchOutput", "reports"));
+        BatchAnalyzer batch = new BatchAnalyzer(Integer.getInteger("orgReport.batchThreads", Runtime.getRuntime().availableProcessors()),
+                budget, Math.min(perFile, budget), outputDir);
+        batch.format = System.getProperty("orgReport.format", "csv");
+        long started = System.nanoTime();
+        List<Result> results = batch.analyze(files);
+        try (Writer out = Files.newBufferedWriter(outputDir.resolve(SUMMARY_FILE), StandardCharsets.UTF_8)) {
+            writeSummary(results, out);
+        }
+        long failed = results.stream().filter(r -> r.error() != null).count();
+        System.out.println("Analyzed " + (results.size() - failed) + " of " + results.size() + " files in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) + " ms: "
+                + results.stream().mapToLong(Result::issues).sum() + " issues, summary in " + outputDir.resolve(SUMMARY_FILE));
+        for (Result r : results) {
+            if (r.error() != null) {
+                System.err.println("Error: " + r.csv() + ": " + r.error());
+            }
+        }
+    }
+}
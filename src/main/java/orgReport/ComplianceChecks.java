@@ -0,0 +1,75 @@
+package orgReport;
+
+/**
+ * The salary-band and reporting-line checks behind every analysis path: the graph and employee checks of
+ * {@link OrgAnalyzer}, {@link IncrementalAnalysis}, {@link ExternalOrgAnalyzer}, {@link ScenarioSimulator} and the
+ * default {@link OrgRule}s. Each path only gathers its own inputs (salary, subordinate average, depth), so a fix
+ * to a bound or a difference applies to all of them and their reports stay identical.
+ * <p>
+ * The returned issues carry the figures but not the employee's name and id; callers fill those in, which lets
+ * them look the name up only for employees that are actually reported.
+ */
+final class ComplianceChecks {
+
+    private ComplianceChecks() {
+    }
+
+    /**
+     * The issue for a manager paid salary outside [average * minFactor, average * maxFactor], or null when the
+     * salary is inside the band or average is 0.0 (no subordinates, or all of them unpaid).
+     */
+    static OrgAnalyzer.ManagerSalaryIssue salaryBand(double salary, double average, double minFactor, double maxFactor) {
+        if (average == 0.0) {
+            return null;
+        }
+        double min = average * minFactor;
+        double max = average * maxFactor;
+        if (salary < min) {
+            return salaryIssue(min, max, min - salary);
+        }
+        if (salary > max) {
+            return salaryIssue(min, max, salary - max);
+        }
+        return null;
+    }
+
+    /**
+     * True when issue (from {@link #salaryBand}) is for a manager earning less than the band, false for more.
+     */
+    static boolean isLow(OrgAnalyzer.ManagerSalaryIssue issue, double salary) {
+        return salary < issue.expectedMin;
+    }
+
+    /**
+     * Reports issue (from {@link #salaryBand}) as a low or a high earner.
+     */
+    static void report(OrgAnalyzer.ManagerSalaryIssue issue, double salary, ReportSink sink) {
+        if (isLow(issue, salary)) {
+            sink.lowEarningManager(issue);
+        } else {
+            sink.highEarningManager(issue);
+        }
+    }
+
+    /**
+     * The issue for a reporting line of length managers when at most maxLength are allowed, or null.
+     * The depth sentinels of {@link ReportingDepths} are not lengths and must be handled by the caller.
+     */
+    static OrgAnalyzer.ReportingLineIssue reportingLine(int length, int maxLength) {
+        if (length <= maxLength) {
+            return null;
+        }
+        OrgAnalyzer.ReportingLineIssue issue = new OrgAnalyzer.ReportingLineIssue();
+        issue.actualLength = length;
+        issue.excessiveManagers = length - maxLength;
+        return issue;
+    }
+
+    private static OrgAnalyzer.ManagerSalaryIssue salaryIssue(double min, double max, double difference) {
+        OrgAnalyzer.ManagerSalaryIssue issue = new OrgAnalyzer.ManagerSalaryIssue();
+        issue.expectedMin = min;
+        issue.expectedMax = max;
+        issue.difference = difference;
+        return issue;
+    }
+}
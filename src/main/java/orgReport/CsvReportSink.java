@@ -0,0 +1,95 @@
+package orgReport;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Streams issues as CSV rows:
+ * category,employee_id,name,expected_min,expected_max,difference,line_length,excess_managers.
+ * Columns that do not apply to a category are left empty.
+ */
+public class CsvReportSink implements ReportSink {
+    public static final String HEADER = "category,employee_id,name,expected_min,expected_max,difference,line_length,excess_managers";
+
+    private final Writer out;
+    private final StringBuilder row = new StringBuilder(128);
+
+    public CsvReportSink(Writer out) {
+        this.out = out instanceof BufferedWriter ? out : new BufferedWriter(out, 1 << 16);
+        write(row.append(HEADER));
+    }
+
+    @Override
+    public void lowEarningManager(OrgAnalyzer.ManagerSalaryIssue issue) {
+        salary("low_salary", issue);
+    }
+
+    @Override
+    public void highEarningManager(OrgAnalyzer.ManagerSalaryIssue issue) {
+        salary("high_salary", issue);
+    }
+
+    @Override
+    public void longReportingLine(OrgAnalyzer.ReportingLineIssue issue) {
+        start("long_reporting_line", issue.employeeId, issue.employeeName).append(",,,,")
+                .append(issue.actualLength).append(',').append(issue.excessiveManagers);
+        write(row);
+    }
+
+    @Override
+    public void cyclicReportingLine(OrgAnalyzer.HierarchyIssue issue) {
+        write(start("cyclic_reporting_line", issue.employeeId, issue.employeeName).append(",,,,,"));
+    }
+
+    @Override
+    public void orphanedEmployee(OrgAnalyzer.HierarchyIssue issue) {
+        write(start("orphaned_employee", issue.employeeId, issue.employeeName).append(",,,,,"));
+    }
+
+    @Override
+    public void finish() throws IOException {
+        out.flush();
+    }
+
+    private void salary(String category, OrgAnalyzer.ManagerSalaryIssue issue) {
+        start(category, issue.managerId, issue.managerName).append(',');
+        NumberText.appendMoney(row, issue.expectedMin, false).append(',');
+        NumberText.appendMoney(row, issue.expectedMax, false).append(',');
+        NumberText.appendMoney(row, issue.difference, false).append(",,");
+        write(row);
+    }
+
+    private StringBuilder start(String category, long id, String name) {
+        row.append(category).append(',').append(id).append(',');
+        return appendField(row, name);
+    }
+
+    /**
+     * Appends text as one CSV field, quoted when it contains a separator, quote or line break.
+     */
+    static StringBuilder appendField(StringBuilder sb, String text) {
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return sb.append(text);
+        }
+        sb.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            sb.append(c);
+            if (c == '"') {
+                sb.append('"');
+            }
+        }
+        return sb.append('"');
+    }
+
+    private void write(StringBuilder line) {
+        try {
+            out.append(line).append('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        line.setLength(0);
+    }
+}
@@ -0,0 +1,265 @@
+package orgReport;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Collects data problems found while loading and analyzing (malformed lines, missing managers, broken chains)
+ * instead of printing one warning per problem.
+ * <p>
+ * Each problem is stored as a (line number, code, id, detail) record in a primitive ring buffer that keeps the
+ * most recent records, and counted per code. Only the first few records per code are kept as samples, together
+ * with the offending line when the caller has it; {@link #print(PrintStream)} formats those samples plus one
+ * summary line per code at the end of a run. Recording does not allocate. Not thread-safe: the loaders report
+ * problems on the calling thread, in file order.
+ */
+public class Diagnostics {
+    public static final long NO_LINE = -1;          // problem not tied to an input line
+    public static final long NO_ID = Long.MIN_VALUE;
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final int DEFAULT_SAMPLES = Integer.getInteger("orgReport.diagnosticSamples", 10);
+
+    public enum Code {
+        FIELD_COUNT("lines with an incorrect number of fields"),
+        NUMBER_FORMAT("lines with an invalid number"),
+        MISSING_MANAGER("employees whose manager is not in the dataset"),
+        MULTIPLE_CEOS("additional employees without a manager"),
+        NO_CEO("hierarchies without a CEO"),
+        BROKEN_CHAIN("broken reporting chains");
+
+        final String description;
+
+        Code(String description) {
+            this.description = description;
+        }
+
+        public static Code of(EmployeeCsvParser.Problem problem) {
+            return problem == EmployeeCsvParser.Problem.FIELD_COUNT ? FIELD_COUNT : NUMBER_FORMAT;
+        }
+    }
+
+    /**
+     * One recorded problem. text is the raw input line for samples of malformed lines, otherwise null.
+     */
+    public record Entry(Code code, long line, long id, long detail, String text) {
+    }
+
+    private static final Code[] CODES = Code.values();
+
+    // Ring buffer of the most recent records
+    private final long[] lines;
+    private final long[] ids;
+    private final long[] details;
+    private final byte[] codes;
+    private long recorded; // records written to the ring
+
+    // First samplesPerCode records of every code
+    private final int samplesPerCode;
+    private final long[] counts = new long[CODES.length];
+    private final long[][] sampleLines;
+    private final long[][] sampleIds;
+    private final long[][] sampleDetails;
+    private final String[][] sampleTexts;
+
+    public Diagnostics() {
+        this(DEFAULT_CAPACITY, DEFAULT_SAMPLES);
+    }
+
+    public Diagnostics(int capacity, int samplesPerCode) {
+        if (capacity < 1 || samplesPerCode < 0) {
+            throw new IllegalArgumentException("capacity must be >= 1 and samplesPerCode >= 0: " + capacity + ", " + samplesPerCode);
+        }
+        lines = new long[capacity];
+        ids = new long[capacity];
+        details = new long[capacity];
+        codes = new byte[capacity];
+        this.samplesPerCode = samplesPerCode;
+        sampleLines = new long[CODES.length][samplesPerCode];
+        sampleIds = new long[CODES.length][samplesPerCode];
+        sampleDetails = new long[CODES.length][samplesPerCode];
+        sampleTexts = new String[CODES.length][samplesPerCode];
+    }
+
+    /**
+     * Records one problem. Returns true when it was kept as a sample, so the caller can attach the input line
+     * with {@link #describe(Code, String)} without building it for every problem.
+     *
+     * @param line   1-based input line, or NO_LINE
+     * @param id     employee concerned, or NO_ID
+     * @param detail code specific: the missing manager id, the CEO that was kept; otherwise NO_ID
+     */
+    public boolean record(Code code, long line, long id, long detail) {
+        int slot = (int) (recorded++ % lines.length);
+        lines[slot] = line;
+        ids[slot] = id;
+        details[slot] = detail;
+        codes[slot] = (byte) code.ordinal();
+        long n = counts[code.ordinal()]++;
+        if (n >= samplesPerCode) {
+            return false;
+        }
+        int c = code.ordinal();
+        sampleLines[c][(int) n] = line;
+        sampleIds[c][(int) n] = id;
+        sampleDetails[c][(int) n] = detail;
+        return true;
+    }
+
+    /**
+     * Attaches the input line to the latest sample of the code; call right after record() returned true.
+     */
+    public void describe(Code code, String text) {
+        long n = counts[code.ordinal()];
+        if (n > 0 && n <= samplesPerCode) {
+            sampleTexts[code.ordinal()][(int) n - 1] = text;
+        }
+    }
+
+    /**
+     * Adds count problems of the code, keeping the given samples as if they had just been recorded; replays
+     * the diagnostics stored with a snapshot.
+     */
+    public void restore(Code code, long count, List<Entry> samples) {
+        for (Entry sample : samples) {
+            if (record(code, sample.line(), sample.id(), sample.detail())) {
+                describe(code, sample.text());
+            }
+        }
+        counts[code.ordinal()] += Math.max(0, count - samples.size());
+    }
+
+    /**
+     * Forgets every problem of the code, so a step that runs again (the analysis) does not count its problems twice.
+     */
+    public void clear(Code code) {
+        int c = code.ordinal();
+        counts[c] = 0;
+        Arrays.fill(sampleTexts[c], null);
+        // Rebuild the ring from the other codes' records, oldest first in slot 0
+        List<Entry> kept = recent();
+        kept.removeIf(entry -> entry.code() == code);
+        recorded = 0;
+        for (Entry entry : kept) {
+            int slot = (int) recorded++;
+            lines[slot] = entry.line();
+            ids[slot] = entry.id();
+            details[slot] = entry.detail();
+            codes[slot] = (byte) entry.code().ordinal();
+        }
+    }
+
+    /**
+     * Independent copy, e.g. to attach to a report while this instance keeps recording.
+     */
+    public Diagnostics copy() {
+        Diagnostics copy = new Diagnostics(lines.length, samplesPerCode);
+        System.arraycopy(lines, 0, copy.lines, 0, lines.length);
+        System.arraycopy(ids, 0, copy.ids, 0, ids.length);
+        System.arraycopy(details, 0, copy.details, 0, details.length);
+        System.arraycopy(codes, 0, copy.codes, 0, codes.length);
+        copy.recorded = recorded;
+        System.arraycopy(counts, 0, copy.counts, 0, counts.length);
+        for (int c = 0; c < CODES.length; c++) {
+            System.arraycopy(sampleLines[c], 0, copy.sampleLines[c], 0, samplesPerCode);
+            System.arraycopy(sampleIds[c], 0, copy.sampleIds[c], 0, samplesPerCode);
+            System.arraycopy(sampleDetails[c], 0, copy.sampleDetails[c], 0, samplesPerCode);
+            System.arraycopy(sampleTexts[c], 0, copy.sampleTexts[c], 0, samplesPerCode);
+        }
+        return copy;
+    }
+
+    public long count(Code code) {
+        return counts[code.ordinal()];
+    }
+
+    /**
+     * Number of problems recorded so far, over all codes.
+     */
+    public long total() {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    public boolean isEmpty() {
+        return total() == 0;
+    }
+
+    /**
+     * The kept samples of one code, in the order they were recorded.
+     */
+    public List<Entry> samples(Code code) {
+        int c = code.ordinal();
+        int n = (int) Math.min(counts[c], samplesPerCode);
+        List<Entry> samples = new ArrayList<>(n);
+        for (int k = 0; k < n; k++) {
+            samples.add(new Entry(code, sampleLines[c][k], sampleIds[c][k], sampleDetails[c][k], sampleTexts[c][k]));
+        }
+        return samples;
+    }
+
+    /**
+     * The most recent records (at most the ring capacity), oldest first, without input lines.
+     */
+    public List<Entry> recent() {
+        int n = (int) Math.min(recorded, lines.length);
+        List<Entry> recent = new ArrayList<>(n);
+        for (long r = recorded - n; r < recorded; r++) {
+            int slot = (int) (r % lines.length);
+            recent.add(new Entry(CODES[codes[slot]], lines[slot], ids[slot], details[slot], null));
+        }
+        return recent;
+    }
+
+    public void clear() {
+        recorded = 0;
+        for (int c = 0; c < CODES.length; c++) {
+            counts[c] = 0;
+            Arrays.fill(sampleTexts[c], null);
+        }
+    }
+
+    /**
+     * Formats the samples of every code followed by a summary of what was not shown.
+     */
+    public void print(PrintStream out) {
+        if (isEmpty()) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder(1024);
+        String nl = System.lineSeparator();
+        for (Code code : CODES) {
+            for (Entry sample : samples(code)) {
+                format(sample, sb);
+                sb.append(nl);
+            }
+            long hidden = count(code) - Math.min(count(code), samplesPerCode);
+            if (hidden > 0) {
+                sb.append("Warning: ").append(hidden).append(" more ").append(code.description)
+                        .append(" not shown (").append(count(code)).append(" in total).").append(nl);
+            }
+        }
+        out.print(sb);
+        out.flush();
+    }
+
+    static void format(Entry e, StringBuilder sb) {
+        switch (e.code()) {
+            case FIELD_COUNT -> sb.append("Warning: Skipping malformed line with incorrect number of fields: ").append(e.text());
+            case NUMBER_FORMAT -> sb.append("Warning: Skipping line due to invalid number format: ").append(e.text());
+            case MISSING_MANAGER -> sb.append("Warning: Manager ID ").append(e.detail()).append(" for employee ").append(e.id())
+                    .append(" not found in the dataset. Employee excluded from manager analysis.");
+            case MULTIPLE_CEOS -> sb.append("Warning: Multiple potential CEOs found! Using the first one encountered: ")
+                    .append(e.detail()).append(", ignoring ").append(e.id());
+            case NO_CEO -> sb.append("Error: No CEO found (no employee has a null/empty managerId). Reporting line analysis will be skipped.");
+            case BROKEN_CHAIN -> sb.append("Warning: Reporting chain for ").append(e.id()).append(" is broken.");
+        }
+        if (e.line() != NO_LINE) {
+            sb.append(" (line ").append(e.line()).append(')');
+        }
+    }
+}
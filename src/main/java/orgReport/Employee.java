@@ -7,32 +7,97 @@ import java.util.Optional;
 ;
 public class Employee {
     private final long id;
-    private final String firstName;
-    private final String lastName;
-    private final Double salary;
-    private final Optional<Long> managerId;
+    // Names are references into the loading analyzer's NameDictionary and decoded on demand;
+    // employees built from Strings keep the Strings instead (names is null)
+    private NameDictionary names;
+    private int firstName;
+    private int lastName;
+    private final String firstNameText;
+    private final String lastNameText;
+    private Double salary;
+    private Optional<Long> managerId;
 
     private final List<Employee> subordinates = new ArrayList<>();
 
 
     public Employee(long Id, String FirstName, String LastName, Double  Salary, Optional<Long> ManagerId) {
         this.id = Id;
-        this.firstName = FirstName;
-        this.lastName = LastName;
+        this.names = null;
+        this.firstName = -1;
+        this.lastName = -1;
+        this.firstNameText = FirstName;
+        this.lastNameText = LastName;
         this.salary = Salary;
         this.managerId = ManagerId;
     }
 
+    /**
+     * Employee whose names are already interned in names.
+     */
+    Employee(long id, NameDictionary names, int firstName, int lastName, Double salary, Optional<Long> managerId) {
+        this.id = id;
+        this.names = names;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.firstNameText = null;
+        this.lastNameText = null;
+        this.salary = salary;
+        this.managerId = managerId;
+    }
+
     public long getId() {
         return id;
     }
     public String getFirstName() {
-        return firstName;
+        return names == null ? firstNameText : names.get(firstName);
     }
     public String getLastName() {
+        return names == null ? lastNameText : names.get(lastName);
+    }
+
+    /**
+     * "firstName lastName", decoded in one step.
+     */
+    public String getFullName() {
+        return names == null ? firstNameText + " " + lastNameText : names.fullName(firstName, lastName);
+    }
+
+    /**
+     * Dictionary holding the names, or null when the employee keeps them as Strings.
+     */
+    NameDictionary names() {
+        return names;
+    }
+
+    /**
+     * Reference of the first name in the given dictionary, adding it there if needed.
+     */
+    int firstNameIn(NameDictionary dictionary) {
+        return names == null ? dictionary.intern(firstNameText) : dictionary.intern(names, firstName);
+    }
+
+    int lastNameIn(NameDictionary dictionary) {
+        return names == null ? dictionary.intern(lastNameText) : dictionary.intern(names, lastName);
+    }
+
+    int firstNameRef() {
+        return firstName;
+    }
+
+    int lastNameRef() {
         return lastName;
     }
 
+    /**
+     * Points the names at another dictionary holding the same names; used by the parallel loaders, whose
+     * workers intern into dictionaries of their own, before the employee is handed out.
+     */
+    void moveNames(NameDictionary dictionary, int firstName, int lastName) {
+        this.names = dictionary;
+        this.firstName = firstName;
+        this.lastName = lastName;
+    }
+
     public Double getSalary() {
         return salary;
     }
@@ -53,8 +118,21 @@ public class Employee {
         this.subordinates.add(subordinate);
     }
 
+    // Mutators for IncrementalAnalysis, which applies change events in place
+    void setSalary(double salary) {
+        this.salary = salary;
+    }
+
+    void setManagerId(Optional<Long> managerId) {
+        this.managerId = managerId;
+    }
+
+    void removeSubordinate(Employee subordinate) {
+        this.subordinates.remove(subordinate);
+    }
+
     @Override
     public String toString() {
-        return firstName + " " + lastName + " (ID: " + id + ")";
+        return getFullName() + " (ID: " + id + ")";
     }
 }
@@ -0,0 +1,258 @@
+package orgReport;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+/**
+ * Byte-level parser for employee CSV lines (id, firstName, lastName, salary, managerId).
+ * Numbers are parsed straight from the buffer, so the only Strings created for a valid
+ * line are the two names (none when they are interned into a {@link NameDictionary}).
+ * Follows the same rules as {@link OrgAnalyzer#readData}: blank and '#' lines are skipped,
+ * lines with a wrong field count or a bad number are reported.
+ * Instances reuse one {@link Record} and are not thread-safe.
+ */
+public class EmployeeCsvParser {
+
+    /**
+     * Reasons a line can be rejected.
+     */
+    public enum Problem {
+        FIELD_COUNT, NUMBER_FORMAT
+    }
+
+    /**
+     * Receives the outcome of every non-blank, non-comment line.
+     */
+    public interface Visitor {
+        void onRecord(Record record);
+
+        void onMalformed(Problem problem, Record record);
+    }
+
+    /**
+     * Receives malformed lines with their 1-based line number.
+     */
+    public interface WarningSink {
+        void malformed(Problem problem, long lineNumber, String line);
+
+        /**
+         * Same for a line that is still undecoded in buf[start, end); decodes it by default. Sinks that keep
+         * only a few lines override this to decode just those.
+         */
+        default void malformed(Problem problem, long lineNumber, ByteBuffer buf, int start, int end) {
+            malformed(problem, lineNumber, decode(buf, start, end));
+        }
+    }
+
+    /**
+     * Reusable view of the current line. Only valid for the duration of a visitor callback.
+     */
+    public static class Record {
+        public long id;
+        public double salary;
+        public boolean hasManager;
+        public long managerId;
+        public long lineNumber; // 1-based, counted from the last resetLineCount()
+
+        ByteBuffer buf;
+        int lineStart, lineEnd;
+        int firstStart, firstEnd;
+        int lastStart, lastEnd;
+
+        public String firstName() {
+            return decode(buf, firstStart, firstEnd);
+        }
+
+        public String lastName() {
+            return decode(buf, lastStart, lastEnd);
+        }
+
+        /**
+         * The raw line, decoded only when a warning needs it.
+         */
+        public String line() {
+            return decode(buf, lineStart, lineEnd);
+        }
+
+        public Employee toEmployee() {
+            return new Employee(id, firstName(), lastName(), salary, hasManager ? Optional.of(managerId) : Optional.empty());
+        }
+
+        /**
+         * Employee with its names interned straight from the buffer, without decoding them.
+         */
+        public Employee toEmployee(NameDictionary names) {
+            return new Employee(id, names, firstNameRef(names), lastNameRef(names), salary,
+                    hasManager ? Optional.of(managerId) : Optional.empty());
+        }
+
+        int firstNameRef(NameDictionary names) {
+            return names.intern(buf, firstStart, firstEnd);
+        }
+
+        int lastNameRef(NameDictionary names) {
+            return names.intern(buf, lastStart, lastEnd);
+        }
+    }
+
+    private final Record record = new Record();
+    private long parsedLong;
+    private long lines;
+
+    /**
+     * Lines seen since the parser was created or reset, blank and comment lines included.
+     */
+    public long lineCount() {
+        return lines;
+    }
+
+    /**
+     * Restarts line numbering, e.g. before parsing a chunk whose first line number is only known later.
+     */
+    public void resetLineCount() {
+        lines = 0;
+    }
+
+    /**
+     * Parses every line in buf[from, to). A trailing line without a terminator is included.
+     */
+    public void parse(ByteBuffer buf, int from, int to, Visitor visitor) {
+        int pos = from;
+        while (pos < to) {
+            int end = pos;
+            while (end < to && buf.get(end) != '\n' && buf.get(end) != '\r') {
+                end++;
+            }
+            parseLine(buf, pos, end, visitor);
+            // Same terminators as BufferedReader.readLine(): \n, \r or \r\n
+            if (end < to && buf.get(end) == '\r' && end + 1 < to && buf.get(end + 1) == '\n') {
+                end++;
+            }
+            pos = end + 1;
+        }
+    }
+
+    /**
+     * Parses a single line without its terminator.
+     */
+    public void parseLine(ByteBuffer buf, int start, int end, Visitor visitor) {
+        lines++;
+        int trimmedStart = trimStart(buf, start, end);
+        int trimmedEnd = trimEnd(buf, trimmedStart, end);
+        // Ensure lines are not empty or comments
+        if (trimmedStart == trimmedEnd || buf.get(trimmedStart) == '#') {
+            return;
+        }
+        Record r = record;
+        r.lineNumber = lines;
+        r.buf = buf;
+        r.lineStart = start;
+        r.lineEnd = end;
+
+        // Locate up to five comma separated fields on the raw (untrimmed) line, like split(",", -1)
+        int fields = 1;
+        int c1 = -1, c2 = -1, c3 = -1, c4 = -1;
+        for (int i = start; i < end; i++) {
+            if (buf.get(i) == ',') {
+                switch (fields) {
+                    case 1 -> c1 = i;
+                    case 2 -> c2 = i;
+                    case 3 -> c3 = i;
+                    case 4 -> c4 = i;
+                    default -> { }
+                }
+                fields++;
+            }
+        }
+        if (fields < 4 || fields > 5) {
+            visitor.onMalformed(Problem.FIELD_COUNT, r);
+            return;
+        }
+        int salaryEnd = fields == 5 ? c4 : end;
+        if (!parseLong(buf, start, c1)) {
+            visitor.onMalformed(Problem.NUMBER_FORMAT, r);
+            return;
+        }
+        r.id = parsedLong;
+        r.firstStart = trimStart(buf, c1 + 1, c2);
+        r.firstEnd = trimEnd(buf, r.firstStart, c2);
+        r.lastStart = trimStart(buf, c2 + 1, c3);
+        r.lastEnd = trimEnd(buf, r.lastStart, c3);
+        if (!parseLong(buf, c3 + 1, salaryEnd)) {
+            visitor.onMalformed(Problem.NUMBER_FORMAT, r);
+            return;
+        }
+        r.salary = parsedLong;
+        r.hasManager = false;
+        if (fields == 5) {
+            int managerStart = trimStart(buf, c4 + 1, end);
+            if (managerStart != trimEnd(buf, managerStart, end)) {
+                if (!parseLong(buf, c4 + 1, end)) {
+                    visitor.onMalformed(Problem.NUMBER_FORMAT, r);
+                    return;
+                }
+                r.hasManager = true;
+                r.managerId = parsedLong;
+            }
+        }
+        visitor.onRecord(r);
+    }
+
+    /**
+     * Equivalent of Long.parseLong(s.trim()); stores the value in parsedLong.
+     */
+    private boolean parseLong(ByteBuffer buf, int start, int end) {
+        int i = trimStart(buf, start, end);
+        end = trimEnd(buf, i, end);
+        if (i == end) {
+            return false;
+        }
+        boolean negative = false;
+        byte first = buf.get(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++i == end) {
+                return false;
+            }
+        }
+        // Accumulate negatively so Long.MIN_VALUE parses without overflow
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long multMin = limit / 10;
+        long result = 0;
+        for (; i < end; i++) {
+            int digit = buf.get(i) - '0';
+            if (digit < 0 || digit > 9 || result < multMin) {
+                return false;
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                return false;
+            }
+            result -= digit;
+        }
+        parsedLong = negative ? result : -result;
+        return true;
+    }
+
+    // String.trim() semantics: strip every byte <= ' '
+    private static int trimStart(ByteBuffer buf, int start, int end) {
+        while (start < end && (buf.get(start) & 0xFF) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimEnd(ByteBuffer buf, int start, int end) {
+        while (end > start && (buf.get(end - 1) & 0xFF) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    static String decode(ByteBuffer buf, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        buf.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
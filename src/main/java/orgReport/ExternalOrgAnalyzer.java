@@ -0,0 +1,851 @@
+package orgReport;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Stream;
+
+/**
+ * Out-of-core analysis for organizations that do not fit in the heap. Produces the same issues as
+ * {@link OrgAnalyzer#analyzeStructure()}, ordered by employee id within each category, while keeping
+ * the working set near a fixed memory budget; everything else lives in spill files on local disk.
+ * <p>
+ * Every intermediate table is a file of fixed-width long tuples, brought into the order the next step
+ * needs by an external merge sort (sorted runs of at most the budget, then k-way merges):
+ * <ol>
+ *     <li>The CSV is streamed once; rows are sorted by (id, row number) and the last row per id is kept,
+ *     like a map put would. Names go to a side file and are only read back for reported employees.</li>
+ *     <li>Manager edges sorted by managerId are merge-scanned against the employees sorted by id,
+ *     which yields the subordinate count and salary sum of every manager and the missing managers.</li>
+ *     <li>Depths come from pointer jumping: every employee points to an ancestor at a known distance and
+ *     each round joins the pointers with the table itself, doubling the distance. After log2(N) rounds every
+ *     chain has reached the CEO or a broken end; pointers still open are inside or below a cycle.</li>
+ * </ol>
+ * The CEO is the first employee without a manager in file order; a repeated id counts from its first row.
+ */
+public class ExternalOrgAnalyzer {
+    public static final long DEFAULT_MEMORY_BUDGET = 64L << 20;
+    static final int STREAM_BUFFER = 1 << 16;  // per open spill file
+    static final int CSV_CHUNK = 1 << 20;
+    static final long NONE = Long.MIN_VALUE;
+
+    // Pointer states in the depth table
+    private static final long OPEN = 0;    // ancestor is another employee, keep jumping
+    private static final long REACHED = 1; // distance is the reporting-line length
+    private static final long BROKEN = 2;  // chain ends at a missing manager or another root
+
+    // Column layouts
+    private static final int ROW_WIDTH = 6;      // id, row, hasManager, managerId, salary bits, name offset
+    private static final int EMPLOYEE_WIDTH = 5; // id, hasManager, managerId, salary bits, name offset
+    private static final int EDGE_WIDTH = 3;     // managerId, id, salary bits
+    private static final int POINTER_WIDTH = 4;  // id, ancestor, distance, state
+    private static final int JUMP_WIDTH = 3;     // ancestor, id, distance
+
+    private final long memoryBudget;
+    private final Path workDir;
+    private final MemoryAccount sortMemory = new MemoryAccount();
+    public OrgMetrics metrics = new OrgMetrics();
+    public Diagnostics diagnostics = new Diagnostics();
+
+    /**
+     * @param memoryBudget bytes for sort buffers and merge fan-in, shared by the sorters open at the same time;
+     *                     the heap needs little more than this
+     * @param workDir      directory for spill files (a private subdirectory is created and removed again)
+     */
+    public ExternalOrgAnalyzer(long memoryBudget, Path workDir) {
+        if (memoryBudget < 6L * STREAM_BUFFER) {
+            throw new IllegalArgumentException("memoryBudget must be at least " + 6 * STREAM_BUFFER + " bytes: " + memoryBudget);
+        }
+        this.memoryBudget = memoryBudget;
+        this.workDir = workDir;
+    }
+
+    /**
+     * Most bytes held at once by sort buffers and merge streams during analyze(); stays within the memory budget.
+     */
+    public long peakSortMemory() {
+        return sortMemory.peak;
+    }
+
+    /**
+     * Analyzes the CSV and streams every issue into the sink, then calls {@link ReportSink#finish()}.
+     */
+    public void analyze(Path csv, ReportSink sink) throws IOException {
+        long t = metrics.start();
+        Path dir = Files.createTempDirectory(workDir, "org-external");
+        try {
+            ReportSink counting = new OrgAnalyzer.CountingSink(sink, metrics, diagnostics);
+            Path names = dir.resolve("names");
+            Path employees = dir.resolve("employees");
+            long[] ceo = {NONE};
+            long n;
+            try (TupleSorter rows = new TupleSorter(dir, "rows", ROW_WIDTH, 2, memoryBudget, sortMemory)) {
+                scan(csv, rows, names);
+                n = deduplicate(rows, employees, ceo);
+            }
+            try (NameFile nameFile = new NameFile(names)) {
+                checkSalaries(dir, employees, nameFile, counting);
+                if (ceo[0] != NONE) {
+                    Path pointers = reportingDepths(dir, employees, ceo[0], n);
+                    checkReportingLines(dir, employees, pointers, ceo[0], nameFile, counting);
+                }
+            }
+            sink.diagnostics(diagnostics.copy());
+            sink.finish();
+        } finally {
+            deleteRecursively(dir);
+        }
+        metrics.stop(OrgMetrics.Phase.ANALYZE, t);
+    }
+
+    /**
+     * Streams the CSV in chunks and spills one row tuple per valid line; names go to the side file.
+     */
+    private void scan(Path csv, TupleSorter rows, Path names) throws IOException {
+        long t = metrics.start();
+        long[] row = new long[ROW_WIDTH];
+        long[] count = {0};
+        // Gzip input is inflated as a stream so the heap use stays independent of the file
+        try (ReadableByteChannel channel = GzipInput.isGzip(csv)
+                ? GzipInput.open(csv, 1, metrics)
+                : FileChannel.open(csv, StandardOpenOption.READ);
+             NameWriter nameWriter = new NameWriter(names)) {
+            EmployeeCsvParser parser = new EmployeeCsvParser();
+            EmployeeCsvParser.Visitor visitor = new EmployeeCsvParser.Visitor() {
+                @Override
+                public void onRecord(EmployeeCsvParser.Record record) {
+                    row[0] = record.id;
+                    row[1] = count[0]++;
+                    row[2] = record.hasManager ? 1 : 0;
+                    row[3] = record.hasManager ? record.managerId : 0;
+                    row[4] = Double.doubleToRawLongBits(record.salary);
+                    try {
+                        row[5] = nameWriter.write(record);
+                        rows.add(row);
+                    } catch (IOException e) {
+                        throw new SpillException(e);
+                    }
+                }
+
+                @Override
+                public void onMalformed(EmployeeCsvParser.Problem problem, EmployeeCsvParser.Record record) {
+                    metrics.skipped(problem);
+                    if (diagnostics.record(Diagnostics.Code.of(problem), record.lineNumber, Diagnostics.NO_ID, Diagnostics.NO_ID)) {
+                        diagnostics.describe(Diagnostics.Code.of(problem), record.line());
+                    }
+                }
+            };
+            try {
+                MappedCsvLoader.stream(channel, CSV_CHUNK, parser, visitor);
+            } catch (SpillException e) {
+                throw e.getCause();
+            }
+        }
+        metrics.rowsParsed(count[0]);
+        metrics.bytesRead(Files.size(csv));
+        metrics.stop(OrgMetrics.Phase.READ, t);
+    }
+
+    /**
+     * Keeps the last row per id and writes the employee table sorted by id. Returns the number of employees
+     * and stores the CEO id (or NONE) in ceo[0].
+     */
+    private long deduplicate(TupleSorter rows, Path employees, long[] ceo) throws IOException {
+        long t = metrics.start();
+        long n = 0;
+        long ceoRow = Long.MAX_VALUE;
+        long roots = 0;
+        try (TupleReader sorted = rows.sorted();
+             TupleWriter out = new TupleWriter(employees)) {
+            boolean more = sorted.next();
+            long[] last = new long[ROW_WIDTH];
+            while (more) {
+                System.arraycopy(sorted.row(), 0, last, 0, ROW_WIDTH);
+                long firstRow = last[1]; // a repeated id ranks by its first row, like the in-memory loaders
+                while ((more = sorted.next()) && sorted.get(0) == last[0]) {
+                    System.arraycopy(sorted.row(), 0, last, 0, ROW_WIDTH);
+                }
+                out.write(last[0], last[2], last[3], last[4], last[5]);
+                n++;
+                if (last[2] == 0) {
+                    roots++;
+                    if (firstRow < ceoRow) {
+                        ceoRow = firstRow;
+                        ceo[0] = last[0];
+                    }
+                }
+            }
+        }
+        if (roots > 1) {
+            // The CEO is only known after the whole pass; one more scan names the other roots
+            try (TupleReader in = new FileTupleReader(employees, EMPLOYEE_WIDTH)) {
+                while (in.next()) {
+                    if (in.get(1) == 0 && in.get(0) != ceo[0]) {
+                        diagnostics.record(Diagnostics.Code.MULTIPLE_CEOS, Diagnostics.NO_LINE, in.get(0), ceo[0]);
+                    }
+                }
+            }
+        } else if (roots == 0 && n > 0) {
+            diagnostics.record(Diagnostics.Code.NO_CEO, Diagnostics.NO_LINE, Diagnostics.NO_ID, Diagnostics.NO_ID);
+        }
+        metrics.stop(OrgMetrics.Phase.LINK, t);
+        return n;
+    }
+
+    /**
+     * Sorts the manager edges by managerId and merge-joins the per-manager aggregates with the employee table.
+     */
+    private void checkSalaries(Path dir, Path employees, NameFile names, ReportSink sink) throws IOException {
+        long t = metrics.start();
+        try (TupleSorter edges = new TupleSorter(dir, "edges", EDGE_WIDTH, 2, memoryBudget, sortMemory)) {
+            try (TupleReader in = new FileTupleReader(employees, EMPLOYEE_WIDTH)) {
+                long[] edge = new long[EDGE_WIDTH];
+                while (in.next()) {
+                    if (in.get(1) != 0) {
+                        edge[0] = in.get(2);
+                        edge[1] = in.get(0);
+                        edge[2] = in.get(3);
+                        edges.add(edge);
+                    }
+                }
+            }
+            try (TupleReader byManager = edges.sorted();
+                 TupleReader managers = new FileTupleReader(employees, EMPLOYEE_WIDTH)) {
+                boolean moreEdges = byManager.next();
+                boolean moreManagers = managers.next();
+                while (moreEdges) {
+                    long managerId = byManager.get(0);
+                    while (moreManagers && managers.get(0) < managerId) {
+                        moreManagers = managers.next();
+                    }
+                    boolean found = moreManagers && managers.get(0) == managerId;
+                    long count = 0;
+                    double sum = 0;
+                    do {
+                        count++;
+                        sum += Double.longBitsToDouble(byManager.get(2));
+                        if (!found) {
+                            metrics.missingManager();
+                            diagnostics.record(Diagnostics.Code.MISSING_MANAGER, Diagnostics.NO_LINE, byManager.get(1), managerId);
+                        }
+                    } while ((moreEdges = byManager.next()) && byManager.get(0) == managerId);
+                    if (found) {
+                        checkSalary(managerId, Double.longBitsToDouble(managers.get(3)), sum / count, managers.get(4), names, sink);
+                    }
+                }
+            }
+        }
+        metrics.stop(OrgMetrics.Phase.SALARY_CHECK, t);
+    }
+
+    private static void checkSalary(long id, double salary, double average, long nameOffset, NameFile names,
+                                    ReportSink sink) throws IOException {
+        OrgAnalyzer.ManagerSalaryIssue issue = ComplianceChecks.salaryBand(salary, average,
+                OrgAnalyzer.MIN_SALARY_FACTOR, OrgAnalyzer.MAX_SALARY_FACTOR);
+        if (issue != null) {
+            issue.managerName = names.fullName(nameOffset);
+            issue.managerId = id;
+            ComplianceChecks.report(issue, salary, sink);
+        }
+    }
+
+    /**
+     * Pointer jumping over the employee table; returns the final pointer table, sorted by id.
+     */
+    private Path reportingDepths(Path dir, Path employees, long ceo, long n) throws IOException {
+        long t = metrics.start();
+        Path table = dir.resolve("pointers-0");
+        long open = 0;
+        try (TupleReader in = new FileTupleReader(employees, EMPLOYEE_WIDTH);
+             TupleWriter out = new TupleWriter(table)) {
+            while (in.next()) {
+                long id = in.get(0);
+                if (id == ceo) {
+                    out.write(id, id, 0, REACHED);
+                } else if (in.get(1) == 0) {
+                    out.write(id, id, 0, BROKEN);
+                } else {
+                    out.write(id, in.get(2), 1, OPEN);
+                    open++;
+                }
+            }
+        }
+        // After r rounds an open pointer spans 2^r managers; any chain that ends does so within n steps
+        for (int round = 1; open > 0 && (1L << (round - 1)) < n; round++) {
+            Path next = dir.resolve("pointers-" + round);
+            open = jump(dir, table, next);
+            Files.delete(table);
+            table = next;
+        }
+        metrics.stop(OrgMetrics.Phase.REPORTING_DEPTHS, t);
+        return table;
+    }
+
+    /**
+     * One synchronous jump: every open pointer x -> a becomes x -> ancestor(a), joined against the previous table.
+     * Returns the number of pointers still open.
+     */
+    private long jump(Path dir, Path table, Path next) throws IOException {
+        long open = 0;
+        // Both sorters are open while the jumps are merged into moved, so they share the budget
+        try (TupleSorter jumps = new TupleSorter(dir, "jumps", JUMP_WIDTH, 2, memoryBudget / 2, sortMemory);
+             TupleSorter moved = new TupleSorter(dir, "moved", POINTER_WIDTH, 1, memoryBudget / 2, sortMemory)) {
+            try (TupleReader in = new FileTupleReader(table, POINTER_WIDTH)) {
+                long[] jump = new long[JUMP_WIDTH];
+                while (in.next()) {
+                    if (in.get(3) == OPEN) {
+                        jump[0] = in.get(1);
+                        jump[1] = in.get(0);
+                        jump[2] = in.get(2);
+                        jumps.add(jump);
+                    }
+                }
+            }
+            try (TupleReader byAncestor = jumps.sorted();
+                 TupleReader targets = new FileTupleReader(table, POINTER_WIDTH)) {
+                long[] pointer = new long[POINTER_WIDTH];
+                boolean moreTargets = targets.next();
+                while (byAncestor.next()) {
+                    long ancestor = byAncestor.get(0);
+                    while (moreTargets && targets.get(0) < ancestor) {
+                        moreTargets = targets.next();
+                    }
+                    pointer[0] = byAncestor.get(1);
+                    if (moreTargets && targets.get(0) == ancestor) {
+                        pointer[1] = targets.get(1);
+                        pointer[2] = byAncestor.get(2) + targets.get(2);
+                        pointer[3] = targets.get(3);
+                    } else {
+                        pointer[1] = ancestor; // manager is not in the dataset
+                        pointer[2] = 0;
+                        pointer[3] = BROKEN;
+                    }
+                    if (pointer[3] == OPEN) {
+                        open++;
+                    }
+                    moved.add(pointer);
+                }
+            }
+            // Closed pointers are already in id order; merge the moved ones back in
+            try (TupleReader updated = moved.sorted();
+                 TupleReader previous = new FileTupleReader(table, POINTER_WIDTH);
+                 TupleWriter out = new TupleWriter(next)) {
+                boolean moreUpdated = updated.next();
+                while (previous.next()) {
+                    if (previous.get(3) != OPEN) {
+                        out.write(previous.row());
+                    } else {
+                        out.write(updated.row()); // same id: both streams list the open ids in id order
+                        moreUpdated = updated.next();
+                    }
+                }
+                if (moreUpdated) {
+                    throw new IllegalStateException("Pointer table out of step at id " + updated.get(0));
+                }
+            }
+        }
+        return open;
+    }
+
+    /**
+     * Walks the final pointers and the employee table side by side (both in id order) and reports
+     * long, cyclic and broken reporting lines.
+     */
+    private void checkReportingLines(Path dir, Path employees, Path pointers, long ceo, NameFile names,
+                                     ReportSink sink) throws IOException {
+        long t = metrics.start();
+        // Pointers still open ended up on a cycle: their ancestors are exactly the cycle members
+        try (TupleSorter cycle = new TupleSorter(dir, "cycle", 1, 1, memoryBudget, sortMemory)) {
+            try (TupleReader in = new FileTupleReader(pointers, POINTER_WIDTH)) {
+                long[] member = new long[1];
+                while (in.next()) {
+                    if (in.get(3) == OPEN) {
+                        member[0] = in.get(1);
+                        cycle.add(member);
+                    }
+                }
+            }
+            long maxDepth = 0;
+            try (TupleReader members = cycle.sorted();
+                 TupleReader in = new FileTupleReader(pointers, POINTER_WIDTH);
+                 TupleReader people = new FileTupleReader(employees, EMPLOYEE_WIDTH)) {
+                boolean moreMembers = members.next();
+                while (in.next() && people.next()) {
+                    long id = in.get(0);
+                    long state = in.get(3);
+                    if (state == REACHED) {
+                        long length = in.get(2);
+                        maxDepth = Math.max(maxDepth, length);
+                        if (id != ceo && length > OrgAnalyzer.MAX_REPORTING_LINE_LENGTH) {
+                            OrgAnalyzer.ReportingLineIssue issue = new OrgAnalyzer.ReportingLineIssue();
+                            issue.employeeName = names.fullName(people.get(4));
+                            issue.employeeId = id;
+                            issue.actualLength = (int) length;
+                            issue.excessiveManagers = (int) length - OrgAnalyzer.MAX_REPORTING_LINE_LENGTH;
+                            sink.longReportingLine(issue);
+                        }
+                        continue;
+                    }
+                    while (moreMembers && members.get(0) < id) {
+                        moreMembers = members.next();
+                    }
+                    OrgAnalyzer.HierarchyIssue issue = new OrgAnalyzer.HierarchyIssue();
+                    issue.employeeName = names.fullName(people.get(4));
+                    issue.employeeId = id;
+                    issue.cyclic = state == OPEN && moreMembers && members.get(0) == id;
+                    if (issue.cyclic) {
+                        sink.cyclicReportingLine(issue);
+                    } else {
+                        sink.orphanedEmployee(issue);
+                    }
+                }
+            }
+            metrics.depth(maxDepth);
+        }
+        metrics.stop(OrgMetrics.Phase.REPORTING_LINE_CHECK, t);
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Carries an IOException out of a parser callback.
+     */
+    private static class SpillException extends RuntimeException {
+        SpillException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+
+    /**
+     * Appends "firstName lastName" records (length-prefixed UTF-8) and returns their offsets.
+     */
+    private static class NameWriter implements Closeable {
+        private final DataOutputStream out;
+        private long offset;
+
+        NameWriter(Path path) throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), STREAM_BUFFER));
+        }
+
+        long write(EmployeeCsvParser.Record record) throws IOException {
+            long start = offset;
+            int length = record.firstEnd - record.firstStart + 1 + record.lastEnd - record.lastStart;
+            out.writeInt(length);
+            for (int i = record.firstStart; i < record.firstEnd; i++) {
+                out.write(record.buf.get(i));
+            }
+            out.write(' ');
+            for (int i = record.lastStart; i < record.lastEnd; i++) {
+                out.write(record.buf.get(i));
+            }
+            offset += 4 + length;
+            return start;
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * Random access to the name side file; only used for employees that end up in the report.
+     */
+    private static class NameFile implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer length = ByteBuffer.allocate(4);
+
+        NameFile(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+        }
+
+        String fullName(long offset) throws IOException {
+            readFully(length.clear(), offset);
+            ByteBuffer bytes = ByteBuffer.allocate(length.getInt(0));
+            readFully(bytes, offset + 4);
+            return new String(bytes.array(), StandardCharsets.UTF_8);
+        }
+
+        private void readFully(ByteBuffer buf, long position) throws IOException {
+            while (buf.hasRemaining()) {
+                if (channel.read(buf, position + buf.position()) < 0) {
+                    throw new EOFException("Name file truncated at " + position);
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Sequential access to a stream of tuples. row() is reused between calls to next().
+     */
+    interface TupleReader extends Closeable {
+        boolean next() throws IOException;
+
+        long[] row();
+
+        default long get(int column) {
+            return row()[column];
+        }
+    }
+
+    private static class TupleWriter implements Closeable {
+        private final DataOutputStream out;
+
+        TupleWriter(Path path) throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), STREAM_BUFFER));
+        }
+
+        void write(long... row) throws IOException {
+            for (long value : row) {
+                out.writeLong(value);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    private static class FileTupleReader implements TupleReader {
+        private final DataInputStream in;
+        private final long[] row;
+
+        FileTupleReader(Path path, int width) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), STREAM_BUFFER));
+            row = new long[width];
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            try {
+                row[0] = in.readLong();
+            } catch (EOFException e) {
+                return false;
+            }
+            for (int i = 1; i < row.length; i++) {
+                row[i] = in.readLong();
+            }
+            return true;
+        }
+
+        @Override
+        public long[] row() {
+            return row;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Bytes held by the buffers and streams of the open sorters, and the most held at once.
+     */
+    static final class MemoryAccount {
+        private long inUse;
+        private long peak;
+
+        void reserve(long bytes) {
+            inUse += bytes;
+            peak = Math.max(peak, inUse);
+        }
+
+        void release(long bytes) {
+            inUse -= bytes;
+        }
+    }
+
+    /**
+     * External merge sort of fixed-width long tuples by their first keyColumns columns; tuples with equal keys
+     * come out in no particular order. Tuples are buffered in one flat array that grows while it and its grown copy
+     * fit the budget next to a spill stream; a full buffer is sorted in place and spilled as a run. {@link #sorted()}
+     * drops the buffer after the last spill and merges the runs with as many open streams as the whole budget holds,
+     * in several passes when there are more, or reads the buffer directly when nothing was spilled.
+     */
+    static class TupleSorter implements Closeable {
+        private final Path dir;
+        private final String name;
+        private final int width;
+        private final int keyColumns;
+        private final int fanIn;
+        private final int budgetTuples; // buffer and grown copy together
+        private final MemoryAccount memory;
+        private final long[] pivot;
+        private final List<Path> runs = new ArrayList<>();
+        private long[] buffer;
+        private int count;
+        private int runNumber;
+
+        TupleSorter(Path dir, String name, int width, int keyColumns, long budgetBytes, MemoryAccount memory) {
+            this.dir = dir;
+            this.name = name;
+            this.width = width;
+            this.keyColumns = keyColumns;
+            this.memory = memory;
+            this.budgetTuples = (int) Math.min(Math.max(1, (budgetBytes - STREAM_BUFFER) / 8 / width), Integer.MAX_VALUE / width);
+            this.pivot = new long[width];
+            // Merge inputs plus the output stream of an intermediate pass
+            this.fanIn = (int) Math.max(2, Math.min(1024, budgetBytes / STREAM_BUFFER - 1));
+            this.buffer = new long[Math.min(budgetTuples, 1024) * width];
+            memory.reserve(8L * buffer.length);
+        }
+
+        void add(long[] row) throws IOException {
+            if (count * width == buffer.length) {
+                int grown = (int) Math.min(2L * count, budgetTuples - count);
+                if (grown > count) {
+                    memory.reserve(8L * grown * width);
+                    long[] old = buffer;
+                    buffer = Arrays.copyOf(buffer, grown * width);
+                    memory.release(8L * old.length);
+                } else {
+                    spill();
+                }
+            }
+            System.arraycopy(row, 0, buffer, count * width, width);
+            count++;
+        }
+
+        /**
+         * All tuples added so far, in key order. The sorter must not be used for adding afterwards.
+         */
+        TupleReader sorted() throws IOException {
+            sort(0, count - 1);
+            if (runs.isEmpty()) {
+                return new BufferReader();
+            }
+            spill();
+            releaseBuffer(); // the merge streams get the whole budget
+            while (runs.size() > fanIn) {
+                List<Path> group = new ArrayList<>(runs.subList(0, fanIn));
+                runs.subList(0, fanIn).clear();
+                Path merged = newRun();
+                memory.reserve(STREAM_BUFFER);
+                try (TupleReader in = merge(group);
+                     TupleWriter out = new TupleWriter(merged)) {
+                    while (in.next()) {
+                        out.write(in.row());
+                    }
+                } finally {
+                    memory.release(STREAM_BUFFER);
+                }
+                for (Path run : group) {
+                    Files.delete(run);
+                }
+                runs.add(merged);
+            }
+            return merge(runs);
+        }
+
+        @Override
+        public void close() throws IOException {
+            releaseBuffer();
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+        }
+
+        private void releaseBuffer() {
+            if (buffer != null) {
+                memory.release(8L * buffer.length);
+                buffer = null;
+            }
+        }
+
+        private void spill() throws IOException {
+            sort(0, count - 1);
+            Path run = newRun();
+            runs.add(run);
+            memory.reserve(STREAM_BUFFER);
+            try (TupleWriter out = new TupleWriter(run)) {
+                long[] row = new long[width];
+                for (int i = 0; i < count; i++) {
+                    System.arraycopy(buffer, i * width, row, 0, width);
+                    out.write(row);
+                }
+            } finally {
+                memory.release(STREAM_BUFFER);
+            }
+            count = 0;
+        }
+
+        private Path newRun() {
+            return dir.resolve(name + "-run-" + runNumber++);
+        }
+
+        private TupleReader merge(List<Path> group) throws IOException {
+            // Readers are ranked by their current row; the heap holds reader numbers
+            List<FileTupleReader> readers = new ArrayList<>();
+            PriorityQueue<Integer> heap = new PriorityQueue<>(Math.max(1, group.size()), (a, b) -> {
+                int c = compareKeys(readers.get(a).row(), readers.get(b).row());
+                return c != 0 ? c : Integer.compare(a, b);
+            });
+            memory.reserve((long) STREAM_BUFFER * group.size());
+            for (Path run : group) {
+                readers.add(new FileTupleReader(run, width));
+            }
+            for (int i = 0; i < readers.size(); i++) {
+                if (readers.get(i).next()) {
+                    heap.add(i);
+                }
+            }
+            long[] row = new long[width];
+            return new TupleReader() {
+                @Override
+                public boolean next() throws IOException {
+                    Integer top = heap.poll();
+                    if (top == null) {
+                        return false;
+                    }
+                    FileTupleReader reader = readers.get(top);
+                    System.arraycopy(reader.row(), 0, row, 0, width);
+                    if (reader.next()) {
+                        heap.add(top);
+                    }
+                    return true;
+                }
+
+                @Override
+                public long[] row() {
+                    return row;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    for (FileTupleReader reader : readers) {
+                        reader.close();
+                    }
+                    memory.release((long) STREAM_BUFFER * group.size());
+                }
+            };
+        }
+
+        private int compareKeys(long[] a, long[] b) {
+            for (int k = 0; k < keyColumns; k++) {
+                int c = Long.compare(a[k], b[k]);
+                if (c != 0) {
+                    return c;
+                }
+            }
+            return 0;
+        }
+
+        private int compare(int i, int j) {
+            for (int k = 0; k < keyColumns; k++) {
+                int c = Long.compare(buffer[i * width + k], buffer[j * width + k]);
+                if (c != 0) {
+                    return c;
+                }
+            }
+            return 0;
+        }
+
+        private int compareToPivot(int i) {
+            for (int k = 0; k < keyColumns; k++) {
+                int c = Long.compare(buffer[i * width + k], pivot[k]);
+                if (c != 0) {
+                    return c;
+                }
+            }
+            return 0;
+        }
+
+        // Hoare quicksort on whole tuples; recurses into the smaller half only
+        private void sort(int lo, int hi) {
+            while (hi - lo > 16) {
+                System.arraycopy(buffer, ((lo + hi) >>> 1) * width, pivot, 0, width);
+                int i = lo - 1, j = hi + 1;
+                while (true) {
+                    do {
+                        i++;
+                    } while (compareToPivot(i) < 0);
+                    do {
+                        j--;
+                    } while (compareToPivot(j) > 0);
+                    if (i >= j) {
+                        break;
+                    }
+                    swap(i, j);
+                }
+                if (j - lo < hi - j) {
+                    sort(lo, j);
+                    lo = j + 1;
+                } else {
+                    sort(j + 1, hi);
+                    hi = j;
+                }
+            }
+            for (int i = lo + 1; i <= hi; i++) {
+                for (int j = i; j > lo && compare(j - 1, j) > 0; j--) {
+                    swap(j - 1, j);
+                }
+            }
+        }
+
+        private void swap(int i, int j) {
+            int a = i * width, b = j * width;
+            for (int k = 0; k < width; k++) {
+                long tmp = buffer[a + k];
+                buffer[a + k] = buffer[b + k];
+                buffer[b + k] = tmp;
+            }
+        }
+
+        private class BufferReader implements TupleReader {
+            private final long[] row = new long[width];
+            private int next;
+
+            @Override
+            public boolean next() {
+                if (next == count) {
+                    return false;
+                }
+                System.arraycopy(buffer, next++ * width, row, 0, width);
+                return true;
+            }
+
+            @Override
+            public long[] row() {
+                return row;
+            }
+
+            @Override
+            public void close() {
+            }
+        }
+    }
+}
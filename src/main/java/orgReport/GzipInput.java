@@ -0,0 +1,392 @@
+package orgReport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Decompressed view of a gzip file as a channel, so the CSV loaders can read {@code employees.csv.gz} without
+ * unpacking it to disk first.
+ * <p>
+ * Ordinary gzip files (one member, or several concatenated members) are inflated as a stream through large
+ * buffers. Blocked gzip files (bgzip/BGZF: every member records its compressed size in a "BC" header field)
+ * can be split without inflating anything, so with more than one thread their members are inflated in
+ * parallel, in groups of a few megabytes, and handed out in file order. Decompressed bytes, the time spent
+ * inflating on each thread and the wall-clock time until the reader reached the end are recorded in the
+ * metrics ({@link OrgMetrics#getInflateMBPerSecond()}, {@link OrgMetrics#getInflateMBPerThreadSecond()}).
+ */
+public final class GzipInput {
+    static final int STREAM_BUFFER = 1 << 20;
+    static final int GROUP_BYTES = 4 << 20;     // compressed bytes per parallel inflation task
+    static final int TASKS_AHEAD_PER_THREAD = 2;
+
+    private static final int FEXTRA = 4, FNAME = 8, FCOMMENT = 16, FHCRC = 2;
+
+    private GzipInput() {
+    }
+
+    /**
+     * True when the file starts with the gzip magic bytes.
+     */
+    public static boolean isGzip(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            return in.read() == 0x1f && in.read() == 0x8b;
+        }
+    }
+
+    /**
+     * Opens the decompressed content of a gzip file. Uses up to threads inflating threads for BGZF files.
+     *
+     * @param metrics receives inflated bytes, INFLATE and INFLATE_WALL time; may be null
+     */
+    public static ReadableByteChannel open(Path path, int threads, OrgMetrics metrics) throws IOException {
+        OrgMetrics recorder = metrics != null ? metrics : new OrgMetrics();
+        if (threads > 1) {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                long[] members = blockedMembers(channel);
+                if (members != null && members.length > 2) {
+                    return new ParallelInflater(channel, members, threads, recorder);
+                }
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+            channel.close();
+        }
+        return new StreamingInflater(Files.newInputStream(path), recorder);
+    }
+
+    /**
+     * Start offsets of all members followed by the file size, or null unless every member is a BGZF block.
+     */
+    static long[] blockedMembers(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long[] offsets = new long[64];
+        int count = 0;
+        ByteBuffer header = ByteBuffer.allocate(18);
+        long pos = 0;
+        while (pos < size) {
+            header.clear();
+            while (header.hasRemaining() && channel.read(header, pos + header.position()) > 0) {
+                // fill the fixed BGZF header
+            }
+            if (header.position() < 18 || !isBlockHeader(header)) {
+                return null;
+            }
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            offsets[count++] = pos;
+            pos += (header.get(16) & 0xff | (header.get(17) & 0xff) << 8) + 1;
+        }
+        if (pos != size) {
+            return null;
+        }
+        offsets = Arrays.copyOf(offsets, count + 1);
+        offsets[count] = size;
+        return offsets;
+    }
+
+    // 1f 8b 08, FEXTRA, XLEN 6, subfield 'B' 'C' of length 2 holding BSIZE (total member size - 1)
+    private static boolean isBlockHeader(ByteBuffer h) {
+        return (h.get(0) & 0xff) == 0x1f && (h.get(1) & 0xff) == 0x8b && h.get(2) == 8 && (h.get(3) & FEXTRA) != 0
+                && h.get(10) == 6 && h.get(11) == 0 && h.get(12) == 'B' && h.get(13) == 'C' && h.get(14) == 2 && h.get(15) == 0;
+    }
+
+    /**
+     * Inflates complete BGZF members read from fileOffset and verifies their CRC and length.
+     */
+    static byte[] inflateMembers(byte[] data, long fileOffset) throws IOException {
+        // ISIZE of each member sizes the output exactly; walk the members once to add them up
+        long total = 0;
+        int[] bounds = new int[16]; // deflate start and member end, per member
+        int count = 0;
+        for (int pos = 0; pos < data.length; ) {
+            int end = memberEnd(data, pos, fileOffset);
+            if (count + 2 > bounds.length) {
+                bounds = Arrays.copyOf(bounds, bounds.length * 2);
+            }
+            bounds[count++] = headerEnd(data, pos, fileOffset);
+            bounds[count++] = end;
+            total += intLE(data, end - 4) & 0xffffffffL;
+            pos = end;
+        }
+        if (total > Integer.MAX_VALUE - 8) {
+            throw new IOException("Gzip members at offset " + fileOffset + " inflate to more than 2 GB");
+        }
+        byte[] out = new byte[(int) total];
+        byte[] spare = new byte[1];
+        int written = 0;
+        Inflater inflater = new Inflater(true);
+        CRC32 crc = new CRC32();
+        try {
+            for (int m = 0; m < count; m += 2) {
+                int body = bounds[m];
+                int end = bounds[m + 1];
+                inflater.reset();
+                inflater.setInput(data, body, end - 8 - body);
+                int start = written;
+                while (!inflater.finished()) {
+                    int room = out.length - written;
+                    // With the output full, one spare byte lets the inflater reach the end of an exact-sized member
+                    int n = room > 0 ? inflater.inflate(out, written, room) : inflater.inflate(spare);
+                    if (room == 0 && n > 0 || n == 0 && !inflater.finished() && (inflater.needsInput() || inflater.needsDictionary())) {
+                        throw new IOException("Corrupt gzip member at offset " + (fileOffset + body));
+                    }
+                    written += n;
+                }
+                crc.reset();
+                crc.update(out, start, written - start);
+                if ((int) crc.getValue() != intLE(data, end - 8) || written - start != intLE(data, end - 4)) {
+                    throw new IOException("Gzip member at offset " + (fileOffset + body) + " fails its CRC or length check");
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt gzip data near offset " + fileOffset + ": " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+        return out;
+    }
+
+    // Offset of the deflate data after a member header starting at pos
+    private static int headerEnd(byte[] d, int pos, long fileOffset) throws IOException {
+        if (d.length - pos < 18 || (d[pos] & 0xff) != 0x1f || (d[pos + 1] & 0xff) != 0x8b || d[pos + 2] != 8) {
+            throw new IOException("No gzip member at offset " + (fileOffset + pos));
+        }
+        int flags = d[pos + 3];
+        int p = pos + 10;
+        if ((flags & FEXTRA) != 0) {
+            p += 2 + (d[p] & 0xff | (d[p + 1] & 0xff) << 8);
+        }
+        if ((flags & FNAME) != 0) {
+            while (d[p++] != 0) {
+                // skip file name
+            }
+        }
+        if ((flags & FCOMMENT) != 0) {
+            while (d[p++] != 0) {
+                // skip comment
+            }
+        }
+        if ((flags & FHCRC) != 0) {
+            p += 2;
+        }
+        return p;
+    }
+
+    // BGZF members carry their own size
+    private static int memberEnd(byte[] d, int pos, long fileOffset) throws IOException {
+        if (d.length - pos < 18) {
+            throw new IOException("Truncated gzip member at offset " + (fileOffset + pos));
+        }
+        int end = pos + (d[pos + 16] & 0xff | (d[pos + 17] & 0xff) << 8) + 1;
+        if (end > d.length || end - pos < 26) {
+            throw new IOException("Truncated gzip member at offset " + (fileOffset + pos));
+        }
+        return end;
+    }
+
+    private static int intLE(byte[] d, int p) {
+        return d[p] & 0xff | (d[p + 1] & 0xff) << 8 | (d[p + 2] & 0xff) << 16 | (d[p + 3] & 0xff) << 24;
+    }
+
+    /**
+     * INFLATE_WALL time of one input: from opening it until the reader sees the end, or closes it early.
+     */
+    private static final class WallClock {
+        private final OrgMetrics metrics;
+        private final long opened;
+        private boolean stopped;
+
+        WallClock(OrgMetrics metrics) {
+            this.metrics = metrics;
+            this.opened = metrics.start();
+        }
+
+        void stop() {
+            if (!stopped) {
+                stopped = true;
+                metrics.stop(OrgMetrics.Phase.INFLATE_WALL, opened);
+            }
+        }
+    }
+
+    /**
+     * Single-threaded inflation of any gzip file, concatenated members included.
+     */
+    private static final class StreamingInflater implements ReadableByteChannel {
+        private final GZIPInputStream in;
+        private final OrgMetrics metrics;
+        private final WallClock wall;
+        private byte[] scratch;
+        private boolean open = true;
+
+        StreamingInflater(InputStream file, OrgMetrics metrics) throws IOException {
+            this.wall = new WallClock(metrics);
+            this.in = new GZIPInputStream(file, STREAM_BUFFER);
+            this.metrics = metrics;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            if (!open) {
+                throw new ClosedChannelException();
+            }
+            long t = metrics.start();
+            int n;
+            if (dst.hasArray()) {
+                n = in.read(dst.array(), dst.arrayOffset() + dst.position(), dst.remaining());
+                if (n > 0) {
+                    dst.position(dst.position() + n);
+                }
+            } else {
+                if (scratch == null) {
+                    scratch = new byte[STREAM_BUFFER];
+                }
+                n = in.read(scratch, 0, Math.min(scratch.length, dst.remaining()));
+                if (n > 0) {
+                    dst.put(scratch, 0, n);
+                }
+            }
+            metrics.stop(OrgMetrics.Phase.INFLATE, t);
+            if (n > 0) {
+                metrics.bytesInflated(n);
+            } else if (n < 0) {
+                wall.stop();
+            }
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() throws IOException {
+            open = false;
+            wall.stop();
+            in.close();
+        }
+    }
+
+    /**
+     * Inflates groups of BGZF members on a small pool, a bounded number of groups ahead of the reader.
+     */
+    private static final class ParallelInflater implements ReadableByteChannel {
+        private final FileChannel channel;
+        private final long[] members;
+        private final OrgMetrics metrics;
+        private final WallClock wall;
+        private final ExecutorService pool;
+        private final int tasksAhead;
+        private final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+        private int nextMember;
+        private byte[] current = new byte[0];
+        private int position;
+        private boolean open = true;
+
+        ParallelInflater(FileChannel channel, long[] members, int threads, OrgMetrics metrics) {
+            this.channel = channel;
+            this.members = members;
+            this.metrics = metrics;
+            this.wall = new WallClock(metrics);
+            this.pool = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "gzip-inflater");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.tasksAhead = threads * TASKS_AHEAD_PER_THREAD;
+            fill();
+        }
+
+        private void fill() {
+            while (pending.size() < tasksAhead && nextMember < members.length - 1) {
+                int first = nextMember;
+                int last = first + 1;
+                while (last < members.length - 1 && members[last + 1] - members[first] <= GROUP_BYTES) {
+                    last++;
+                }
+                nextMember = last;
+                long from = members[first];
+                long to = members[last];
+                pending.add(pool.submit(() -> inflate(from, to)));
+            }
+        }
+
+        private byte[] inflate(long from, long to) throws IOException {
+            long t = metrics.start();
+            byte[] compressed = new byte[(int) (to - from)];
+            ByteBuffer buf = ByteBuffer.wrap(compressed);
+            while (buf.hasRemaining()) {
+                if (channel.read(buf, from + buf.position()) < 0) {
+                    throw new IOException("Unexpected end of gzip file at offset " + (from + buf.position()));
+                }
+            }
+            byte[] out = inflateMembers(compressed, from);
+            metrics.bytesInflated(out.length);
+            metrics.stop(OrgMetrics.Phase.INFLATE, t);
+            return out;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            if (!open) {
+                throw new ClosedChannelException();
+            }
+            while (position == current.length) {
+                Future<byte[]> next = pending.poll();
+                if (next == null) {
+                    wall.stop();
+                    return -1;
+                }
+                try {
+                    current = next.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while inflating");
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+                }
+                position = 0;
+                fill();
+            }
+            int n = Math.min(dst.remaining(), current.length - position);
+            dst.put(current, position, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() throws IOException {
+            open = false;
+            wall.stop();
+            pool.shutdownNow();
+            channel.close();
+        }
+    }
+}
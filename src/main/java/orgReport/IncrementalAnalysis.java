@@ -0,0 +1,468 @@
+package orgReport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import orgReport.OrgAnalyzer.HierarchyIssue;
+import orgReport.OrgAnalyzer.ManagerSalaryIssue;
+import orgReport.OrgAnalyzer.ReportingLineIssue;
+
+/**
+ * Keeps an analyzed hierarchy up to date under {@link OrgChange} events.
+ * Each event touches only the employee, its old and new manager and, for hires, terminations and
+ * manager changes, the depths of the moved subtree. After a batch only those employees are re-checked
+ * and the difference against the previous violations is returned as an {@link OrgReportDelta}.
+ * The analyzer's employeeMap and Employee objects are updated in place. Not thread-safe.
+ */
+public class IncrementalAnalysis {
+    private static final byte LOW = 1, HIGH = 2;
+
+    private final OrgAnalyzer analyzer;
+    private final LongIntIndex slots;
+    private Employee[] employees;
+    private int[] subCount;
+    private double[] subSum;
+    private int[] depth;
+    private ManagerSalaryIssue[] salaryIssues;
+    private byte[] salaryState;
+    private ReportingLineIssue[] longLines;
+    private HierarchyIssue[] hierarchyIssues; // cyclic or orphaned
+    private int size;
+    private Employee ceo;
+    // Subordinates whose manager is not (yet) in the dataset, keyed by that manager's id
+    private final Map<Long, List<Employee>> waitingForManager = new HashMap<>();
+
+    // Employees touched by the current batch
+    private int[] dirty = new int[64];
+    private int dirtyCount;
+    private boolean[] isDirty;
+    // Guards subtree walks against managerId cycles
+    private int[] visitMark;
+    private int visitEpoch;
+
+    IncrementalAnalysis(OrgAnalyzer analyzer) {
+        this.analyzer = analyzer;
+        this.ceo = analyzer.ceo(); // materializes the employees after a graph load
+        OrgGraph graph = OrgGraph.of(analyzer.employeeMap, ceo);
+        ReportingDepths depths = ReportingDepths.compute(graph);
+        SubordinateStats stats = analyzer.subordinateStats(graph);
+        size = graph.size();
+        int capacity = Math.max(16, size + size / 4);
+        slots = new LongIntIndex(capacity);
+        employees = new Employee[capacity];
+        subCount = new int[capacity];
+        subSum = new double[capacity];
+        depth = new int[capacity];
+        salaryIssues = new ManagerSalaryIssue[capacity];
+        salaryState = new byte[capacity];
+        longLines = new ReportingLineIssue[capacity];
+        hierarchyIssues = new HierarchyIssue[capacity];
+        isDirty = new boolean[capacity];
+        visitMark = new int[capacity];
+        int i = 0;
+        for (Employee e : analyzer.employeeMap.values()) {
+            employees[i] = e;
+            slots.put(e.getId(), i);
+            subCount[i] = stats.count(i);
+            subSum[i] = stats.sum(i);
+            depth[i] = depths.depth(i);
+            if (graph.manager(i) == OrgGraph.MISSING_MANAGER) {
+                waitingForManager.computeIfAbsent(e.getManagerId().get(), k -> new ArrayList<>()).add(e);
+            }
+            i++;
+        }
+        for (i = 0; i < size; i++) {
+            evaluate(i, null);
+        }
+    }
+
+    /**
+     * Applies the events in order and returns the violations they added and resolved.
+     */
+    public OrgReportDelta apply(List<OrgChange> changes) {
+        for (OrgChange change : changes) {
+            switch (change.type) {
+                case HIRE -> hire(change.hire);
+                case TERMINATE -> terminate(change.employeeId);
+                case SALARY_CHANGE -> changeSalary(change.employeeId, change.salary);
+                case MANAGER_CHANGE -> changeManager(change.employeeId, change.managerId);
+            }
+        }
+        OrgReportDelta delta = new OrgReportDelta();
+        for (int k = 0; k < dirtyCount; k++) {
+            int s = dirty[k];
+            isDirty[s] = false;
+            evaluate(s, delta);
+        }
+        dirtyCount = 0;
+        analyzer.invalidateCaches();
+        return delta;
+    }
+
+    public OrgReportDelta apply(OrgChange change) {
+        return apply(List.of(change));
+    }
+
+    /**
+     * All violations currently known, in slot order (initial map order, then hires).
+     */
+    public OrgReport currentReport() {
+        OrgReport report = new OrgReport();
+        for (int s = 0; s < size; s++) {
+            add(report, salaryIssues[s], salaryState[s], longLines[s], hierarchyIssues[s]);
+        }
+        return report;
+    }
+
+    private void hire(Employee e) {
+        int s = slots.get(e.getId());
+        if (s != LongIntIndex.ABSENT && employees[s] != null) {
+            terminate(e.getId()); // re-hire replaces the existing record
+        }
+        if (s == LongIntIndex.ABSENT) {
+            s = newSlot(e.getId());
+        }
+        employees[s] = e;
+        subCount[s] = 0;
+        subSum[s] = 0;
+        analyzer.employeeMap.put(e.getId(), e);
+        markDirty(s);
+        attach(e, s);
+        // Subordinates that were waiting for this manager join it now
+        List<Employee> waiting = waitingForManager.remove(e.getId());
+        if (waiting != null) {
+            for (Employee sub : waiting) {
+                e.addSubordinates(sub);
+                subCount[s]++;
+                subSum[s] += sub.getSalary();
+            }
+        }
+        // A re-hire can close a loop through subordinates that were waiting for it
+        relabelMoved(s);
+        if (e.getManagerId().isEmpty()) {
+            updateCeo();
+        }
+    }
+
+    private void terminate(long id) {
+        int s = slots.get(id);
+        if (s == LongIntIndex.ABSENT || employees[s] == null) {
+            return;
+        }
+        Employee e = employees[s];
+        detach(e, s);
+        employees[s] = null;
+        analyzer.employeeMap.remove(id);
+        markDirty(s);
+        // Direct reports lose their manager until someone with this id is hired again
+        for (Employee sub : e.getSubordinates()) {
+            waitingForManager.computeIfAbsent(id, k -> new ArrayList<>()).add(sub);
+            relabel(slots.get(sub.getId()), ReportingDepths.ORPHANED);
+        }
+        e.getSubordinates().clear();
+        subCount[s] = 0;
+        subSum[s] = 0;
+        if (e.getManagerId().isEmpty()) {
+            updateCeo();
+        }
+    }
+
+    private void changeSalary(long id, double salary) {
+        int s = slots.get(id);
+        if (s == LongIntIndex.ABSENT || employees[s] == null) {
+            return;
+        }
+        Employee e = employees[s];
+        int m = managerSlot(e);
+        if (m >= 0) {
+            subSum[m] += salary - e.getSalary();
+            markDirty(m);
+        }
+        e.setSalary(salary);
+        markDirty(s);
+    }
+
+    private void changeManager(long id, Optional<Long> managerId) {
+        int s = slots.get(id);
+        if (s == LongIntIndex.ABSENT || employees[s] == null) {
+            return;
+        }
+        Employee e = employees[s];
+        boolean rootChange = e.getManagerId().isEmpty() || managerId.isEmpty();
+        detach(e, s);
+        e.setManagerId(managerId);
+        attach(e, s);
+        relabelMoved(s);
+        if (rootChange) {
+            updateCeo();
+        }
+    }
+
+    /**
+     * Recomputes depths below slot s after it got a new manager (or its subordinates back).
+     */
+    private void relabelMoved(int s) {
+        Employee e = employees[s];
+        if (createsCycle(s)) {
+            // The move closed a loop: the loop members are cyclic, everything else below is orphaned
+            relabel(s, ReportingDepths.ORPHANED);
+            int x = managerSlot(e);
+            while (x != s) {
+                depth[x] = ReportingDepths.CYCLIC;
+                x = managerSlot(employees[x]);
+            }
+            depth[s] = ReportingDepths.CYCLIC;
+        } else {
+            relabel(s, parentDepth(e));
+        }
+    }
+
+    /**
+     * Picks the CEO the way buildHierarchy() does: the first employee without a manager in employeeMap order
+     * (file order, with hires appended).
+     * Scans the map, so it only runs when an event adds or removes an employee without a manager.
+     */
+    private void updateCeo() {
+        Employee first = null;
+        for (Employee e : analyzer.employeeMap.values()) {
+            if (e.getManagerId().isEmpty()) {
+                first = e;
+                break;
+            }
+        }
+        if (first == ceo) {
+            return;
+        }
+        Employee previous = ceo;
+        ceo = first;
+        analyzer.replaceCeo(first);
+        if (previous == null || first == null) {
+            // Reporting lines are only checked while there is a CEO
+            for (int s = 0; s < size; s++) {
+                if (employees[s] != null) {
+                    markDirty(s);
+                }
+            }
+        }
+        if (previous != null) {
+            int s = slots.get(previous.getId());
+            if (employees[s] == previous) {
+                relabel(s, ReportingDepths.ORPHANED); // now just another root
+            }
+        }
+        if (first != null) {
+            relabel(slots.get(first.getId()), 0);
+        }
+    }
+
+    // Links e under its manager (or parks it until the manager is hired)
+    private void attach(Employee e, int s) {
+        if (e.getManagerId().isEmpty()) {
+            return;
+        }
+        int m = managerSlot(e);
+        if (m < 0) {
+            waitingForManager.computeIfAbsent(e.getManagerId().get(), k -> new ArrayList<>()).add(e);
+            return;
+        }
+        employees[m].addSubordinates(e);
+        subCount[m]++;
+        subSum[m] += e.getSalary();
+        markDirty(m);
+    }
+
+    private void detach(Employee e, int s) {
+        if (e.getManagerId().isEmpty()) {
+            return;
+        }
+        int m = managerSlot(e);
+        if (m < 0) {
+            List<Employee> waiting = waitingForManager.get(e.getManagerId().get());
+            if (waiting != null) {
+                waiting.remove(e);
+                if (waiting.isEmpty()) {
+                    waitingForManager.remove(e.getManagerId().get());
+                }
+            }
+            return;
+        }
+        employees[m].removeSubordinate(e);
+        subCount[m]--;
+        subSum[m] -= e.getSalary();
+        markDirty(m);
+    }
+
+    private int managerSlot(Employee e) {
+        if (e.getManagerId().isEmpty()) {
+            return -1;
+        }
+        int m = slots.get(e.getManagerId().get());
+        return m == LongIntIndex.ABSENT || employees[m] == null ? -1 : m;
+    }
+
+    private int parentDepth(Employee e) {
+        if (e == ceo) {
+            return 0;
+        }
+        int m = managerSlot(e);
+        return m < 0 ? ReportingDepths.ORPHANED : childDepth(m);
+    }
+
+    private int childDepth(int manager) {
+        return depth[manager] >= 0 ? depth[manager] + 1 : ReportingDepths.ORPHANED;
+    }
+
+    // True when following managers up from s leads back to s
+    private boolean createsCycle(int s) {
+        int x = managerSlot(employees[s]);
+        for (int steps = 0; x >= 0 && steps <= size; steps++) {
+            if (x == s) {
+                return true;
+            }
+            x = managerSlot(employees[x]);
+        }
+        return false;
+    }
+
+    /**
+     * Assigns rootDepth to slot root and recomputes depths of its whole subtree.
+     */
+    private void relabel(int root, int rootDepth) {
+        visitEpoch++;
+        int[] stack = new int[16];
+        int top = 0;
+        depth[root] = rootDepth;
+        visitMark[root] = visitEpoch;
+        markDirty(root);
+        stack[top++] = root;
+        while (top > 0) {
+            int x = stack[--top];
+            int childDepth = childDepth(x);
+            for (Employee sub : employees[x].getSubordinates()) {
+                int c = slots.get(sub.getId());
+                if (visitMark[c] == visitEpoch) {
+                    continue; // already relabelled; only happens inside a cycle
+                }
+                visitMark[c] = visitEpoch;
+                depth[c] = childDepth;
+                markDirty(c);
+                if (top == stack.length) {
+                    stack = Arrays.copyOf(stack, top * 2);
+                }
+                stack[top++] = c;
+            }
+        }
+    }
+
+    /**
+     * Re-checks slot s and records any difference against its previous issues in delta (if given).
+     */
+    private void evaluate(int s, OrgReportDelta delta) {
+        Employee e = employees[s];
+        ManagerSalaryIssue salaryIssue = null;
+        byte state = 0;
+        ReportingLineIssue longLine = null;
+        HierarchyIssue hierarchyIssue = null;
+        if (e != null) {
+            if (subCount[s] > 0) {
+                salaryIssue = OrgAnalyzer.salaryViolation(e, subSum[s] / subCount[s]);
+                if (salaryIssue != null) {
+                    state = ComplianceChecks.isLow(salaryIssue, e.getSalary()) ? LOW : HIGH;
+                }
+            }
+            if (e != ceo && ceo != null) {
+                if (depth[s] == ReportingDepths.CYCLIC || depth[s] == ReportingDepths.ORPHANED) {
+                    hierarchyIssue = OrgAnalyzer.hierarchyIssue(e, depth[s] == ReportingDepths.CYCLIC);
+                } else {
+                    longLine = OrgAnalyzer.reportingLineViolation(e, depth[s]);
+                }
+            }
+        }
+        if (delta != null) {
+            if (!sameSalaryIssue(salaryIssues[s], salaryIssue) || salaryState[s] != state) {
+                add(delta.resolved, salaryIssues[s], salaryState[s], null, null);
+                add(delta.added, salaryIssue, state, null, null);
+            }
+            if (!sameLongLine(longLines[s], longLine)) {
+                add(delta.resolved, null, (byte) 0, longLines[s], null);
+                add(delta.added, null, (byte) 0, longLine, null);
+            }
+            if (!sameHierarchyIssue(hierarchyIssues[s], hierarchyIssue)) {
+                add(delta.resolved, null, (byte) 0, null, hierarchyIssues[s]);
+                add(delta.added, null, (byte) 0, null, hierarchyIssue);
+            }
+        }
+        salaryIssues[s] = salaryIssue;
+        salaryState[s] = state;
+        longLines[s] = longLine;
+        hierarchyIssues[s] = hierarchyIssue;
+    }
+
+    private static void add(OrgReport report, ManagerSalaryIssue salaryIssue, byte state, ReportingLineIssue longLine,
+                            HierarchyIssue hierarchyIssue) {
+        if (salaryIssue != null) {
+            (state == LOW ? report.lowEarningManagers : report.highEarningManagers).add(salaryIssue);
+        }
+        if (longLine != null) {
+            report.longReportingLines.add(longLine);
+        }
+        if (hierarchyIssue != null) {
+            (hierarchyIssue.cyclic ? report.cyclicReportingLines : report.orphanedEmployees).add(hierarchyIssue);
+        }
+    }
+
+    private static boolean sameSalaryIssue(ManagerSalaryIssue a, ManagerSalaryIssue b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return a.managerId == b.managerId && a.difference == b.difference && a.expectedMin == b.expectedMin
+                && a.expectedMax == b.expectedMax && a.managerName.equals(b.managerName);
+    }
+
+    private static boolean sameLongLine(ReportingLineIssue a, ReportingLineIssue b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return a.employeeId == b.employeeId && a.actualLength == b.actualLength && a.employeeName.equals(b.employeeName);
+    }
+
+    private static boolean sameHierarchyIssue(HierarchyIssue a, HierarchyIssue b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return a.employeeId == b.employeeId && a.cyclic == b.cyclic && a.employeeName.equals(b.employeeName);
+    }
+
+    private void markDirty(int s) {
+        if (isDirty[s]) {
+            return;
+        }
+        isDirty[s] = true;
+        if (dirtyCount == dirty.length) {
+            dirty = Arrays.copyOf(dirty, dirtyCount * 2);
+        }
+        dirty[dirtyCount++] = s;
+    }
+
+    private int newSlot(long id) {
+        if (size == employees.length) {
+            int capacity = size * 2;
+            employees = Arrays.copyOf(employees, capacity);
+            subCount = Arrays.copyOf(subCount, capacity);
+            subSum = Arrays.copyOf(subSum, capacity);
+            depth = Arrays.copyOf(depth, capacity);
+            salaryIssues = Arrays.copyOf(salaryIssues, capacity);
+            salaryState = Arrays.copyOf(salaryState, capacity);
+            longLines = Arrays.copyOf(longLines, capacity);
+            hierarchyIssues = Arrays.copyOf(hierarchyIssues, capacity);
+            isDirty = Arrays.copyOf(isDirty, capacity);
+            visitMark = Arrays.copyOf(visitMark, capacity);
+        }
+        slots.put(id, size);
+        return size++;
+    }
+}
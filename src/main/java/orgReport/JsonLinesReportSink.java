@@ -0,0 +1,100 @@
+package orgReport;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Streams issues as JSON lines, one object per issue, e.g.
+ * {"category":"high_salary","employeeId":2,"name":"Bob M1","expectedMin":78000.00,"expectedMax":97500.00,"difference":22500.00}
+ */
+public class JsonLinesReportSink implements ReportSink {
+    private final Writer out;
+    private final StringBuilder line = new StringBuilder(160);
+
+    public JsonLinesReportSink(Writer out) {
+        this.out = out instanceof BufferedWriter ? out : new BufferedWriter(out, 1 << 16);
+    }
+
+    @Override
+    public void lowEarningManager(OrgAnalyzer.ManagerSalaryIssue issue) {
+        salary("low_salary", issue);
+    }
+
+    @Override
+    public void highEarningManager(OrgAnalyzer.ManagerSalaryIssue issue) {
+        salary("high_salary", issue);
+    }
+
+    @Override
+    public void longReportingLine(OrgAnalyzer.ReportingLineIssue issue) {
+        start("long_reporting_line", issue.employeeId, issue.employeeName)
+                .append(",\"lineLength\":").append(issue.actualLength)
+                .append(",\"excessManagers\":").append(issue.excessiveManagers).append('}');
+        write();
+    }
+
+    @Override
+    public void cyclicReportingLine(OrgAnalyzer.HierarchyIssue issue) {
+        start("cyclic_reporting_line", issue.employeeId, issue.employeeName).append('}');
+        write();
+    }
+
+    @Override
+    public void orphanedEmployee(OrgAnalyzer.HierarchyIssue issue) {
+        start("orphaned_employee", issue.employeeId, issue.employeeName).append('}');
+        write();
+    }
+
+    @Override
+    public void finish() throws IOException {
+        out.flush();
+    }
+
+    private void salary(String category, OrgAnalyzer.ManagerSalaryIssue issue) {
+        start(category, issue.managerId, issue.managerName).append(",\"expectedMin\":");
+        NumberText.appendMoney(line, issue.expectedMin, false).append(",\"expectedMax\":");
+        NumberText.appendMoney(line, issue.expectedMax, false).append(",\"difference\":");
+        NumberText.appendMoney(line, issue.difference, false).append('}');
+        write();
+    }
+
+    private StringBuilder start(String category, long id, String name) {
+        line.append("{\"category\":\"").append(category).append("\",\"employeeId\":").append(id).append(",\"name\":\"");
+        return appendEscaped(line, name).append('"');
+    }
+
+    /**
+     * Appends s as the body of a JSON string literal.
+     */
+    static StringBuilder appendEscaped(StringBuilder sb, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append("\\u00").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb;
+    }
+
+    private void write() {
+        try {
+            out.append(line).append('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        line.setLength(0);
+    }
+}
@@ -0,0 +1,94 @@
+package orgReport;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from long keys to non-negative int values, without boxing.
+ * Uses linear probing over power-of-two tables and keeps the load factor at or below 1/2.
+ */
+public class LongIntIndex {
+    public static final int ABSENT = -1;
+
+    private long[] keys;
+    private int[] values; // ABSENT marks an empty slot
+    private int size;
+    private int mask;
+
+    public LongIntIndex(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, ABSENT);
+        mask = capacity - 1;
+    }
+
+    /**
+     * Maps key to value (value must be >= 0) and returns the previous value or ABSENT.
+     */
+    public int put(long key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("value must be >= 0: " + value);
+        }
+        if ((size + 1) * 2 > keys.length) {
+            resize();
+        }
+        int slot = slot(key);
+        int previous = values[slot];
+        if (previous == ABSENT) {
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] = value;
+        return previous;
+    }
+
+    /**
+     * Returns the value for key, or ABSENT.
+     */
+    public int get(long key) {
+        return values[slot(key)];
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != ABSENT;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Slot holding key, or the empty slot where it would be inserted
+    private int slot(long key) {
+        int slot = hash(key) & mask;
+        while (values[slot] != ABSENT && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        Arrays.fill(values, ABSENT);
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != ABSENT) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    // Final mixing step of MurmurHash3, so sequential ids spread across the table
+    static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
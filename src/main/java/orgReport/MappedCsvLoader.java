@@ -0,0 +1,96 @@
+package orgReport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Loads an employee CSV by memory-mapping it and parsing the bytes in place.
+ * Files larger than one mapping window are mapped window by window, each window ending on a line break.
+ */
+public class MappedCsvLoader {
+    static final int MAX_WINDOW = 1 << 30; // 1 GiB per mapping
+    static final int STREAM_CHUNK = 1 << 20;
+
+    private final int windowSize;
+
+    public MappedCsvLoader() {
+        this(MAX_WINDOW);
+    }
+
+    MappedCsvLoader(int windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Parses the whole file, feeding every line to the visitor in file order. Gzip files cannot be mapped
+     * and are inflated and parsed chunk by chunk instead.
+     */
+    public void load(Path path, EmployeeCsvParser.Visitor visitor) throws IOException {
+        if (GzipInput.isGzip(path)) {
+            try (ReadableByteChannel channel = GzipInput.open(path, 1, null)) {
+                stream(channel, STREAM_CHUNK, new EmployeeCsvParser(), visitor);
+            }
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            load(channel, 0, channel.size(), new EmployeeCsvParser(), visitor);
+        }
+    }
+
+    /**
+     * Parses everything read from the channel, chunk bytes at a time (more for longer lines).
+     */
+    static void stream(ReadableByteChannel channel, int chunk, EmployeeCsvParser parser,
+                       EmployeeCsvParser.Visitor visitor) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(chunk);
+        while (true) {
+            int read = channel.read(buf);
+            int end = buf.position();
+            if (read < 0) {
+                parser.parse(buf, 0, end, visitor);
+                return;
+            }
+            // Parse complete lines only; the tail moves to the front of the buffer.
+            // A trailing '\r' may be the first half of "\r\n", so it only ends a line when more bytes follow.
+            int cut = end;
+            while (cut > 0 && buf.get(cut - 1) != '\n' && (buf.get(cut - 1) != '\r' || cut == end)) {
+                cut--;
+            }
+            if (cut == 0 && !buf.hasRemaining()) {
+                buf = ByteBuffer.allocate(buf.capacity() * 2).put(buf.flip()); // line longer than the buffer
+                continue;
+            }
+            parser.parse(buf, 0, cut, visitor);
+            buf.limit(end).position(cut);
+            buf.compact();
+        }
+    }
+
+    /**
+     * Parses the byte range [start, end) of the channel. The range must begin at a line start.
+     */
+    void load(FileChannel channel, long start, long end, EmployeeCsvParser parser, EmployeeCsvParser.Visitor visitor) throws IOException {
+        long pos = start;
+        while (pos < end) {
+            int length = (int) Math.min(windowSize, end - pos);
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, pos, length);
+            int limit = length;
+            if (pos + length < end) {
+                // Stop after the last line break so no line straddles two windows
+                while (limit > 0 && buf.get(limit - 1) != '\n') {
+                    limit--;
+                }
+                if (limit == 0) {
+                    throw new IOException("Line longer than " + windowSize + " bytes at offset " + pos);
+                }
+            }
+            parser.parse(buf, 0, limit, visitor);
+            pos += limit;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package orgReport;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Deduplicating store for employee names. Every distinct name is kept once, UTF-8 encoded, in an arena of
+ * 1 MiB pages (memory segments over heap arrays, or native segments from an automatic {@link Arena}, which
+ * are freed once the dictionary is unreachable), and is identified by an int reference.
+ * Employees and graphs hold two references instead of two Strings; names are decoded only when asked for.
+ * <p>
+ * Interning is synchronized, so a dictionary may be shared, but the parallel loaders give every worker a
+ * dictionary of its own and move the names into the shared one on the calling thread. Reading a name needs
+ * no lock: pages are never moved or changed after a name was written, and a reference is only handed out
+ * afterwards, so names can be moved out of a worker's dictionary while the worker keeps adding to it.
+ */
+public final class NameDictionary {
+    static final int PAGE_BITS = 20;
+    static final int PAGE_SIZE = 1 << PAGE_BITS;
+    static final int MAX_PAGES = 1 << (31 - PAGE_BITS); // references stay non-negative
+    private static final int LONG_NAME = 0xff;          // length marker followed by a 4-byte length
+
+    private final Arena arena; // null when the pages are on the heap
+    private volatile MemorySegment[] pages = new MemorySegment[0];
+    private MemorySegment page; // page being filled, null before the first name
+    private int used;           // bytes written to it
+    // Open addressing: reference + 1 per slot (0 = empty) and the hash of that name
+    private int[] slots = new int[1024];
+    private int[] hashes = new int[1024];
+    private int size;
+    private long bytes;
+
+    public NameDictionary() {
+        this(false);
+    }
+
+    /**
+     * @param offHeap keep the names in native memory instead of heap arrays
+     */
+    public NameDictionary(boolean offHeap) {
+        this.arena = offHeap ? Arena.ofAuto() : null;
+    }
+
+    /**
+     * Reference of the name, adding it on first use.
+     */
+    public int intern(String name) {
+        byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+        return intern(ByteBuffer.wrap(encoded), 0, encoded.length);
+    }
+
+    /**
+     * Reference of the UTF-8 name in buf[from, to), adding it on first use.
+     */
+    public synchronized int intern(ByteBuffer buf, int from, int to) {
+        int length = to - from;
+        int hash = hash(buf, from, to);
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        for (int ref; (ref = slots[slot] - 1) >= 0; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && matches(ref, buf, from, length)) {
+                return ref;
+            }
+        }
+        // Absolute indices: the segment spans the whole buffer whatever its position
+        return add(slot, hash, MemorySegment.ofBuffer(buf.duplicate().clear()), from, length);
+    }
+
+    /**
+     * Reference in this dictionary of the name that ref identifies in other.
+     */
+    public int intern(NameDictionary other, int ref) {
+        if (other == this) {
+            return ref;
+        }
+        MemorySegment source = other.pageOf(ref);
+        return intern(source, NameDictionary.start(source, ref), NameDictionary.length(source, ref));
+    }
+
+    public String get(int ref) {
+        return new String(bytes(ref), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * "first last", decoded in one step; used when an issue names an employee.
+     */
+    public String fullName(int first, int last) {
+        MemorySegment firstPage = pageOf(first);
+        MemorySegment lastPage = pageOf(last);
+        int firstLength = length(firstPage, first);
+        int lastLength = length(lastPage, last);
+        byte[] name = new byte[firstLength + 1 + lastLength];
+        MemorySegment.copy(firstPage, ValueLayout.JAVA_BYTE, start(firstPage, first), name, 0, firstLength);
+        name[firstLength] = ' ';
+        MemorySegment.copy(lastPage, ValueLayout.JAVA_BYTE, start(lastPage, last), name, firstLength + 1, lastLength);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * UTF-8 bytes of the name.
+     */
+    byte[] bytes(int ref) {
+        MemorySegment p = pageOf(ref);
+        byte[] copy = new byte[length(p, ref)];
+        MemorySegment.copy(p, ValueLayout.JAVA_BYTE, start(p, ref), copy, 0, copy.length);
+        return copy;
+    }
+
+    /**
+     * Distinct names stored.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Arena bytes used by the names, length prefixes included.
+     */
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    public boolean isOffHeap() {
+        return arena != null;
+    }
+
+    private synchronized int intern(MemorySegment source, long from, int length) {
+        int hash = hash(source, from, length);
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        for (int ref; (ref = slots[slot] - 1) >= 0; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && matches(ref, source, from, length)) {
+                return ref;
+            }
+        }
+        return add(slot, hash, source, from, length);
+    }
+
+    // Stores a new name in the free slot found by the probe
+    private int add(int slot, int hash, MemorySegment source, long from, int length) {
+        int ref = append(source, from, length);
+        slots[slot] = ref + 1;
+        hashes[slot] = hash;
+        if (++size * 4 > slots.length * 3) {
+            rehash(slots.length * 2);
+        }
+        return ref;
+    }
+
+    private MemorySegment pageOf(int ref) {
+        return pages[ref >>> PAGE_BITS];
+    }
+
+    private static long start(MemorySegment p, int ref) {
+        int pos = ref & (PAGE_SIZE - 1);
+        return (p.get(ValueLayout.JAVA_BYTE, pos) & 0xff) == LONG_NAME ? pos + 5 : pos + 1;
+    }
+
+    private static int length(MemorySegment p, int ref) {
+        int pos = ref & (PAGE_SIZE - 1);
+        int length = p.get(ValueLayout.JAVA_BYTE, pos) & 0xff;
+        return length == LONG_NAME ? p.get(ValueLayout.JAVA_INT_UNALIGNED, pos + 1) : length;
+    }
+
+    private boolean matches(int ref, ByteBuffer buf, int from, int length) {
+        MemorySegment p = pageOf(ref);
+        if (length(p, ref) != length) {
+            return false;
+        }
+        long start = start(p, ref);
+        for (int i = 0; i < length; i++) {
+            if (p.get(ValueLayout.JAVA_BYTE, start + i) != buf.get(from + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean matches(int ref, MemorySegment source, long from, int length) {
+        MemorySegment p = pageOf(ref);
+        if (length(p, ref) != length) {
+            return false;
+        }
+        long start = start(p, ref);
+        return MemorySegment.mismatch(p, start, start + length, source, from, from + length) == -1;
+    }
+
+    private int append(MemorySegment source, long from, int length) {
+        int header = length < LONG_NAME ? 1 : 5;
+        int need = header + length;
+        if (page == null || used + need > page.byteSize()) {
+            // A name longer than a page gets a page of its own
+            newPage(Math.max(PAGE_SIZE, need));
+        }
+        int ref = (pages.length - 1) << PAGE_BITS | used;
+        if (header == 1) {
+            page.set(ValueLayout.JAVA_BYTE, used, (byte) length);
+        } else {
+            page.set(ValueLayout.JAVA_BYTE, used, (byte) LONG_NAME);
+            page.set(ValueLayout.JAVA_INT_UNALIGNED, used + 1, length);
+        }
+        MemorySegment.copy(source, from, page, used + header, length);
+        used += need;
+        bytes += need;
+        return ref;
+    }
+
+    private void newPage(int capacity) {
+        MemorySegment[] current = pages;
+        if (current.length == MAX_PAGES) {
+            throw new IllegalStateException("Name dictionary is full: " + bytes + " bytes in " + size + " names");
+        }
+        page = arena != null ? arena.allocate(capacity) : MemorySegment.ofArray(new byte[capacity]);
+        used = 0;
+        MemorySegment[] grown = Arrays.copyOf(current, current.length + 1);
+        grown[current.length] = page;
+        pages = grown;
+    }
+
+    private void rehash(int capacity) {
+        int[] newSlots = new int[capacity];
+        int[] newHashes = new int[capacity];
+        int mask = capacity - 1;
+        for (int s = 0; s < slots.length; s++) {
+            if (slots[s] != 0) {
+                int slot = hashes[s] & mask;
+                while (newSlots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                newSlots[slot] = slots[s];
+                newHashes[slot] = hashes[s];
+            }
+        }
+        slots = newSlots;
+        hashes = newHashes;
+    }
+
+    // Both hashes give the same value for the same bytes, wherever they are
+    private static int hash(ByteBuffer buf, int from, int to) {
+        int h = 1;
+        for (int i = from; i < to; i++) {
+            h = 31 * h + buf.get(i);
+        }
+        return mix(h);
+    }
+
+    private static int hash(MemorySegment source, long from, int length) {
+        int h = 1;
+        for (long i = from; i < from + length; i++) {
+            h = 31 * h + source.get(ValueLayout.JAVA_BYTE, i);
+        }
+        return mix(h);
+    }
+
+    private static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,51 @@
+package orgReport;
+
+/**
+ * Fixed-point number formatting without java.util.Formatter, for the report sinks.
+ */
+final class NumberText {
+    // Beyond this, value * 100 no longer fits a long exactly; fall back to the JDK
+    private static final double MAX_FAST = 1e15;
+    private static final double TIE_TOLERANCE = 1e-6;
+
+    private NumberText() {
+    }
+
+    /**
+     * Appends value with two decimals, optionally with ',' thousands separators, exactly like "%,.2f":
+     * the shortest decimal form of value is rounded HALF_UP and negative values keep their sign, even as -0.00.
+     */
+    static StringBuilder appendMoney(StringBuilder sb, double value, boolean grouping) {
+        if (Double.isNaN(value) || Double.isInfinite(value) || Math.abs(value) >= MAX_FAST) {
+            return sb.append(String.format(grouping ? "%,.2f" : "%.2f", value));
+        }
+        double scaled = Math.abs(value) * 100.0;
+        // Rounding the binary product only agrees with rounding the decimal away from a .5 tie; the product is
+        // within a couple of ulps of the decimal, so anything closer to the tie is left to the JDK
+        if (Math.abs(scaled - Math.floor(scaled) - 0.5) <= Math.max(TIE_TOLERANCE, 4 * Math.ulp(scaled))) {
+            return sb.append(String.format(grouping ? "%,.2f" : "%.2f", value));
+        }
+        long cents = Math.round(scaled);
+        if (Double.doubleToRawLongBits(value) < 0) {
+            sb.append('-');
+        }
+        long whole = cents / 100;
+        if (grouping) {
+            appendGrouped(sb, whole);
+        } else {
+            sb.append(whole);
+        }
+        int fraction = (int) (cents % 100);
+        return sb.append('.').append((char) ('0' + fraction / 10)).append((char) ('0' + fraction % 10));
+    }
+
+    private static void appendGrouped(StringBuilder sb, long value) {
+        if (value < 1000) {
+            sb.append(value);
+            return;
+        }
+        appendGrouped(sb, value / 1000);
+        int rest = (int) (value % 1000);
+        sb.append(',').append((char) ('0' + rest / 100)).append((char) ('0' + rest / 10 % 10)).append((char) ('0' + rest % 10));
+    }
+}
@@ -1,9 +1,25 @@
 package orgReport;
 
 import java.io.*;
-import java.util.HashMap;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 public class OrgAnalyzer {
     public static final String FILE_PATH = "employees.csv"; //
@@ -11,6 +27,8 @@ public class OrgAnalyzer {
     public static final int MAX_REPORTING_LINE_LENGTH = 5;
     public static final double MIN_SALARY_FACTOR = 1.20; // Must earn at least 20% more
     public static final double MAX_SALARY_FACTOR = 1.50; // Must earn no more than 50% more
+    // Employees per parallel analysis task; smaller orgs are analyzed on the calling thread
+    static final int PARALLEL_CHUNK = 1 << 16;
 
 
     public static class ManagerSalaryIssue {
@@ -41,24 +59,82 @@ public class OrgAnalyzer {
         }
     }
 
+    /**
+     * Details an employee whose reporting line never reaches the CEO.
+     */
+    public static class HierarchyIssue {
+        public String employeeName;
+        public long employeeId;
+        public boolean cyclic; // inside the cycle rather than below it
+
+        @Override
+        public String toString() {
+            return String.format("%s (ID: %d)", employeeName, employeeId);
+        }
+    }
+
     // --- Internal State ---
-    public final Map<Long, Employee> employeeMap = new HashMap<>();
+    // Insertion order is file order (a repeated id keeps its first place), which decides the CEO among several roots.
+    // After a graph load the employees are created from the loaded graph on first use of the map; changing the
+    // map drops the cached graph, so the next analysis sees the change.
+    public final Map<Long, Employee> employeeMap = new EmployeeMap();
+    /**
+     * @deprecated after a graph load this stays null until the employees are created; use {@link #ceo()}
+     */
+    @Deprecated
     public Employee ceo = null;
+    private OrgGraph unmaterialized; // loaded graph whose employees are not in employeeMap yet
+    // Memory-map the CSV when it lives on the file system instead of decoding it through a Reader
+    public boolean useMappedIo = true;
+    // Worker threads for mapped ingestion; 1 parses on the calling thread (-DorgReport.ingestThreads=N)
+    public int ingestThreads = Integer.getInteger("orgReport.ingestThreads", 1);
+    // Fork-join workers for analyzeStructure(); 1 analyzes on the calling thread (-DorgReport.analysisThreads=N)
+    public int analysisThreads = Integer.getInteger("orgReport.analysisThreads", 1);
+    // Analyze a breadth-first renumbered graph (see OrgGraph.renumbered()); issues then follow hierarchy order (-DorgReport.renumber=true)
+    public boolean renumberGraph = Boolean.getBoolean("orgReport.renumber");
+    // Keep employee names in native memory segments outside the heap instead of heap arrays (-DorgReport.offHeapNames=true)
+    public boolean offHeapNames = Boolean.getBoolean("orgReport.offHeapNames");
+    // Read, parse and link the CSV in one pipelined pass when loading via loadHierarchy() (-DorgReport.pipelined=false disables)
+    public boolean pipelinedLoad = Boolean.parseBoolean(System.getProperty("orgReport.pipelined", "true"));
+    // Cache the hierarchy in a binary snapshot next to the CSV and reuse it while the CSV is unchanged (-DorgReport.snapshot=true)
+    public boolean useSnapshot = Boolean.getBoolean("orgReport.snapshot");
+    // Phase timers and counters for this analyzer; share one instance to aggregate several runs
+    public OrgMetrics metrics = new OrgMetrics();
+    // Malformed lines, missing managers and broken chains; printed at the end of main() and attached to reports
+    public Diagnostics diagnostics = new Diagnostics();
+    // Graph and depths behind checkReportingLineLength(Employee, ...); rebuilt after buildHierarchy()
+    private OrgGraph graph;
+    private ReportingDepths depths;
+    private SubordinateStats stats;
+    private SubtreeQueryEngine subtrees;
+    // Names of the loaded employees; replaced when loading into an empty employeeMap
+    private NameDictionary names;
 
     /**
      * Reads the CSV file and populates the employee map.
      */
     public void readEmployeesFromFile() throws IOException {
-        InputStream is = getClass().getClassLoader().getResourceAsStream(FILE_PATH);
-        boolean classpathSuccess = (is != null); // --- ATTEMPT 1: CLASS PATH LOADING ---
+        URL resource = getClass().getClassLoader().getResource(FILE_PATH);
+        boolean classpathSuccess = (resource != null); // --- ATTEMPT 1: CLASS PATH LOADING ---
         if (classpathSuccess) {
-            System.out.println("Reading file from Classpath (src/main/resources)...");
-            readData(new BufferedReader(new InputStreamReader(is)));
+            System.err.println("Reading file from Classpath (src/main/resources)...");
+            Path resourcePath = toFilePath(resource);
+            if (useMappedIo && resourcePath != null) {
+                readMappedFile(resourcePath);
+            } else {
+                try (InputStream is = resource.openStream()) {
+                    readData(new BufferedReader(new InputStreamReader(is)));
+                }
+            }
             return;
         } // --- ATTEMPT 2: FILE SYSTEM FALLBACK ---
         try {
-            System.out.println("Classpath failed. Falling back to direct File System reading (e.g., project root)..."); // Tries to read the file directly from the current working directory
-            readData(new BufferedReader(new FileReader(FILE_PATH)));
+            System.err.println("Classpath failed. Falling back to direct File System reading (e.g., project root)..."); // Tries to read the file directly from the current working directory
+            if (useMappedIo) {
+                readMappedFile(Paths.get(FILE_PATH));
+            } else {
+                readData(new BufferedReader(new FileReader(FILE_PATH)));
+            }
         } catch (
                 IOException e) {
             // If both fail, throw a comprehensive error message
@@ -67,19 +143,129 @@ public class OrgAnalyzer {
         }
     }
 
+    /**
+     * Loads and links the hierarchy for analysis. With useSnapshot, uses the snapshot next to the CSV when it was
+     * built from the CSV as it is now; otherwise reads the CSV, builds the hierarchy and writes a fresh snapshot.
+     */
+    public void loadHierarchy() throws IOException {
+        Path csv = csvPath();
+        if (csv == null || !Files.isRegularFile(csv)) {
+            readEmployeesFromFile();
+            buildHierarchy();
+            return;
+        }
+        loadHierarchy(csv);
+    }
+
+    /**
+     * FILE_PATH on the classpath, else relative to the working directory; null when it is not a plain file (e.g. inside a jar).
+     * A gzip-compressed FILE_PATH + ".gz" is used where the plain CSV is missing.
+     */
+    private Path csvPath() {
+        ClassLoader loader = getClass().getClassLoader();
+        URL resource = loader.getResource(FILE_PATH);
+        if (resource == null) {
+            resource = loader.getResource(FILE_PATH + ".gz");
+        }
+        if (resource != null) {
+            return toFilePath(resource);
+        }
+        Path csv = Paths.get(FILE_PATH);
+        Path compressed = Paths.get(FILE_PATH + ".gz");
+        return !Files.exists(csv) && Files.exists(compressed) ? compressed : csv;
+    }
+
+    /**
+     * Same as {@link #loadHierarchy()} for a CSV at the given path.
+     */
+    public void loadHierarchy(Path csv) throws IOException {
+        Path snapshot = snapshotPath(csv);
+        // Taken before reading, so a CSV that changes while it is read does not match the snapshot
+        OrgSnapshot.CsvStamp stamp = useSnapshot ? OrgSnapshot.CsvStamp.of(csv) : null;
+        if (useSnapshot && OrgSnapshot.isFresh(snapshot, csv)) {
+            try {
+                loadSnapshot(snapshot);
+                System.err.println("Loaded hierarchy from snapshot " + snapshot + ".");
+                return;
+            } catch (IOException e) {
+                System.err.println("Warning: Ignoring unreadable snapshot, reading the CSV instead: " + e.getMessage());
+            }
+        }
+        if (pipelinedLoad) {
+            readPipelined(csv);
+        } else if (useMappedIo || GzipInput.isGzip(csv)) {
+            readGraph(csv);
+        } else {
+            try (BufferedReader reader = Files.newBufferedReader(csv)) {
+                readData(reader);
+            }
+            buildHierarchy();
+        }
+        if (useSnapshot) {
+            try {
+                OrgSnapshot.write(snapshotGraph(), diagnostics, stamp, snapshot);
+            } catch (IOException e) {
+                System.err.println("Warning: Could not write snapshot " + snapshot + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Snapshot file used for the given CSV: the CSV name with a ".snapshot" suffix, in the same directory.
+     */
+    public static Path snapshotPath(Path csv) {
+        return csv.resolveSibling(csv.getFileName() + ".snapshot");
+    }
+
+    /**
+     * Writes the current linked hierarchy (call after buildHierarchy()) and its load diagnostics to a binary snapshot.
+     * The snapshot is not tied to a CSV, so loadHierarchy() never picks it up; use loadSnapshot().
+     */
+    public void saveSnapshot(Path snapshot) throws IOException {
+        OrgSnapshot.write(snapshotGraph(), diagnostics, OrgSnapshot.CsvStamp.NONE, snapshot);
+    }
+
+    // The hierarchy in file order: the loaded graph as long as nothing materialized it, else the employee map
+    private OrgGraph snapshotGraph() {
+        return unmaterialized != null ? unmaterialized : OrgGraph.of(employeeMap, ceo);
+    }
+
+    /**
+     * Replaces the hierarchy with the graph stored in a snapshot; no buildHierarchy() needed. The analysis
+     * reads the numeric columns straight from the mapped file, and employees() creates the Employee
+     * objects in snapshot order only when asked. The load problems stored with it are added to
+     * diagnostics and the metrics.
+     */
+    public void loadSnapshot(Path snapshot) throws IOException {
+        long t = metrics.start();
+        OrgSnapshot loaded = OrgSnapshot.read(snapshot);
+        metrics.bytesRead(Files.size(snapshot));
+        install(loaded.graph());
+        loaded.replayDiagnostics(diagnostics);
+        metrics.skipped(EmployeeCsvParser.Problem.FIELD_COUNT, loaded.diagnosticCount(Diagnostics.Code.FIELD_COUNT));
+        metrics.skipped(EmployeeCsvParser.Problem.NUMBER_FORMAT, loaded.diagnosticCount(Diagnostics.Code.NUMBER_FORMAT));
+        metrics.missingManagers(loaded.diagnosticCount(Diagnostics.Code.MISSING_MANAGER));
+        metrics.stop(OrgMetrics.Phase.SNAPSHOT_LOAD, t);
+    }
+
     /**
      * Helper method to process the data from a given BufferedReader.
      */
     public void readData(BufferedReader br) throws IOException {
+        long t = metrics.start();
+        NameDictionary names = names();
+        long rows = 0, chars = 0, lineNumber = 0;
         String line;
         while ((line = br.readLine()) != null) {
+            chars += line.length() + 1;
+            lineNumber++;
             // Ensure lines are not empty or comments
             if (line.trim().isEmpty() || line.trim().startsWith("#"))
                 continue;
             // Split line, respecting the structure: id, firstName, lastName, salary, managerId
             String[] values = line.split(",", -1); // We expect at least 4 fields (id, name, name, salary) and at most 5 (including managerId)
             if (values.length < 4 || values.length > 5) {
-                System.err.println("Warning: Skipping malformed line with incorrect number of fields: " + line);
+                skipMalformed(EmployeeCsvParser.Problem.FIELD_COUNT, lineNumber, line);
                 continue;
             }
             try {
@@ -92,108 +278,781 @@ public class OrgAnalyzer {
                         ? Optional.empty()
                         : Optional.of(Long.parseLong(managerIdStr));
 
-                Employee employee = new Employee(id, firstName, lastName, salary, managerId);
+                Employee employee = new Employee(id, names, names.intern(firstName), names.intern(lastName), salary, managerId);
                 employeeMap.put(id, employee);
+                rows++;
 
             } catch (NumberFormatException e) {
-                System.err.println("Warning: Skipping line due to invalid number format: " + line);
+                skipMalformed(EmployeeCsvParser.Problem.NUMBER_FORMAT, lineNumber, line);
+            }
+        }
+        // Reader input is counted in characters (line terminators as one)
+        metrics.rowsParsed(rows);
+        metrics.bytesRead(chars);
+        metrics.stop(OrgMetrics.Phase.READ, t);
+    }
+
+    /**
+     * Memory-maps the given CSV and parses it without building a String per line.
+     * Skips and warns exactly like {@link #readData(BufferedReader)}.
+     * With {@link #ingestThreads} above 1 the file is parsed in parallel chunks.
+     * A gzip file is inflated as it is parsed instead (BGZF members by ingestThreads threads).
+     */
+    public void readMappedFile(Path path) throws IOException {
+        long t = metrics.start();
+        long[] rows = {0};
+        NameDictionary names = names();
+        EmployeeCsvParser.Visitor visitor = new EmployeeCsvParser.Visitor() {
+            @Override
+            public void onRecord(EmployeeCsvParser.Record record) {
+                employeeMap.put(record.id, record.toEmployee(names));
+                rows[0]++;
+            }
+
+            @Override
+            public void onMalformed(EmployeeCsvParser.Problem problem, EmployeeCsvParser.Record record) {
+                metrics.skipped(problem);
+                // The line is only decoded for the few that are kept as samples
+                if (diagnostics.record(Diagnostics.Code.of(problem), record.lineNumber, Diagnostics.NO_ID, Diagnostics.NO_ID)) {
+                    diagnostics.describe(Diagnostics.Code.of(problem), record.line());
+                }
+            }
+        };
+        if (GzipInput.isGzip(path)) {
+            try (ReadableByteChannel channel = GzipInput.open(path, ingestThreads, metrics)) {
+                MappedCsvLoader.stream(channel, MappedCsvLoader.STREAM_CHUNK, new EmployeeCsvParser(), visitor);
+            }
+        } else if (ingestThreads > 1) {
+            new ParallelCsvLoader(ingestThreads).names(names).load(path, employee -> {
+                employeeMap.put(employee.getId(), employee);
+                rows[0]++;
+            }, malformedSink);
+        } else {
+            new MappedCsvLoader().load(path, visitor);
+        }
+        metrics.rowsParsed(rows[0]);
+        metrics.bytesRead(Files.size(path));
+        metrics.stop(OrgMetrics.Phase.READ, t);
+    }
+
+    /**
+     * Reads the CSV and links the hierarchy while it is being read, on a reader thread plus
+     * {@link #ingestThreads} parser threads; replaces the current hierarchy like readMappedFile() into an empty
+     * analyzer followed by buildHierarchy(). Rows go straight into the analysis graph; the Employee objects are
+     * only created if employees() or ceo() asks for them.
+     * The CEO is the first employee without a manager in file order, as in buildHierarchy().
+     */
+    public void readPipelined(Path path) throws IOException {
+        long t = metrics.start();
+        int threads = Math.max(1, ingestThreads);
+        names = new NameDictionary(offHeapNames);
+        PipelinedCsvLoader loader = new PipelinedCsvLoader(threads).names(names);
+        OrgGraph loaded;
+        if (GzipInput.isGzip(path)) {
+            loaded = loader.loadGraph(GzipInput.open(path, threads, metrics), path.toString(), malformedSink, diagnostics);
+        } else {
+            loaded = loader.loadGraph(path, malformedSink, diagnostics);
+        }
+        metrics.rowsParsed(loader.rowsLoaded());
+        metrics.bytesRead(Files.size(path));
+        metrics.missingManagers(loader.missingManagers());
+        metrics.stop(OrgMetrics.Phase.READ, t);
+        install(loaded);
+    }
+
+    /**
+     * Same result as {@link #readMappedFile(Path)} into an empty analyzer followed by buildHierarchy(), but the
+     * parsed rows go straight into the analysis graph instead of through Employee objects.
+     */
+    private void readGraph(Path path) throws IOException {
+        long t = metrics.start();
+        names = new NameDictionary(offHeapNames);
+        OrgGraph.Builder builder = new OrgGraph.Builder(names);
+        long[] rows = {0};
+        EmployeeCsvParser.Visitor visitor = new EmployeeCsvParser.Visitor() {
+            @Override
+            public void onRecord(EmployeeCsvParser.Record r) {
+                builder.add(r.id, r.firstNameRef(names), r.lastNameRef(names), r.salary, r.hasManager, r.managerId);
+                rows[0]++;
+            }
+
+            @Override
+            public void onMalformed(EmployeeCsvParser.Problem problem, EmployeeCsvParser.Record record) {
+                malformedSink.malformed(problem, record.lineNumber, record.buf, record.lineStart, record.lineEnd);
+            }
+        };
+        if (GzipInput.isGzip(path)) {
+            try (ReadableByteChannel channel = GzipInput.open(path, ingestThreads, metrics)) {
+                MappedCsvLoader.stream(channel, MappedCsvLoader.STREAM_CHUNK, new EmployeeCsvParser(), visitor);
+            }
+        } else if (ingestThreads > 1) {
+            rows[0] = new ParallelCsvLoader(ingestThreads).load(path, builder, malformedSink);
+        } else {
+            new MappedCsvLoader().load(path, visitor);
+        }
+        metrics.rowsParsed(rows[0]);
+        metrics.bytesRead(Files.size(path));
+        metrics.stop(OrgMetrics.Phase.READ, t);
+        t = metrics.start();
+        OrgGraph loaded = builder.build(diagnostics);
+        metrics.missingManagers(loaded.missingManagers());
+        metrics.stop(OrgMetrics.Phase.LINK, t);
+        install(loaded);
+    }
+
+    // Makes a freshly loaded graph the current hierarchy; employeeMap and ceo follow on demand
+    private void install(OrgGraph loaded) {
+        invalidateCaches();
+        ((EmployeeMap) employeeMap).linked.clear();
+        ceo = null;
+        unmaterialized = loaded;
+        graph = renumberGraph ? loaded.renumbered() : loaded;
+    }
+
+    /**
+     * Employees of the current hierarchy by id, in file order, linked to their subordinates; the same map as
+     * {@link #employeeMap}. After readPipelined() or loadHierarchy() they are created from the loaded graph on
+     * first use. Adding or removing employees drops the cached graph; call buildHierarchy() to link new ones,
+     * and {@link #invalidateCaches()} after changing subordinate lists in place.
+     */
+    public Map<Long, Employee> employees() {
+        return employeeMap;
+    }
+
+    /**
+     * The CEO among {@link #employees()}, or null when the hierarchy has none.
+     */
+    public Employee ceo() {
+        materialize();
+        return ceo;
+    }
+
+    void replaceCeo(Employee ceo) {
+        this.ceo = ceo;
+    }
+
+    // Creates the employees of a loaded graph; the graph itself stays the analysis graph
+    private void materialize() {
+        if (unmaterialized != null) {
+            OrgGraph loaded = unmaterialized;
+            unmaterialized = null;
+            Map<Long, Employee> linked = ((EmployeeMap) employeeMap).linked;
+            loaded.putEmployees(linked);
+            ceo = loaded.ceo() >= 0 ? linked.get(loaded.id(loaded.ceo())) : null;
+        }
+    }
+
+    /**
+     * employeeMap: creates the employees of a loaded graph on first use and drops the cached graph on every change.
+     */
+    private final class EmployeeMap extends AbstractMap<Long, Employee> {
+        final Map<Long, Employee> linked = new LinkedHashMap<>();
+
+        private Map<Long, Employee> linked() {
+            materialize();
+            return linked;
+        }
+
+        @Override
+        public int size() {
+            return linked().size();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return linked().containsKey(key);
+        }
+
+        @Override
+        public Employee get(Object key) {
+            return linked().get(key);
+        }
+
+        @Override
+        public Employee put(Long key, Employee value) {
+            Employee previous = linked().put(key, value);
+            invalidateCaches();
+            return previous;
+        }
+
+        @Override
+        public Employee remove(Object key) {
+            Employee removed = linked().remove(key);
+            invalidateCaches();
+            return removed;
+        }
+
+        @Override
+        public void clear() {
+            linked().clear();
+            invalidateCaches();
+        }
+
+        @Override
+        public Set<Long> keySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() {
+                    return linked().size();
+                }
+
+                @Override
+                public boolean contains(Object key) {
+                    return linked().containsKey(key);
+                }
+
+                @Override
+                public Iterator<Long> iterator() {
+                    return tracked(linked().keySet().iterator());
+                }
+            };
+        }
+
+        @Override
+        public Collection<Employee> values() {
+            return new AbstractCollection<>() {
+                @Override
+                public int size() {
+                    return linked().size();
+                }
+
+                @Override
+                public Iterator<Employee> iterator() {
+                    return tracked(linked().values().iterator());
+                }
+            };
+        }
+
+        @Override
+        public Set<Entry<Long, Employee>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() {
+                    return linked().size();
+                }
+
+                @Override
+                public Iterator<Entry<Long, Employee>> iterator() {
+                    Iterator<Entry<Long, Employee>> entries = tracked(linked().entrySet().iterator());
+                    return new Iterator<>() {
+                        @Override
+                        public boolean hasNext() {
+                            return entries.hasNext();
+                        }
+
+                        @Override
+                        public Entry<Long, Employee> next() {
+                            Entry<Long, Employee> entry = entries.next();
+                            return new SimpleEntry<>(entry) {
+                                @Override
+                                public Employee setValue(Employee value) {
+                                    super.setValue(value);
+                                    Employee previous = entry.setValue(value);
+                                    invalidateCaches();
+                                    return previous;
+                                }
+                            };
+                        }
+
+                        @Override
+                        public void remove() {
+                            entries.remove();
+                        }
+                    };
+                }
+            };
+        }
+
+        // Iterator whose remove() also drops the cached graph
+        private <T> Iterator<T> tracked(Iterator<T> iterator) {
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public T next() {
+                    return iterator.next();
+                }
+
+                @Override
+                public void remove() {
+                    iterator.remove();
+                    invalidateCaches();
+                }
+            };
+        }
+    }
+
+    private NameDictionary names() {
+        if (names == null || (unmaterialized == null && employeeMap.isEmpty())) {
+            names = new NameDictionary(offHeapNames);
+        }
+        return names;
+    }
+
+    private void skipMalformed(EmployeeCsvParser.Problem problem, long lineNumber, String line) {
+        metrics.skipped(problem);
+        if (diagnostics.record(Diagnostics.Code.of(problem), lineNumber, Diagnostics.NO_ID, Diagnostics.NO_ID)) {
+            diagnostics.describe(Diagnostics.Code.of(problem), line);
+        }
+    }
+
+    /**
+     * skipMalformed() for loaders that keep malformed lines undecoded; only the sampled ones are decoded.
+     */
+    private final EmployeeCsvParser.WarningSink malformedSink = new EmployeeCsvParser.WarningSink() {
+        @Override
+        public void malformed(EmployeeCsvParser.Problem problem, long lineNumber, String line) {
+            skipMalformed(problem, lineNumber, line);
+        }
+
+        @Override
+        public void malformed(EmployeeCsvParser.Problem problem, long lineNumber, ByteBuffer buf, int start, int end) {
+            metrics.skipped(problem);
+            if (diagnostics.record(Diagnostics.Code.of(problem), lineNumber, Diagnostics.NO_ID, Diagnostics.NO_ID)) {
+                diagnostics.describe(Diagnostics.Code.of(problem), EmployeeCsvParser.decode(buf, start, end));
             }
         }
+    };
+
+    private static Path toFilePath(URL url) {
+        if (!"file".equals(url.getProtocol())) {
+            return null; // e.g. inside a jar
+        }
+        try {
+            return Paths.get(url.toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
     }
 
     /**
-     * Builds the organizational hierarchy by linking managers to their subordinates. * Also identifies the CEO (employee with no manager).
+     * Builds the organizational hierarchy by linking managers to their subordinates. * Also identifies the CEO (the first employee with no manager, in file order).
      */
     public void buildHierarchy() {
+        if (unmaterialized != null) {
+            return; // linked by the graph load
+        }
+        long t = metrics.start();
+        invalidateCaches();
         for (Employee employee : employeeMap.values()) {
             employee.getManagerId().ifPresent(managerId -> {
                 Employee manager = employeeMap.get(managerId);
                 if (manager != null) {
                     manager.addSubordinates(employee);
                 } else {
-                    System.err.println("Warning: Manager ID " + managerId + " for employee " + employee.getId() + " not found in the dataset. Employee excluded from manager analysis.");
+                    metrics.missingManager();
+                    diagnostics.record(Diagnostics.Code.MISSING_MANAGER, Diagnostics.NO_LINE, employee.getId(), managerId);
                 }
             }); // Identify CEO: employee without a managerId
             if (!employee.getManagerId().isPresent()) {
                 if (ceo != null) {
-                    System.err.println("Warning: Multiple potential CEOs found! Using the first one encountered: " + ceo.toString());
+                    diagnostics.record(Diagnostics.Code.MULTIPLE_CEOS, Diagnostics.NO_LINE, employee.getId(), ceo.getId());
                 } else {
                     ceo = employee;
                 }
             }
         }
         if (ceo == null && !employeeMap.isEmpty()) {
-            System.err.println("Error: No CEO found (no employee has a null/empty managerId). Reporting line analysis will be skipped.");
+            diagnostics.record(Diagnostics.Code.NO_CEO, Diagnostics.NO_LINE, Diagnostics.NO_ID, Diagnostics.NO_ID);
         }
+        metrics.stop(OrgMetrics.Phase.LINK, t);
     }
 
     /**
      * Performs all organizational structure analysis and returns the report.
+     * Reuses the graph of the current hierarchy, which is only rebuilt after a change to the employee map,
+     * buildHierarchy(), invalidateCaches() or a load.
      */
     public OrgReport analyzeStructure() {
-        OrgReport report = new OrgReport();
-        // 1. Salary Compliance Check: Filter to only check employees who are managers.
-        employeeMap.values().stream().filter(Employee::isManager).forEach(manager -> checkSalaryCompliance(manager, report));
-        // 2. Reporting Line Length Check
-        if (ceo != null) {
-            employeeMap.values().stream().filter(e -> e.getId() != ceo.getId()).forEach(employee -> checkReportingLineLength(employee, report));
+        return analyzeStructure(graph());
+    }
+
+    /**
+     * Runs the same checks as {@link #analyzeStructure()} over a compact graph, using {@link #analysisThreads}.
+     * Issues come out in graph index order.
+     */
+    public OrgReport analyzeStructure(OrgGraph graph) {
+        return analyzeStructure(graph, analysisThreads);
+    }
+
+    /**
+     * Analyzes the graph on the given number of fork-join workers. Each worker checks a contiguous
+     * index range into its own partial report and the partials are merged left to right, so the
+     * result is identical to the single-threaded one.
+     */
+    public OrgReport analyzeStructure(OrgGraph graph, int threads) {
+        long t = metrics.start();
+        diagnostics.clear(Diagnostics.Code.BROKEN_CHAIN); // found again below
+        // Linear pre-passes shared by all workers
+        SubordinateStats stats = subordinateStats(graph);
+        ReportingDepths depths = graph.ceo() >= 0 ? reportingDepths(graph) : null;
+        OrgReport report;
+        if (threads <= 1 || graph.size() <= PARALLEL_CHUNK) {
+            report = analyzeRange(graph, stats, depths, 0, graph.size(), metrics);
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                report = pool.invoke(new AnalysisTask(graph, stats, depths, 0, graph.size(), metrics));
+            } finally {
+                pool.shutdown();
+            }
+        }
+        for (HierarchyIssue orphan : report.orphanedEmployees) {
+            diagnostics.record(Diagnostics.Code.BROKEN_CHAIN, Diagnostics.NO_LINE, orphan.employeeId, Diagnostics.NO_ID);
         }
+        report.diagnostics = diagnostics.copy();
+        metrics.issues(report);
+        metrics.stop(OrgMetrics.Phase.ANALYZE, t);
         return report;
     }
 
+    /**
+     * Checks the current hierarchy against the given rules in one pass, using {@link #analysisThreads}.
+     * Reuses the cached aggregates and computes only those the rules declare;
+     * {@link RuleEngine#defaultRules()} gives the same issues as {@link #analyzeStructure()}.
+     */
+    public RuleReport analyzeRules(List<OrgRule> rules) {
+        long t = metrics.start();
+        diagnostics.clear(Diagnostics.Code.BROKEN_CHAIN);
+        RuleEngine engine = new RuleEngine(rules);
+        OrgGraph graph = graph();
+        RuleReport report = engine.run(graph,
+                engine.needs(OrgRule.Aggregate.SUBORDINATE_SALARIES) ? subordinateStats(graph) : null,
+                engine.needs(OrgRule.Aggregate.DEPTH) && graph.ceo() >= 0 ? reportingDepths(graph) : null,
+                engine.needs(OrgRule.Aggregate.SUBTREE) ? subtreeQueries() : null,
+                analysisThreads);
+        for (HierarchyIssue orphan : report.orphanedEmployees) {
+            diagnostics.record(Diagnostics.Code.BROKEN_CHAIN, Diagnostics.NO_LINE, orphan.employeeId, Diagnostics.NO_ID);
+        }
+        report.diagnostics = diagnostics.copy();
+        metrics.issues(report);
+        metrics.stop(OrgMetrics.Phase.ANALYZE, t);
+        return report;
+    }
+
+    /**
+     * Analyzes the current hierarchy like {@link #analyzeStructure()} but streams the issues into the sink.
+     */
+    public void analyzeStructure(ReportSink sink) throws IOException {
+        analyzeStructure(graph(), sink);
+    }
+
+    /**
+     * Streams every issue into the sink as it is found and calls {@link ReportSink#finish()} at the end.
+     * Nothing is collected in memory, so the number of issues does not affect heap use.
+     */
+    public void analyzeStructure(OrgGraph graph, ReportSink sink) throws IOException {
+        long t = metrics.start();
+        diagnostics.clear(Diagnostics.Code.BROKEN_CHAIN);
+        SubordinateStats stats = subordinateStats(graph);
+        ReportingDepths depths = graph.ceo() >= 0 ? reportingDepths(graph) : null;
+        analyzeRange(graph, stats, depths, 0, graph.size(), new CountingSink(sink, metrics, diagnostics), metrics);
+        sink.diagnostics(diagnostics.copy());
+        sink.finish();
+        metrics.stop(OrgMetrics.Phase.ANALYZE, t);
+    }
+
+    /**
+     * Forwards to another sink, counting issues and recording a broken chain for each orphan on the way.
+     */
+    record CountingSink(ReportSink sink, OrgMetrics metrics, Diagnostics diagnostics) implements ReportSink {
+        public void lowEarningManager(ManagerSalaryIssue issue) {
+            metrics.issues(OrgMetrics.Issue.LOW_SALARY, 1);
+            sink.lowEarningManager(issue);
+        }
+
+        public void highEarningManager(ManagerSalaryIssue issue) {
+            metrics.issues(OrgMetrics.Issue.HIGH_SALARY, 1);
+            sink.highEarningManager(issue);
+        }
+
+        public void longReportingLine(ReportingLineIssue issue) {
+            metrics.issues(OrgMetrics.Issue.LONG_REPORTING_LINE, 1);
+            sink.longReportingLine(issue);
+        }
+
+        public void cyclicReportingLine(HierarchyIssue issue) {
+            metrics.issues(OrgMetrics.Issue.CYCLIC_REPORTING_LINE, 1);
+            sink.cyclicReportingLine(issue);
+        }
+
+        public void orphanedEmployee(HierarchyIssue issue) {
+            metrics.issues(OrgMetrics.Issue.ORPHANED_EMPLOYEE, 1);
+            diagnostics.record(Diagnostics.Code.BROKEN_CHAIN, Diagnostics.NO_LINE, issue.employeeId, Diagnostics.NO_ID);
+            sink.orphanedEmployee(issue);
+        }
+    }
+
+    private static OrgReport analyzeRange(OrgGraph graph, SubordinateStats stats, ReportingDepths depths, int from, int to,
+                                          OrgMetrics metrics) {
+        OrgReport report = new OrgReport();
+        analyzeRange(graph, stats, depths, from, to, report, metrics);
+        return report;
+    }
+
+    private static void analyzeRange(OrgGraph graph, SubordinateStats stats, ReportingDepths depths, int from, int to,
+                                     ReportSink report, OrgMetrics metrics) {
+        // 1. Salary Compliance Check against per-manager aggregates
+        long t = metrics.start();
+        for (int i = from; i < to; i++) {
+            if (stats.count(i) > 0) {
+                checkSalaryCompliance(graph, stats, i, report);
+            }
+        }
+        metrics.stop(OrgMetrics.Phase.SALARY_CHECK, t);
+        // 2. Reporting Line Length Check, using depths from a single pass over the hierarchy
+        if (depths != null) {
+            t = metrics.start();
+            for (int i = from; i < to; i++) {
+                if (i != graph.ceo()) {
+                    checkReportingLineLength(graph, depths, i, report);
+                }
+            }
+            metrics.stop(OrgMetrics.Phase.REPORTING_LINE_CHECK, t);
+        }
+    }
+
+    /**
+     * Splits an index range in halves down to PARALLEL_CHUNK and merges the partial reports in order.
+     */
+    @SuppressWarnings("serial") // fork-join tasks are never serialized
+    private static class AnalysisTask extends RecursiveTask<OrgReport> {
+        private final OrgGraph graph;
+        private final SubordinateStats stats;
+        private final ReportingDepths depths;
+        private final int from, to;
+        private final OrgMetrics metrics;
+
+        AnalysisTask(OrgGraph graph, SubordinateStats stats, ReportingDepths depths, int from, int to, OrgMetrics metrics) {
+            this.graph = graph;
+            this.stats = stats;
+            this.depths = depths;
+            this.from = from;
+            this.to = to;
+            this.metrics = metrics;
+        }
+
+        @Override
+        protected OrgReport compute() {
+            if (to - from <= PARALLEL_CHUNK) {
+                return analyzeRange(graph, stats, depths, from, to, metrics);
+            }
+            int mid = (from + to) >>> 1;
+            AnalysisTask right = new AnalysisTask(graph, stats, depths, mid, to, metrics);
+            right.fork();
+            OrgReport left = new AnalysisTask(graph, stats, depths, from, mid, metrics).compute();
+            return left.merge(right.join());
+        }
+    }
+
+    /**
+     * Drops the graph and the aggregates cached for the current hierarchy, so the next analysis rebuilds them
+     * from {@link #employeeMap}. Changes to the map do this already; call it after changing employees in place.
+     */
+    public void invalidateCaches() {
+        graph = null;
+        depths = null;
+        stats = null;
+        subtrees = null;
+    }
+
+    /**
+     * Starts incremental mode on the current hierarchy (call after buildHierarchy()).
+     * The returned analysis applies change events to employeeMap and reports only what changed.
+     */
+    public IncrementalAnalysis startIncremental() {
+        return new IncrementalAnalysis(this);
+    }
+
+    /**
+     * Depths for the given graph; cached for the analyzer's own graph.
+     */
+    private ReportingDepths reportingDepths(OrgGraph graph) {
+        if (graph != this.graph) {
+            return computeDepths(graph);
+        }
+        if (depths == null) {
+            depths = computeDepths(graph);
+        }
+        return depths;
+    }
+
+    private ReportingDepths computeDepths(OrgGraph graph) {
+        long t = metrics.start();
+        ReportingDepths computed = ReportingDepths.compute(graph);
+        metrics.depth(computed.maxDepth());
+        metrics.stop(OrgMetrics.Phase.REPORTING_DEPTHS, t);
+        return computed;
+    }
+
+    /**
+     * Subordinate salary aggregates for the analyzer's current hierarchy, computed once and shared by all checks.
+     */
+    public SubordinateStats subordinateStats() {
+        return subordinateStats(graph());
+    }
+
+    /**
+     * Subtree roll-ups (payroll, headcount, depth, chain and common-manager queries) for the current
+     * hierarchy; built once and reused until the hierarchy changes. Query by {@code graph().indexOf(id)}.
+     */
+    public SubtreeQueryEngine subtreeQueries() {
+        if (subtrees == null) {
+            subtrees = SubtreeQueryEngine.compute(graph());
+        }
+        return subtrees;
+    }
+
+    /**
+     * What-if salary simulation over the current hierarchy; the simulator keeps its own snapshot of the graph.
+     */
+    public ScenarioSimulator scenarios() {
+        return new ScenarioSimulator(graph(), analysisThreads);
+    }
+
+    /**
+     * Graph view of the current hierarchy, as used by the cached queries.
+     */
+    public OrgGraph graph() {
+        if (graph == null) {
+            graph = buildGraph();
+        }
+        return graph;
+    }
+
+    private OrgGraph buildGraph() {
+        OrgGraph built = unmaterialized != null ? unmaterialized : OrgGraph.of(employeeMap, ceo);
+        return renumberGraph ? built.renumbered() : built;
+    }
+
+    /**
+     * Aggregates for the given graph; cached for the analyzer's own graph.
+     */
+    public SubordinateStats subordinateStats(OrgGraph graph) {
+        if (graph != this.graph) {
+            return computeStats(graph);
+        }
+        if (stats == null) {
+            stats = computeStats(graph);
+        }
+        return stats;
+    }
+
+    private SubordinateStats computeStats(OrgGraph graph) {
+        long t = metrics.start();
+        SubordinateStats computed = SubordinateStats.compute(graph);
+        metrics.stop(OrgMetrics.Phase.SUBORDINATE_STATS, t);
+        return computed;
+    }
+
+    private static void checkSalaryCompliance(OrgGraph graph, SubordinateStats stats, int manager, ReportSink report) {
+        double managerSalary = graph.salary(manager);
+        ManagerSalaryIssue issue = ComplianceChecks.salaryBand(managerSalary, stats.average(manager),
+                MIN_SALARY_FACTOR, MAX_SALARY_FACTOR);
+        if (issue != null) {
+            issue.managerName = graph.fullName(manager);
+            issue.managerId = graph.id(manager);
+            ComplianceChecks.report(issue, managerSalary, report);
+        }
+    }
+
+    private static void checkReportingLineLength(OrgGraph graph, ReportingDepths depths, int employee, ReportSink report) {
+        int length = depths.depth(employee);
+        if (length == ReportingDepths.CYCLIC) {
+            report.cyclicReportingLine(hierarchyIssue(graph, depths, employee));
+            return;
+        }
+        if (length == ReportingDepths.ORPHANED) {
+            // Broken chain: never reaches the CEO
+            report.orphanedEmployee(hierarchyIssue(graph, depths, employee));
+            return;
+        }
+        ReportingLineIssue issue = ComplianceChecks.reportingLine(length, MAX_REPORTING_LINE_LENGTH);
+        if (issue != null) {
+            issue.employeeName = graph.fullName(employee);
+            issue.employeeId = graph.id(employee);
+            report.longReportingLine(issue);
+        }
+    }
+
+    private static HierarchyIssue hierarchyIssue(OrgGraph graph, ReportingDepths depths, int employee) {
+        HierarchyIssue issue = new HierarchyIssue();
+        issue.employeeName = graph.fullName(employee);
+        issue.employeeId = graph.id(employee);
+        issue.cyclic = depths.depth(employee) == ReportingDepths.CYCLIC;
+        return issue;
+    }
+
     /**
      * Checks if a manager's salary complies with the 20%-50% rule relative to their subordinates.
      */
     public void checkSalaryCompliance(Employee manager, OrgReport report) {
-        if (manager.getSubordinates().isEmpty()) {
+        List<Employee> subordinates = manager.getSubordinates();
+        if (subordinates.isEmpty()) {
             return;
         }
-        double averageSubordinateSalary = manager.getSubordinates().stream().mapToDouble(Employee::getSalary).average().orElse(0.0);
-        if (averageSubordinateSalary == 0.0)
-            return;
-        // Avoid division by zero if all subordinates earn 0
-        double managerSalary = manager.getSalary();
-        double minRequiredSalary = averageSubordinateSalary * MIN_SALARY_FACTOR;
-        double maxAllowedSalary = averageSubordinateSalary * MAX_SALARY_FACTOR;
-        ManagerSalaryIssue issue = new ManagerSalaryIssue();
-        issue.managerName = manager.getFirstName() + " " + manager.getLastName();
-        issue.managerId = manager.getId();
-        issue.expectedMin = minRequiredSalary;
-        issue.expectedMax = maxAllowedSalary; // Managers earning less than they should (less than 120%)
-        if (managerSalary < minRequiredSalary) {
-            issue.difference = minRequiredSalary - managerSalary;
-            report.lowEarningManagers.add(issue);
+        double sum = 0;
+        for (Employee subordinate : subordinates) {
+            sum += subordinate.getSalary();
+        }
+        ManagerSalaryIssue issue = salaryViolation(manager, sum / subordinates.size());
+        if (issue != null) {
+            ComplianceChecks.report(issue, manager.getSalary(), report);
+        }
+    }
+
+    /**
+     * Returns the issue for a manager paid outside the 20%-50% band around averageSubordinateSalary, or null.
+     */
+    static ManagerSalaryIssue salaryViolation(Employee manager, double averageSubordinateSalary) {
+        ManagerSalaryIssue issue = ComplianceChecks.salaryBand(manager.getSalary(), averageSubordinateSalary,
+                MIN_SALARY_FACTOR, MAX_SALARY_FACTOR);
+        if (issue != null) {
+            issue.managerName = manager.getFullName();
+            issue.managerId = manager.getId();
         }
-        // Managers earning more than they should (more than 150%)
-        else if (managerSalary > maxAllowedSalary) {
-            issue.difference = managerSalary - maxAllowedSalary;
-            report.highEarningManagers.add(issue);
+        return issue;
+    }
+
+    /**
+     * Returns the issue for an employee whose reporting line (see {@link ReportingDepths}) is longer than allowed, or null.
+     */
+    static ReportingLineIssue reportingLineViolation(Employee employee, int length) {
+        ReportingLineIssue issue = ComplianceChecks.reportingLine(length, MAX_REPORTING_LINE_LENGTH);
+        if (issue != null) {
+            issue.employeeName = employee.getFullName();
+            issue.employeeId = employee.getId();
         }
+        return issue;
+    }
+
+    /**
+     * The issue for an employee at depth {@link ReportingDepths#CYCLIC} (cyclic) or {@link ReportingDepths#ORPHANED}.
+     */
+    static HierarchyIssue hierarchyIssue(Employee employee, boolean cyclic) {
+        HierarchyIssue issue = new HierarchyIssue();
+        issue.employeeName = employee.getFullName();
+        issue.employeeId = employee.getId();
+        issue.cyclic = cyclic;
+        return issue;
     }
 
     /**
      * Checks the reporting line length for an employee. * Length is the number of managers in the chain (Employee -> M1 -> ... -> CEO).
+     * Uses depths precomputed once per hierarchy instead of walking the chain; call buildHierarchy() after changing employeeMap.
      */
     public void checkReportingLineLength(Employee employee, OrgReport report) {
-        int length = 0; // Number of managers up to the CEO (inclusive)
-        Employee current = employee; // Traverse up the chain until the CEO is reached (CEO has no managerId)
-        while (current.getManagerId().isPresent()) {
-            length++;
-            Employee manager = employeeMap.get(current.getManagerId().get());
-            if (manager == null) {
-                // Broken chain
-                System.err.println("Warning: Reporting chain for " + employee.getId() + " is broken.");
-                return;
-            }
-            current = manager;
-        } // The chain length is the number of managers traversed. Max allowed is 5.
-        if (length > MAX_REPORTING_LINE_LENGTH) {
-            ReportingLineIssue issue = new ReportingLineIssue();
-            issue.employeeName = employee.getFirstName() + " " + employee.getLastName();
-            issue.employeeId = employee.getId();
-            issue.actualLength = length;
-            issue.excessiveManagers = length - MAX_REPORTING_LINE_LENGTH;
-            report.longReportingLines.add(issue);
+        OrgGraph graph = graph();
+        int i = graph.indexOf(employee.getId());
+        ReportingDepths depths = reportingDepths(graph);
+        if (i == LongIntIndex.ABSENT || depths.depth(i) == ReportingDepths.ORPHANED || depths.depth(i) == ReportingDepths.UNKNOWN) {
+            diagnostics.record(Diagnostics.Code.BROKEN_CHAIN, Diagnostics.NO_LINE, employee.getId(), Diagnostics.NO_ID);
+        }
+        if (i != LongIntIndex.ABSENT) {
+            checkReportingLineLength(graph, depths, i, report);
         }
     }
 
@@ -202,13 +1061,31 @@ public class OrgAnalyzer {
      */
     public static void main(String[] args) {
         OrgAnalyzer analyzer = new OrgAnalyzer();
+        analyzer.metrics.register(OrgMetrics.DEFAULT_OBJECT_NAME);
         try { // 1. Read Data and Build Hierarchy
-            System.out.println("Reading data from " + FILE_PATH + "...");
-            analyzer.readEmployeesFromFile();
-            analyzer.buildHierarchy(); // 2. Analyze Structure
-            OrgReport report = analyzer.analyzeStructure(); //
-            // 3. Print Report
-            report.print();
+            System.err.println("Reading data from " + FILE_PATH + "...");
+            String format = System.getProperty("orgReport.format", "text");
+            if (Boolean.getBoolean("orgReport.external")) {
+                // Out-of-core mode for files whose hierarchy does not fit in the heap (-DorgReport.external=true)
+                Path csv = analyzer.csvPath();
+                if (csv == null) {
+                    throw new IOException("External mode needs " + FILE_PATH + " as a plain file");
+                }
+                long budget = Long.getLong("orgReport.externalMemoryMb", ExternalOrgAnalyzer.DEFAULT_MEMORY_BUDGET >> 20) << 20;
+                ExternalOrgAnalyzer external = new ExternalOrgAnalyzer(budget, Paths.get(System.getProperty("java.io.tmpdir")));
+                external.metrics = analyzer.metrics;
+                external.diagnostics = analyzer.diagnostics;
+                external.analyze(csv, outputSink(format));
+            } else if (format.equals("text") && Integer.getInteger("orgReport.topK") == null) {
+                analyzer.loadHierarchy(); // 2. Analyze Structure
+                OrgReport report = analyzer.analyzeStructure(); //
+                // 3. Print Report
+                report.print();
+            } else {
+                analyzer.loadHierarchy();
+                // 3. Stream machine-readable issues straight to stdout (-DorgReport.format=csv|jsonl)
+                analyzer.analyzeStructure(outputSink(format));
+            }
         } catch (IOException e) {
             System.err.println("\n--- FATAL ERROR ---");
             System.err.println("Could not read file: " + FILE_PATH);
@@ -217,5 +1094,42 @@ public class OrgAnalyzer {
             System.err.println("\n--- UNEXPECTED ERROR ---");
             e.printStackTrace();
         }
+        // 4. Data problems, a few samples per kind, then the machine-readable run summary: stderr, or the file named by -DorgReport.metricsFile
+        analyzer.diagnostics.print(System.err);
+        writeMetrics(analyzer.metrics, System.getProperty("orgReport.metricsFile"));
+    }
+
+    /**
+     * Sink for stdout in the given format; with -DorgReport.topK=k only the worst k issues per category are kept,
+     * optionally above -DorgReport.minDifference and -DorgReport.minExcessiveManagers.
+     */
+    static ReportSink outputSink(String format) {
+        return outputSink(format, System.out);
+    }
+
+    /**
+     * Same as {@link #outputSink(String)} for any stream.
+     */
+    static ReportSink outputSink(String format, OutputStream out) {
+        ReportSink sink = ReportSink.forFormat(format, out);
+        Integer topK = Integer.getInteger("orgReport.topK");
+        if (topK == null) {
+            return sink;
+        }
+        return new TopKReportSink(sink, topK, Double.parseDouble(System.getProperty("orgReport.minDifference", "0")),
+                Integer.getInteger("orgReport.minExcessiveManagers", 0));
+    }
+
+    static void writeMetrics(OrgMetrics metrics, String file) {
+        String json = metrics.getSummaryJson();
+        if (file == null) {
+            System.err.println("Metrics: " + json);
+            return;
+        }
+        try {
+            Files.writeString(Paths.get(file), json + "\n");
+        } catch (IOException e) {
+            System.err.println("Warning: Could not write metrics to " + file + ": " + e.getMessage());
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,274 @@
+package orgReport;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Instant;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Resident analyzer: keeps the latest report in memory, reloads it when the CSV changes and serves it over HTTP.
+ * <p>
+ * A watcher thread waits for changes to the CSV, lets writes settle, then loads and analyzes the file into a
+ * completely new {@link OrgAnalyzer} and publishes the result with one atomic reference swap. Every format is
+ * rendered to bytes before it is published, so a request only reads the current reference and copies bytes:
+ * requests never wait for a reload and a failed reload keeps serving the previous report.
+ * Requests run on virtual threads. Endpoints: {@code GET /report?format=text|csv|jsonl} and {@code GET /status}.
+ */
+public final class OrgAnalyzerService implements AutoCloseable {
+    static final long SETTLE_MILLIS = 200; // quiet period before reloading, so one save triggers one reload
+    static final int BACKLOG = 4096;
+
+    private final Path csv;
+    private final HttpServer server;
+    private final ExecutorService requestExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicReference<Published> current = new AtomicReference<>();
+    private final OrgMetrics metrics = new OrgMetrics(); // accumulated over all loads
+    private final WatchService watchService;
+    private final Thread watcher;
+
+    /**
+     * Immutable result of one load: the report and its pre-rendered bodies.
+     */
+    private record Published(OrgReport report, byte[] text, byte[] csv, byte[] jsonl, int employees,
+                             Instant loadedAt, long loadMillis, long generation) {
+    }
+
+    /**
+     * Loads the CSV once (using its snapshot when enabled and fresh) and binds the endpoint on the loopback interface;
+     * port 0 picks a free port. Call {@link #start()} to begin serving and watching.
+     */
+    public OrgAnalyzerService(Path csv, int port) throws IOException {
+        this.csv = csv.toAbsolutePath();
+        WatchService watchService = null;
+        try {
+            current.set(load(true, 1));
+            watchService = FileSystems.getDefault().newWatchService();
+            this.csv.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            // Bound last: a server that was never started only releases its socket once it has run
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+        } catch (IOException | RuntimeException e) {
+            // Release what was created, so a failed start leaves no watcher or executor behind
+            if (watchService != null) {
+                try {
+                    watchService.close();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            requestExecutor.shutdown();
+            throw e;
+        }
+        this.watchService = watchService;
+        server.setExecutor(requestExecutor);
+        server.createContext("/report", this::serveReport);
+        server.createContext("/status", this::serveStatus);
+        watcher = new Thread(this::watch, "csv-watcher");
+        watcher.setDaemon(true);
+        // Last, so a constructor that throws leaves no MBean behind for close() to remove
+        metrics.register(OrgMetrics.DEFAULT_OBJECT_NAME);
+    }
+
+    public void start() {
+        server.start();
+        watcher.start();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * The report currently being served.
+     */
+    public OrgReport currentReport() {
+        return current.get().report();
+    }
+
+    public OrgMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Number of successful loads so far, the initial one included.
+     */
+    public long generation() {
+        return current.get().generation();
+    }
+
+    /**
+     * Re-reads the CSV now and swaps the result in; the previous report stays in place if this fails.
+     */
+    public synchronized void reload() throws IOException {
+        current.set(load(false, current.get().generation() + 1));
+    }
+
+    @Override
+    public void close() throws IOException {
+        watcher.interrupt();
+        watchService.close();
+        server.stop(0);
+        requestExecutor.shutdown();
+        metrics.unregister(OrgMetrics.DEFAULT_OBJECT_NAME);
+    }
+
+    private Published load(boolean coldStart, long generation) throws IOException {
+        long started = System.nanoTime();
+        OrgAnalyzer analyzer = new OrgAnalyzer();
+        analyzer.metrics = metrics;
+        // The snapshot (when enabled) only helps the first load; after a change event the CSV no longer matches it
+        analyzer.useSnapshot &= coldStart;
+        analyzer.loadHierarchy(csv);
+        OrgReport report = analyzer.analyzeStructure();
+        analyzer.diagnostics.print(System.err);
+        return new Published(report, render(report, "text"), render(report, "csv"), render(report, "jsonl"),
+                analyzer.graph().size(), Instant.now(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started),
+                generation);
+    }
+
+    private static byte[] render(OrgReport report, String format) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        if (format.equals("text")) {
+            PrintStream out = new PrintStream(bytes, false, StandardCharsets.UTF_8);
+            TextReportSink.render(report, out);
+            out.flush();
+        } else {
+            ReportSink sink = ReportSink.forFormat(format, bytes);
+            report.replay(sink);
+            sink.finish();
+        }
+        return bytes.toByteArray();
+    }
+
+    private void watch() {
+        Path name = csv.getFileName();
+        try {
+            while (true) {
+                if (!changed(watchService.take(), name)) {
+                    continue;
+                }
+                // Let the writer finish: keep draining until the directory stays quiet for SETTLE_MILLIS
+                for (WatchKey key; (key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null; ) {
+                    changed(key, name);
+                }
+                try {
+                    reload();
+                    Published published = current.get();
+                    System.err.println("Reloaded " + csv + ": " + published.employees() + " employees in " + published.loadMillis() + " ms.");
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("Warning: Reload of " + csv + " failed, still serving the previous report: " + e);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // service closed
+        }
+    }
+
+    // Drains the key's events and reports whether one of them touched the CSV
+    private static boolean changed(WatchKey key, Path name) {
+        boolean hit = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || name.equals(event.context())) {
+                hit = true;
+            }
+        }
+        key.reset();
+        return hit;
+    }
+
+    private void serveReport(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                send(exchange, 405, "text/plain; charset=utf-8", "Only GET is supported\n".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            String format = queryParameter(exchange, "format", "text");
+            Published published = current.get();
+            switch (format) {
+                case "text" -> send(exchange, 200, "text/plain; charset=utf-8", published.text());
+                case "csv" -> send(exchange, 200, "text/csv; charset=utf-8", published.csv());
+                case "jsonl" -> send(exchange, 200, "application/x-ndjson", published.jsonl());
+                default -> send(exchange, 400, "text/plain; charset=utf-8",
+                        ("Unknown report format: " + format + " (expected text, csv or jsonl)\n").getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private void serveStatus(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            Published p = current.get();
+            OrgReport r = p.report();
+            String json = "{\"file\":\"" + JsonLinesReportSink.appendEscaped(new StringBuilder(), csv.toString()) + "\",\"generation\":" + p.generation()
+                    + ",\"loadedAt\":\"" + p.loadedAt() + "\",\"loadMillis\":" + p.loadMillis() + ",\"employees\":" + p.employees()
+                    + ",\"lowSalary\":" + r.lowEarningManagers.size() + ",\"highSalary\":" + r.highEarningManagers.size()
+                    + ",\"longReportingLines\":" + r.longReportingLines.size() + ",\"cyclic\":" + r.cyclicReportingLines.size()
+                    + ",\"orphaned\":" + r.orphanedEmployees.size() + ",\"metrics\":" + metrics.getSummaryJson() + "}\n";
+            send(exchange, 200, "application/json", json.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String queryParameter(HttpExchange exchange, String name, String fallback) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return fallback;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && pair.substring(0, eq).equals(name)) {
+                return pair.substring(eq + 1);
+            }
+        }
+        return fallback;
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        // -1: no body; 0 would mean chunked encoding of unknown length
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Runs the service until the JVM is stopped. Optional argument: path of the CSV (default employees.csv);
+     * the port comes from -DorgReport.port (default 8080).
+     */
+    public static void main(String[] args) {
+        Path csv = Paths.get(args.length > 0 ? args[0] : OrgAnalyzer.FILE_PATH);
+        int port = Integer.getInteger("orgReport.port", 8080);
+        try {
+            OrgAnalyzerService service = new OrgAnalyzerService(csv, port);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    service.close();
+                } catch (IOException e) {
+                    System.err.println("Warning: Error while stopping the service: " + e.getMessage());
+                }
+            }));
+            service.start();
+            System.err.println("Serving the report for " + csv.toAbsolutePath() + " on http://localhost:" + service.port() + "/report");
+        } catch (IOException e) {
+            System.err.println("\n--- FATAL ERROR ---");
+            System.err.println("Could not start the service for " + csv + ": " + e.getMessage());
+        }
+    }
+}
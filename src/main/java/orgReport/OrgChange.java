@@ -0,0 +1,50 @@
+package orgReport;
+
+import java.util.Optional;
+
+/**
+ * A single HR change event applied by {@link IncrementalAnalysis}.
+ */
+public class OrgChange {
+    public enum Type {
+        HIRE, TERMINATE, SALARY_CHANGE, MANAGER_CHANGE
+    }
+
+    public final Type type;
+    public final long employeeId;
+    final Employee hire;
+    final double salary;
+    final Optional<Long> managerId;
+
+    private OrgChange(Type type, long employeeId, Employee hire, double salary, Optional<Long> managerId) {
+        this.type = type;
+        this.employeeId = employeeId;
+        this.hire = hire;
+        this.salary = salary;
+        this.managerId = managerId;
+    }
+
+    public static OrgChange hire(Employee employee) {
+        return new OrgChange(Type.HIRE, employee.getId(), employee, employee.getSalary(), employee.getManagerId());
+    }
+
+    public static OrgChange terminate(long employeeId) {
+        return new OrgChange(Type.TERMINATE, employeeId, null, 0, Optional.empty());
+    }
+
+    public static OrgChange salaryChange(long employeeId, double newSalary) {
+        return new OrgChange(Type.SALARY_CHANGE, employeeId, null, newSalary, Optional.empty());
+    }
+
+    /**
+     * Moves an employee under a new manager; an empty managerId makes them a root.
+     */
+    public static OrgChange managerChange(long employeeId, Optional<Long> newManagerId) {
+        return new OrgChange(Type.MANAGER_CHANGE, employeeId, null, 0, newManagerId);
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + employeeId;
+    }
+}
@@ -0,0 +1,555 @@
+package orgReport;
+
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Compact, read-only org hierarchy stored as parallel primitive columns.
+ * Employees are addressed by a dense index 0..size()-1; subordinates are kept in CSR form
+ * (children of i are children[childOffsets[i] .. childOffsets[i + 1]]).
+ */
+public class OrgGraph {
+    public static final int NO_MANAGER = -1;      // managerId column was empty
+    public static final int MISSING_MANAGER = -2; // managerId does not exist in the dataset
+
+    // Numeric columns: heap arrays for a graph built in memory, views over the mapped file for a snapshot
+    final LongBuffer ids;
+    final DoubleBuffer salaries;
+    final IntBuffer managerIndex;
+    final IntBuffer childOffsets;
+    final IntBuffer children;
+    final NameDictionary names;
+    final int[] firstNames; // references into names
+    final int[] lastNames;
+    final int ceo;
+    final LongIntIndex index;
+    final int[] danglingIndex; // employees with MISSING_MANAGER, ascending ...
+    final long[] danglingManagerIds; // ... and the manager id each of them named
+
+    OrgGraph(long[] ids, double[] salaries, int[] managerIndex, int[] childOffsets, int[] children,
+             NameDictionary names, int[] firstNames, int[] lastNames, int ceo, LongIntIndex index,
+             int[] danglingIndex, long[] danglingManagerIds) {
+        this(LongBuffer.wrap(ids), DoubleBuffer.wrap(salaries), IntBuffer.wrap(managerIndex), IntBuffer.wrap(childOffsets),
+                IntBuffer.wrap(children), names, firstNames, lastNames, ceo, index, danglingIndex, danglingManagerIds);
+    }
+
+    OrgGraph(LongBuffer ids, DoubleBuffer salaries, IntBuffer managerIndex, IntBuffer childOffsets, IntBuffer children,
+             NameDictionary names, int[] firstNames, int[] lastNames, int ceo, LongIntIndex index,
+             int[] danglingIndex, long[] danglingManagerIds) {
+        this.ids = ids;
+        this.salaries = salaries;
+        this.managerIndex = managerIndex;
+        this.childOffsets = childOffsets;
+        this.children = children;
+        this.names = names;
+        this.firstNames = firstNames;
+        this.lastNames = lastNames;
+        this.ceo = ceo;
+        this.index = index;
+        this.danglingIndex = danglingIndex;
+        this.danglingManagerIds = danglingManagerIds;
+    }
+
+    /**
+     * Builds a graph from a linked employee map. Indices follow the map's iteration order and
+     * subordinates follow each Employee's subordinate list, so analysis sees the same order as the map.
+     * Names are shared with the employees when they all use one dictionary, and copied into a new one otherwise.
+     */
+    public static OrgGraph of(Map<Long, Employee> employees, Employee ceo) {
+        int n = employees.size();
+        long[] ids = new long[n];
+        double[] salaries = new double[n];
+        int[] firstNames = new int[n];
+        int[] lastNames = new int[n];
+        NameDictionary names = sharedNames(employees.values());
+        LongIntIndex index = new LongIntIndex(n);
+        Employee[] byIndex = new Employee[n];
+        int i = 0;
+        for (Employee e : employees.values()) {
+            ids[i] = e.getId();
+            salaries[i] = e.getSalary();
+            firstNames[i] = e.firstNameIn(names);
+            lastNames[i] = e.lastNameIn(names);
+            byIndex[i] = e;
+            index.put(e.getId(), i);
+            i++;
+        }
+        int[] managerIndex = new int[n];
+        int[] childOffsets = new int[n + 1];
+        int dangling = 0;
+        for (i = 0; i < n; i++) {
+            managerIndex[i] = resolveManager(byIndex[i].getManagerId(), index);
+            childOffsets[i + 1] = childOffsets[i] + countIndexed(byIndex[i].getSubordinates(), index);
+            if (managerIndex[i] == MISSING_MANAGER) {
+                dangling++;
+            }
+        }
+        int[] danglingIndex = new int[dangling];
+        long[] danglingManagerIds = new long[dangling];
+        for (i = 0, dangling = 0; i < n; i++) {
+            if (managerIndex[i] == MISSING_MANAGER) {
+                danglingIndex[dangling] = i;
+                danglingManagerIds[dangling++] = byIndex[i].getManagerId().get();
+            }
+        }
+        int[] children = new int[childOffsets[n]];
+        for (i = 0; i < n; i++) {
+            int k = childOffsets[i];
+            for (Employee sub : byIndex[i].getSubordinates()) {
+                int s = index.get(sub.getId());
+                if (s != LongIntIndex.ABSENT) {
+                    children[k++] = s;
+                }
+            }
+        }
+        int ceoIndex = ceo == null ? NO_MANAGER : index.get(ceo.getId());
+        return new OrgGraph(ids, salaries, managerIndex, childOffsets, children, names, firstNames, lastNames, ceoIndex, index,
+                danglingIndex, danglingManagerIds);
+    }
+
+    // The employees' dictionary when they all share one, else (or when some keep plain Strings) a fresh one
+    private static NameDictionary sharedNames(Iterable<Employee> employees) {
+        NameDictionary shared = null;
+        for (Employee e : employees) {
+            if (e.names() == null || (shared != null && shared != e.names())) {
+                return new NameDictionary();
+            }
+            shared = e.names();
+        }
+        return shared != null ? shared : new NameDictionary();
+    }
+
+    /**
+     * Loads a CSV straight into a graph, without creating Employee objects.
+     * Malformed lines are skipped like {@link OrgAnalyzer#readData}; a sample of them is printed to System.err.
+     */
+    public static OrgGraph fromCsv(Path path) throws IOException {
+        Diagnostics diagnostics = new Diagnostics();
+        OrgGraph graph = fromCsv(path, diagnostics);
+        diagnostics.print(System.err);
+        return graph;
+    }
+
+    /**
+     * Same as {@link #fromCsv(Path)}, recording malformed lines in diagnostics instead of printing them,
+     * together with missing managers and extra or absent CEOs.
+     */
+    public static OrgGraph fromCsv(Path path, Diagnostics diagnostics) throws IOException {
+        Builder builder = new Builder();
+        new MappedCsvLoader().load(path, new EmployeeCsvParser.Visitor() {
+            @Override
+            public void onRecord(EmployeeCsvParser.Record r) {
+                builder.add(r.id, r.firstNameRef(builder.names), r.lastNameRef(builder.names), r.salary, r.hasManager, r.managerId);
+            }
+
+            @Override
+            public void onMalformed(EmployeeCsvParser.Problem problem, EmployeeCsvParser.Record r) {
+                if (diagnostics.record(Diagnostics.Code.of(problem), r.lineNumber, Diagnostics.NO_ID, Diagnostics.NO_ID)) {
+                    diagnostics.describe(Diagnostics.Code.of(problem), r.line());
+                }
+            }
+        });
+        return builder.build(diagnostics);
+    }
+
+    private static int resolveManager(Optional<Long> managerId, LongIntIndex index) {
+        if (managerId.isEmpty()) {
+            return NO_MANAGER;
+        }
+        int m = index.get(managerId.get());
+        return m == LongIntIndex.ABSENT ? MISSING_MANAGER : m;
+    }
+
+    private static int countIndexed(List<Employee> subordinates, LongIntIndex index) {
+        int count = 0;
+        for (Employee sub : subordinates) {
+            if (index.containsKey(sub.getId())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public int size() {
+        return ids.limit();
+    }
+
+    /**
+     * Index of the CEO, or -1 when the hierarchy has none.
+     */
+    public int ceo() {
+        return ceo;
+    }
+
+    /**
+     * Index of the employee with this id, or -1.
+     */
+    public int indexOf(long id) {
+        return index.get(id);
+    }
+
+    public long id(int i) {
+        return ids.get(i);
+    }
+
+    public double salary(int i) {
+        return salaries.get(i);
+    }
+
+    public String firstName(int i) {
+        return names.get(firstNames[i]);
+    }
+
+    public String lastName(int i) {
+        return names.get(lastNames[i]);
+    }
+
+    public String fullName(int i) {
+        return names.fullName(firstNames[i], lastNames[i]);
+    }
+
+    /**
+     * Dictionary holding the names; shared with renumbered copies and materialized employees.
+     */
+    public NameDictionary names() {
+        return names;
+    }
+
+    /**
+     * Index of the manager, or NO_MANAGER / MISSING_MANAGER.
+     */
+    public int manager(int i) {
+        return managerIndex.get(i);
+    }
+
+    public int childCount(int i) {
+        return childOffsets.get(i + 1) - childOffsets.get(i);
+    }
+
+    /**
+     * Position of i's first child in the flat children array; see {@link #childAt(int)}.
+     */
+    public int childStart(int i) {
+        return childOffsets.get(i);
+    }
+
+    public int childEnd(int i) {
+        return childOffsets.get(i + 1);
+    }
+
+    public int childAt(int position) {
+        return children.get(position);
+    }
+
+    /**
+     * Copy of this graph with employees renumbered in breadth-first order from the CEO, so every manager's
+     * subordinates get consecutive indices and the analysis passes read the arrays front to back.
+     * Employees not reachable from the CEO follow, breadth-first from the other roots and then from the
+     * remaining (cyclic) employees. Siblings keep their order. Ids are unchanged, so reports name the
+     * same employees; only the order of issues within a section follows the new numbering.
+     */
+    public OrgGraph renumbered() {
+        int n = size();
+        int[] order = new int[n]; // new index -> old index; doubles as the BFS queue
+        int[] newIndex = new int[n];
+        Arrays.fill(newIndex, -1);
+        int count = 0;
+        if (ceo >= 0) {
+            count = breadthFirst(ceo, order, newIndex, count);
+        }
+        for (int i = 0; i < n; i++) {
+            if (newIndex[i] < 0 && managerIndex.get(i) < 0) {
+                count = breadthFirst(i, order, newIndex, count);
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            if (newIndex[i] < 0) {
+                count = breadthFirst(i, order, newIndex, count);
+            }
+        }
+        long[] newIds = new long[n];
+        double[] newSalaries = new double[n];
+        int[] newFirstNames = new int[n];
+        int[] newLastNames = new int[n];
+        int[] newManagers = new int[n];
+        int[] newOffsets = new int[n + 1];
+        int[] newChildren = new int[children.limit()];
+        LongIntIndex newIdIndex = new LongIntIndex(n);
+        for (int k = 0; k < n; k++) {
+            int i = order[k];
+            newIds[k] = ids.get(i);
+            newSalaries[k] = salaries.get(i);
+            newFirstNames[k] = firstNames[i];
+            newLastNames[k] = lastNames[i];
+            int m = managerIndex.get(i);
+            newManagers[k] = m >= 0 ? newIndex[m] : m;
+            int c = newOffsets[k];
+            for (int p = childOffsets.get(i); p < childOffsets.get(i + 1); p++) {
+                newChildren[c++] = newIndex[children.get(p)];
+            }
+            newOffsets[k + 1] = c;
+            newIdIndex.put(newIds[k], k);
+        }
+        int[] newDanglingIndex = new int[danglingIndex.length];
+        long[] newDanglingManagerIds = new long[danglingIndex.length];
+        for (int k = 0, d = 0; k < n; k++) {
+            if (newManagers[k] == MISSING_MANAGER) {
+                newDanglingIndex[d] = k;
+                newDanglingManagerIds[d++] = missingManagerId(order[k]);
+            }
+        }
+        return new OrgGraph(newIds, newSalaries, newManagers, newOffsets, newChildren, names, newFirstNames, newLastNames,
+                ceo >= 0 ? newIndex[ceo] : ceo, newIdIndex, newDanglingIndex, newDanglingManagerIds);
+    }
+
+    private int breadthFirst(int root, int[] order, int[] newIndex, int count) {
+        int head = count;
+        newIndex[root] = count;
+        order[count++] = root;
+        while (head < count) {
+            int i = order[head++];
+            for (int p = childOffsets.get(i); p < childOffsets.get(i + 1); p++) {
+                int c = children.get(p);
+                if (newIndex[c] < 0) {
+                    newIndex[c] = count;
+                    order[count++] = c;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Manager id named by i when its manager is MISSING_MANAGER.
+     */
+    public long missingManagerId(int i) {
+        int k = Arrays.binarySearch(danglingIndex, i);
+        if (k < 0) {
+            throw new IllegalArgumentException("Employee " + ids.get(i) + " does not name a missing manager");
+        }
+        return danglingManagerIds[k];
+    }
+
+    /**
+     * Number of employees whose manager is not in the dataset.
+     */
+    public int missingManagers() {
+        return danglingIndex.length;
+    }
+
+    /**
+     * Unlinked Employee view of one node; its subordinate list is empty.
+     */
+    public Employee employee(int i) {
+        int m = managerIndex.get(i);
+        Optional<Long> managerId = m >= 0 ? Optional.of(ids.get(m))
+                : m == MISSING_MANAGER ? Optional.of(missingManagerId(i)) : Optional.empty();
+        return new Employee(ids.get(i), names, firstNames[i], lastNames[i], salaries.get(i), managerId);
+    }
+
+    /**
+     * Materializes the whole graph as linked Employee objects, in index order, as buildHierarchy() would
+     * have linked them - including the manager ids of employees whose manager is not in the dataset.
+     */
+    public Map<Long, Employee> toEmployeeMap() {
+        Map<Long, Employee> map = new LinkedHashMap<>();
+        putEmployees(map);
+        return map;
+    }
+
+    /**
+     * Adds the materialized employees to map in index order.
+     */
+    void putEmployees(Map<Long, Employee> map) {
+        Employee[] employees = new Employee[size()];
+        for (int i = 0; i < employees.length; i++) {
+            employees[i] = employee(i);
+            map.put(ids.get(i), employees[i]);
+        }
+        for (int i = 0; i < employees.length; i++) {
+            for (int k = childOffsets.get(i); k < childOffsets.get(i + 1); k++) {
+                employees[i].addSubordinates(employees[children.get(k)]);
+            }
+        }
+    }
+
+    /**
+     * Incrementally collects employee rows and links each one to its manager as it arrives. A row whose
+     * manager has not been added yet waits in a pending table keyed by the manager id until that manager
+     * shows up; build() then only lays out the child lists. A repeated id replaces the earlier row in place,
+     * like {@code Map.put}.
+     */
+    public static class Builder {
+        private static final int NO_PENDING = 0; // node 0 is never used, so it ends every pending chain
+
+        private long[] ids = new long[16];
+        private double[] salaries = new double[16];
+        private long[] managerIds = new long[16];
+        private boolean[] hasManager = new boolean[16];
+        private int[] managerIndex = new int[16];
+        private int[] firstNames = new int[16];
+        private int[] lastNames = new int[16];
+        private final LongIntIndex index = new LongIntIndex(16);
+        // Manager id -> first node of the rows waiting for it; nodes chain rows through pendingNext
+        private final LongIntIndex pendingHeads = new LongIntIndex(16);
+        private int[] pendingRows = new int[16];
+        private int[] pendingNext = new int[16];
+        private int pendingNodes = 1;
+        final NameDictionary names;
+        private int size;
+
+        public Builder() {
+            this(new NameDictionary());
+        }
+
+        /**
+         * Builder whose graph keeps its names in the given dictionary.
+         */
+        public Builder(NameDictionary names) {
+            this.names = names;
+        }
+
+        public Builder add(long id, String firstName, String lastName, double salary, boolean hasManager, long managerId) {
+            return add(id, names.intern(firstName), names.intern(lastName), salary, hasManager, managerId);
+        }
+
+        // Names already interned in this builder's dictionary
+        Builder add(long id, int firstName, int lastName, double salary, boolean hasManager, long managerId) {
+            int i = index.get(id);
+            if (i == LongIntIndex.ABSENT) {
+                if (size == ids.length) {
+                    grow();
+                }
+                i = size++;
+                index.put(id, i);
+                attachPending(id, i);
+            }
+            ids[i] = id;
+            firstNames[i] = firstName;
+            lastNames[i] = lastName;
+            salaries[i] = salary;
+            this.hasManager[i] = hasManager;
+            managerIds[i] = managerId;
+            if (!hasManager) {
+                managerIndex[i] = NO_MANAGER;
+            } else {
+                int m = index.get(managerId);
+                managerIndex[i] = m == LongIntIndex.ABSENT ? MISSING_MANAGER : m;
+                if (m == LongIntIndex.ABSENT) {
+                    park(managerId, i);
+                }
+            }
+            return this;
+        }
+
+        // Row i waits for managerId
+        private void park(long managerId, int i) {
+            if (pendingNodes == pendingRows.length) {
+                pendingRows = Arrays.copyOf(pendingRows, pendingNodes * 2);
+                pendingNext = Arrays.copyOf(pendingNext, pendingNodes * 2);
+            }
+            int head = pendingHeads.get(managerId);
+            pendingRows[pendingNodes] = i;
+            pendingNext[pendingNodes] = head == LongIntIndex.ABSENT ? NO_PENDING : head;
+            pendingHeads.put(managerId, pendingNodes++);
+        }
+
+        // Links the rows waiting for the new row's id; rows replaced since they were parked no longer name it
+        private void attachPending(long id, int i) {
+            int node = pendingHeads.get(id);
+            if (node == LongIntIndex.ABSENT) {
+                return;
+            }
+            for (; node != NO_PENDING; node = pendingNext[node]) {
+                int r = pendingRows[node];
+                if (managerIndex[r] == MISSING_MANAGER && managerIds[r] == id) {
+                    managerIndex[r] = i;
+                }
+            }
+            pendingHeads.put(id, NO_PENDING);
+        }
+
+        public Builder add(Employee e) {
+            return add(e.getId(), e.firstNameIn(names), e.lastNameIn(names), e.getSalary(),
+                    e.getManagerId().isPresent(), e.getManagerId().orElse(0L));
+        }
+
+        private void grow() {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            salaries = Arrays.copyOf(salaries, capacity);
+            managerIds = Arrays.copyOf(managerIds, capacity);
+            hasManager = Arrays.copyOf(hasManager, capacity);
+            managerIndex = Arrays.copyOf(managerIndex, capacity);
+            firstNames = Arrays.copyOf(firstNames, capacity);
+            lastNames = Arrays.copyOf(lastNames, capacity);
+        }
+
+        /**
+         * Lays out the linked rows as a graph. Subordinates keep row order; the CEO is the first row without a
+         * manager (a repeated id keeps the row index of its first appearance, as in an insertion-ordered map).
+         * Rows still waiting for their manager keep MISSING_MANAGER.
+         */
+        public OrgGraph build() {
+            return build(null);
+        }
+
+        /**
+         * Same as {@link #build()}, recording missing managers, the roots after the CEO and a missing CEO
+         * in diagnostics like buildHierarchy() does.
+         */
+        public OrgGraph build(Diagnostics diagnostics) {
+            int n = size;
+            int[] managerIndex = Arrays.copyOf(this.managerIndex, n);
+            int[] childOffsets = new int[n + 1];
+            int ceo = NO_MANAGER;
+            int dangling = 0;
+            for (int i = 0; i < n; i++) {
+                int m = managerIndex[i];
+                if (m == NO_MANAGER) {
+                    if (ceo == NO_MANAGER) {
+                        ceo = i;
+                    } else if (diagnostics != null) {
+                        diagnostics.record(Diagnostics.Code.MULTIPLE_CEOS, Diagnostics.NO_LINE, ids[i], ids[ceo]);
+                    }
+                } else if (m >= 0) {
+                    childOffsets[m + 1]++;
+                } else {
+                    dangling++;
+                    if (diagnostics != null) {
+                        diagnostics.record(Diagnostics.Code.MISSING_MANAGER, Diagnostics.NO_LINE, ids[i], managerIds[i]);
+                    }
+                }
+            }
+            if (ceo == NO_MANAGER && n > 0 && diagnostics != null) {
+                diagnostics.record(Diagnostics.Code.NO_CEO, Diagnostics.NO_LINE, Diagnostics.NO_ID, Diagnostics.NO_ID);
+            }
+            for (int i = 0; i < n; i++) {
+                childOffsets[i + 1] += childOffsets[i];
+            }
+            int[] children = new int[childOffsets[n]];
+            int[] fill = Arrays.copyOf(childOffsets, n);
+            int[] danglingIndex = new int[dangling];
+            long[] danglingManagerIds = new long[dangling];
+            for (int i = 0, d = 0; i < n; i++) {
+                if (managerIndex[i] >= 0) {
+                    children[fill[managerIndex[i]]++] = i;
+                } else if (managerIndex[i] == MISSING_MANAGER) {
+                    danglingIndex[d] = i;
+                    danglingManagerIds[d++] = managerIds[i];
+                }
+            }
+            return new OrgGraph(Arrays.copyOf(ids, n), Arrays.copyOf(salaries, n), managerIndex, childOffsets, children,
+                    names, Arrays.copyOf(firstNames, n), Arrays.copyOf(lastNames, n), ceo, index,
+                    danglingIndex, danglingManagerIds);
+        }
+    }
+}
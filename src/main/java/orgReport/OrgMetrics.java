@@ -0,0 +1,316 @@
+package orgReport;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Low-overhead counters and phase timers for one analyzer (or one service across reloads).
+ * Every counter is a {@link LongAdder} (or a striped max), so parallel loaders and analysis workers
+ * can record without contending; reads sum the stripes and are only approximate while a run is in flight.
+ * <p>
+ * Phases are timed with two {@code System.nanoTime()} calls around each unit of work:
+ * {@code long t = metrics.start(); ...; metrics.stop(Phase.X, t);}
+ */
+public class OrgMetrics implements OrgMetricsMXBean {
+    public static final String DEFAULT_OBJECT_NAME = "orgReport:type=OrgMetrics";
+
+    public enum Phase {
+        READ,                 // CSV parsing into employees (includes linking for the pipelined loader)
+        LINK,                 // buildHierarchy()
+        SNAPSHOT_LOAD,
+        SUBORDINATE_STATS,
+        REPORTING_DEPTHS,
+        SALARY_CHECK,         // checkSalaryCompliance over all managers
+        REPORTING_LINE_CHECK, // checkReportingLineLength over all employees
+        ANALYZE,              // whole analyzeStructure() call, pre-passes included
+        INFLATE,              // gzip decompression, summed over inflating threads
+        INFLATE_WALL          // gzip input from opening it until its reader reached the end, wall clock
+    }
+
+    public enum Issue {
+        LOW_SALARY, HIGH_SALARY, LONG_REPORTING_LINE, CYCLIC_REPORTING_LINE, ORPHANED_EMPLOYEE
+    }
+
+    // Which instance holds each name this class registered; the MBean server only hands out wrappers
+    private static final Map<ObjectName, OrgMetrics> REGISTERED = new HashMap<>();
+
+    private final LongAdder[] phaseNanos = adders(Phase.values().length);
+    private final LongAdder[] phaseCalls = adders(Phase.values().length);
+    private final LongAdder[] skipped = adders(EmployeeCsvParser.Problem.values().length);
+    private final LongAdder[] issues = adders(Issue.values().length);
+    private final LongAdder rowsParsed = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder bytesInflated = new LongAdder();
+    private final LongAdder missingManagers = new LongAdder();
+    private final LongAccumulator peakDepth = new LongAccumulator(Math::max, 0);
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    public long start() {
+        return System.nanoTime();
+    }
+
+    public void stop(Phase phase, long startNanos) {
+        phaseNanos[phase.ordinal()].add(System.nanoTime() - startNanos);
+        phaseCalls[phase.ordinal()].increment();
+    }
+
+    public void rowsParsed(long rows) {
+        rowsParsed.add(rows);
+    }
+
+    public void bytesRead(long bytes) {
+        bytesRead.add(bytes);
+    }
+
+    public void bytesInflated(long bytes) {
+        bytesInflated.add(bytes);
+    }
+
+    public void skipped(EmployeeCsvParser.Problem problem) {
+        skipped[problem.ordinal()].increment();
+    }
+
+    public void skipped(EmployeeCsvParser.Problem problem, long count) {
+        skipped[problem.ordinal()].add(count);
+    }
+
+    public void missingManager() {
+        missingManagers.increment();
+    }
+
+    public void missingManagers(long count) {
+        missingManagers.add(count);
+    }
+
+    public void depth(long depth) {
+        peakDepth.accumulate(depth);
+    }
+
+    public void issues(Issue issue, long count) {
+        issues[issue.ordinal()].add(count);
+    }
+
+    /**
+     * Adds every issue of a collected report to the issue counters.
+     */
+    public void issues(OrgReport report) {
+        issues(Issue.LOW_SALARY, report.lowEarningManagers.size());
+        issues(Issue.HIGH_SALARY, report.highEarningManagers.size());
+        issues(Issue.LONG_REPORTING_LINE, report.longReportingLines.size());
+        issues(Issue.CYCLIC_REPORTING_LINE, report.cyclicReportingLines.size());
+        issues(Issue.ORPHANED_EMPLOYEE, report.orphanedEmployees.size());
+    }
+
+    public long phaseNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()].sum();
+    }
+
+    public long phaseCalls(Phase phase) {
+        return phaseCalls[phase.ordinal()].sum();
+    }
+
+    public long skippedCount(EmployeeCsvParser.Problem problem) {
+        return skipped[problem.ordinal()].sum();
+    }
+
+    public long issueCount(Issue issue) {
+        return issues[issue.ordinal()].sum();
+    }
+
+    @Override
+    public Map<String, Double> getPhaseMillis() {
+        Map<String, Double> millis = new LinkedHashMap<>();
+        for (Phase phase : Phase.values()) {
+            millis.put(key(phase), phaseNanos(phase) / 1e6);
+        }
+        return millis;
+    }
+
+    @Override
+    public long getRowsParsed() {
+        return rowsParsed.sum();
+    }
+
+    /**
+     * Rows parsed per second of READ time, or 0 before anything was read.
+     */
+    @Override
+    public double getRowsParsedPerSecond() {
+        long nanos = phaseNanos(Phase.READ);
+        return nanos == 0 ? 0.0 : rowsParsed.sum() * 1e9 / nanos;
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    @Override
+    public long getBytesInflated() {
+        return bytesInflated.sum();
+    }
+
+    /**
+     * Decompressed megabytes per second of INFLATE_WALL time - the rate the reader got its input at,
+     * however many threads inflated it - or 0 when the input was not compressed.
+     */
+    @Override
+    public double getInflateMBPerSecond() {
+        long nanos = phaseNanos(Phase.INFLATE_WALL);
+        return nanos == 0 ? 0.0 : bytesInflated.sum() * 1e9 / nanos / (1 << 20);
+    }
+
+    /**
+     * Decompressed megabytes per second of INFLATE time summed over the inflating threads, i.e. the rate
+     * of one thread; times the thread count it is the most the parallel inflater can deliver.
+     */
+    @Override
+    public double getInflateMBPerThreadSecond() {
+        long nanos = phaseNanos(Phase.INFLATE);
+        return nanos == 0 ? 0.0 : bytesInflated.sum() * 1e9 / nanos / (1 << 20);
+    }
+
+    @Override
+    public Map<String, Long> getSkippedLines() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (EmployeeCsvParser.Problem problem : EmployeeCsvParser.Problem.values()) {
+            counts.put(key(problem), skippedCount(problem));
+        }
+        return counts;
+    }
+
+    @Override
+    public long getMissingManagers() {
+        return missingManagers.sum();
+    }
+
+    @Override
+    public long getPeakDepth() {
+        return peakDepth.get();
+    }
+
+    @Override
+    public Map<String, Long> getIssueCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Issue issue : Issue.values()) {
+            counts.put(key(issue), issueCount(issue));
+        }
+        return counts;
+    }
+
+    /**
+     * One-line JSON object with every counter, for the end of a run.
+     */
+    @Override
+    public String getSummaryJson() {
+        StringBuilder sb = new StringBuilder(512).append("{\"phaseMillis\":{");
+        Map<String, Double> millis = getPhaseMillis();
+        int k = 0;
+        for (Map.Entry<String, Double> e : millis.entrySet()) {
+            sb.append(k++ == 0 ? "" : ",").append('"').append(e.getKey()).append("\":")
+                    .append(String.format(Locale.ROOT, "%.3f", e.getValue()));
+        }
+        sb.append("},\"rowsParsed\":").append(getRowsParsed())
+                .append(",\"rowsParsedPerSecond\":").append(Math.round(getRowsParsedPerSecond()))
+                .append(",\"bytesRead\":").append(getBytesRead())
+                .append(",\"bytesInflated\":").append(getBytesInflated())
+                .append(",\"inflateMBPerSecond\":").append(String.format(Locale.ROOT, "%.1f", getInflateMBPerSecond()))
+                .append(",\"inflateMBPerThreadSecond\":").append(String.format(Locale.ROOT, "%.1f", getInflateMBPerThreadSecond()));
+        appendCounts(sb.append(",\"skippedLines\":"), getSkippedLines());
+        sb.append(",\"missingManagers\":").append(getMissingManagers())
+                .append(",\"peakDepth\":").append(getPeakDepth());
+        appendCounts(sb.append(",\"issues\":"), getIssueCounts());
+        return sb.append('}').toString();
+    }
+
+    private static void appendCounts(StringBuilder sb, Map<String, Long> counts) {
+        sb.append('{');
+        int k = 0;
+        for (Map.Entry<String, Long> e : counts.entrySet()) {
+            sb.append(k++ == 0 ? "" : ",").append('"').append(e.getKey()).append("\":").append(e.getValue());
+        }
+        sb.append('}');
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder[] group : new LongAdder[][]{phaseNanos, phaseCalls, skipped, issues}) {
+            for (LongAdder adder : group) {
+                adder.reset();
+            }
+        }
+        rowsParsed.reset();
+        bytesRead.reset();
+        bytesInflated.reset();
+        missingManagers.reset();
+        peakDepth.reset();
+    }
+
+    /**
+     * Registers this instance with the platform MBean server under the given name, replacing an earlier registration.
+     */
+    public void register(String objectName) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(objectName);
+            synchronized (REGISTERED) {
+                try {
+                    server.registerMBean(this, name);
+                } catch (InstanceAlreadyExistsException e) {
+                    server.unregisterMBean(name);
+                    server.registerMBean(this, name);
+                }
+                REGISTERED.put(name, this);
+            }
+        } catch (JMException e) {
+            System.err.println("Warning: Could not register metrics MBean " + objectName + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Removes the registration under the given name if it is still this instance's; a later instance that
+     * took over the name keeps it.
+     */
+    public void unregister(String objectName) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(objectName);
+            synchronized (REGISTERED) {
+                if (REGISTERED.remove(name, this) && server.isRegistered(name)) {
+                    server.unregisterMBean(name);
+                }
+            }
+        } catch (InstanceNotFoundException e) {
+            // unregistered concurrently
+        } catch (JMException e) {
+            System.err.println("Warning: Could not unregister metrics MBean " + objectName + ": " + e.getMessage());
+        }
+    }
+
+    // FIELD_COUNT -> fieldCount
+    private static String key(Enum<?> value) {
+        String[] words = value.name().toLowerCase(Locale.ROOT).split("_");
+        StringBuilder sb = new StringBuilder(words[0]);
+        for (int i = 1; i < words.length; i++) {
+            sb.append(Character.toUpperCase(words[i].charAt(0))).append(words[i], 1, words[i].length());
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,35 @@
+package orgReport;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link OrgMetrics}. Times are in milliseconds, summed over all threads that ran the phase
+ * (except INFLATE_WALL, which is wall clock).
+ */
+public interface OrgMetricsMXBean {
+    Map<String, Double> getPhaseMillis();
+
+    long getRowsParsed();
+
+    double getRowsParsedPerSecond();
+
+    long getBytesRead();
+
+    long getBytesInflated();
+
+    double getInflateMBPerSecond();
+
+    double getInflateMBPerThreadSecond();
+
+    Map<String, Long> getSkippedLines();
+
+    long getMissingManagers();
+
+    long getPeakDepth();
+
+    Map<String, Long> getIssueCounts();
+
+    String getSummaryJson();
+
+    void reset();
+}
@@ -1,70 +1,90 @@
 package orgReport;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 /**
- * Helper class to aggregate and format the analysis results for console output.
+ * Helper class to aggregate the analysis results and format them for console output.
  */
-public class OrgReport {
+public class OrgReport implements ReportSink {
     public final List<OrgAnalyzer.ManagerSalaryIssue> lowEarningManagers = new ArrayList<OrgAnalyzer.ManagerSalaryIssue>();
     public final List<OrgAnalyzer.ManagerSalaryIssue> highEarningManagers = new ArrayList<OrgAnalyzer.ManagerSalaryIssue>();
     public final List<OrgAnalyzer.ReportingLineIssue> longReportingLines = new ArrayList<>();
+    public final List<OrgAnalyzer.HierarchyIssue> cyclicReportingLines = new ArrayList<>();
+    public final List<OrgAnalyzer.HierarchyIssue> orphanedEmployees = new ArrayList<>();
+    // Input problems seen while building this report, or null for partial reports
+    public Diagnostics diagnostics;
 
-    public void print() {
-        System.out.println("\n=======================================================");
-        System.out.println("     ORGANIZATIONAL STRUCTURE ANALYSIS REPORT            ");
-        System.out.println("=======================================================\n");
+    /**
+     * Appends all issues of other after this report's own (combiner for partial reports) and returns this.
+     */
+    public OrgReport merge(OrgReport other) {
+        lowEarningManagers.addAll(other.lowEarningManagers);
+        highEarningManagers.addAll(other.highEarningManagers);
+        longReportingLines.addAll(other.longReportingLines);
+        cyclicReportingLines.addAll(other.cyclicReportingLines);
+        orphanedEmployees.addAll(other.orphanedEmployees);
+        return this;
+    }
+
+    /**
+     * Orders every list by employee id, e.g. to compare reports built in different index orders.
+     */
+    public OrgReport sortById() {
+        lowEarningManagers.sort(Comparator.comparingLong(issue -> issue.managerId));
+        highEarningManagers.sort(Comparator.comparingLong(issue -> issue.managerId));
+        longReportingLines.sort(Comparator.comparingLong(issue -> issue.employeeId));
+        cyclicReportingLines.sort(Comparator.comparingLong(issue -> issue.employeeId));
+        orphanedEmployees.sort(Comparator.comparingLong(issue -> issue.employeeId));
+        return this;
+    }
 
-        // --------------------------------------------------------------------
-        // 1. SALARY VIOLATIONS
-        // --------------------------------------------------------------------
-        System.out.println("--- 1. SALARY COMPLIANCE VIOLATIONS (Min 20%, Max 50% more than average subordinate salary) ---\n");
+    @Override
+    public void lowEarningManager(OrgAnalyzer.ManagerSalaryIssue issue) {
+        lowEarningManagers.add(issue);
+    }
+
+    @Override
+    public void highEarningManager(OrgAnalyzer.ManagerSalaryIssue issue) {
+        highEarningManagers.add(issue);
+    }
 
-        boolean salaryCompliant = lowEarningManagers.isEmpty() && highEarningManagers.isEmpty();
-        if (salaryCompliant) {
-            System.out.println("  ✓ All managers comply with the 20% - 50% salary rules.");
-        } else {
-            // Managers Earning Less
-            System.out.println("A) MANAGERS EARNING LESS THAN REQUIRED:");
-            if (lowEarningManagers.isEmpty()) {
-                System.out.println("  - None.");
-            } else {
-                for (OrgAnalyzer.ManagerSalaryIssue issue : lowEarningManagers) {
-                    System.out.printf("  - %s: Earns $%,.2f less than the minimum required salary of $%,.2f.\n",
-                            issue.toString(), issue.difference, issue.expectedMin);
-                }
-            }
+    @Override
+    public void longReportingLine(OrgAnalyzer.ReportingLineIssue issue) {
+        longReportingLines.add(issue);
+    }
 
-            // Managers Earning More
-            System.out.println("\nB) MANAGERS EARNING MORE THAN ALLOWED:");
-            if (highEarningManagers.isEmpty()) {
-                System.out.println("  - None.");
-            } else {
-                for (OrgAnalyzer.ManagerSalaryIssue issue : highEarningManagers) {
-                    System.out.printf("  - %s: Earns $%,.2f more than the maximum allowed salary of $%,.2f.\n",
-                            issue.toString(), issue.difference, issue.expectedMax);
-                }
-            }
-        }
+    @Override
+    public void cyclicReportingLine(OrgAnalyzer.HierarchyIssue issue) {
+        cyclicReportingLines.add(issue);
+    }
 
+    @Override
+    public void orphanedEmployee(OrgAnalyzer.HierarchyIssue issue) {
+        orphanedEmployees.add(issue);
+    }
 
-        // --------------------------------------------------------------------
-        // 2. REPORTING LINE VIOLATIONS
-        // --------------------------------------------------------------------
-        System.out.println("\n--- 2. REPORTING LINE LENGTH VIOLATIONS (Max chain length: 5) ---\n");
+    @Override
+    public void diagnostics(Diagnostics diagnostics) {
+        this.diagnostics = diagnostics;
+    }
 
-        if (longReportingLines.isEmpty()) {
-            System.out.println("  ✓ All employees have a reporting line of 5 managers or less to the CEO.");
-        } else {
-            System.out.println("Employees with more than 4 managers between them and the CEO:");
-            for (OrgAnalyzer.ReportingLineIssue issue : longReportingLines) {
-                System.out.printf("  - %s: Has %d managers in the chain, which is %d too many.\n",
-                        issue.toString(), issue.actualLength, issue.excessiveManagers);
-            }
-        }
+    /**
+     * Hands every collected issue to another sink, category by category.
+     */
+    public void replay(ReportSink sink) {
+        lowEarningManagers.forEach(sink::lowEarningManager);
+        highEarningManagers.forEach(sink::highEarningManager);
+        longReportingLines.forEach(sink::longReportingLine);
+        cyclicReportingLines.forEach(sink::cyclicReportingLine);
+        orphanedEmployees.forEach(sink::orphanedEmployee);
+    }
 
-        System.out.println("\n=======================================================");
+    /**
+     * Prints the human-readable report to System.out.
+     */
+    public void print() {
+        TextReportSink.render(this, System.out);
     }
 }
-
@@ -0,0 +1,20 @@
+package orgReport;
+
+/**
+ * Violations that appeared and disappeared while applying a batch of {@link OrgChange} events.
+ * An issue whose figures changed shows up in both: the old version as resolved, the new one as added.
+ */
+public class OrgReportDelta {
+    public final OrgReport added = new OrgReport();
+    public final OrgReport resolved = new OrgReport();
+
+    public boolean isEmpty() {
+        return isEmpty(added) && isEmpty(resolved);
+    }
+
+    private static boolean isEmpty(OrgReport report) {
+        return report.lowEarningManagers.isEmpty() && report.highEarningManagers.isEmpty()
+                && report.longReportingLines.isEmpty() && report.cyclicReportingLines.isEmpty()
+                && report.orphanedEmployees.isEmpty();
+    }
+}
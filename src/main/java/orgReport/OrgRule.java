@@ -0,0 +1,155 @@
+package orgReport;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * A policy checked for every employee by the {@link RuleEngine}. A rule declares the per-employee aggregates
+ * it reads; the engine computes the union of all declared aggregates once and then evaluates every rule in a
+ * single pass over the hierarchy, so adding rules does not add passes.
+ * <p>
+ * Rules are called concurrently for different employees and must not keep mutable state.
+ */
+public interface OrgRule {
+
+    /**
+     * Per-employee values a rule can read from {@link RuleEngine.Node}.
+     */
+    enum Aggregate {
+        SPAN_OF_CONTROL,      // number of direct subordinates
+        SUBORDINATE_SALARIES, // sum, average, min and max salary of direct subordinates
+        DEPTH,                // reporting-line length (or the ReportingDepths sentinels)
+        SUBTREE               // payroll, headcount and height of the whole subtree; subtree membership
+    }
+
+    /**
+     * A finding of a custom rule, for checks that do not map onto the built-in issue categories.
+     */
+    record Violation(String rule, long employeeId, String employeeName, String message) {
+        @Override
+        public String toString() {
+            return String.format("%s (ID: %d): %s [%s]", employeeName, employeeId, message, rule);
+        }
+    }
+
+    String name();
+
+    Set<Aggregate> needs();
+
+    /**
+     * Checks one employee and reports violations into out. Only the declared aggregates may be read.
+     */
+    void check(RuleEngine.Node node, RuleReport out);
+
+    /**
+     * The 120%-150% salary band of analyzeStructure() with configurable factors; reports low and high earners.
+     */
+    static OrgRule salaryBand(double minFactor, double maxFactor) {
+        return new OrgRule() {
+            public String name() {
+                return "salary-band";
+            }
+
+            public Set<Aggregate> needs() {
+                return EnumSet.of(Aggregate.SUBORDINATE_SALARIES);
+            }
+
+            public void check(RuleEngine.Node node, RuleReport out) {
+                double salary = node.salary();
+                OrgAnalyzer.ManagerSalaryIssue issue = ComplianceChecks.salaryBand(salary, node.subordinateAverage(),
+                        minFactor, maxFactor);
+                if (issue != null) {
+                    issue.managerName = node.name();
+                    issue.managerId = node.id();
+                    ComplianceChecks.report(issue, salary, out);
+                }
+            }
+        };
+    }
+
+    /**
+     * Reporting lines longer than maxLength managers, plus employees in a cycle or below a broken chain.
+     * Skipped entirely when the hierarchy has no CEO.
+     */
+    static OrgRule maxReportingLine(int maxLength) {
+        return new OrgRule() {
+            public String name() {
+                return "reporting-line";
+            }
+
+            public Set<Aggregate> needs() {
+                return EnumSet.of(Aggregate.DEPTH);
+            }
+
+            public void check(RuleEngine.Node node, RuleReport out) {
+                int length = node.depth();
+                if (node.isCeo() || length == ReportingDepths.UNKNOWN) {
+                    return;
+                }
+                if (length == ReportingDepths.CYCLIC || length == ReportingDepths.ORPHANED) {
+                    OrgAnalyzer.HierarchyIssue issue = new OrgAnalyzer.HierarchyIssue();
+                    issue.employeeName = node.name();
+                    issue.employeeId = node.id();
+                    issue.cyclic = length == ReportingDepths.CYCLIC;
+                    if (issue.cyclic) {
+                        out.cyclicReportingLine(issue);
+                    } else {
+                        out.orphanedEmployee(issue);
+                    }
+                } else {
+                    OrgAnalyzer.ReportingLineIssue issue = ComplianceChecks.reportingLine(length, maxLength);
+                    if (issue != null) {
+                        issue.employeeName = node.name();
+                        issue.employeeId = node.id();
+                        out.longReportingLine(issue);
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * A custom rule from a lambda.
+     */
+    static OrgRule of(String name, Set<Aggregate> needs, BiConsumer<RuleEngine.Node, RuleReport> check) {
+        Set<Aggregate> declared = needs.isEmpty() ? EnumSet.noneOf(Aggregate.class) : EnumSet.copyOf(needs);
+        return new OrgRule() {
+            public String name() {
+                return name;
+            }
+
+            public Set<Aggregate> needs() {
+                return declared;
+            }
+
+            public void check(RuleEngine.Node node, RuleReport out) {
+                check.accept(node, out);
+            }
+        };
+    }
+
+    /**
+     * Applies rule only to the subtree headed by headId (the head included), e.g. one department.
+     * Nothing is checked when headId is not in the hierarchy or not reachable from the CEO.
+     */
+    static OrgRule scopedTo(long headId, OrgRule rule) {
+        Set<Aggregate> needs = EnumSet.of(Aggregate.SUBTREE);
+        needs.addAll(rule.needs());
+        return new OrgRule() {
+            public String name() {
+                return rule.name() + "@" + headId;
+            }
+
+            public Set<Aggregate> needs() {
+                return needs;
+            }
+
+            public void check(RuleEngine.Node node, RuleReport out) {
+                if (node.isWithin(headId)) {
+                    rule.check(node, out);
+                }
+            }
+        };
+    }
+}
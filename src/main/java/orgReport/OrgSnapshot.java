@@ -0,0 +1,461 @@
+package orgReport;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Versioned binary image of a linked hierarchy, so a restart can skip CSV parsing.
+ * <p>
+ * Layout (little-endian): a fixed header with the size and modification time of the CSV it was
+ * built from, then flat columns - ids, salaries, manager indices, CSR child offsets and children,
+ * first/last name references into a string table, the string table itself (offsets + UTF-8 bytes,
+ * each distinct name stored once) and the manager ids of employees whose manager is missing from
+ * the dataset. On load the numeric columns stay in the mapped file and the graph reads them in place;
+ * the header is padded so the long and double columns are 8-byte aligned. Only the name references are
+ * copied, as they are renumbered into the dictionary. The load diagnostics (count and samples per code)
+ * follow at the end, so a warm start reports the same data problems as the CSV would.
+ */
+public class OrgSnapshot {
+    static final int MAGIC = 0x4F52_4753; // "ORGS"
+    static final int VERSION = 3;
+    static final int HEADER_BYTES = 8 * Integer.BYTES + 3 * Long.BYTES; // one int of padding
+    private static final int NO_TEXT = -1;
+
+    /**
+     * Size and modification time of a CSV; a snapshot is only used for the exact CSV it was built from.
+     */
+    public record CsvStamp(long size, long modifiedNanos) {
+        // Written by saveSnapshot() without a CSV; never matches a file
+        public static final CsvStamp NONE = new CsvStamp(-1, 0);
+
+        public static CsvStamp of(Path csv) throws IOException {
+            return new CsvStamp(Files.size(csv), Files.getLastModifiedTime(csv).to(TimeUnit.NANOSECONDS));
+        }
+    }
+
+    private final OrgGraph graph;
+    private final long[] diagnosticCounts; // per Diagnostics.Code
+    private final List<Diagnostics.Entry> diagnosticSamples;
+
+    private OrgSnapshot(OrgGraph graph, long[] diagnosticCounts, List<Diagnostics.Entry> diagnosticSamples) {
+        this.graph = graph;
+        this.diagnosticCounts = diagnosticCounts;
+        this.diagnosticSamples = diagnosticSamples;
+    }
+
+    public OrgGraph graph() {
+        return graph;
+    }
+
+    /**
+     * True when the snapshot exists and was built from a CSV of exactly the current size and modification time.
+     */
+    public static boolean isFresh(Path snapshot, Path csv) throws IOException {
+        if (!Files.isRegularFile(snapshot) || Files.size(snapshot) < HEADER_BYTES) {
+            return false;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // fill the header
+            }
+        }
+        if (header.hasRemaining() || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            return false;
+        }
+        int stamp = 8 * Integer.BYTES + Long.BYTES;
+        return new CsvStamp(header.getLong(stamp), header.getLong(stamp + Long.BYTES)).equals(CsvStamp.of(csv));
+    }
+
+    /**
+     * Writes a linked employee map (as left by buildHierarchy()) together with the load problems recorded
+     * in diagnostics. The file is written next to the target and moved into place, so readers never see a
+     * half-written snapshot.
+     *
+     * @param source the CSV the employees were read from, taken before reading it
+     */
+    public static void write(Map<Long, Employee> employees, Employee ceo, Diagnostics diagnostics, CsvStamp source,
+                             Path path) throws IOException {
+        write(OrgGraph.of(employees, ceo), diagnostics, source, path);
+    }
+
+    /**
+     * Same for a hierarchy that is already a graph; its index order becomes the snapshot order.
+     */
+    public static void write(OrgGraph graph, Diagnostics diagnostics, CsvStamp source, Path path) throws IOException {
+        long[] counts = new long[Diagnostics.Code.values().length];
+        List<Diagnostics.Entry> samples = new ArrayList<>();
+        for (Diagnostics.Code code : Diagnostics.Code.values()) {
+            // Broken chains are found by the analysis, which runs again after a warm start
+            if (code != Diagnostics.Code.BROKEN_CHAIN) {
+                counts[code.ordinal()] = diagnostics.count(code);
+                samples.addAll(diagnostics.samples(code));
+            }
+        }
+        new OrgSnapshot(graph, counts, samples).write(source, path);
+    }
+
+    private void write(CsvStamp source, Path path) throws IOException {
+        int n = graph.size();
+        // String table: every distinct first/last name once, referenced by position.
+        // The graph's names are already deduplicated, so its dictionary references map one to one.
+        Map<Integer, Integer> strings = new LinkedHashMap<>();
+        int[] firstRefs = new int[n];
+        int[] lastRefs = new int[n];
+        for (int i = 0; i < n; i++) {
+            firstRefs[i] = strings.computeIfAbsent(graph.firstNames[i], ref -> strings.size());
+            lastRefs[i] = strings.computeIfAbsent(graph.lastNames[i], ref -> strings.size());
+        }
+        byte[][] encoded = new byte[strings.size()][];
+        int[] stringOffsets = new int[strings.size() + 1];
+        int s = 0;
+        for (int ref : strings.keySet()) {
+            encoded[s] = graph.names.bytes(ref);
+            stringOffsets[s + 1] = Math.addExact(stringOffsets[s], encoded[s].length);
+            s++;
+        }
+
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ColumnWriter out = new ColumnWriter(channel);
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putInt(n);
+            out.putInt(graph.ceo());
+            out.putInt(graph.children.limit());
+            out.putInt(encoded.length);
+            out.putInt(graph.danglingIndex.length);
+            out.putInt(0); // padding
+            out.putLong(stringOffsets[encoded.length]);
+            out.putLong(source.size());
+            out.putLong(source.modifiedNanos());
+            out.putLongs(graph.ids);
+            out.putDoubles(graph.salaries);
+            out.putInts(graph.managerIndex);
+            out.putInts(graph.childOffsets);
+            out.putInts(graph.children);
+            out.putInts(firstRefs);
+            out.putInts(lastRefs);
+            out.putInts(stringOffsets);
+            for (byte[] bytes : encoded) {
+                out.putBytes(bytes);
+            }
+            out.putInts(graph.danglingIndex);
+            out.putLongs(graph.danglingManagerIds);
+            out.putLongs(diagnosticCounts);
+            out.putInt(diagnosticSamples.size());
+            for (Diagnostics.Entry sample : diagnosticSamples) {
+                out.putInt(sample.code().ordinal());
+                out.putLong(sample.line());
+                out.putLong(sample.id());
+                out.putLong(sample.detail());
+                byte[] text = sample.text() == null ? null : sample.text().getBytes(StandardCharsets.UTF_8);
+                out.putInt(text == null ? NO_TEXT : text.length);
+                if (text != null) {
+                    out.putBytes(text);
+                }
+            }
+            out.flush();
+        }
+        try {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Maps a snapshot back into a graph. Throws IOException when the file is not a snapshot,
+     * has another version or is truncated; callers are expected to fall back to the CSV.
+     */
+    public static OrgSnapshot read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_BYTES) {
+                throw new IOException("Not an org snapshot (too short): " + path);
+            }
+            ByteBuffer header = map(channel, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not an org snapshot: " + path);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + " (expected " + VERSION + "): " + path);
+            }
+            int n = header.getInt();
+            int ceo = header.getInt();
+            int childCount = header.getInt();
+            int stringCount = header.getInt();
+            int danglingCount = header.getInt();
+            header.getInt(); // padding
+            long stringBytes = header.getLong();
+            header.position(HEADER_BYTES); // the CSV stamp is checked by isFresh()
+            if (n < 0 || childCount < 0 || stringCount < 0 || danglingCount < 0 || stringBytes < 0 || stringBytes > Integer.MAX_VALUE) {
+                throw new IOException("Corrupt snapshot header: " + path);
+            }
+            long expected = HEADER_BYTES + 8L * n + 8L * n + 4L * n + 4L * (n + 1) + 4L * childCount + 4L * n + 4L * n
+                    + 4L * (stringCount + 1) + stringBytes + 4L * danglingCount + 8L * danglingCount;
+            if (fileSize < expected) {
+                throw new IOException("Truncated snapshot (" + fileSize + " of " + expected + " bytes): " + path);
+            }
+
+            // Numeric columns are views over the mapping, which stays valid after the channel is closed
+            long pos = HEADER_BYTES;
+            LongBuffer ids = map(channel, pos, 8L * n).asLongBuffer();
+            pos += 8L * n;
+            DoubleBuffer salaries = map(channel, pos, 8L * n).asDoubleBuffer();
+            pos += 8L * n;
+            IntBuffer managerIndex = map(channel, pos, 4L * n).asIntBuffer();
+            pos += 4L * n;
+            IntBuffer childOffsets = map(channel, pos, 4L * (n + 1)).asIntBuffer();
+            pos += 4L * (n + 1);
+            IntBuffer children = map(channel, pos, 4L * childCount).asIntBuffer();
+            pos += 4L * childCount;
+            int[] firstRefs = readInts(channel, pos, n);
+            pos += 4L * n;
+            int[] lastRefs = readInts(channel, pos, n);
+            pos += 4L * n;
+            int[] stringOffsets = readInts(channel, pos, stringCount + 1);
+            pos += 4L * (stringCount + 1);
+            ByteBuffer stringData = map(channel, pos, stringBytes);
+            pos += stringBytes;
+            int[] danglingIndex = readInts(channel, pos, danglingCount);
+            pos += 4L * danglingCount;
+            long[] danglingManagerId = new long[danglingCount];
+            map(channel, pos, 8L * danglingCount).asLongBuffer().get(danglingManagerId);
+            pos += 8L * danglingCount;
+            ByteBuffer diagnostics = map(channel, pos, fileSize - pos);
+            Diagnostics.Code[] codes = Diagnostics.Code.values();
+            long[] diagnosticCounts = new long[codes.length];
+            diagnostics.asLongBuffer().get(diagnosticCounts);
+            diagnostics.position(8 * codes.length);
+            int sampleCount = diagnostics.getInt();
+            List<Diagnostics.Entry> samples = new ArrayList<>();
+            for (int k = 0; k < sampleCount; k++) {
+                int code = diagnostics.getInt();
+                if (code < 0 || code >= codes.length) {
+                    throw new IOException("Corrupt snapshot diagnostics: " + path);
+                }
+                long line = diagnostics.getLong();
+                long id = diagnostics.getLong();
+                long detail = diagnostics.getLong();
+                int length = diagnostics.getInt();
+                String text = null;
+                if (length != NO_TEXT) {
+                    byte[] bytes = new byte[length];
+                    diagnostics.get(bytes);
+                    text = new String(bytes, StandardCharsets.UTF_8);
+                }
+                samples.add(new Diagnostics.Entry(codes[code], line, id, detail, text));
+            }
+            if (diagnostics.hasRemaining()) {
+                throw new IOException("Corrupt snapshot (" + diagnostics.remaining() + " trailing bytes): " + path);
+            }
+
+            checkLinks(path, n, ceo, managerIndex, childOffsets, children, danglingIndex);
+
+            // Copy each distinct name into the dictionary once; rows share the references
+            NameDictionary names = new NameDictionary();
+            int[] strings = new int[stringCount];
+            for (int s = 0; s < stringCount; s++) {
+                strings[s] = names.intern(stringData, stringOffsets[s], stringOffsets[s + 1]);
+            }
+            LongIntIndex index = new LongIntIndex(n);
+            for (int i = 0; i < n; i++) {
+                firstRefs[i] = strings[firstRefs[i]];
+                lastRefs[i] = strings[lastRefs[i]];
+                if (index.put(ids.get(i), i) != LongIntIndex.ABSENT) {
+                    throw new IOException("Corrupt snapshot (duplicate id " + ids.get(i) + "): " + path);
+                }
+            }
+            OrgGraph graph = new OrgGraph(ids, salaries, managerIndex, childOffsets, children, names, firstRefs, lastRefs, ceo, index,
+                    danglingIndex, danglingManagerId);
+            return new OrgSnapshot(graph, diagnosticCounts, samples);
+        } catch (IndexOutOfBoundsException | BufferUnderflowException | NegativeArraySizeException e) {
+            throw new IOException("Corrupt snapshot: " + path, e);
+        }
+    }
+
+    /**
+     * Linked Employee objects in snapshot order, as buildHierarchy() left them when the snapshot was
+     * written - including the manager ids of employees whose manager is not in the dataset.
+     */
+    public Map<Long, Employee> toEmployeeMap() {
+        return graph.toEmployeeMap();
+    }
+
+    /**
+     * Load problems recorded when the snapshot was written.
+     */
+    public long diagnosticCount(Diagnostics.Code code) {
+        return diagnosticCounts[code.ordinal()];
+    }
+
+    /**
+     * Adds the stored load problems, counts and samples, to diagnostics as if the CSV had just been read.
+     */
+    public void replayDiagnostics(Diagnostics diagnostics) {
+        for (Diagnostics.Code code : Diagnostics.Code.values()) {
+            if (diagnosticCounts[code.ordinal()] > 0) {
+                diagnostics.restore(code, diagnosticCounts[code.ordinal()],
+                        diagnosticSamples.stream().filter(sample -> sample.code() == code).toList());
+            }
+        }
+    }
+
+    /**
+     * One pass over the link columns before the graph trusts them: the CEO, manager indices and children are
+     * in range, the child offsets ascend from 0 to the child count, and the dangling table lists exactly the
+     * employees with a missing manager, ascending. A bit flip in any of them would otherwise surface as a wrong
+     * report or an exception deep inside the analysis instead of a fallback to the CSV.
+     */
+    private static void checkLinks(Path path, int n, int ceo, IntBuffer managerIndex, IntBuffer childOffsets,
+                                   IntBuffer children, int[] danglingIndex) throws IOException {
+        if (ceo < OrgGraph.NO_MANAGER || ceo >= n) {
+            throw new IOException("Corrupt snapshot (CEO index " + ceo + "): " + path);
+        }
+        if (childOffsets.get(0) != 0 || childOffsets.get(n) != children.limit()) {
+            throw new IOException("Corrupt snapshot (child offsets): " + path);
+        }
+        int missing = 0;
+        for (int i = 0; i < n; i++) {
+            int m = managerIndex.get(i);
+            if (m >= n || m < OrgGraph.MISSING_MANAGER) {
+                throw new IOException("Corrupt snapshot (manager index " + m + " at " + i + "): " + path);
+            }
+            if (m == OrgGraph.MISSING_MANAGER) {
+                missing++;
+            }
+            int start = childOffsets.get(i);
+            int end = childOffsets.get(i + 1);
+            if (end < start) {
+                throw new IOException("Corrupt snapshot (child offsets at " + i + "): " + path);
+            }
+            for (int k = start; k < end; k++) {
+                int child = children.get(k);
+                if (child < 0 || child >= n) {
+                    throw new IOException("Corrupt snapshot (child " + child + " of " + i + "): " + path);
+                }
+            }
+        }
+        if (missing != danglingIndex.length) {
+            throw new IOException("Corrupt snapshot (" + danglingIndex.length + " dangling rows for " + missing + "): " + path);
+        }
+        for (int k = 0; k < danglingIndex.length; k++) {
+            int i = danglingIndex[k];
+            if (i < 0 || i >= n || managerIndex.get(i) != OrgGraph.MISSING_MANAGER || k > 0 && i <= danglingIndex[k - 1]) {
+                throw new IOException("Corrupt snapshot (dangling row " + i + "): " + path);
+            }
+        }
+    }
+
+    private static int[] readInts(FileChannel channel, long pos, int count) throws IOException {
+        int[] values = new int[count];
+        map(channel, pos, 4L * count).asIntBuffer().get(values);
+        return values;
+    }
+
+    private static ByteBuffer map(FileChannel channel, long pos, long length) throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot column larger than 2 GiB");
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, pos, length);
+        return buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Buffers little-endian column writes into large sequential channel writes.
+     */
+    private static class ColumnWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+
+        ColumnWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        void putInts(int[] values) throws IOException {
+            for (int value : values) {
+                putInt(value);
+            }
+        }
+
+        void putInts(IntBuffer values) throws IOException {
+            for (int i = 0; i < values.limit(); i++) {
+                putInt(values.get(i));
+            }
+        }
+
+        void putLongs(long[] values) throws IOException {
+            for (long value : values) {
+                putLong(value);
+            }
+        }
+
+        void putLongs(LongBuffer values) throws IOException {
+            for (int i = 0; i < values.limit(); i++) {
+                putLong(values.get(i));
+            }
+        }
+
+        void putDoubles(DoubleBuffer values) throws IOException {
+            for (int i = 0; i < values.limit(); i++) {
+                ensure(Double.BYTES);
+                buffer.putDouble(values.get(i));
+            }
+        }
+
+        void putBytes(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                ensure(1);
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
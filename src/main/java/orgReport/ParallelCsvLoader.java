@@ -0,0 +1,330 @@
+package orgReport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Parses an employee CSV on a fork-join pool. The file is cut into newline-aligned byte ranges,
+ * each range is parsed into its own buffer and name dictionary, and the buffers are replayed in file
+ * order so the result (including warnings) is the same as a sequential load. Only the replay, on the
+ * calling thread, touches the shared dictionary, so the workers never wait for each other.
+ */
+public class ParallelCsvLoader {
+    // Enough chunks to balance uneven ranges, but not so many that small files pay for task overhead
+    static final int CHUNKS_PER_THREAD = 4;
+    static final long MIN_CHUNK_BYTES = 1 << 20;
+
+    private final int threads;
+    private final long minChunkBytes;
+    private NameDictionary names = new NameDictionary();
+
+    public ParallelCsvLoader(int threads) {
+        this(threads, MIN_CHUNK_BYTES);
+    }
+
+    /**
+     * @param minChunkBytes smallest byte range handed to a single worker
+     */
+    public ParallelCsvLoader(int threads, long minChunkBytes) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be >= 1: " + threads);
+        }
+        this.threads = threads;
+        this.minChunkBytes = Math.max(1, minChunkBytes);
+    }
+
+    /**
+     * Dictionary the names of loaded employees are interned into (by default one per loader).
+     */
+    public ParallelCsvLoader names(NameDictionary names) {
+        this.names = names;
+        return this;
+    }
+
+    /**
+     * Parses the file and hands every employee and warning to the sinks on the calling thread, in file order.
+     */
+    public void load(Path path, Consumer<Employee> employeeSink,
+                     EmployeeCsvParser.WarningSink warningSink) throws IOException {
+        long lineBase = 0;
+        for (ChunkResult result : parse(path, true)) {
+            result.replay(lineBase, names, employeeSink, warningSink);
+            lineBase += result.lines;
+        }
+    }
+
+    /**
+     * Parses the file straight into the builder, without creating Employee objects; names end up in the
+     * builder's dictionary. Warnings go to the sink on the calling thread, in file order.
+     * Returns the number of valid rows.
+     */
+    public long load(Path path, OrgGraph.Builder builder, EmployeeCsvParser.WarningSink warningSink) throws IOException {
+        long lineBase = 0;
+        long rows = 0;
+        for (ChunkResult result : parse(path, false)) {
+            result.replay(lineBase, builder, warningSink);
+            lineBase += result.lines;
+            rows += result.rows();
+        }
+        return rows;
+    }
+
+    // Parses all chunks on the pool; results are in file order
+    private List<ChunkResult> parse(Path path, boolean asEmployees) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long[] bounds = splitPoints(channel, threads * CHUNKS_PER_THREAD, minChunkBytes);
+            List<ChunkTask> tasks = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                tasks.add(new ChunkTask(channel, bounds[i], bounds[i + 1], asEmployees));
+            }
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+            } finally {
+                pool.shutdown();
+            }
+            List<ChunkResult> results = new ArrayList<>();
+            for (ChunkTask task : tasks) {
+                ChunkResult result = task.join();
+                if (result.failure != null) {
+                    throw result.failure;
+                }
+                results.add(result);
+            }
+            return results;
+        }
+    }
+
+    /**
+     * Returns ascending offsets [0, ..., size]; every inner offset is the first byte after a '\n'.
+     */
+    static long[] splitPoints(FileChannel channel, int chunks, long minChunkBytes) throws IOException {
+        long size = channel.size();
+        int count = (int) Math.max(1, Math.min(chunks, size / minChunkBytes));
+        List<Long> points = new ArrayList<>();
+        points.add(0L);
+        ByteBuffer probe = ByteBuffer.allocate(8192);
+        for (int i = 1; i < count; i++) {
+            long pos = Math.max(points.get(points.size() - 1), size * i / count);
+            long boundary = nextLineStart(channel, pos, size, probe);
+            if (boundary > points.get(points.size() - 1) && boundary < size) {
+                points.add(boundary);
+            }
+        }
+        points.add(size);
+        return points.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static long nextLineStart(FileChannel channel, long pos, long size, ByteBuffer probe) throws IOException {
+        while (pos < size) {
+            probe.clear();
+            int n = channel.read(probe, pos);
+            if (n <= 0) {
+                break;
+            }
+            for (int i = 0; i < n; i++) {
+                if (probe.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += n;
+        }
+        return size;
+    }
+
+    /**
+     * Parses one byte range into a private buffer and dictionary.
+     */
+    @SuppressWarnings("serial") // fork-join tasks are never serialized
+    private static class ChunkTask extends RecursiveTask<ChunkResult> {
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private final boolean asEmployees;
+
+        ChunkTask(FileChannel channel, long start, long end, boolean asEmployees) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.asEmployees = asEmployees;
+        }
+
+        @Override
+        protected ChunkResult compute() {
+            ChunkResult result = new ChunkResult(new NameDictionary(), asEmployees);
+            EmployeeCsvParser parser = new EmployeeCsvParser();
+            try {
+                new MappedCsvLoader().load(channel, start, end, parser, result);
+                result.lines = parser.lineCount();
+            } catch (IOException e) {
+                result.failure = e;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Rows and warnings of one chunk, kept in line order. Rows are Employees, or for a graph load plain
+     * columns that go straight into an {@link OrgGraph.Builder}. Names are interned into a dictionary owned
+     * by the parsing worker and moved to the caller's dictionary on replay.
+     */
+    static class ChunkResult implements EmployeeCsvParser.Visitor {
+        final List<Employee> employees; // null when the rows are kept as columns
+        private int rows;
+        private long[] ids;
+        private double[] salaries;
+        private long[] managerIds;
+        private boolean[] hasManager;
+        private int[] firstNames;
+        private int[] lastNames;
+        // Warnings: the position among the rows (so replay interleaves them exactly), the problem, the line
+        // number relative to the chunk and where the raw line is; it is only decoded if the warning sink asks for it
+        private int warnings;
+        private int[] warningPositions = new int[0];
+        private byte[] warningProblems = new byte[0];
+        private long[] warningLineNumbers = new long[0];
+        private int[] warningSources = new int[0];
+        private int[] warningStarts = new int[0];
+        private int[] warningEnds = new int[0];
+        // Buffers the malformed lines were parsed from, kept until replay
+        private final List<ByteBuffer> sources = new ArrayList<>();
+        long lines;
+        IOException failure;
+        private final NameDictionary names;
+
+        ChunkResult(NameDictionary names) {
+            this(names, true);
+        }
+
+        /**
+         * @param asEmployees false to keep the rows as columns for {@link #replay(long, OrgGraph.Builder, EmployeeCsvParser.WarningSink)}
+         */
+        ChunkResult(NameDictionary names, boolean asEmployees) {
+            this.names = names;
+            this.employees = asEmployees ? new ArrayList<>() : null;
+            if (!asEmployees) {
+                ids = new long[64];
+                salaries = new double[64];
+                managerIds = new long[64];
+                hasManager = new boolean[64];
+                firstNames = new int[64];
+                lastNames = new int[64];
+            }
+        }
+
+        @Override
+        public void onRecord(EmployeeCsvParser.Record record) {
+            if (employees != null) {
+                employees.add(record.toEmployee(names));
+                rows++;
+                return;
+            }
+            if (rows == ids.length) {
+                int capacity = rows * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                salaries = Arrays.copyOf(salaries, capacity);
+                managerIds = Arrays.copyOf(managerIds, capacity);
+                hasManager = Arrays.copyOf(hasManager, capacity);
+                firstNames = Arrays.copyOf(firstNames, capacity);
+                lastNames = Arrays.copyOf(lastNames, capacity);
+            }
+            ids[rows] = record.id;
+            salaries[rows] = record.salary;
+            managerIds[rows] = record.managerId;
+            hasManager[rows] = record.hasManager;
+            firstNames[rows] = record.firstNameRef(names);
+            lastNames[rows] = record.lastNameRef(names);
+            rows++;
+        }
+
+        /**
+         * Valid rows in the chunk.
+         */
+        int rows() {
+            return rows;
+        }
+
+        @Override
+        public void onMalformed(EmployeeCsvParser.Problem problem, EmployeeCsvParser.Record record) {
+            if (warnings == warningPositions.length) {
+                int capacity = Math.max(8, warnings * 2);
+                warningPositions = Arrays.copyOf(warningPositions, capacity);
+                warningProblems = Arrays.copyOf(warningProblems, capacity);
+                warningLineNumbers = Arrays.copyOf(warningLineNumbers, capacity);
+                warningSources = Arrays.copyOf(warningSources, capacity);
+                warningStarts = Arrays.copyOf(warningStarts, capacity);
+                warningEnds = Arrays.copyOf(warningEnds, capacity);
+            }
+            if (sources.isEmpty() || sources.get(sources.size() - 1) != record.buf) {
+                sources.add(record.buf);
+            }
+            warningPositions[warnings] = rows;
+            warningProblems[warnings] = (byte) problem.ordinal();
+            warningLineNumbers[warnings] = record.lineNumber;
+            warningSources[warnings] = sources.size() - 1;
+            warningStarts[warnings] = record.lineStart;
+            warningEnds[warnings] = record.lineEnd;
+            warnings++;
+        }
+
+        /**
+         * Hands employees and warnings over in line order, with their names moved to target; lineBase is the
+         * number of lines before the chunk.
+         */
+        void replay(long lineBase, NameDictionary target, Consumer<Employee> employeeSink,
+                    EmployeeCsvParser.WarningSink warningSink) {
+            LongIntIndex moved = new LongIntIndex(1024);
+            replayRows(lineBase, i -> {
+                Employee employee = employees.get(i);
+                employee.moveNames(target, move(employee.firstNameRef(), target, moved), move(employee.lastNameRef(), target, moved));
+                employeeSink.accept(employee);
+            }, warningSink);
+        }
+
+        /**
+         * Same for a chunk kept as columns, adding the rows to the builder and the names to its dictionary.
+         */
+        void replay(long lineBase, OrgGraph.Builder builder, EmployeeCsvParser.WarningSink warningSink) {
+            LongIntIndex moved = new LongIntIndex(1024);
+            replayRows(lineBase, i -> builder.add(ids[i], move(firstNames[i], builder.names, moved),
+                    move(lastNames[i], builder.names, moved), salaries[i], hasManager[i], managerIds[i]), warningSink);
+        }
+
+        // Reference in target of a name from this chunk's dictionary; moved remembers the names already moved
+        private int move(int ref, NameDictionary target, LongIntIndex moved) {
+            int to = moved.get(ref);
+            if (to == LongIntIndex.ABSENT) {
+                to = target.intern(names, ref);
+                moved.put(ref, to);
+            }
+            return to;
+        }
+
+        private void replayRows(long lineBase, IntConsumer rowSink, EmployeeCsvParser.WarningSink warningSink) {
+            int w = 0;
+            for (int i = 0; i <= rows; i++) {
+                while (w < warnings && warningPositions[w] == i) {
+                    warningSink.malformed(PROBLEMS[warningProblems[w]], lineBase + warningLineNumbers[w],
+                            sources.get(warningSources[w]), warningStarts[w], warningEnds[w]);
+                    w++;
+                }
+                if (i < rows) {
+                    rowSink.accept(i);
+                }
+            }
+        }
+
+        private static final EmployeeCsvParser.Problem[] PROBLEMS = EmployeeCsvParser.Problem.values();
+    }
+}
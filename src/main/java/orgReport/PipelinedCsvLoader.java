@@ -0,0 +1,416 @@
+package orgReport;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Loads and links an employee CSV in one pipelined pass, replacing readEmployeesFromFile() + buildHierarchy().
+ * <p>
+ * A reader thread cuts the file into newline-aligned batches and hands them to parser threads through a
+ * bounded queue. The calling thread receives the parsed batches, restores file order and links every
+ * employee as it arrives: to its manager if that is already known, otherwise into a pending table that is
+ * drained when the manager shows up. Once the last batch is linked only forward references to missing
+ * managers remain, and those are reported like buildHierarchy() does. loadGraph() skips the Employee objects:
+ * parsers keep their rows as columns and the calling thread adds them to an {@link OrgGraph.Builder}, which
+ * links them the same way - directly, or through its pending table - so at the end only the child lists are
+ * laid out.
+ */
+public class PipelinedCsvLoader {
+    static final int BATCH_BYTES = 1 << 18;
+    static final int QUEUED_BATCHES_PER_PARSER = 2;
+
+    private final int parserThreads;
+    private final int batchBytes;
+    private NameDictionary names = new NameDictionary();
+    private long rowsLoaded;
+    private long missingManagers;
+
+    public PipelinedCsvLoader(int parserThreads) {
+        this(parserThreads, BATCH_BYTES);
+    }
+
+    /**
+     * @param batchBytes bytes read per batch; a batch grows when a single line is longer
+     */
+    public PipelinedCsvLoader(int parserThreads, int batchBytes) {
+        if (parserThreads < 1) {
+            throw new IllegalArgumentException("parserThreads must be >= 1: " + parserThreads);
+        }
+        this.parserThreads = parserThreads;
+        this.batchBytes = Math.max(1, batchBytes);
+    }
+
+    /**
+     * Dictionary the names of loaded employees are interned into (by default one per loader).
+     */
+    public PipelinedCsvLoader names(NameDictionary names) {
+        this.names = names;
+        return this;
+    }
+
+    /**
+     * Same as {@link #load(Path, Map, EmployeeCsvParser.WarningSink, Diagnostics)}, discarding linking problems.
+     */
+    public Employee load(Path path, Map<Long, Employee> employees,
+                         EmployeeCsvParser.WarningSink warningSink) throws IOException {
+        return load(path, employees, warningSink, new Diagnostics());
+    }
+
+    /**
+     * Reads, parses and links the file into employees (a later row with the same id replaces the earlier one).
+     * Malformed lines go to the warning sink in file order; missing managers and extra or absent CEOs are
+     * recorded in diagnostics. Returns the CEO: the first employee without a manager in file order, a repeated id
+     * counting from its first row. Gzip files are inflated on the fly.
+     */
+    public Employee load(Path path, Map<Long, Employee> employees, EmployeeCsvParser.WarningSink warningSink,
+                         Diagnostics diagnostics) throws IOException {
+        ReadableByteChannel channel = GzipInput.isGzip(path)
+                ? GzipInput.open(path, parserThreads, null)
+                : FileChannel.open(path, StandardOpenOption.READ);
+        return load(channel, path.toString(), employees, warningSink, diagnostics);
+    }
+
+    /**
+     * Same as {@link #load(Path, Map, EmployeeCsvParser.WarningSink, Diagnostics)} for CSV content read from
+     * channel, which is closed afterwards; name identifies the input in error messages.
+     */
+    public Employee load(ReadableByteChannel channel, String name, Map<Long, Employee> employees,
+                         EmployeeCsvParser.WarningSink warningSink, Diagnostics diagnostics) throws IOException {
+        Linker linker = new Linker(employees, diagnostics);
+        run(channel, name, true, (result, lineBase) -> result.replay(lineBase, names, linker::accept, warningSink));
+        Employee ceo = linker.finish();
+        rowsLoaded = linker.rows;
+        missingManagers = linker.unresolved;
+        return ceo;
+    }
+
+    /**
+     * Reads, parses and links the file straight into a graph, without creating Employee objects; the graph's
+     * names go to this loader's dictionary. Repeated ids, malformed lines, diagnostics and the CEO are handled
+     * as by {@link #load(Path, Map, EmployeeCsvParser.WarningSink, Diagnostics)}.
+     */
+    public OrgGraph loadGraph(Path path, EmployeeCsvParser.WarningSink warningSink,
+                              Diagnostics diagnostics) throws IOException {
+        ReadableByteChannel channel = GzipInput.isGzip(path)
+                ? GzipInput.open(path, parserThreads, null)
+                : FileChannel.open(path, StandardOpenOption.READ);
+        return loadGraph(channel, path.toString(), warningSink, diagnostics);
+    }
+
+    /**
+     * Same as {@link #loadGraph(Path, EmployeeCsvParser.WarningSink, Diagnostics)} for CSV content read from
+     * channel, which is closed afterwards; name identifies the input in error messages.
+     */
+    public OrgGraph loadGraph(ReadableByteChannel channel, String name, EmployeeCsvParser.WarningSink warningSink,
+                              Diagnostics diagnostics) throws IOException {
+        OrgGraph.Builder builder = new OrgGraph.Builder(names);
+        long[] rows = {0};
+        run(channel, name, false, (result, lineBase) -> {
+            result.replay(lineBase, builder, warningSink);
+            rows[0] += result.rows();
+        });
+        OrgGraph graph = builder.build(diagnostics);
+        rowsLoaded = rows[0];
+        missingManagers = graph.missingManagers();
+        return graph;
+    }
+
+    /**
+     * Receives the parsed batches on the calling thread, in file order.
+     */
+    private interface BatchSink {
+        void accept(ParallelCsvLoader.ChunkResult result, long lineBase);
+    }
+
+    private void run(ReadableByteChannel channel, String name, boolean asEmployees, BatchSink sink) throws IOException {
+        BlockingQueue<Batch> raw = new ArrayBlockingQueue<>(parserThreads * QUEUED_BATCHES_PER_PARSER);
+        BlockingQueue<Batch> parsed = new ArrayBlockingQueue<>(parserThreads * QUEUED_BATCHES_PER_PARSER);
+        try (channel) {
+            List<Thread> threads = new ArrayList<>();
+            threads.add(new Thread(() -> read(channel, raw), "csv-reader"));
+            for (int i = 0; i < parserThreads; i++) {
+                threads.add(new Thread(() -> parse(raw, parsed, asEmployees), "csv-parser-" + i));
+            }
+            threads.forEach(Thread::start);
+            try {
+                drain(parsed, sink);
+            } finally {
+                threads.forEach(Thread::interrupt); // no-op unless the linker stopped early
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading " + name);
+        }
+    }
+
+    /**
+     * Valid rows seen by the last load, repeated ids included.
+     */
+    public long rowsLoaded() {
+        return rowsLoaded;
+    }
+
+    /**
+     * Employees of the last load whose manager id never appeared in the file.
+     */
+    public long missingManagers() {
+        return missingManagers;
+    }
+
+    /**
+     * Reader stage: sequential reads into fresh buffers, each cut after its last line break.
+     */
+    private void read(ReadableByteChannel channel, BlockingQueue<Batch> raw) {
+        long sequence = 0;
+        try {
+            byte[] carry = new byte[0];
+            ByteBuffer buf = ByteBuffer.allocate(batchBytes);
+            boolean eof = false;
+            while (!eof) {
+                buf.clear();
+                buf.put(carry);
+                while (buf.hasRemaining()) {
+                    if (channel.read(buf) < 0) {
+                        eof = true;
+                        break;
+                    }
+                }
+                byte[] data = buf.array();
+                int cut = buf.position();
+                if (!eof) {
+                    while (cut > 0 && data[cut - 1] != '\n') {
+                        cut--;
+                    }
+                    if (cut == 0) { // one line fills the buffer: grow and keep reading
+                        carry = Arrays.copyOf(data, buf.position());
+                        buf = ByteBuffer.allocate(data.length * 2);
+                        continue;
+                    }
+                }
+                carry = Arrays.copyOfRange(data, cut, buf.position());
+                if (cut > 0) {
+                    raw.put(new Batch(sequence++, data, cut));
+                }
+                buf = ByteBuffer.allocate(Math.max(batchBytes, carry.length * 2));
+            }
+        } catch (InterruptedException e) {
+            return; // the linker gave up and is waiting for this thread to end
+        } catch (Throwable t) {
+            // IOException, or an Error such as OutOfMemoryError while growing the buffer for a long line
+            putQuietly(raw, Batch.failed(t));
+        }
+        for (int i = 0; i < parserThreads; i++) {
+            putQuietly(raw, Batch.END);
+        }
+    }
+
+    /**
+     * Parser stage: turns raw batches into employees and warnings; forwards failures and the end marker.
+     * Names go to a dictionary of the parser's own and are moved to the loader's when the batch is linked.
+     * A parser that cannot go on (an Error such as OutOfMemoryError) still posts its failure and the end marker.
+     */
+    private static void parse(BlockingQueue<Batch> raw, BlockingQueue<Batch> parsed, boolean asEmployees) {
+        EmployeeCsvParser parser = new EmployeeCsvParser();
+        NameDictionary names = new NameDictionary();
+        try {
+            while (true) {
+                Batch batch = raw.take();
+                if (batch != Batch.END && batch.failure == null) {
+                    batch.result = new ParallelCsvLoader.ChunkResult(names, asEmployees);
+                    parser.resetLineCount();
+                    try {
+                        parser.parse(ByteBuffer.wrap(batch.data, 0, batch.length), 0, batch.length, batch.result);
+                        batch.result.lines = parser.lineCount();
+                    } catch (RuntimeException e) {
+                        batch.failure = new IOException("Failed to parse batch " + batch.sequence, e);
+                    }
+                    batch.data = null;
+                }
+                parsed.put(batch);
+                if (batch == Batch.END) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            // linker gave up; nothing left to deliver
+        } catch (Throwable t) {
+            putQuietly(parsed, Batch.failed(t));
+            putQuietly(parsed, Batch.END);
+        }
+    }
+
+    /**
+     * Linker stage, on the calling thread: hands batches to the sink in sequence order until every parser has finished.
+     * The first failed batch ends the load with its failure; an Error is rethrown as is.
+     */
+    private void drain(BlockingQueue<Batch> parsed, BatchSink sink) throws IOException, InterruptedException {
+        Map<Long, Batch> early = new HashMap<>(); // parsed ahead of their turn
+        long next = 0;
+        long lineBase = 0;
+        int finished = 0;
+        while (finished < parserThreads) {
+            Batch batch = parsed.take();
+            if (batch == Batch.END) {
+                finished++;
+                continue;
+            }
+            if (batch.failure != null) {
+                throw rethrow(batch.failure);
+            }
+            early.put(batch.sequence, batch);
+            for (Batch ready; (ready = early.remove(next)) != null; next++) {
+                sink.accept(ready.result, lineBase);
+                lineBase += ready.result.lines;
+            }
+        }
+        if (!early.isEmpty()) {
+            throw new IOException("Batch " + next + " was never parsed");
+        }
+    }
+
+    private static IOException rethrow(Throwable failure) {
+        if (failure instanceof Error error) {
+            throw error;
+        }
+        if (failure instanceof RuntimeException runtime) {
+            throw runtime;
+        }
+        return failure instanceof IOException io ? io : new IOException(failure);
+    }
+
+    private static void putQuietly(BlockingQueue<Batch> queue, Batch batch) {
+        try {
+            queue.put(batch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * One newline-aligned slice of the file on its way through the pipeline.
+     */
+    private static class Batch {
+        static final Batch END = new Batch(-1, null, 0);
+
+        final long sequence;
+        byte[] data;
+        final int length;
+        ParallelCsvLoader.ChunkResult result;
+        Throwable failure;
+
+        Batch(long sequence, byte[] data, int length) {
+            this.sequence = sequence;
+            this.data = data;
+            this.length = length;
+        }
+
+        static Batch failed(Throwable failure) {
+            Batch batch = new Batch(-1, null, 0);
+            batch.failure = failure;
+            return batch;
+        }
+    }
+
+    /**
+     * Links employees to managers as they arrive, keeping forward references until the manager is loaded.
+     */
+    static class Linker {
+        private final Map<Long, Employee> employees;
+        private final Diagnostics diagnostics;
+        // Manager id -> employees that named it before it was loaded
+        private final Map<Long, List<Employee>> pending = new LinkedHashMap<>();
+        // Rows without a manager by id, and the row each id first appeared on: the CEO is the root seen first
+        private final Map<Long, Employee> roots = new HashMap<>();
+        private final LongIntIndex firstRows = new LongIntIndex(1024);
+        long rows;
+        long unresolved;
+
+        Linker(Map<Long, Employee> employees, Diagnostics diagnostics) {
+            this.employees = employees;
+            this.diagnostics = diagnostics;
+        }
+
+        void accept(Employee employee) {
+            if (firstRows.get(employee.getId()) == LongIntIndex.ABSENT) {
+                firstRows.put(employee.getId(), (int) rows);
+            }
+            rows++;
+            Employee previous = employees.put(employee.getId(), employee);
+            if (previous != null) {
+                replace(previous, employee);
+            }
+            List<Employee> waiting = pending.remove(employee.getId());
+            if (waiting != null) {
+                waiting.forEach(employee::addSubordinates);
+            }
+            if (employee.getManagerId().isPresent()) {
+                long managerId = employee.getManagerId().get();
+                Employee manager = employees.get(managerId);
+                if (manager != null) {
+                    manager.addSubordinates(employee);
+                } else {
+                    pending.computeIfAbsent(managerId, id -> new ArrayList<>()).add(employee);
+                }
+            } else {
+                roots.put(employee.getId(), employee);
+            }
+        }
+
+        // A repeated id: the new row takes over the old row's subordinates and the old row is unlinked
+        private void replace(Employee previous, Employee employee) {
+            previous.getSubordinates().forEach(employee::addSubordinates);
+            if (previous.getManagerId().isPresent()) {
+                long managerId = previous.getManagerId().get();
+                Employee manager = employees.get(managerId);
+                if (manager != null) {
+                    manager.removeSubordinate(previous);
+                } else if (pending.containsKey(managerId)) {
+                    pending.get(managerId).remove(previous);
+                }
+            }
+            roots.remove(previous.getId());
+        }
+
+        /**
+         * Reports the references that never resolved and returns the CEO.
+         */
+        Employee finish() {
+            for (Map.Entry<Long, List<Employee>> entry : pending.entrySet()) {
+                for (Employee employee : entry.getValue()) {
+                    unresolved++;
+                    diagnostics.record(Diagnostics.Code.MISSING_MANAGER, Diagnostics.NO_LINE, employee.getId(), entry.getKey());
+                }
+            }
+            if (roots.isEmpty()) {
+                if (!employees.isEmpty()) {
+                    diagnostics.record(Diagnostics.Code.NO_CEO, Diagnostics.NO_LINE, Diagnostics.NO_ID, Diagnostics.NO_ID);
+                }
+                return null;
+            }
+            List<Employee> inFileOrder = new ArrayList<>(roots.values());
+            inFileOrder.sort(Comparator.comparingInt(e -> firstRows.get(e.getId())));
+            Employee ceo = inFileOrder.get(0);
+            for (Employee other : inFileOrder.subList(1, inFileOrder.size())) {
+                diagnostics.record(Diagnostics.Code.MULTIPLE_CEOS, Diagnostics.NO_LINE, other.getId(), ceo.getId());
+            }
+            return ceo;
+        }
+    }
+}
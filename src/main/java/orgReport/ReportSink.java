@@ -0,0 +1,47 @@
+package orgReport;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Receives analysis issues one at a time, as they are found.
+ * {@link OrgReport} collects them in memory; the writer-backed sinks stream them out instead.
+ */
+public interface ReportSink {
+    void lowEarningManager(OrgAnalyzer.ManagerSalaryIssue issue);
+
+    void highEarningManager(OrgAnalyzer.ManagerSalaryIssue issue);
+
+    void longReportingLine(OrgAnalyzer.ReportingLineIssue issue);
+
+    void cyclicReportingLine(OrgAnalyzer.HierarchyIssue issue);
+
+    void orphanedEmployee(OrgAnalyzer.HierarchyIssue issue);
+
+    /**
+     * Called once before finish() with the problems found in the input.
+     */
+    default void diagnostics(Diagnostics diagnostics) {
+    }
+
+    /**
+     * Called once after the last issue; flushes buffered output.
+     */
+    default void finish() throws IOException {
+    }
+
+    /**
+     * Sink for a format name: "text" (console report), "csv" or "jsonl". CSV and JSON lines are written as UTF-8.
+     */
+    static ReportSink forFormat(String format, OutputStream out) {
+        return switch (format) {
+            case "text" -> new TextReportSink(out instanceof PrintStream ps ? ps : new PrintStream(out, false, StandardCharsets.UTF_8));
+            case "csv" -> new CsvReportSink(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            case "jsonl" -> new JsonLinesReportSink(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            default -> throw new IllegalArgumentException("Unknown report format: " + format + " (expected text, csv or jsonl)");
+        };
+    }
+}
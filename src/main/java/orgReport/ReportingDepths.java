@@ -0,0 +1,126 @@
+package orgReport;
+
+import java.util.Arrays;
+
+/**
+ * Reporting-line depth of every employee, computed in linear time.
+ * A breadth-first pass from the CEO over the subordinate lists assigns most depths; any employee it
+ * does not reach is resolved by one memoized walk up its manager chain, which also separates
+ * employees caught in a managerId cycle from employees whose chain never reaches the CEO.
+ */
+public class ReportingDepths {
+    public static final int UNKNOWN = -1;  // no CEO to measure against
+    public static final int CYCLIC = -2;   // part of a managerId cycle
+    public static final int ORPHANED = -3; // chain ends at a missing manager, another root or a cycle
+    private static final int ON_PATH = -4;
+
+    private final int[] depth;
+    private final int maxDepth;
+    private final int cyclicCount;
+    private final int orphanedCount;
+
+    private ReportingDepths(int[] depth, int maxDepth, int cyclicCount, int orphanedCount) {
+        this.depth = depth;
+        this.maxDepth = maxDepth;
+        this.cyclicCount = cyclicCount;
+        this.orphanedCount = orphanedCount;
+    }
+
+    public static ReportingDepths compute(OrgGraph graph) {
+        int n = graph.size();
+        int[] depth = new int[n];
+        Arrays.fill(depth, UNKNOWN);
+        int ceo = graph.ceo();
+        if (ceo < 0) {
+            return new ReportingDepths(depth, 0, 0, 0);
+        }
+        int maxDepth = 0;
+        // 1. Top-down BFS from the CEO; the queue doubles as the visit order
+        int[] queue = new int[n];
+        int head = 0, tail = 0;
+        depth[ceo] = 0;
+        queue[tail++] = ceo;
+        while (head < tail) {
+            int m = queue[head++];
+            int childDepth = depth[m] + 1;
+            for (int k = graph.childStart(m); k < graph.childEnd(m); k++) {
+                int c = graph.childAt(k);
+                if (depth[c] == UNKNOWN) {
+                    depth[c] = childDepth;
+                    maxDepth = Math.max(maxDepth, childDepth);
+                    queue[tail++] = c;
+                }
+            }
+        }
+        // 2. Resolve whatever the BFS missed by walking up; every node joins at most one path
+        int cyclic = 0, orphaned = 0;
+        int[] path = queue;
+        for (int i = 0; i < n; i++) {
+            if (depth[i] != UNKNOWN) {
+                continue;
+            }
+            int top = 0;
+            int x = i;
+            int base;
+            while (true) {
+                if (depth[x] >= 0 || depth[x] == CYCLIC || depth[x] == ORPHANED) {
+                    base = depth[x];
+                    break;
+                }
+                if (depth[x] == ON_PATH) {
+                    // x closes a cycle: path[p..top) are cyclic, the rest hang below it
+                    int p = top - 1;
+                    while (path[p] != x) {
+                        p--;
+                    }
+                    for (int j = p; j < top; j++) {
+                        depth[path[j]] = CYCLIC;
+                    }
+                    cyclic += top - p;
+                    top = p;
+                    base = CYCLIC;
+                    break;
+                }
+                depth[x] = ON_PATH;
+                path[top++] = x;
+                int m = graph.manager(x);
+                if (m < 0) {
+                    base = ORPHANED; // another root or a manager that is not in the dataset
+                    break;
+                }
+                x = m;
+            }
+            if (base >= 0) {
+                for (int j = top - 1; j >= 0; j--) {
+                    depth[path[j]] = base + (top - j);
+                }
+                maxDepth = Math.max(maxDepth, base + top);
+            } else {
+                for (int j = 0; j < top; j++) {
+                    depth[path[j]] = ORPHANED;
+                }
+                orphaned += top;
+            }
+        }
+        return new ReportingDepths(depth, maxDepth, cyclic, orphaned);
+    }
+
+    /**
+     * Number of managers between employee i and the CEO, or one of UNKNOWN, CYCLIC, ORPHANED.
+     */
+    public int depth(int i) {
+        return depth[i];
+    }
+
+    public int maxDepth() {
+        return maxDepth;
+    }
+
+    public int cyclicCount() {
+        return cyclicCount;
+    }
+
+    public int orphanedCount() {
+        return orphanedCount;
+    }
+}
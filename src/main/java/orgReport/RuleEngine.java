@@ -0,0 +1,244 @@
+package orgReport;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Evaluates a fixed set of {@link OrgRule}s over a graph in one fused pass.
+ * <p>
+ * Compiling the engine resolves the union of the aggregates the rules declare, so a run computes each needed
+ * pre-pass (subordinate stats, reporting depths, subtree roll-ups) exactly once and skips the rest. The pass
+ * itself visits every employee once and runs all rules on it. Large graphs are split into index ranges on a
+ * fork-join pool and the partial reports are merged left to right, so the result does not depend on the
+ * number of threads. {@link #defaultRules()} reproduces {@link OrgAnalyzer#analyzeStructure()}.
+ */
+public class RuleEngine {
+    private final OrgRule[] rules;
+    private final int[] masks; // declared aggregates per rule, as bits of Aggregate.ordinal()
+    private final Set<OrgRule.Aggregate> needs = EnumSet.noneOf(OrgRule.Aggregate.class);
+
+    public RuleEngine(List<OrgRule> rules) {
+        this.rules = rules.toArray(new OrgRule[0]);
+        this.masks = new int[this.rules.length];
+        for (int r = 0; r < this.rules.length; r++) {
+            for (OrgRule.Aggregate aggregate : this.rules[r].needs()) {
+                masks[r] |= 1 << aggregate.ordinal();
+                needs.add(aggregate);
+            }
+        }
+    }
+
+    /**
+     * The two checks of analyzeStructure() with the default limits.
+     */
+    public static List<OrgRule> defaultRules() {
+        return List.of(OrgRule.salaryBand(OrgAnalyzer.MIN_SALARY_FACTOR, OrgAnalyzer.MAX_SALARY_FACTOR),
+                OrgRule.maxReportingLine(OrgAnalyzer.MAX_REPORTING_LINE_LENGTH));
+    }
+
+    /**
+     * True when at least one rule declared the aggregate.
+     */
+    public boolean needs(OrgRule.Aggregate aggregate) {
+        return needs.contains(aggregate);
+    }
+
+    /**
+     * Computes the needed aggregates and runs all rules on the given number of threads.
+     */
+    public RuleReport run(OrgGraph graph, int threads) {
+        return run(graph,
+                needs(OrgRule.Aggregate.SUBORDINATE_SALARIES) ? SubordinateStats.compute(graph) : null,
+                needs(OrgRule.Aggregate.DEPTH) && graph.ceo() >= 0 ? ReportingDepths.compute(graph) : null,
+                needs(OrgRule.Aggregate.SUBTREE) ? SubtreeQueryEngine.compute(graph) : null,
+                threads);
+    }
+
+    /**
+     * Runs the rules with aggregates computed elsewhere (e.g. cached by the analyzer); unneeded ones may be null.
+     * Depths are null when the hierarchy has no CEO.
+     */
+    RuleReport run(OrgGraph graph, SubordinateStats stats, ReportingDepths depths, SubtreeQueryEngine subtrees, int threads) {
+        Aggregates aggregates = new Aggregates(graph, stats, depths, subtrees);
+        if (threads <= 1 || graph.size() <= OrgAnalyzer.PARALLEL_CHUNK) {
+            return evaluate(aggregates, 0, graph.size());
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return pool.invoke(new RangeTask(aggregates, 0, graph.size()));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private RuleReport evaluate(Aggregates aggregates, int from, int to) {
+        RuleReport report = new RuleReport();
+        Node node = new Node(aggregates);
+        for (int i = from; i < to; i++) {
+            node.index = i;
+            for (int r = 0; r < rules.length; r++) {
+                node.allowed = masks[r];
+                node.rule = rules[r];
+                rules[r].check(node, report);
+            }
+        }
+        return report;
+    }
+
+    private record Aggregates(OrgGraph graph, SubordinateStats stats, ReportingDepths depths, SubtreeQueryEngine subtrees) {
+    }
+
+    /**
+     * Splits an index range in halves down to PARALLEL_CHUNK and merges the partial reports in order.
+     */
+    @SuppressWarnings("serial") // fork-join tasks are never serialized
+    private class RangeTask extends RecursiveTask<RuleReport> {
+        private final Aggregates aggregates;
+        private final int from, to;
+
+        RangeTask(Aggregates aggregates, int from, int to) {
+            this.aggregates = aggregates;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected RuleReport compute() {
+            if (to - from <= OrgAnalyzer.PARALLEL_CHUNK) {
+                return evaluate(aggregates, from, to);
+            }
+            int mid = (from + to) >>> 1;
+            RangeTask right = new RangeTask(aggregates, mid, to);
+            right.fork();
+            RuleReport left = new RangeTask(aggregates, from, mid).compute();
+            return left.merge(right.join());
+        }
+    }
+
+    /**
+     * The employee a rule is looking at. One instance per worker is moved from employee to employee,
+     * so rules must not keep a reference to it. Reading an aggregate the current rule did not declare
+     * throws IllegalStateException.
+     */
+    public static final class Node {
+        private final OrgGraph graph;
+        private final SubordinateStats stats;
+        private final ReportingDepths depths;
+        private final SubtreeQueryEngine subtrees;
+        private int index;
+        private int allowed;
+        private OrgRule rule;
+
+        private Node(Aggregates aggregates) {
+            this.graph = aggregates.graph();
+            this.stats = aggregates.stats();
+            this.depths = aggregates.depths();
+            this.subtrees = aggregates.subtrees();
+        }
+
+        public int index() {
+            return index;
+        }
+
+        public long id() {
+            return graph.id(index);
+        }
+
+        public String name() {
+            return graph.fullName(index);
+        }
+
+        public double salary() {
+            return graph.salary(index);
+        }
+
+        public boolean isCeo() {
+            return index == graph.ceo();
+        }
+
+        /**
+         * Id of the manager, or NO_ID for the CEO, other roots and employees whose manager is missing.
+         */
+        public long managerId() {
+            int m = graph.manager(index);
+            return m < 0 ? Diagnostics.NO_ID : graph.id(m);
+        }
+
+        public int directReports() {
+            require(OrgRule.Aggregate.SPAN_OF_CONTROL);
+            return graph.childCount(index);
+        }
+
+        public double subordinateSum() {
+            require(OrgRule.Aggregate.SUBORDINATE_SALARIES);
+            return stats.sum(index);
+        }
+
+        /**
+         * Average salary of the direct subordinates, or 0.0 without subordinates.
+         */
+        public double subordinateAverage() {
+            require(OrgRule.Aggregate.SUBORDINATE_SALARIES);
+            return stats.average(index);
+        }
+
+        public double subordinateMin() {
+            require(OrgRule.Aggregate.SUBORDINATE_SALARIES);
+            return stats.min(index);
+        }
+
+        public double subordinateMax() {
+            require(OrgRule.Aggregate.SUBORDINATE_SALARIES);
+            return stats.max(index);
+        }
+
+        /**
+         * Reporting-line length, or one of ReportingDepths.UNKNOWN (no CEO), CYCLIC, ORPHANED.
+         */
+        public int depth() {
+            require(OrgRule.Aggregate.DEPTH);
+            return depths == null ? ReportingDepths.UNKNOWN : depths.depth(index);
+        }
+
+        /**
+         * True when the employee reports to the CEO; the other subtree values are only defined then.
+         */
+        public boolean isReachable() {
+            require(OrgRule.Aggregate.SUBTREE);
+            return subtrees.isReachable(index);
+        }
+
+        public double subtreePayroll() {
+            require(OrgRule.Aggregate.SUBTREE);
+            return subtrees.subtreePayroll(index);
+        }
+
+        public int subtreeSize() {
+            require(OrgRule.Aggregate.SUBTREE);
+            return subtrees.subtreeSize(index);
+        }
+
+        public int subtreeHeight() {
+            require(OrgRule.Aggregate.SUBTREE);
+            return subtrees.subtreeHeight(index);
+        }
+
+        /**
+         * True when this employee is headId or works (directly or indirectly) for headId.
+         */
+        public boolean isWithin(long headId) {
+            require(OrgRule.Aggregate.SUBTREE);
+            int head = graph.indexOf(headId);
+            return head != LongIntIndex.ABSENT && (head == index || subtrees.isInChain(head, index));
+        }
+
+        private void require(OrgRule.Aggregate aggregate) {
+            if ((allowed & 1 << aggregate.ordinal()) == 0) {
+                throw new IllegalStateException("Rule " + rule.name() + " reads " + aggregate + " without declaring it");
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package orgReport;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Result of a {@link RuleEngine} run: the built-in issue categories of {@link OrgReport} plus the findings of custom rules.
+ */
+public class RuleReport extends OrgReport {
+    public final List<OrgRule.Violation> violations = new ArrayList<>();
+
+    public void violation(OrgRule.Violation violation) {
+        violations.add(violation);
+    }
+
+    /**
+     * Convenience for custom rules: reports node as violating the rule with the given message.
+     */
+    public void violation(String rule, RuleEngine.Node node, String message) {
+        violations.add(new OrgRule.Violation(rule, node.id(), node.name(), message));
+    }
+
+    @Override
+    public RuleReport merge(OrgReport other) {
+        super.merge(other);
+        if (other instanceof RuleReport rules) {
+            violations.addAll(rules.violations);
+        }
+        return this;
+    }
+}
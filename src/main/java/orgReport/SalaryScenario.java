@@ -0,0 +1,85 @@
+package orgReport;
+
+import java.util.Arrays;
+
+/**
+ * A proposed raise plan: absolute salary changes for single employees and percentage raises for whole
+ * subtrees, kept as a sparse overlay in primitive arrays. Evaluated by {@link ScenarioSimulator} against
+ * the unchanged graph.
+ * <p>
+ * An employee's scenario salary is its current salary, multiplied by every subtree raise that covers it
+ * (in the order they were added), plus the sum of its absolute changes. Ids that are not in the hierarchy
+ * are ignored.
+ */
+public class SalaryScenario {
+    private final String name;
+    private long[] adjustedIds = new long[8];
+    private double[] deltas = new double[8];
+    private int adjustments;
+    private long[] headIds = new long[4];
+    private double[] percents = new double[4];
+    private int raises;
+
+    public SalaryScenario(String name) {
+        this.name = name;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Adds delta (negative for a cut) to one employee's salary.
+     */
+    public SalaryScenario adjust(long id, double delta) {
+        if (adjustments == adjustedIds.length) {
+            adjustedIds = Arrays.copyOf(adjustedIds, adjustments * 2);
+            deltas = Arrays.copyOf(deltas, adjustments * 2);
+        }
+        adjustedIds[adjustments] = id;
+        deltas[adjustments++] = delta;
+        return this;
+    }
+
+    /**
+     * Raises the salary of headId and everyone working (directly or indirectly) for headId by percent, e.g. 3.5.
+     */
+    public SalaryScenario raiseSubtree(long headId, double percent) {
+        if (raises == headIds.length) {
+            headIds = Arrays.copyOf(headIds, raises * 2);
+            percents = Arrays.copyOf(percents, raises * 2);
+        }
+        headIds[raises] = headId;
+        percents[raises++] = percent;
+        return this;
+    }
+
+    int adjustments() {
+        return adjustments;
+    }
+
+    long adjustedId(int k) {
+        return adjustedIds[k];
+    }
+
+    double delta(int k) {
+        return deltas[k];
+    }
+
+    int raises() {
+        return raises;
+    }
+
+    long headId(int k) {
+        return headIds[k];
+    }
+
+    double percent(int k) {
+        return percents[k];
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + adjustments + " adjustments, " + raises + " subtree raises)";
+    }
+}
@@ -0,0 +1,245 @@
+package orgReport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Evaluates many {@link SalaryScenario}s against one hierarchy that is loaded and analyzed once.
+ * <p>
+ * The graph and the baseline report are shared read-only by all scenarios. A scenario only builds a sparse
+ * overlay of the salaries it changes; a changed salary can move the check of the employee itself and of
+ * its manager, so only those managers are re-checked and every other salary issue is taken from the
+ * baseline. Reporting lines do not depend on salaries and are always the baseline's. Each report equals
+ * {@link OrgAnalyzer#analyzeStructure()} on the hierarchy with the scenario applied, in graph index order.
+ */
+public class ScenarioSimulator {
+    private final OrgGraph graph;
+    private final RuleReport baseline;
+    // Graph index of every baseline salary issue, ascending like the issue lists
+    private final int[] lowIndex;
+    private final int[] highIndex;
+
+    public ScenarioSimulator(OrgGraph graph) {
+        this(graph, 1);
+    }
+
+    /**
+     * Analyzes the baseline on the given number of fork-join workers.
+     */
+    public ScenarioSimulator(OrgGraph graph, int threads) {
+        this.graph = graph;
+        this.baseline = new RuleEngine(RuleEngine.defaultRules()).run(graph, threads);
+        this.lowIndex = indices(baseline.lowEarningManagers);
+        this.highIndex = indices(baseline.highEarningManagers);
+    }
+
+    /**
+     * The report of the unchanged hierarchy.
+     */
+    public OrgReport baseline() {
+        return new OrgReport().merge(baseline);
+    }
+
+    /**
+     * Compliance report of the hierarchy with the scenario applied. Safe to call from many threads.
+     */
+    public OrgReport simulate(SalaryScenario scenario) {
+        Overlay overlay = new Overlay(graph, scenario);
+        int[] affected = overlay.affectedManagers();
+        OrgReport changed = new OrgReport();
+        int[] changedLow = new int[affected.length];
+        int[] changedHigh = new int[affected.length];
+        for (int manager : affected) {
+            int low = changed.lowEarningManagers.size();
+            int high = changed.highEarningManagers.size();
+            checkSalaryCompliance(overlay, manager, changed);
+            if (changed.lowEarningManagers.size() > low) {
+                changedLow[low] = manager;
+            } else if (changed.highEarningManagers.size() > high) {
+                changedHigh[high] = manager;
+            }
+        }
+        OrgReport report = new OrgReport();
+        mergeSalaryIssues(baseline.lowEarningManagers, lowIndex, changed.lowEarningManagers, changedLow, affected,
+                report.lowEarningManagers);
+        mergeSalaryIssues(baseline.highEarningManagers, highIndex, changed.highEarningManagers, changedHigh, affected,
+                report.highEarningManagers);
+        report.longReportingLines.addAll(baseline.longReportingLines);
+        report.cyclicReportingLines.addAll(baseline.cyclicReportingLines);
+        report.orphanedEmployees.addAll(baseline.orphanedEmployees);
+        return report;
+    }
+
+    /**
+     * Simulates all scenarios concurrently, one virtual thread each, and returns their reports in the same order.
+     */
+    public List<OrgReport> simulateAll(List<SalaryScenario> scenarios) {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<OrgReport>> futures = new ArrayList<>(scenarios.size());
+            for (SalaryScenario scenario : scenarios) {
+                futures.add(executor.submit(() -> simulate(scenario)));
+            }
+            List<OrgReport> reports = new ArrayList<>(scenarios.size());
+            for (Future<OrgReport> future : futures) {
+                reports.add(future.get());
+            }
+            return reports;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while simulating scenarios", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private int[] indices(List<OrgAnalyzer.ManagerSalaryIssue> issues) {
+        int[] indices = new int[issues.size()];
+        for (int k = 0; k < indices.length; k++) {
+            indices[k] = graph.indexOf(issues.get(k).managerId);
+        }
+        return indices;
+    }
+
+    /**
+     * The analyzer's band check on overlay salaries, with the subordinate average summed in index order like
+     * SubordinateStats so the figures match a full analysis bit for bit.
+     */
+    private void checkSalaryCompliance(Overlay overlay, int manager, ReportSink report) {
+        int count = graph.childCount(manager);
+        if (count == 0) {
+            return;
+        }
+        int[] children = new int[count];
+        for (int k = 0; k < count; k++) {
+            children[k] = graph.childAt(graph.childStart(manager) + k);
+        }
+        Arrays.sort(children);
+        double sum = 0.0;
+        for (int child : children) {
+            sum += overlay.salary(child);
+        }
+        double managerSalary = overlay.salary(manager);
+        OrgAnalyzer.ManagerSalaryIssue issue = ComplianceChecks.salaryBand(managerSalary, sum / count,
+                OrgAnalyzer.MIN_SALARY_FACTOR, OrgAnalyzer.MAX_SALARY_FACTOR);
+        if (issue != null) {
+            issue.managerName = graph.fullName(manager);
+            issue.managerId = graph.id(manager);
+            ComplianceChecks.report(issue, managerSalary, report);
+        }
+    }
+
+    /**
+     * Merges the baseline issues of unaffected managers with the re-checked ones, both ascending by index.
+     */
+    private static void mergeSalaryIssues(List<OrgAnalyzer.ManagerSalaryIssue> base, int[] baseIndex,
+                                          List<OrgAnalyzer.ManagerSalaryIssue> changed, int[] changedIndex,
+                                          int[] affected, List<OrgAnalyzer.ManagerSalaryIssue> out) {
+        int b = 0, c = 0;
+        while (b < base.size() || c < changed.size()) {
+            if (b < base.size() && Arrays.binarySearch(affected, baseIndex[b]) >= 0) {
+                b++; // re-checked, the baseline issue no longer applies
+            } else if (c == changed.size() || b < base.size() && baseIndex[b] < changedIndex[c]) {
+                out.add(base.get(b++));
+            } else {
+                out.add(changed.get(c++));
+            }
+        }
+    }
+
+    /**
+     * Scenario salaries of the employees a scenario changes, keyed by graph index.
+     */
+    private static final class Overlay {
+        private final OrgGraph graph;
+        private final LongIntIndex slots = new LongIntIndex(16);
+        private int[] changed = new int[16];
+        private double[] salaries = new double[16];
+        private int size;
+
+        Overlay(OrgGraph graph, SalaryScenario scenario) {
+            this.graph = graph;
+            int[] stack = new int[16];
+            for (int k = 0; k < scenario.raises(); k++) {
+                int head = graph.indexOf(scenario.headId(k));
+                if (head == LongIntIndex.ABSENT) {
+                    continue;
+                }
+                double factor = 1.0 + scenario.percent(k) / 100.0;
+                // Walks the subtree below head; seen guards against managerId cycles
+                LongIntIndex seen = new LongIntIndex(16);
+                int top = 0;
+                stack[top++] = head;
+                seen.put(head, 0);
+                while (top > 0) {
+                    int i = stack[--top];
+                    set(i, salary(i) * factor);
+                    for (int p = graph.childStart(i); p < graph.childEnd(i); p++) {
+                        int c = graph.childAt(p);
+                        if (seen.put(c, 0) == LongIntIndex.ABSENT) {
+                            if (top == stack.length) {
+                                stack = Arrays.copyOf(stack, top * 2);
+                            }
+                            stack[top++] = c;
+                        }
+                    }
+                }
+            }
+            for (int k = 0; k < scenario.adjustments(); k++) {
+                int i = graph.indexOf(scenario.adjustedId(k));
+                if (i != LongIntIndex.ABSENT) {
+                    set(i, salary(i) + scenario.delta(k));
+                }
+            }
+        }
+
+        double salary(int i) {
+            int slot = slots.get(i);
+            return slot == LongIntIndex.ABSENT ? graph.salary(i) : salaries[slot];
+        }
+
+        private void set(int i, double salary) {
+            int slot = slots.get(i);
+            if (slot == LongIntIndex.ABSENT) {
+                if (size == changed.length) {
+                    changed = Arrays.copyOf(changed, size * 2);
+                    salaries = Arrays.copyOf(salaries, size * 2);
+                }
+                slot = size++;
+                changed[slot] = i;
+                slots.put(i, slot);
+            }
+            salaries[slot] = salary;
+        }
+
+        /**
+         * Every employee whose own salary or a direct subordinate's salary changed, ascending and distinct.
+         */
+        int[] affectedManagers() {
+            int[] affected = new int[size * 2];
+            int n = 0;
+            for (int k = 0; k < size; k++) {
+                int i = changed[k];
+                affected[n++] = i;
+                if (graph.manager(i) >= 0) {
+                    affected[n++] = graph.manager(i);
+                }
+            }
+            Arrays.sort(affected, 0, n);
+            int distinct = 0;
+            for (int k = 0; k < n; k++) {
+                if (distinct == 0 || affected[distinct - 1] != affected[k]) {
+                    affected[distinct++] = affected[k];
+                }
+            }
+            return Arrays.copyOf(affected, distinct);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package orgReport;
+
+import java.util.Arrays;
+
+/**
+ * Per-manager aggregates over direct subordinates (count, sum, min, max of salary), indexed like the graph.
+ * Built in one linear pass: every employee adds its salary to its manager's slot.
+ */
+public class SubordinateStats {
+    private final int[] count;
+    private final double[] sum;
+    private final double[] min;
+    private final double[] max;
+
+    private SubordinateStats(int[] count, double[] sum, double[] min, double[] max) {
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+    }
+
+    public static SubordinateStats compute(OrgGraph graph) {
+        int n = graph.size();
+        int[] count = new int[n];
+        double[] sum = new double[n];
+        double[] min = new double[n];
+        double[] max = new double[n];
+        Arrays.fill(min, Double.POSITIVE_INFINITY);
+        Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        for (int i = 0; i < n; i++) {
+            int m = graph.manager(i);
+            if (m < 0) {
+                continue;
+            }
+            double salary = graph.salary(i);
+            count[m]++;
+            sum[m] += salary;
+            if (salary < min[m]) {
+                min[m] = salary;
+            }
+            if (salary > max[m]) {
+                max[m] = salary;
+            }
+        }
+        return new SubordinateStats(count, sum, min, max);
+    }
+
+    public int size() {
+        return count.length;
+    }
+
+    /**
+     * Number of direct subordinates of employee i.
+     */
+    public int count(int i) {
+        return count[i];
+    }
+
+    public double sum(int i) {
+        return sum[i];
+    }
+
+    /**
+     * Average subordinate salary, or 0.0 for an employee without subordinates.
+     */
+    public double average(int i) {
+        return count[i] == 0 ? 0.0 : sum[i] / count[i];
+    }
+
+    /**
+     * Lowest subordinate salary, or +Infinity for an employee without subordinates.
+     */
+    public double min(int i) {
+        return min[i];
+    }
+
+    /**
+     * Highest subordinate salary, or -Infinity for an employee without subordinates.
+     */
+    public double max(int i) {
+        return max[i];
+    }
+}
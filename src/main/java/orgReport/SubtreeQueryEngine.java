@@ -0,0 +1,207 @@
+package orgReport;
+
+import java.util.Arrays;
+
+/**
+ * Constant-time subtree roll-ups over the hierarchy below the CEO, indexed like the graph.
+ * <p>
+ * One depth-first pass numbers every employee reachable from the CEO with an Euler-tour entry index,
+ * so the subtree of i is exactly the entry range [entry(i), exit(i)). Prefix sums of salary over that
+ * order answer payroll and headcount for any subtree in O(1); containment of ranges answers
+ * "is A in B's reporting chain" in O(1). Lowest common managers use skew-binary jump pointers
+ * (one parent and one jump per employee), which gives O(log N) queries in O(N) memory.
+ * Employees not reachable from the CEO (orphaned or cyclic) are not numbered; see {@link #isReachable(int)}.
+ */
+public class SubtreeQueryEngine {
+    private static final int NONE = -1;
+
+    private final OrgGraph graph;
+    private final int[] entry;        // Euler entry index, or NONE when not reachable
+    private final int[] exit;         // first Euler index after the subtree
+    private final int[] depth;        // reporting-line length, CEO = 0
+    private final int[] maxDepth;     // deepest depth inside the subtree
+    private final int[] parent;       // manager in the DFS tree
+    private final int[] jump;         // ancestor used to skip levels in chain queries
+    private final double[] payrollPrefix; // payrollPrefix[k] = sum of salaries of the first k employees in Euler order
+
+    private SubtreeQueryEngine(OrgGraph graph, int[] entry, int[] exit, int[] depth, int[] maxDepth,
+                               int[] parent, int[] jump, double[] payrollPrefix) {
+        this.graph = graph;
+        this.entry = entry;
+        this.exit = exit;
+        this.depth = depth;
+        this.maxDepth = maxDepth;
+        this.parent = parent;
+        this.jump = jump;
+        this.payrollPrefix = payrollPrefix;
+    }
+
+    public static SubtreeQueryEngine compute(OrgGraph graph) {
+        int n = graph.size();
+        int[] entry = new int[n];
+        int[] exit = new int[n];
+        int[] depth = new int[n];
+        int[] maxDepth = new int[n];
+        int[] parent = new int[n];
+        int[] jump = new int[n];
+        Arrays.fill(entry, NONE);
+        int[] order = new int[n];
+        int visited = 0;
+        int ceo = graph.ceo();
+        if (ceo >= 0) {
+            // Iterative pre-order DFS; cursor[] remembers the next child to visit for each node on the stack
+            int[] stack = new int[n];
+            int[] cursor = new int[n];
+            int top = 0;
+            stack[top++] = ceo;
+            cursor[ceo] = graph.childStart(ceo);
+            entry[ceo] = visited;
+            order[visited++] = ceo;
+            parent[ceo] = ceo;
+            jump[ceo] = ceo;
+            while (top > 0) {
+                int m = stack[top - 1];
+                if (cursor[m] == graph.childEnd(m)) {
+                    exit[m] = visited;
+                    top--;
+                    continue;
+                }
+                int c = graph.childAt(cursor[m]++);
+                if (entry[c] != NONE) {
+                    continue; // defensive: a node listed twice is visited once
+                }
+                entry[c] = visited;
+                order[visited++] = c;
+                depth[c] = depth[m] + 1;
+                parent[c] = m;
+                // Skew-binary jump pointer: double the jump when the parent's two jumps have equal length
+                int j = jump[m];
+                jump[c] = depth[m] - depth[j] == depth[j] - depth[jump[j]] ? jump[j] : m;
+                cursor[c] = graph.childStart(c);
+                stack[top++] = c;
+            }
+        }
+        double[] payrollPrefix = new double[visited + 1];
+        for (int k = 0; k < visited; k++) {
+            payrollPrefix[k + 1] = payrollPrefix[k] + graph.salary(order[k]);
+        }
+        // Children come after their manager in Euler order, so a reverse sweep folds depths upwards
+        for (int k = visited - 1; k >= 0; k--) {
+            int i = order[k];
+            maxDepth[i] = Math.max(maxDepth[i], depth[i]);
+            int m = parent[i];
+            if (maxDepth[i] > maxDepth[m]) {
+                maxDepth[m] = maxDepth[i];
+            }
+        }
+        return new SubtreeQueryEngine(graph, entry, exit, depth, maxDepth, parent, jump, payrollPrefix);
+    }
+
+    /**
+     * True when employee i reports (directly or indirectly) to the CEO, or is the CEO.
+     */
+    public boolean isReachable(int i) {
+        return entry[i] != NONE;
+    }
+
+    /**
+     * Reporting-line length of i (CEO = 0).
+     */
+    public int depth(int i) {
+        return depth[checked(i)];
+    }
+
+    /**
+     * Total salary of i and everyone below i.
+     */
+    public double subtreePayroll(int i) {
+        checked(i);
+        return payrollPrefix[exit[i]] - payrollPrefix[entry[i]];
+    }
+
+    /**
+     * Number of employees in i's subtree, i included.
+     */
+    public int subtreeSize(int i) {
+        checked(i);
+        return exit[i] - entry[i];
+    }
+
+    /**
+     * Deepest reporting-line length found in i's subtree (absolute, CEO = 0).
+     */
+    public int subtreeMaxDepth(int i) {
+        return maxDepth[checked(i)];
+    }
+
+    /**
+     * Number of management levels below i; 0 for an employee without subordinates.
+     */
+    public int subtreeHeight(int i) {
+        return maxDepth[checked(i)] - depth[i];
+    }
+
+    /**
+     * True when manager sits above employee in its reporting chain (an employee is not in its own chain).
+     * False when either is not reachable from the CEO.
+     */
+    public boolean isInChain(int manager, int employee) {
+        if (entry[manager] == NONE || entry[employee] == NONE || manager == employee) {
+            return false;
+        }
+        return entry[manager] < entry[employee] && exit[employee] <= exit[manager];
+    }
+
+    /**
+     * Lowest employee that has both a and b in its subtree (one of them when it manages the other),
+     * or -1 when either is not reachable from the CEO.
+     */
+    public int lowestCommonManager(int a, int b) {
+        if (entry[a] == NONE || entry[b] == NONE) {
+            return NONE;
+        }
+        if (isInChain(a, b) || a == b) {
+            return a;
+        }
+        if (isInChain(b, a)) {
+            return b;
+        }
+        if (depth[a] < depth[b]) {
+            b = ancestorAtDepth(b, depth[a]);
+        } else {
+            a = ancestorAtDepth(a, depth[b]);
+        }
+        // Same depth: jumps of a and b have equal length, so take them together while they differ
+        while (a != b) {
+            if (jump[a] != jump[b]) {
+                a = jump[a];
+                b = jump[b];
+            } else {
+                a = parent[a];
+                b = parent[b];
+            }
+        }
+        return a;
+    }
+
+    /**
+     * Ancestor of i at the given depth (i itself when already there).
+     */
+    public int ancestorAtDepth(int i, int targetDepth) {
+        checked(i);
+        if (targetDepth < 0 || targetDepth > depth[i]) {
+            throw new IllegalArgumentException("No ancestor of " + graph.id(i) + " at depth " + targetDepth);
+        }
+        while (depth[i] > targetDepth) {
+            i = depth[jump[i]] >= targetDepth ? jump[i] : parent[i];
+        }
+        return i;
+    }
+
+    private int checked(int i) {
+        if (entry[i] == NONE) {
+            throw new IllegalArgumentException("Employee " + graph.id(i) + " does not report to the CEO");
+        }
+        return i;
+    }
+}
@@ -0,0 +1,137 @@
+package orgReport;
+
+import java.io.PrintStream;
+
+/**
+ * The human-readable console report. Issues are grouped by section, so this sink collects them
+ * and renders everything in {@link #finish()}; output is built in large chunks instead of one printf per issue.
+ */
+public class TextReportSink implements ReportSink {
+    private static final String NL = System.lineSeparator();
+    private static final int FLUSH_CHARS = 1 << 16;
+
+    private final PrintStream out;
+    private final OrgReport collected = new OrgReport();
+
+    public TextReportSink(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void lowEarningManager(OrgAnalyzer.ManagerSalaryIssue issue) {
+        collected.lowEarningManager(issue);
+    }
+
+    @Override
+    public void highEarningManager(OrgAnalyzer.ManagerSalaryIssue issue) {
+        collected.highEarningManager(issue);
+    }
+
+    @Override
+    public void longReportingLine(OrgAnalyzer.ReportingLineIssue issue) {
+        collected.longReportingLine(issue);
+    }
+
+    @Override
+    public void cyclicReportingLine(OrgAnalyzer.HierarchyIssue issue) {
+        collected.cyclicReportingLine(issue);
+    }
+
+    @Override
+    public void orphanedEmployee(OrgAnalyzer.HierarchyIssue issue) {
+        collected.orphanedEmployee(issue);
+    }
+
+    @Override
+    public void finish() {
+        render(collected, out);
+    }
+
+    public static void render(OrgReport report, PrintStream out) {
+        StringBuilder sb = new StringBuilder(FLUSH_CHARS + 256);
+        sb.append(NL).append("=======================================================").append(NL);
+        sb.append("     ORGANIZATIONAL STRUCTURE ANALYSIS REPORT            ").append(NL);
+        sb.append("=======================================================").append(NL).append(NL);
+
+        // --------------------------------------------------------------------
+        // 1. SALARY VIOLATIONS
+        // --------------------------------------------------------------------
+        sb.append("--- 1. SALARY COMPLIANCE VIOLATIONS (Min 20%, Max 50% more than average subordinate salary) ---").append(NL).append(NL);
+
+        boolean salaryCompliant = report.lowEarningManagers.isEmpty() && report.highEarningManagers.isEmpty();
+        if (salaryCompliant) {
+            sb.append("  ✓ All managers comply with the 20% - 50% salary rules.").append(NL);
+        } else {
+            // Managers Earning Less
+            sb.append("A) MANAGERS EARNING LESS THAN REQUIRED:").append(NL);
+            if (report.lowEarningManagers.isEmpty()) {
+                sb.append("  - None.").append(NL);
+            } else {
+                for (OrgAnalyzer.ManagerSalaryIssue issue : report.lowEarningManagers) {
+                    sb.append("  - ").append(issue.managerName).append(" (ID: ").append(issue.managerId).append("): Earns $");
+                    NumberText.appendMoney(sb, issue.difference, true).append(" less than the minimum required salary of $");
+                    NumberText.appendMoney(sb, issue.expectedMin, true).append(".\n");
+                    flushIfFull(sb, out);
+                }
+            }
+
+            // Managers Earning More
+            sb.append(NL).append("B) MANAGERS EARNING MORE THAN ALLOWED:").append(NL);
+            if (report.highEarningManagers.isEmpty()) {
+                sb.append("  - None.").append(NL);
+            } else {
+                for (OrgAnalyzer.ManagerSalaryIssue issue : report.highEarningManagers) {
+                    sb.append("  - ").append(issue.managerName).append(" (ID: ").append(issue.managerId).append("): Earns $");
+                    NumberText.appendMoney(sb, issue.difference, true).append(" more than the maximum allowed salary of $");
+                    NumberText.appendMoney(sb, issue.expectedMax, true).append(".\n");
+                    flushIfFull(sb, out);
+                }
+            }
+        }
+
+        // --------------------------------------------------------------------
+        // 2. REPORTING LINE VIOLATIONS
+        // --------------------------------------------------------------------
+        sb.append(NL).append("--- 2. REPORTING LINE LENGTH VIOLATIONS (Max chain length: 5) ---").append(NL).append(NL);
+
+        if (report.longReportingLines.isEmpty()) {
+            sb.append("  ✓ All employees have a reporting line of 5 managers or less to the CEO.").append(NL);
+        } else {
+            sb.append("Employees with more than 4 managers between them and the CEO:").append(NL);
+            for (OrgAnalyzer.ReportingLineIssue issue : report.longReportingLines) {
+                sb.append("  - ").append(issue.employeeName).append(" (ID: ").append(issue.employeeId).append("): Has ")
+                        .append(issue.actualLength).append(" managers in the chain, which is ")
+                        .append(issue.excessiveManagers).append(" too many.\n");
+                flushIfFull(sb, out);
+            }
+        }
+
+        // --------------------------------------------------------------------
+        // 3. HIERARCHY INTEGRITY (only shown when the data has problems)
+        // --------------------------------------------------------------------
+        if (!report.cyclicReportingLines.isEmpty() || !report.orphanedEmployees.isEmpty()) {
+            sb.append(NL).append("--- 3. HIERARCHY INTEGRITY PROBLEMS ---\n").append(NL);
+            for (OrgAnalyzer.HierarchyIssue issue : report.cyclicReportingLines) {
+                sb.append("  - ").append(issue.employeeName).append(" (ID: ").append(issue.employeeId)
+                        .append("): Is part of a reporting cycle and never reaches the CEO.\n");
+                flushIfFull(sb, out);
+            }
+            for (OrgAnalyzer.HierarchyIssue issue : report.orphanedEmployees) {
+                sb.append("  - ").append(issue.employeeName).append(" (ID: ").append(issue.employeeId)
+                        .append("): Reporting line does not lead to the CEO.\n");
+                flushIfFull(sb, out);
+            }
+        }
+
+        sb.append(NL).append("=======================================================").append(NL);
+        out.print(sb);
+        out.flush();
+    }
+
+    private static void flushIfFull(StringBuilder sb, PrintStream out) {
+        if (sb.length() >= FLUSH_CHARS) {
+            out.print(sb);
+            sb.setLength(0);
+        }
+    }
+}
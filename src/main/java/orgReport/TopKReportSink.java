@@ -0,0 +1,192 @@
+package orgReport;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps only the worst k issues of every category while the analysis streams them, so memory stays O(k)
+ * however many violations the organization has.
+ * <p>
+ * Each category is a bounded min-heap ordered by severity: the least severe kept issue sits on top and is
+ * evicted when a worse one arrives. The result is the same as sorting the full list worst first and
+ * truncating it to k:
+ * salary issues by difference (descending), long reporting lines by excessiveManagers (descending),
+ * cyclic and orphaned employees by id; remaining ties are broken by the lower id.
+ * Salary issues below minDifference and reporting lines below minExcessiveManagers are dropped on arrival.
+ */
+public class TopKReportSink implements ReportSink {
+    // Worst first
+    static final Comparator<OrgAnalyzer.ManagerSalaryIssue> SALARY_ORDER =
+            Comparator.<OrgAnalyzer.ManagerSalaryIssue>comparingDouble(issue -> -issue.difference)
+                    .thenComparingLong(issue -> issue.managerId);
+    static final Comparator<OrgAnalyzer.ReportingLineIssue> LINE_ORDER =
+            Comparator.<OrgAnalyzer.ReportingLineIssue>comparingInt(issue -> -issue.excessiveManagers)
+                    .thenComparingLong(issue -> issue.employeeId);
+    static final Comparator<OrgAnalyzer.HierarchyIssue> HIERARCHY_ORDER = Comparator.comparingLong(issue -> issue.employeeId);
+
+    private final ReportSink downstream;
+    private final int k;
+    private final double minDifference;
+    private final int minExcessiveManagers;
+
+    private final Bounded<OrgAnalyzer.ManagerSalaryIssue> low;
+    private final Bounded<OrgAnalyzer.ManagerSalaryIssue> high;
+    private final Bounded<OrgAnalyzer.ReportingLineIssue> lines;
+    private final Bounded<OrgAnalyzer.HierarchyIssue> cyclic;
+    private final Bounded<OrgAnalyzer.HierarchyIssue> orphaned;
+    private Diagnostics diagnostics;
+
+    /**
+     * Keeps the worst k issues per category; {@link #result()} returns them.
+     */
+    public TopKReportSink(int k) {
+        this(null, k, 0.0, 0);
+    }
+
+    /**
+     * @param downstream           receives the kept issues, worst first, on finish(); may be null
+     * @param minDifference        salary issues with a smaller difference are dropped
+     * @param minExcessiveManagers reporting-line issues with fewer excessive managers are dropped
+     */
+    public TopKReportSink(ReportSink downstream, int k, double minDifference, int minExcessiveManagers) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must be >= 0: " + k);
+        }
+        this.downstream = downstream;
+        this.k = k;
+        this.minDifference = minDifference;
+        this.minExcessiveManagers = minExcessiveManagers;
+        low = new Bounded<>(k, SALARY_ORDER);
+        high = new Bounded<>(k, SALARY_ORDER);
+        lines = new Bounded<>(k, LINE_ORDER);
+        cyclic = new Bounded<>(k, HIERARCHY_ORDER);
+        orphaned = new Bounded<>(k, HIERARCHY_ORDER);
+    }
+
+    @Override
+    public void lowEarningManager(OrgAnalyzer.ManagerSalaryIssue issue) {
+        if (issue.difference >= minDifference) {
+            low.offer(issue);
+        }
+    }
+
+    @Override
+    public void highEarningManager(OrgAnalyzer.ManagerSalaryIssue issue) {
+        if (issue.difference >= minDifference) {
+            high.offer(issue);
+        }
+    }
+
+    @Override
+    public void longReportingLine(OrgAnalyzer.ReportingLineIssue issue) {
+        if (issue.excessiveManagers >= minExcessiveManagers) {
+            lines.offer(issue);
+        }
+    }
+
+    @Override
+    public void cyclicReportingLine(OrgAnalyzer.HierarchyIssue issue) {
+        cyclic.offer(issue);
+    }
+
+    @Override
+    public void orphanedEmployee(OrgAnalyzer.HierarchyIssue issue) {
+        orphaned.offer(issue);
+    }
+
+    @Override
+    public void diagnostics(Diagnostics diagnostics) {
+        this.diagnostics = diagnostics;
+    }
+
+    /**
+     * Replays the kept issues, worst first, into the downstream sink (if any) and finishes it.
+     */
+    @Override
+    public void finish() throws IOException {
+        if (downstream != null) {
+            result().replay(downstream);
+            if (diagnostics != null) {
+                downstream.diagnostics(diagnostics);
+            }
+            downstream.finish();
+        }
+    }
+
+    /**
+     * The kept issues as a report, every list worst first. Can be called more than once.
+     */
+    public OrgReport result() {
+        OrgReport report = new OrgReport();
+        report.lowEarningManagers.addAll(low.sorted());
+        report.highEarningManagers.addAll(high.sorted());
+        report.longReportingLines.addAll(lines.sorted());
+        report.cyclicReportingLines.addAll(cyclic.sorted());
+        report.orphanedEmployees.addAll(orphaned.sorted());
+        report.diagnostics = diagnostics;
+        return report;
+    }
+
+    public int k() {
+        return k;
+    }
+
+    /**
+     * Issues of each category that passed the threshold, including the ones that did not make the top k.
+     */
+    public long lowEarningTotal() {
+        return low.offered;
+    }
+
+    public long highEarningTotal() {
+        return high.offered;
+    }
+
+    public long longReportingLineTotal() {
+        return lines.offered;
+    }
+
+    public long cyclicTotal() {
+        return cyclic.offered;
+    }
+
+    public long orphanedTotal() {
+        return orphaned.offered;
+    }
+
+    /**
+     * Min-heap of at most k elements under a worst-first order: the head is the least severe kept element.
+     */
+    private static class Bounded<T> {
+        private final int k;
+        private final Comparator<T> worstFirst;
+        private final PriorityQueue<T> heap;
+        long offered;
+
+        Bounded(int k, Comparator<T> worstFirst) {
+            this.k = k;
+            this.worstFirst = worstFirst;
+            // Reversed, so the head is the element that sorts last
+            this.heap = new PriorityQueue<>(Math.max(1, Math.min(k, 1 << 16) + 1), worstFirst.reversed());
+        }
+
+        void offer(T item) {
+            offered++;
+            if (heap.size() < k) {
+                heap.add(item);
+            } else if (k > 0 && worstFirst.compare(item, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(item);
+            }
+        }
+
+        List<T> sorted() {
+            List<T> items = new ArrayList<>(heap);
+            items.sort(worstFirst);
+            return items;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import orgReport.BatchAnalyzer;
+import orgReport.OrgAnalyzer;
+import orgReport.ReportSink;
+import orgReport.SyntheticOrgGenerator;
+
+class BatchAnalyzerTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testAnalyze_isolatedFilesWithExternalFallbackAndSummary() throws Exception {
+        Path input = Files.createDirectory(tempDir.resolve("batch-in"));
+        Path output = Files.createDirectory(tempDir.resolve("batch-out"));
+        for (int k = 0; k < 5; k++) {
+            new SyntheticOrgGenerator().size(2_000 + k * 500).depthSkew(0.2).malformedShare(0.01).seed(k)
+                    .writeCsv(input.resolve("subsidiary-" + k + ".csv"));
+        }
+        // Large enough to exceed the per-file limit and go out of core
+        new SyntheticOrgGenerator().size(120_000).depthSkew(0.2).seed(9).writeCsv(input.resolve("group.csv"));
+        Files.writeString(input.resolve("notes.txt"), "not an export");
+        Path other = Files.createDirectory(tempDir.resolve("batch-other")).resolve("subsidiary-0.csv");
+        Files.writeString(other, "1,Only,Ceo,100000,\n2,Team,One,20000,1\n3,Team,Two,20000,1\n");
+
+        List<Path> files = new ArrayList<>(BatchAnalyzer.csvFiles(List.of(input)));
+        files.add(other);
+        files.add(input.resolve("missing.csv"));
+        BatchAnalyzer batch = new BatchAnalyzer(3, 64L << 20, 2L << 20, output);
+        List<BatchAnalyzer.Result> results = batch.analyze(files);
+
+        assertEquals(8, results.size());
+        assertEquals(input.resolve("group.csv"), results.get(0).csv());
+        assertTrue(results.get(0).external());
+        assertEquals(1, results.get(0).threads());
+        for (int k = 0; k < 7; k++) {
+            BatchAnalyzer.Result result = results.get(k);
+            assertNull(result.error(), result.csv().toString());
+            assertEquals(expectedReport(result.csv()), sortedLines(Files.readString(result.report())), result.csv().toString());
+        }
+        assertFalse(results.get(1).external());
+        assertTrue(Files.exists(output.resolve("subsidiary-1.diagnostics.txt")));
+        // Same file name in two directories
+        assertEquals(output.resolve("subsidiary-0-2.report.csv"), results.get(6).report());
+        assertEquals(1, results.get(6).highEarning());
+        assertNotNull(results.get(7).error());
+        assertNull(results.get(7).report());
+
+        StringWriter summary = new StringWriter();
+        BatchAnalyzer.writeSummary(results, summary);
+        String[] lines = summary.toString().split("\n");
+        assertEquals(10, lines.length);
+        long issues = results.stream().mapToLong(BatchAnalyzer.Result::issues).sum();
+        assertTrue(lines[9].startsWith("TOTAL,"));
+        assertTrue(lines[9].contains("," + issues + ","));
+        assertTrue(lines[9].endsWith(",1 failed"));
+    }
+
+    @Test
+    void testAnalyze_outputDirectorySameAsInputLeavesExportsAlone() throws Exception {
+        Path dir = Files.createDirectory(tempDir.resolve("batch-same"));
+        new SyntheticOrgGenerator().size(3_000).seed(1).writeCsv(dir.resolve("a.csv"));
+        new SyntheticOrgGenerator().size(2_000).malformedShare(0.01).seed(2).writeCsv(dir.resolve("b.csv"));
+        byte[] a = Files.readAllBytes(dir.resolve("a.csv"));
+        byte[] b = Files.readAllBytes(dir.resolve("b.csv"));
+
+        // Twice, so the second run sees the first run's reports and summary next to the exports
+        for (int run = 0; run < 2; run++) {
+            List<Path> files = BatchAnalyzer.csvFiles(List.of(dir));
+            assertEquals(List.of(dir.resolve("a.csv"), dir.resolve("b.csv")), files);
+            List<BatchAnalyzer.Result> results = new BatchAnalyzer(2, 64L << 20, 32L << 20, dir).analyze(files);
+            try (Writer out = Files.newBufferedWriter(dir.resolve(BatchAnalyzer.SUMMARY_FILE))) {
+                BatchAnalyzer.writeSummary(results, out);
+            }
+            assertEquals(dir.resolve("a.report.csv"), results.get(0).report());
+            assertEquals(expectedReport(dir.resolve("a.csv")), sortedLines(Files.readString(results.get(0).report())));
+            assertTrue(Files.exists(dir.resolve("b.diagnostics.txt")));
+            assertArrayEquals(a, Files.readAllBytes(dir.resolve("a.csv")));
+            assertArrayEquals(b, Files.readAllBytes(dir.resolve("b.csv")));
+        }
+
+        // Named explicitly, an export that an output would replace is refused before anything is written
+        List<Path> clashing = List.of(dir.resolve("a.csv"), dir.resolve("a.report.csv"));
+        byte[] report = Files.readAllBytes(dir.resolve("a.report.csv"));
+        assertThrows(IllegalArgumentException.class, () -> new BatchAnalyzer(1, 64L << 20, 32L << 20, dir).analyze(clashing));
+        assertThrows(IllegalArgumentException.class,
+                () -> new BatchAnalyzer(1, 64L << 20, 32L << 20, dir).analyze(List.of(dir.resolve(BatchAnalyzer.SUMMARY_FILE))));
+        assertFalse(Files.exists(dir.resolve("a.report.report.csv")));
+        assertArrayEquals(report, Files.readAllBytes(dir.resolve("a.report.csv")));
+    }
+
+    @Test
+    void testAnalyze_fileWithoutCompetitionGetsTheWholePool() throws Exception {
+        Path csv = Files.createDirectory(tempDir.resolve("batch-single")).resolve("only.csv");
+        new SyntheticOrgGenerator().size(20_000).depthSkew(0.2).malformedShare(0.01).seed(3).shuffleRows(true).writeCsv(csv);
+        Path output = tempDir.resolve("batch-single-out");
+        List<BatchAnalyzer.Result> results = new BatchAnalyzer(4, 64L << 20, 32L << 20, output).analyze(List.of(csv));
+
+        assertNull(results.get(0).error());
+        assertFalse(results.get(0).external());
+        assertEquals(4, results.get(0).threads());
+        assertEquals(expectedReport(csv), sortedLines(Files.readString(results.get(0).report())));
+    }
+
+    /**
+     * Same file through a standalone analyzer; lines are sorted because external mode orders issues by id.
+     */
+    private static String expectedReport(Path csv) throws IOException {
+        OrgAnalyzer analyzer = new OrgAnalyzer();
+        analyzer.useSnapshot = false;
+        analyzer.loadHierarchy(csv);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ReportSink sink = ReportSink.forFormat("csv", out);
+        analyzer.analyzeStructure().replay(sink);
+        sink.finish();
+        return sortedLines(out.toString(StandardCharsets.UTF_8));
+    }
+
+    private static String sortedLines(String text) {
+        return String.join("\n", new TreeSet<>(Arrays.asList(text.split("\n"))));
+    }
+}
@@ -0,0 +1,81 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import orgReport.ExternalOrgAnalyzer;
+import orgReport.OrgAnalyzer;
+import orgReport.OrgMetrics;
+import orgReport.OrgReport;
+import orgReport.ReportSink;
+import orgReport.SyntheticOrgGenerator;
+
+class ExternalOrgAnalyzerTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testAnalyze_matchesInMemoryReportWithSpills() throws Exception {
+        Path dir = Files.createDirectory(tempDir.resolve("external"));
+        Path csv = dir.resolve("employees.csv");
+        StringBuilder content = new StringBuilder();
+        // Deep, dirty org: malformed lines leave employees without their manager
+        new SyntheticOrgGenerator().size(30_000).fanOut(3).depthSkew(0.3).malformedShare(0.01).seed(5).writeCsv(content);
+        content.append("40001,Cy,One,50000,40003\n40002,Cy,Two,50000,40001\n40003,Cy,Three,50000,40002\n")
+                .append("40004,Below,Cycle,40000,40003\n40005,Self,Loop,40000,40005\n")
+                .append("40006,Other,Root,90000,\n40007,Under,Root,45000,40006\n")
+                .append("40008,Lost,Manager,45000,99999\n")
+                .append("2,Replaced,Row,250000,1\n"); // duplicate id: the last row wins
+        Files.writeString(csv, content);
+
+        OrgAnalyzer analyzer = new OrgAnalyzer();
+        analyzer.useSnapshot = false;
+        analyzer.loadHierarchy(csv);
+        String expected = render(analyzer.analyzeStructure().sortById());
+
+        long budget = 512 * 1024;
+        ExternalOrgAnalyzer external = new ExternalOrgAnalyzer(budget, dir);
+        OrgReport report = new OrgReport();
+        external.analyze(csv, report);
+
+        assertEquals(expected, render(report));
+        assertFalse(report.cyclicReportingLines.isEmpty());
+        assertFalse(report.longReportingLines.isEmpty());
+        assertEquals(analyzer.metrics.getMissingManagers(), external.metrics.getMissingManagers());
+        assertEquals(report.orphanedEmployees.size(), external.metrics.issueCount(OrgMetrics.Issue.ORPHANED_EMPLOYEE));
+        // Sort buffers and merge streams, the two sorters of a pointer jump together, stay within the budget
+        assertTrue(external.peakSortMemory() <= budget, String.valueOf(external.peakSortMemory()));
+        assertTrue(external.peakSortMemory() > budget / 2, String.valueOf(external.peakSortMemory()));
+        // Spill files are gone, only the CSV is left
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void testAnalyze_withoutCeoSkipsReportingLines() throws Exception {
+        Path csv = tempDir.resolve("external.csv");
+        Files.writeString(csv, "1,A,One,100000,2\n2,B,Two,50000,1\n3,C,Three,40000,2\n");
+
+        OrgReport report = new OrgReport();
+        new ExternalOrgAnalyzer(ExternalOrgAnalyzer.DEFAULT_MEMORY_BUDGET, csv.getParent()).analyze(csv, report);
+
+        assertEquals(1, report.lowEarningManagers.size()); // B earns less than the average of A and C
+        assertEquals(2, report.lowEarningManagers.get(0).managerId);
+        assertEquals(1, report.highEarningManagers.size());
+        assertTrue(report.cyclicReportingLines.isEmpty());
+        assertTrue(report.orphanedEmployees.isEmpty());
+    }
+
+    private static String render(OrgReport report) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ReportSink sink = ReportSink.forFormat("csv", out);
+        report.replay(sink);
+        sink.finish();
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,157 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.*;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import orgReport.ExternalOrgAnalyzer;
+import orgReport.GzipInput;
+import orgReport.OrgAnalyzer;
+import orgReport.OrgMetrics;
+import orgReport.ReportSink;
+import orgReport.SyntheticOrgGenerator;
+
+class GzipInputTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testLoadHierarchy_gzipVariantsMatchPlainCsv() throws Exception {
+        Path dir = Files.createDirectory(tempDir.resolve("gzip-input"));
+        Path plain = dir.resolve("employees.csv");
+        new SyntheticOrgGenerator().size(30_000).depthSkew(0.3).malformedShare(0.01).seed(4).writeCsv(plain);
+        byte[] csv = Files.readAllBytes(plain);
+        String expected = report(plain, true, false, 1);
+
+        Map<String, byte[]> variants = new LinkedHashMap<>();
+        variants.put("single", gzip(csv, 0, csv.length));
+        // Members split mid-line, as `cat a.gz b.gz` would produce
+        ByteArrayOutputStream concatenated = new ByteArrayOutputStream();
+        for (int from = 0; from < csv.length; from += 100_001) {
+            concatenated.write(gzip(csv, from, Math.min(csv.length, from + 100_001)));
+        }
+        variants.put("concatenated", concatenated.toByteArray());
+        variants.put("blocked", bgzip(csv));
+
+        for (Map.Entry<String, byte[]> variant : variants.entrySet()) {
+            Path gz = dir.resolve(variant.getKey() + ".csv.gz");
+            Files.write(gz, variant.getValue());
+            assertTrue(GzipInput.isGzip(gz));
+            for (int threads : new int[]{1, 4}) {
+                String name = variant.getKey() + "/" + threads;
+                assertEquals(expected, report(gz, true, false, threads), name + " pipelined");
+                assertEquals(expected, report(gz, false, true, threads), name + " mapped");
+                assertEquals(expected, report(gz, false, false, threads), name + " reader");
+            }
+            assertEquals(externalReport(plain), externalReport(gz), variant.getKey() + " external");
+        }
+        assertFalse(GzipInput.isGzip(plain));
+    }
+
+    @Test
+    void testOpen_countsInflatedBytesAndRejectsCorruptMembers() throws Exception {
+        // Incompressible, so the members span several parallel groups
+        byte[] csv = new byte[10_000_000];
+        new Random(7).nextBytes(csv);
+        Path gz = tempDir.resolve("blocked.csv.gz");
+        byte[] blocked = bgzip(csv);
+        Files.write(gz, blocked);
+        OrgMetrics metrics = new OrgMetrics();
+        assertArrayEquals(csv, readAll(gz, 4, metrics));
+        assertEquals(csv.length, metrics.getBytesInflated());
+        assertTrue(metrics.getInflateMBPerSecond() > 0);
+        assertTrue(metrics.getInflateMBPerThreadSecond() > 0);
+        assertEquals(1, metrics.phaseCalls(OrgMetrics.Phase.INFLATE_WALL));
+        assertTrue(metrics.getSummaryJson().contains("\"bytesInflated\":" + csv.length));
+        assertTrue(metrics.getSummaryJson().contains("\"inflateMBPerThreadSecond\":"));
+
+        // Flip one byte of the first member's CRC
+        int firstEnd = (blocked[16] & 0xff | (blocked[17] & 0xff) << 8) + 1;
+        blocked[firstEnd - 8] ^= 1;
+        Files.write(gz, blocked);
+        assertThrows(IOException.class, () -> readAll(gz, 4, null));
+        assertThrows(IOException.class, () -> readAll(gz, 1, null));
+    }
+
+    private static String report(Path csv, boolean pipelined, boolean mapped, int threads) throws IOException {
+        OrgAnalyzer analyzer = new OrgAnalyzer();
+        analyzer.useSnapshot = false;
+        analyzer.pipelinedLoad = pipelined;
+        analyzer.useMappedIo = mapped;
+        analyzer.ingestThreads = threads;
+        analyzer.loadHierarchy(csv);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ReportSink sink = ReportSink.forFormat("csv", out);
+        analyzer.analyzeStructure().replay(sink);
+        sink.finish();
+        return sortedLines(out.toString(StandardCharsets.UTF_8)) + "\n" + analyzer.diagnostics.total();
+    }
+
+    private String externalReport(Path csv) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ExternalOrgAnalyzer(8L << 20, tempDir).analyze(csv, ReportSink.forFormat("csv", out));
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static String sortedLines(String text) {
+        return String.join("\n", new TreeSet<>(Arrays.asList(text.split("\n"))));
+    }
+
+    private static byte[] readAll(Path gz, int threads, OrgMetrics metrics) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ReadableByteChannel channel = GzipInput.open(gz, threads, metrics)) {
+            ByteBuffer buf = ByteBuffer.allocate(12_345);
+            while (channel.read(buf.clear()) >= 0) {
+                out.write(buf.array(), 0, buf.position());
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] gzip(byte[] data, int from, int to) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(data, from, to - from);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * BGZF like bgzip writes it: members of at most 64 KiB, each with its size in a "BC" extra field, then an empty member.
+     */
+    private static byte[] bgzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] deflated = new byte[70_000];
+        for (int from = 0; ; from = Math.min(data.length, from + 60_000)) {
+            int length = Math.min(60_000, data.length - from);
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            deflater.setInput(data, from, length);
+            deflater.finish();
+            int size = deflater.deflate(deflated);
+            deflater.end();
+            CRC32 crc = new CRC32();
+            crc.update(data, from, length);
+            int total = 18 + size + 8;
+            out.writeBytes(new byte[]{0x1f, (byte) 0x8b, 8, 4, 0, 0, 0, 0, 0, (byte) 0xff, 6, 0, 'B', 'C', 2, 0,
+                    (byte) (total - 1), (byte) ((total - 1) >> 8)});
+            out.write(deflated, 0, size);
+            writeIntLE(out, (int) crc.getValue());
+            writeIntLE(out, length);
+            if (length == 0) {
+                return out.toByteArray();
+            }
+        }
+    }
+
+    private static void writeIntLE(ByteArrayOutputStream out, int value) {
+        for (int shift = 0; shift < 32; shift += 8) {
+            out.write(value >> shift);
+        }
+    }
+}
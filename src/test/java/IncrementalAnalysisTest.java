@@ -0,0 +1,154 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+import orgReport.Employee;
+import orgReport.IncrementalAnalysis;
+import orgReport.OrgAnalyzer;
+import orgReport.OrgChange;
+import orgReport.OrgReport;
+import orgReport.OrgReportDelta;
+
+class IncrementalAnalysisTest {
+
+    @Test
+    void testApply_singleEventsProduceDeltas() {
+        OrgAnalyzer analyzer = new OrgAnalyzer();
+        analyzer.employees().put(1L, new Employee(1, "CEO", "X", 150000.0, Optional.empty()));
+        analyzer.employees().put(2L, new Employee(2, "Mgr", "Y", 100000.0, Optional.of(1L)));
+        analyzer.employees().put(3L, new Employee(3, "Sub", "Z", 80000.0, Optional.of(2L)));
+        analyzer.buildHierarchy();
+        IncrementalAnalysis incremental = analyzer.startIncremental();
+        assertTrue(incremental.currentReport().lowEarningManagers.isEmpty());
+
+        // Sub's raise pushes Mgr below 120% of the subordinate average
+        OrgReportDelta delta = incremental.apply(OrgChange.salaryChange(3, 90000));
+        assertEquals(1, delta.added.lowEarningManagers.size());
+        assertEquals(2L, delta.added.lowEarningManagers.get(0).managerId);
+        assertTrue(delta.resolved.lowEarningManagers.isEmpty());
+
+        // Terminating the manager resolves it and orphans the subordinate
+        delta = incremental.apply(OrgChange.terminate(2));
+        assertEquals(1, delta.resolved.lowEarningManagers.size());
+        assertEquals(1, delta.added.orphanedEmployees.size());
+        assertEquals(3L, delta.added.orphanedEmployees.get(0).employeeId);
+        assertFalse(analyzer.employees().containsKey(2L));
+
+        // Re-hiring id 2 re-attaches the waiting subordinate
+        delta = incremental.apply(OrgChange.hire(new Employee(2, "New", "Mgr", 110000.0, Optional.of(1L))));
+        assertEquals(1, delta.resolved.orphanedEmployees.size());
+        assertTrue(delta.added.lowEarningManagers.isEmpty());
+
+        // A manager change that closes a loop is reported instead of hanging
+        delta = incremental.apply(OrgChange.managerChange(2, Optional.of(3L)));
+        assertEquals(2, delta.added.cyclicReportingLines.size());
+    }
+
+    @Test
+    void testApply_randomBatchesMatchFullRecompute() {
+        Random random = new Random(11);
+        OrgAnalyzer analyzer = new OrgAnalyzer();
+        for (int i = 1; i <= 300; i++) {
+            Optional<Long> manager = i == 1 ? Optional.empty() : Optional.of((long) 1 + random.nextInt(Math.max(1, i / 2)));
+            analyzer.employees().put((long) i, new Employee(i, "F" + i, "L" + i, 20000.0 + random.nextInt(100) * 1000, manager));
+        }
+        analyzer.buildHierarchy();
+        IncrementalAnalysis incremental = analyzer.startIncremental();
+        Map<String, Set<Long>> current = ids(incremental.currentReport());
+        assertEquals(current, ids(fullRecompute(analyzer)));
+
+        long nextId = 301;
+        List<Long> terminated = new ArrayList<>();
+        for (int batch = 0; batch < 40; batch++) {
+            List<OrgChange> changes = new ArrayList<>();
+            for (int k = 0; k < 10; k++) {
+                List<Long> alive = new ArrayList<>(new TreeSet<>(analyzer.employees().keySet()));
+                // Mostly below the top; now and then the CEO itself, or whoever replaced it
+                long target = random.nextInt(50) == 0 ? alive.get(0) : alive.get(1 + random.nextInt(alive.size() - 1));
+                switch (random.nextInt(5)) {
+                    case 0 -> changes.add(OrgChange.hire(new Employee(nextId++, "H", "N", 20000.0 + random.nextInt(100) * 1000,
+                            Optional.of(alive.get(random.nextInt(alive.size()))))));
+                    case 1 -> {
+                        changes.add(OrgChange.terminate(target));
+                        terminated.add(target);
+                    }
+                    case 3 -> {
+                        // Re-hire under anyone, possibly one of the subordinates still waiting for it, or as a new root
+                        long id = terminated.isEmpty() ? nextId++ : terminated.remove(random.nextInt(terminated.size()));
+                        Optional<Long> manager = random.nextInt(10) == 0 ? Optional.empty() : Optional.of(alive.get(random.nextInt(alive.size())));
+                        changes.add(OrgChange.hire(new Employee(id, "R", "H", 20000.0 + random.nextInt(100) * 1000, manager)));
+                    }
+                    case 2 -> changes.add(OrgChange.salaryChange(target, 20000 + random.nextInt(100) * 1000));
+                    default -> changes.add(OrgChange.managerChange(target, Optional.of(alive.get(random.nextInt(alive.size())))));
+                }
+                // Apply one by one so later events see the effect of earlier ones
+                OrgReportDelta delta = incremental.apply(changes.get(changes.size() - 1));
+                Map<String, Set<Long>> added = ids(delta.added);
+                Map<String, Set<Long>> resolved = ids(delta.resolved);
+                for (String category : current.keySet()) {
+                    current.get(category).removeAll(resolved.get(category));
+                    current.get(category).addAll(added.get(category));
+                }
+            }
+            assertEquals(ids(fullRecompute(analyzer)), ids(incremental.currentReport()));
+            assertEquals(ids(incremental.currentReport()), current);
+        }
+    }
+
+    @Test
+    void testApply_rehireUnderOwnSubordinateAndCeoTerminationMatchFullRecompute() {
+        OrgAnalyzer analyzer = new OrgAnalyzer();
+        analyzer.employees().put(1L, new Employee(1, "CEO", "X", 150000.0, Optional.empty()));
+        analyzer.employees().put(2L, new Employee(2, "A", "A", 100000.0, Optional.of(1L)));
+        analyzer.employees().put(3L, new Employee(3, "B", "B", 80000.0, Optional.of(2L)));
+        analyzer.employees().put(4L, new Employee(4, "Second", "Root", 90000.0, Optional.empty()));
+        analyzer.employees().put(5L, new Employee(5, "C", "C", 60000.0, Optional.of(4L)));
+        analyzer.buildHierarchy();
+        IncrementalAnalysis incremental = analyzer.startIncremental();
+        assertEquals(ids(fullRecompute(analyzer)), ids(incremental.currentReport()));
+
+        // Re-hiring A under B, who was waiting for A, closes a loop
+        incremental.apply(OrgChange.terminate(2));
+        incremental.apply(OrgChange.hire(new Employee(2, "A", "A", 100000.0, Optional.of(3L))));
+        assertEquals(Set.of(2L, 3L), ids(incremental.currentReport()).get("cyclic"));
+        assertEquals(ids(fullRecompute(analyzer)), ids(incremental.currentReport()));
+
+        // Without the CEO the remaining root takes over, as buildHierarchy() would choose
+        incremental.apply(OrgChange.terminate(1));
+        assertEquals(4L, analyzer.ceo().getId());
+        assertEquals(ids(fullRecompute(analyzer)), ids(incremental.currentReport()));
+
+        incremental.apply(OrgChange.terminate(4));
+        assertNull(analyzer.ceo());
+        assertEquals(ids(fullRecompute(analyzer)), ids(incremental.currentReport()));
+
+        incremental.apply(OrgChange.hire(new Employee(1, "CEO", "X", 150000.0, Optional.empty())));
+        assertEquals(ids(fullRecompute(analyzer)), ids(incremental.currentReport()));
+    }
+
+    // Fresh analyzer over copies of the current employees, linked from scratch
+    private static OrgReport fullRecompute(OrgAnalyzer analyzer) {
+        OrgAnalyzer fresh = new OrgAnalyzer();
+        for (Employee e : analyzer.employees().values()) {
+            fresh.employees().put(e.getId(), new Employee(e.getId(), e.getFirstName(), e.getLastName(), e.getSalary(), e.getManagerId()));
+        }
+        fresh.buildHierarchy();
+        return fresh.analyzeStructure();
+    }
+
+    private static Map<String, Set<Long>> ids(OrgReport report) {
+        Map<String, Set<Long>> ids = new TreeMap<>();
+        ids.put("low", new TreeSet<>());
+        ids.put("high", new TreeSet<>());
+        ids.put("long", new TreeSet<>());
+        ids.put("cyclic", new TreeSet<>());
+        ids.put("orphaned", new TreeSet<>());
+        report.lowEarningManagers.forEach(i -> ids.get("low").add(i.managerId));
+        report.highEarningManagers.forEach(i -> ids.get("high").add(i.managerId));
+        report.longReportingLines.forEach(i -> ids.get("long").add(i.employeeId));
+        report.cyclicReportingLines.forEach(i -> ids.get("cyclic").add(i.employeeId));
+        report.orphanedEmployees.forEach(i -> ids.get("orphaned").add(i.employeeId));
+        return ids;
+    }
+}
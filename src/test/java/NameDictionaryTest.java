@@ -0,0 +1,137 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import orgReport.Employee;
+import orgReport.NameDictionary;
+import orgReport.OrgAnalyzer;
+import orgReport.OrgGraph;
+import orgReport.SyntheticOrgGenerator;
+
+class NameDictionaryTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testIntern_deduplicatesAndDecodesOnAndOffHeap() {
+        String longName = "x".repeat(300);
+        String hugeName = "Ö".repeat(700_000); // longer than a page
+        for (boolean offHeap : new boolean[]{false, true}) {
+            NameDictionary names = new NameDictionary(offHeap);
+            int john = names.intern("John");
+            int smith = names.intern("Smith");
+            byte[] line = "7,John,Smith".getBytes(StandardCharsets.UTF_8);
+            assertEquals(john, names.intern(ByteBuffer.wrap(line), 2, 6));
+            assertEquals(smith, names.intern("Smith"));
+            int empty = names.intern("");
+            int zoe = names.intern("Zoë");
+            int longRef = names.intern(longName);
+            int hugeRef = names.intern(hugeName);
+            for (int i = 0; i < 50_000; i++) {
+                names.intern("name" + i % 20_000);
+            }
+            assertEquals(20_006, names.size());
+            assertEquals("John", names.get(john));
+            assertEquals("", names.get(empty));
+            assertEquals("Zoë", names.get(zoe));
+            assertEquals(longName, names.get(longRef));
+            assertEquals(hugeName, names.get(hugeRef));
+            assertEquals(longRef, names.intern(longName));
+            assertEquals("John Smith", names.fullName(john, smith));
+            assertEquals("name123", names.get(names.intern("name123")));
+
+            NameDictionary other = new NameDictionary();
+            int copied = other.intern(names, zoe);
+            assertEquals("Zoë", other.get(copied));
+            assertEquals(copied, other.intern("Zoë"));
+            assertEquals(offHeap, names.isOffHeap());
+        }
+    }
+
+    @Test
+    void testIntern_concurrentThreadsAgreeOnReferences() throws Exception {
+        NameDictionary names = new NameDictionary();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<int[]>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                results.add(pool.submit(() -> {
+                    int[] refs = new int[5_000];
+                    for (int i = 0; i < refs.length; i++) {
+                        refs[i] = names.intern("Name" + i);
+                    }
+                    return refs;
+                }));
+            }
+            int[] first = results.get(0).get();
+            for (Future<int[]> result : results) {
+                assertArrayEquals(first, result.get());
+            }
+            assertEquals(5_000, names.size());
+            assertEquals("Name4321", names.get(first[4321]));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testGraphOf_employeesBuiltFromStringsGetAFreshDictionary() {
+        Employee ceo = new Employee(1, "Ann", "Lee", 100_000.0, Optional.empty());
+        Employee sub = new Employee(2, "Bo", "Lee", 60_000.0, Optional.of(1L));
+        ceo.addSubordinates(sub);
+        assertEquals("Bo Lee", sub.getFullName());
+        Map<Long, Employee> employees = new LinkedHashMap<>();
+        employees.put(1L, ceo);
+        employees.put(2L, sub);
+        OrgGraph graph = OrgGraph.of(employees, ceo);
+        assertEquals(3, graph.names().size());
+        assertEquals("Bo Lee", graph.fullName(graph.indexOf(2)));
+        assertNotSame(graph.names(), OrgGraph.of(employees, ceo).names());
+    }
+
+    @Test
+    void testLoadHierarchy_employeesShareOneDictionary() throws Exception {
+        Path csv = tempDir.resolve("names.csv");
+        new SyntheticOrgGenerator().size(20_000).seed(3).writeCsv(csv);
+        List<String> expected = new ArrayList<>();
+        for (String line : Files.readAllLines(csv)) {
+            String[] fields = line.split(",", -1);
+            if (fields[0].equals("42")) {
+                expected.add(fields[1].trim() + " " + fields[2].trim());
+            }
+        }
+        for (boolean pipelined : new boolean[]{true, false}) {
+            OrgAnalyzer analyzer = new OrgAnalyzer();
+            analyzer.useSnapshot = false;
+            analyzer.pipelinedLoad = pipelined;
+            analyzer.offHeapNames = !pipelined;
+            analyzer.ingestThreads = 4;
+            analyzer.loadHierarchy(csv);
+            OrgGraph graph = analyzer.graph();
+            assertEquals(analyzer.employees().size(), graph.size());
+            // Synthetic names come from small pools, so far fewer distinct names than rows
+            assertTrue(graph.names().size() < graph.size() / 10, String.valueOf(graph.names().size()));
+            assertEquals(!pipelined, graph.names().isOffHeap());
+            Employee employee = analyzer.employees().get(42L);
+            assertEquals(expected, List.of(employee.getFullName()));
+            assertEquals(employee.getFirstName() + " " + employee.getLastName(), graph.fullName(graph.indexOf(42)));
+            assertEquals(employee.getFullName() + " (ID: 42)", employee.toString());
+        }
+
+        // Parser workers intern into dictionaries of their own; the employees still end up sharing one
+        OrgAnalyzer parallel = new OrgAnalyzer();
+        parallel.ingestThreads = 4;
+        parallel.readMappedFile(csv);
+        parallel.buildHierarchy();
+        NameDictionary shared = OrgGraph.of(parallel.employees(), parallel.ceo()).names();
+        assertSame(shared, OrgGraph.of(parallel.employees(), parallel.ceo()).names());
+        assertEquals(expected, List.of(parallel.employees().get(42L).getFullName()));
+        assertTrue(shared.size() < parallel.employees().size() / 10, String.valueOf(shared.size()));
+    }
+}
@@ -0,0 +1,295 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import orgReport.Diagnostics;
+import orgReport.Employee;
+import orgReport.OrgAnalyzer;
+import orgReport.PipelinedCsvLoader;
+import orgReport.ReportSink;
+import orgReport.SyntheticOrgGenerator;
+
+/**
+ * Million-employee organizations of extreme shapes, checked against a simple reference and held to time and
+ * allocation budgets. The budgets are several times what the linear algorithms need, so only a change in
+ * complexity (a per-employee walk up a 1M-deep chain, a per-manager scan of all employees) makes them fail.
+ */
+class OrgAnalyzerScaleTest {
+    private static final int SIZE = 1_000_000;
+    // Load plus analysis, CSV parsing included, with one parser; takes a few seconds, quadratic work would take hours
+    private static final long TIME_BUDGET_MILLIS = 20_000;
+    // Heap allocated per employee by all threads, loader threads included: parsing, the employee map, the graph and the issues
+    private static final long ALLOCATION_BUDGET_PER_EMPLOYEE = 1_500;
+
+    @TempDir
+    static Path tempDir;
+
+    @Test
+    void testScale_wideFlat() throws Exception {
+        check("wide-flat", org().fanOut(SIZE), false);
+    }
+
+    @Test
+    void testScale_deepChain() throws Exception {
+        Expected expected = check("deep-chain", org().depthSkew(1.0), false);
+        // Everyone below the fifth level has a long reporting line
+        assertEquals(SIZE - OrgAnalyzer.MAX_REPORTING_LINE_LENGTH - 1, expected.longLines.cardinality());
+    }
+
+    @Test
+    void testScale_deepChainPipelined() throws Exception {
+        check("deep-chain", org().depthSkew(1.0), true);
+    }
+
+    @Test
+    void testScale_balanced() throws Exception {
+        check("balanced", org().fanOut(10), false);
+    }
+
+    @Test
+    void testScale_mixedInShuffledRowOrder() throws Exception {
+        check("mixed", org().fanOut(4).depthSkew(0.3).shuffleRows(true), false);
+    }
+
+    // The pipelined load links rows as they arrive: every row that names a manager not seen yet waits in the graph
+    // builder's pending table until the manager's row shows up
+    @Test
+    void testScale_mixedInShuffledRowOrderPipelined() throws Exception {
+        Expected expected = check("mixed", org().fanOut(4).depthSkew(0.3).shuffleRows(true), true);
+        assertTrue(expected.forwardReferences > SIZE / 3, expected.forwardReferences + " rows arrive before their manager");
+    }
+
+    // Same for the Employee linker of PipelinedCsvLoader.load(), which keeps its forward references in a map
+    @Test
+    void testScale_employeeLinkerInShuffledRowOrder() throws Exception {
+        SyntheticOrgGenerator org = org().fanOut(4).depthSkew(0.3).shuffleRows(true);
+        Path csv = tempDir.resolve("scale-linker.csv");
+        try {
+            org.writeCsv(csv);
+            Expected expected = new Expected(org);
+            long started = System.nanoTime();
+            Map<Long, Employee> employees = new HashMap<>(2 * SIZE);
+            Diagnostics diagnostics = new Diagnostics();
+            Employee ceo = new PipelinedCsvLoader(1).load(csv, employees,
+                    (problem, line, text) -> fail("line " + line + ": " + problem), diagnostics);
+            long millis = (System.nanoTime() - started) / 1_000_000;
+
+            assertEquals(1L, ceo.getId());
+            assertEquals(SIZE, employees.size());
+            assertTrue(diagnostics.isEmpty(), diagnostics.total() + " diagnostics");
+            for (int i = 0; i < SIZE; i++) {
+                Employee e = employees.get(i + 1L);
+                assertEquals(expected.parents[i] < 0 ? Optional.empty() : Optional.of(expected.parents[i] + 1L), e.getManagerId());
+                assertEquals(expected.subordinates[i], e.getSubordinates().size(), "subordinates of " + (i + 1));
+                for (Employee subordinate : e.getSubordinates()) {
+                    assertEquals(i, expected.parents[(int) subordinate.getId() - 1]);
+                }
+            }
+            assertTrue(expected.forwardReferences > SIZE / 3, expected.forwardReferences + " rows arrive before their manager");
+            assertTrue(millis < TIME_BUDGET_MILLIS, "linker took " + millis + " ms");
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+    }
+
+    // Parser workers keep their names to themselves, so more ingest threads must load the same file clearly faster
+    @Test
+    void testScale_ingestScalesWithThreads() throws Exception {
+        int threads = Math.min(4, Runtime.getRuntime().availableProcessors());
+        Assumptions.assumeTrue(threads >= 4, "needs 4 cores, has " + Runtime.getRuntime().availableProcessors());
+        Path csv = tempDir.resolve("scale-threads.csv");
+        try {
+            org().fanOut(4).depthSkew(0.3).shuffleRows(true).seed(5).writeCsv(csv);
+            for (boolean pipelined : new boolean[]{false, true}) {
+                long single = bestLoadMillis(csv, pipelined, 1);
+                long parallel = bestLoadMillis(csv, pipelined, threads);
+                assertTrue(parallel < single * 0.8, (pipelined ? "pipelined" : "mapped") + " load took " + parallel
+                        + " ms with " + threads + " threads and " + single + " ms with one");
+            }
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+    }
+
+    private static long bestLoadMillis(Path csv, boolean pipelined, int threads) throws IOException {
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < 3; run++) {
+            long started = System.nanoTime();
+            OrgAnalyzer analyzer = new OrgAnalyzer();
+            analyzer.useSnapshot = false;
+            analyzer.useMappedIo = true;
+            analyzer.pipelinedLoad = pipelined;
+            analyzer.ingestThreads = threads;
+            analyzer.loadHierarchy(csv);
+            assertEquals(SIZE, analyzer.graph().size());
+            best = Math.min(best, (System.nanoTime() - started) / 1_000_000);
+        }
+        return best;
+    }
+
+    // Sequential ids, no malformed lines: employee i has id i + 1
+    private static SyntheticOrgGenerator org() {
+        return new SyntheticOrgGenerator().size(SIZE).seed(24);
+    }
+
+    /**
+     * Writes the org as CSV, loads it with one parser thread, either on the calling thread or through the
+     * pipelined loader, analyzes it on the calling thread and compares the issues with the reference.
+     */
+    private static Expected check(String shape, SyntheticOrgGenerator org, boolean pipelined) throws IOException {
+        Path csv = tempDir.resolve("scale-" + shape + ".csv");
+        try {
+            org.writeCsv(csv);
+            Expected expected = new Expected(org);
+
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            // Includes threads that ended meanwhile, like the pipelined loader's reader and parser
+            long allocated = threads.getTotalThreadAllocatedBytes();
+            long started = System.nanoTime();
+            OrgAnalyzer analyzer = new OrgAnalyzer();
+            analyzer.useSnapshot = false;
+            analyzer.pipelinedLoad = pipelined;
+            analyzer.ingestThreads = 1;
+            analyzer.analysisThreads = 1;
+            analyzer.loadHierarchy(csv);
+            RecordingSink actual = new RecordingSink(expected);
+            analyzer.analyzeStructure(actual);
+            long millis = (System.nanoTime() - started) / 1_000_000;
+            long perEmployee = (threads.getTotalThreadAllocatedBytes() - allocated) / SIZE;
+            shape += pipelined ? " pipelined" : "";
+
+            assertEquals(expected.low, actual.low, shape + ": low earners");
+            assertEquals(expected.high, actual.high, shape + ": high earners");
+            assertEquals(expected.longLines, actual.longLines, shape + ": long reporting lines");
+            assertEquals(expected.excessiveManagers, actual.excessiveManagers, shape + ": excessive managers");
+            assertEquals(0, actual.hierarchyIssues, shape + ": cyclic or orphaned");
+            assertTrue(millis < TIME_BUDGET_MILLIS, shape + " took " + millis + " ms");
+            assertTrue(perEmployee < ALLOCATION_BUDGET_PER_EMPLOYEE, shape + " allocated " + perEmployee + " bytes per employee");
+            return expected;
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+    }
+
+    /**
+     * Issues by straightforward rules. The generator gives every employee a manager with a smaller id, so depths
+     * take one pass in id order; salaries are whole numbers, so subordinate sums are exact in any order.
+     */
+    private static class Expected {
+        final int[] parents = new int[SIZE]; // by index (id - 1), -1 for the CEO
+        final int[] subordinates = new int[SIZE];
+        final String[] firstNames = new String[SIZE];
+        final String[] lastNames = new String[SIZE];
+        final BitSet low = new BitSet();
+        final BitSet high = new BitSet();
+        final BitSet longLines = new BitSet();
+        long excessiveManagers;
+        int forwardReferences; // rows written before their manager's row
+
+        Expected(SyntheticOrgGenerator org) throws IOException {
+            long[] salaries = new long[SIZE];
+            int[] rows = new int[SIZE];
+            int[] row = {0};
+            org.generate((id, first, last, salary, managerId, malformed) -> {
+                int i = (int) id - 1;
+                parents[i] = (int) managerId - 1;
+                firstNames[i] = first;
+                lastNames[i] = last;
+                salaries[i] = salary;
+                rows[i] = row[0]++;
+            });
+            double[] sums = new double[SIZE];
+            int[] depths = new int[SIZE];
+            for (int i = 0; i < SIZE; i++) {
+                int p = parents[i];
+                if (p >= 0) {
+                    sums[p] += salaries[i];
+                    subordinates[p]++;
+                    depths[i] = depths[p] + 1;
+                    if (rows[p] > rows[i]) {
+                        forwardReferences++;
+                    }
+                }
+                if (depths[i] > OrgAnalyzer.MAX_REPORTING_LINE_LENGTH) {
+                    longLines.set(i + 1);
+                    excessiveManagers += depths[i] - OrgAnalyzer.MAX_REPORTING_LINE_LENGTH;
+                }
+            }
+            for (int i = 0; i < SIZE; i++) {
+                if (subordinates[i] == 0) {
+                    continue;
+                }
+                double average = sums[i] / subordinates[i];
+                if (salaries[i] < average * OrgAnalyzer.MIN_SALARY_FACTOR) {
+                    low.set(i + 1);
+                } else if (salaries[i] > average * OrgAnalyzer.MAX_SALARY_FACTOR) {
+                    high.set(i + 1);
+                }
+            }
+        }
+
+        String fullName(long id) {
+            return firstNames[(int) id - 1] + " " + lastNames[(int) id - 1];
+        }
+    }
+
+    /**
+     * Keeps issue ids only, so a million issues cost bits rather than objects; checks each name on the way.
+     */
+    private static class RecordingSink implements ReportSink {
+        final BitSet low;
+        final BitSet high;
+        final BitSet longLines;
+        long excessiveManagers;
+        int hierarchyIssues;
+
+        private final Expected names;
+
+        RecordingSink(Expected names) {
+            this.names = names;
+            low = new BitSet(SIZE + 1);
+            high = new BitSet(SIZE + 1);
+            longLines = new BitSet(SIZE + 1);
+        }
+
+        @Override
+        public void lowEarningManager(OrgAnalyzer.ManagerSalaryIssue issue) {
+            checkName(issue.managerId, issue.managerName);
+            low.set((int) issue.managerId);
+        }
+
+        @Override
+        public void highEarningManager(OrgAnalyzer.ManagerSalaryIssue issue) {
+            checkName(issue.managerId, issue.managerName);
+            high.set((int) issue.managerId);
+        }
+
+        @Override
+        public void longReportingLine(OrgAnalyzer.ReportingLineIssue issue) {
+            checkName(issue.employeeId, issue.employeeName);
+            longLines.set((int) issue.employeeId);
+            excessiveManagers += issue.excessiveManagers;
+        }
+
+        @Override
+        public void cyclicReportingLine(OrgAnalyzer.HierarchyIssue issue) {
+            hierarchyIssues++;
+        }
+
+        @Override
+        public void orphanedEmployee(OrgAnalyzer.HierarchyIssue issue) {
+            hierarchyIssues++;
+        }
+
+        private void checkName(long id, String name) {
+            if (!name.equals(names.fullName(id))) {
+                fail("Employee " + id + " reported as " + name);
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import orgReport.OrgAnalyzerService;
+import orgReport.OrgMetrics;
+
+class OrgAnalyzerServiceTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @Timeout(60)
+    void testService_servesReportAndHotReloadsWithoutBlockingReaders() throws Exception {
+        Path csv = tempDir.resolve("employees.csv");
+        // Mgr earns less than 120% of the subordinate average
+        Files.writeString(csv, "1,Ceo,One,200000,\n2,Mgr,Two,50000,1\n3,Sub,Three,50000,2\n");
+        ObjectName mbean = new ObjectName(OrgMetrics.DEFAULT_OBJECT_NAME);
+
+        try (OrgAnalyzerService service = new OrgAnalyzerService(csv, 0)) {
+            service.start();
+            assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(mbean));
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            String base = "http://localhost:" + service.port();
+
+            HttpResponse<String> csvReport = get(client, base + "/report?format=csv");
+            assertEquals(200, csvReport.statusCode());
+            assertTrue(csvReport.body().contains("low_salary,2,Mgr Two,"), csvReport.body());
+            assertTrue(get(client, base + "/report").body().contains("MANAGERS EARNING LESS THAN REQUIRED"));
+            assertTrue(get(client, base + "/status").body().contains("\"generation\":1,"));
+            assertEquals(400, get(client, base + "/report?format=xml").statusCode());
+            String before = get(client, base + "/report?format=jsonl").body();
+
+            // Many concurrent readers while the file changes underneath them
+            List<CompletableFuture<HttpResponse<String>>> requests = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                requests.add(client.sendAsync(HttpRequest.newBuilder(URI.create(base + "/report?format=jsonl")).build(),
+                        HttpResponse.BodyHandlers.ofString()));
+                if (i == 100) {
+                    Files.writeString(csv, "1,Ceo,One,200000,\n2,Mgr,Two,70000,1\n3,Sub,Three,50000,2\n");
+                }
+            }
+            while (service.generation() < 2) {
+                Thread.sleep(20);
+            }
+            String after = get(client, base + "/report?format=jsonl").body();
+            assertTrue(service.currentReport().lowEarningManagers.isEmpty());
+            assertNotEquals(before, after);
+            // Every reader saw one complete report, either the old or the new one
+            for (CompletableFuture<HttpResponse<String>> request : requests) {
+                HttpResponse<String> response = request.join();
+                assertEquals(200, response.statusCode());
+                assertTrue(response.body().equals(before) || response.body().equals(after), response.body());
+            }
+
+            // No issues left: an empty body
+            Files.writeString(csv, "1,Ceo,One,100000,\n2,Mgr,Two,70000,1\n3,Sub,Three,50000,2\n");
+            service.reload();
+            HttpResponse<String> empty = get(client, base + "/report?format=jsonl");
+            assertEquals(200, empty.statusCode());
+            assertEquals("", empty.body());
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(mbean));
+    }
+
+    @Test
+    void testService_failedStartLeavesNoMBeanBehind() throws Exception {
+        ObjectName mbean = new ObjectName(OrgMetrics.DEFAULT_OBJECT_NAME);
+        assertThrows(java.io.IOException.class, () -> new OrgAnalyzerService(tempDir.resolve("missing.csv"), 0));
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(mbean));
+    }
+
+    @Test
+    @Timeout(60)
+    void testService_failedStartOnABusyPortLeavesTheRunningServiceAlone() throws Exception {
+        Path csv = tempDir.resolve("employees.csv");
+        Files.writeString(csv, "1,Ceo,One,100000,\n2,Mgr,Two,70000,1\n");
+        ObjectName mbean = new ObjectName(OrgMetrics.DEFAULT_OBJECT_NAME);
+        try (OrgAnalyzerService service = new OrgAnalyzerService(csv, 0)) {
+            service.start();
+            assertThrows(java.io.IOException.class, () -> new OrgAnalyzerService(csv, service.port()));
+            assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(mbean));
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            assertEquals(200, get(client, "http://localhost:" + service.port() + "/status").statusCode());
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(mbean));
+    }
+
+    @Test
+    void testMetrics_unregisterLeavesANameTakenOverByAnotherInstance() throws Exception {
+        String name = "orgReport:type=OrgMetrics,name=takeover";
+        ObjectName mbean = new ObjectName(name);
+        OrgMetrics first = new OrgMetrics();
+        OrgMetrics second = new OrgMetrics();
+        first.register(name);
+        second.register(name);
+        first.unregister(name);
+        assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(mbean));
+        second.unregister(name);
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(mbean));
+    }
+
+    private static HttpResponse<String> get(HttpClient client, String uri) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create(uri)).build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -3,16 +3,30 @@
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.*;
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.*;
 import java.nio.file.*;
 import java.util.*;
+import javax.management.*;
 
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import orgReport.Diagnostics;
 import orgReport.Employee;
+import orgReport.EmployeeCsvParser;
+import orgReport.ExternalOrgAnalyzer;
+import orgReport.MappedCsvLoader;
 import orgReport.OrgAnalyzer;
+import orgReport.OrgGraph;
+import orgReport.OrgMetrics;
 import orgReport.OrgReport;
+import orgReport.ParallelCsvLoader;
+import orgReport.PipelinedCsvLoader;
+import orgReport.RuleEngine;
 
 class OrgAnalyzerTest {
+    @TempDir
+    Path tempDir;
 
     private OrgAnalyzer analyzer;
 
@@ -56,23 +70,305 @@ class OrgAnalyzerTest {
         assertFalse(e5.getManagerId().isPresent());
     }
 
+    @Test
+    void testReadMappedFile_matchesReadData() throws Exception {
+        String data = ""
+                + "# comment\n"
+                + "\r\n"
+                + "1,John,Smith,100000,\r\n"
+                + "2,Jane,Doe,80000,1\n"
+                + "3,Bob,Lee,notNum,1\n"
+                + "4,Alice,Wong,90000,1,extra\n"
+                + "5, Tom , Hanks ,60000, \n"
+                + "6,Zoë,Ünal,-5,+2";   // no trailing newline
+        Path temp = tempDir.resolve("employees.csv");
+        Files.write(temp, data.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+
+        analyzer.readMappedFile(temp);
+        OrgAnalyzer expected = new OrgAnalyzer();
+        expected.readData(new BufferedReader(new StringReader(data)));
+
+        Map<Long, Employee> map = getEmployeeMap(analyzer);
+        Map<Long, Employee> expectedMap = getEmployeeMap(expected);
+        assertEquals(expectedMap.keySet(), map.keySet());
+        for (Employee e : expectedMap.values()) {
+            Employee actual = map.get(e.getId());
+            assertEquals(e.getFirstName(), actual.getFirstName());
+            assertEquals(e.getLastName(), actual.getLastName());
+            assertEquals(e.getSalary(), actual.getSalary());
+            assertEquals(e.getManagerId(), actual.getManagerId());
+        }
+        assertEquals("Tom", map.get(5L).getFirstName());
+        assertEquals("Zoë", map.get(6L).getFirstName());
+    }
+
+    @Test
+    void testParallelCsvLoader_sameEmployeesAndWarningsInFileOrder() throws Exception {
+        StringBuilder data = new StringBuilder("# header\n");
+        for (int i = 1; i <= 2000; i++) {
+            if (i % 97 == 0) {
+                data.append(i).append(",Bad,Number,x").append(i).append(",1\n");
+            } else if (i % 89 == 0) {
+                data.append(i).append(",Too,Many,1,1,1\n");
+            } else {
+                data.append(i).append(",First").append(i).append(",Last,").append(1000 + i).append(',')
+                        .append(i == 1 ? "" : String.valueOf(i / 2)).append('\n');
+            }
+        }
+        Path temp = tempDir.resolve("employees.csv");
+        Files.writeString(temp, data);
+
+        List<String> expectedWarnings = new ArrayList<>();
+        Map<Long, Employee> expected = new LinkedHashMap<>();
+        new MappedCsvLoader().load(temp, new EmployeeCsvParser.Visitor() {
+            public void onRecord(EmployeeCsvParser.Record r) {
+                expected.put(r.id, r.toEmployee());
+            }
+
+            public void onMalformed(EmployeeCsvParser.Problem p, EmployeeCsvParser.Record r) {
+                expectedWarnings.add(p + ":" + r.lineNumber + ":" + r.line());
+            }
+        });
+
+        for (int threads : new int[]{1, 3, 8}) {
+            List<String> warnings = new ArrayList<>();
+            List<Long> order = new ArrayList<>();
+            Map<Long, Employee> actual = new HashMap<>();
+            // Tiny chunks so every worker gets several ranges
+            new ParallelCsvLoader(threads, 256).load(temp, e -> {
+                order.add(e.getId());
+                actual.put(e.getId(), e);
+            }, (p, number, line) -> warnings.add(p + ":" + number + ":" + line));
+
+            assertEquals(expectedWarnings, warnings);
+            assertEquals(new ArrayList<>(expected.keySet()), order);
+            for (Employee e : expected.values()) {
+                assertEquals(e.getManagerId(), actual.get(e.getId()).getManagerId());
+                assertEquals(e.getSalary(), actual.get(e.getId()).getSalary());
+                assertEquals(e.getFirstName(), actual.get(e.getId()).getFirstName());
+            }
+        }
+    }
+
+    @Test
+    void testPipelinedCsvLoader_linksLikeBuildHierarchy() throws Exception {
+        // Managers mostly appear after their subordinates, so linking relies on the pending table
+        StringBuilder data = new StringBuilder();
+        for (int i = 1500; i >= 1; i--) {
+            if (i % 101 == 0) {
+                data.append(i).append(",Bad,Number,x,1\n");
+            } else {
+                data.append(i).append(",F").append(i).append(",L,").append(1000 + i).append(',')
+                        .append(i == 1 ? "" : String.valueOf(i / 3 + 1)).append('\n');
+            }
+        }
+        data.append("77,Dup,Row,5000,1\n").append("9000,Lost,Manager,5000,8888");
+        Path temp = tempDir.resolve("employees.csv");
+        Files.writeString(temp, data);
+
+        OrgAnalyzer expected = new OrgAnalyzer();
+        expected.readMappedFile(temp);
+        expected.buildHierarchy();
+        List<String> expectedWarnings = new ArrayList<>();
+        new MappedCsvLoader().load(temp, new EmployeeCsvParser.Visitor() {
+            public void onRecord(EmployeeCsvParser.Record r) {
+            }
+
+            public void onMalformed(EmployeeCsvParser.Problem p, EmployeeCsvParser.Record r) {
+                expectedWarnings.add(p + ":" + r.lineNumber + ":" + r.line());
+            }
+        });
+
+        for (int threads : new int[]{1, 4}) {
+            Map<Long, Employee> actual = new HashMap<>();
+            List<String> warnings = new ArrayList<>();
+            // Tiny batches so lines queue up across many batches and parsers
+            Employee ceo = new PipelinedCsvLoader(threads, 64).load(temp, actual, (p, number, line) -> warnings.add(p + ":" + number + ":" + line));
+
+            assertEquals(expectedWarnings, warnings);
+            assertEquals(expected.ceo().getId(), ceo.getId());
+            assertEquals(expected.employees().keySet(), actual.keySet());
+            for (Employee e : expected.employees().values()) {
+                Employee a = actual.get(e.getId());
+                assertEquals(e.getFirstName(), a.getFirstName());
+                assertEquals(e.getManagerId(), a.getManagerId());
+                assertEquals(ids(e.getSubordinates()), ids(a.getSubordinates()));
+                for (Employee sub : a.getSubordinates()) {
+                    assertSame(sub, actual.get(sub.getId()));
+                }
+            }
+
+            // The path readPipelined() takes: rows go into the graph builder and are linked as they arrive
+            warnings.clear();
+            Diagnostics diagnostics = new Diagnostics();
+            PipelinedCsvLoader loader = new PipelinedCsvLoader(threads, 64);
+            OrgGraph graph = loader.loadGraph(temp, (p, number, line) -> warnings.add(p + ":" + number + ":" + line), diagnostics);
+
+            assertEquals(expectedWarnings, warnings);
+            assertEquals(expected.ceo().getId(), graph.id(graph.ceo()));
+            long missing = expected.employees().values().stream()
+                    .filter(e -> e.getManagerId().isPresent() && !expected.employees().containsKey(e.getManagerId().get())).count();
+            assertEquals(missing, loader.missingManagers());
+            assertEquals(missing, diagnostics.count(Diagnostics.Code.MISSING_MANAGER));
+            Map<Long, Employee> linked = graph.toEmployeeMap();
+            assertEquals(new ArrayList<>(expected.employees().keySet()), new ArrayList<>(linked.keySet()));
+            for (Employee e : expected.employees().values()) {
+                Employee a = linked.get(e.getId());
+                assertEquals(e.getFirstName(), a.getFirstName());
+                assertEquals(e.getManagerId(), a.getManagerId());
+                assertEquals(ids(e.getSubordinates()), ids(a.getSubordinates()));
+            }
+        }
+    }
+
+    @Test
+    void testPipelinedCsvLoader_failsInsteadOfHangingWhenAStageThrows() {
+        byte[] rows = "1,Ceo,One,100000,\n2,Mgr,Two,60000,1\n".repeat(100).getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        for (Throwable failure : new Throwable[]{new OutOfMemoryError("test"), new IllegalStateException("test"), new IOException("test")}) {
+            // Delivers a few batches, then the reader's next read fails
+            java.nio.channels.ReadableByteChannel channel = new java.nio.channels.ReadableByteChannel() {
+                int reads;
+
+                public int read(java.nio.ByteBuffer dst) throws IOException {
+                    if (++reads > 3) {
+                        if (failure instanceof IOException io) {
+                            throw io;
+                        }
+                        if (failure instanceof Error error) {
+                            throw error;
+                        }
+                        throw (RuntimeException) failure;
+                    }
+                    int n = Math.min(dst.remaining(), 64);
+                    dst.put(rows, 0, n);
+                    return n;
+                }
+
+                public boolean isOpen() {
+                    return true;
+                }
+
+                public void close() {
+                }
+            };
+            Throwable thrown = assertTimeoutPreemptively(java.time.Duration.ofSeconds(10), () -> assertThrows(Throwable.class,
+                    () -> new PipelinedCsvLoader(3, 64).loadGraph(channel, "failing", (p, n, line) -> { }, new Diagnostics())));
+            assertSame(failure, thrown);
+        }
+    }
+
+    private static Set<Long> ids(List<Employee> employees) {
+        Set<Long> ids = new TreeSet<>();
+        employees.forEach(e -> ids.add(e.getId()));
+        return ids;
+    }
+
+    @Test
+    void testMetrics_countRowsSkipsPhasesAndIssues() throws Exception {
+        Path temp = tempDir.resolve("employees.csv");
+        Files.writeString(temp, "1,Ceo,One,100000,\n2,Mgr,Two,50000,1\n3,Sub,Three,60000,2\n"
+                + "4,Bad,Salary,lots,1\n5,Too,Many,1,1,1\n6,Lost,Six,40000,99\n");
+        for (boolean pipelined : new boolean[]{false, true}) {
+            OrgAnalyzer a = new OrgAnalyzer();
+            if (pipelined) {
+                a.readPipelined(temp);
+            } else {
+                a.readMappedFile(temp);
+                a.buildHierarchy();
+            }
+            OrgReport report = a.analyzeStructure();
+            OrgMetrics m = a.metrics;
+
+            assertEquals(4, m.getRowsParsed());
+            assertEquals(Files.size(temp), m.getBytesRead());
+            assertEquals(1, m.skippedCount(EmployeeCsvParser.Problem.FIELD_COUNT));
+            assertEquals(1, m.skippedCount(EmployeeCsvParser.Problem.NUMBER_FORMAT));
+            assertEquals(1, m.getMissingManagers());
+            assertEquals(2, m.getPeakDepth());
+            assertEquals(report.lowEarningManagers.size(), m.issueCount(OrgMetrics.Issue.LOW_SALARY));
+            assertEquals(1, m.issueCount(OrgMetrics.Issue.ORPHANED_EMPLOYEE));
+            assertEquals(1, m.phaseCalls(OrgMetrics.Phase.READ));
+            assertEquals(pipelined ? 0 : 1, m.phaseCalls(OrgMetrics.Phase.LINK));
+            assertEquals(1, m.phaseCalls(OrgMetrics.Phase.SALARY_CHECK));
+            assertTrue(m.phaseNanos(OrgMetrics.Phase.ANALYZE) > 0);
+            assertTrue(m.getSummaryJson().contains("\"skippedLines\":{\"fieldCount\":1,\"numberFormat\":1}"), m.getSummaryJson());
+
+            // Same counters through JMX
+            m.register("orgReport:type=OrgMetrics,name=test");
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            assertEquals(4L, server.getAttribute(new ObjectName("orgReport:type=OrgMetrics,name=test"), "RowsParsed"));
+        }
+    }
+
+    @Test
+    void testDiagnostics_countAllSampleFirstAndAttachToReport() throws Exception {
+        StringBuilder data = new StringBuilder("# header\n1,Ceo,One,100000,\n");
+        for (int i = 2; i <= 40; i++) {
+            data.append(i).append(",Bad,Salary,x,1\n"); // lines 3..41
+        }
+        data.append("50,Lost,Manager,40000,99\n60,Second,Root,40000,\n");
+        Path temp = tempDir.resolve("employees.csv");
+        Files.writeString(temp, data);
+        for (boolean pipelined : new boolean[]{false, true}) {
+            OrgAnalyzer a = new OrgAnalyzer();
+            a.diagnostics = new Diagnostics(16, 5);
+            a.ingestThreads = 2;
+            if (pipelined) {
+                a.readPipelined(temp);
+            } else {
+                a.readMappedFile(temp);
+                a.buildHierarchy();
+            }
+            OrgReport report = a.analyzeStructure();
+
+            Diagnostics d = report.diagnostics;
+            assertNotSame(a.diagnostics, d);
+            // Analyzing again finds the same broken chains instead of adding them up, and leaves the first report alone
+            OrgReport again = a.analyzeStructure();
+            a.analyzeRules(RuleEngine.defaultRules());
+            assertEquals(2, again.diagnostics.count(Diagnostics.Code.BROKEN_CHAIN));
+            assertEquals(2, a.diagnostics.count(Diagnostics.Code.BROKEN_CHAIN));
+            assertEquals(43, a.diagnostics.total());
+            assertEquals(39, d.count(Diagnostics.Code.NUMBER_FORMAT));
+            assertEquals(1, d.count(Diagnostics.Code.MISSING_MANAGER));
+            assertEquals(1, d.count(Diagnostics.Code.MULTIPLE_CEOS));
+            assertEquals(2, d.count(Diagnostics.Code.BROKEN_CHAIN));
+            List<Diagnostics.Entry> samples = d.samples(Diagnostics.Code.NUMBER_FORMAT);
+            assertEquals(5, samples.size());
+            assertEquals(3, samples.get(0).line());
+            assertEquals("2,Bad,Salary,x,1", samples.get(0).text());
+            assertEquals(7, samples.get(4).line());
+            assertEquals(99, d.samples(Diagnostics.Code.MISSING_MANAGER).get(0).detail());
+            // The ring keeps only the latest records
+            assertEquals(16, d.recent().size());
+            assertEquals(Diagnostics.Code.BROKEN_CHAIN, d.recent().get(15).code());
+
+            ByteArrayOutputStream err = new ByteArrayOutputStream();
+            d.print(new PrintStream(err, true));
+            String printed = err.toString();
+            assertTrue(printed.contains("Warning: Skipping line due to invalid number format: 2,Bad,Salary,x,1 (line 3)"), printed);
+            assertTrue(printed.contains("Warning: 34 more lines with an invalid number not shown (39 in total)."), printed);
+            assertFalse(printed.contains("7,Bad,Salary"));
+        }
+    }
+
     @Test
     void testReadEmployeesFromFile_fallbackToFilesystem() throws Exception {
         // Create a temporary employees.csv in working dir
-        Path temp = Files.createTempFile("employees", ".csv");
+        Path temp = tempDir.resolve("employees.csv");
         String content = "1,John,Smith,50000,\n";
         Files.write(temp, content.getBytes());
         Path dest = Paths.get("").toAbsolutePath().resolve("employees.csv");
         Files.copy(temp, dest, StandardCopyOption.REPLACE_EXISTING);
+        try {
+            analyzer.readEmployeesFromFile();
 
-        analyzer.readEmployeesFromFile();
-
-        Map<Long, Employee> map = getEmployeeMap(analyzer);
-        assertTrue(map.containsKey(1L));
-
-        // cleanup
-        Files.deleteIfExists(dest);
-        Files.deleteIfExists(temp);
+            Map<Long, Employee> map = getEmployeeMap(analyzer);
+            assertTrue(map.containsKey(1L));
+        } finally {
+            // cleanup
+            Files.deleteIfExists(dest);
+        }
     }
 
     @Test
@@ -230,11 +526,198 @@ class OrgAnalyzerTest {
         assertEquals(0, report2.longReportingLines.size());
     }
 
+    @Test
+    @Timeout(10)
+    void testAnalyzeStructure_cyclesAndOrphansAreReported() {
+        // 1 is CEO; 2 -> 3 -> 4 -> 2 is a cycle with 5 hanging below it; 6 reports to a missing manager
+        putEmployee(analyzer, new Employee(1, "CEO", "X", 200000.0, Optional.empty()));
+        putEmployee(analyzer, new Employee(2, "Cy", "A", 50000.0, Optional.of(4L)));
+        putEmployee(analyzer, new Employee(3, "Cy", "B", 50000.0, Optional.of(2L)));
+        putEmployee(analyzer, new Employee(4, "Cy", "C", 50000.0, Optional.of(3L)));
+        putEmployee(analyzer, new Employee(5, "Under", "Cycle", 40000.0, Optional.of(3L)));
+        putEmployee(analyzer, new Employee(6, "Lost", "D", 40000.0, Optional.of(99L)));
+        putEmployee(analyzer, new Employee(7, "Ok", "E", 40000.0, Optional.of(1L)));
+
+        analyzer.buildHierarchy();
+        OrgReport report = analyzer.analyzeStructure();
+
+        Set<Long> cyclic = new HashSet<>();
+        report.cyclicReportingLines.forEach(i -> cyclic.add(i.employeeId));
+        Set<Long> orphaned = new HashSet<>();
+        report.orphanedEmployees.forEach(i -> orphaned.add(i.employeeId));
+        assertEquals(Set.of(2L, 3L, 4L), cyclic);
+        assertEquals(Set.of(5L, 6L), orphaned);
+        assertTrue(report.longReportingLines.isEmpty());
+
+        // The single-employee check must terminate too
+        OrgReport single = new OrgReport();
+        analyzer.checkReportingLineLength(getEmployeeMap(analyzer).get(3L), single);
+        assertEquals(1, single.cyclicReportingLines.size());
+    }
+
     @Test
     void testMain_noThrow() {
         assertDoesNotThrow(() -> OrgAnalyzer.main(new String[0]));
     }
 
+    @Test
+    void testMultipleRoots_everyLoadPathPicksTheFirstRootInFileOrder() throws Exception {
+        // 47 appears first (as a report of 70) and becomes a root in its last row; HashMap order would put 900 first
+        StringBuilder data = new StringBuilder("# header\n47,Early,Root,150000,70\n70,First,Row,100000,\n")
+                .append("5,Second,Row,90000,\n900,Third,Row,80000,\n11,Under,Seventy,40000,70\n12,Under,Five,40000,5\n");
+        for (int id = 21, manager = 47; id <= 27; manager = id++) {
+            data.append(id).append(",Chain,Link,60000,").append(manager).append('\n');
+        }
+        data.append("47,Early,Root,150000,\n");
+        Path csv = tempDir.resolve("roots.csv");
+        Files.writeString(csv, data);
+        Path gz = tempDir.resolve("roots.csv.gz");
+        try (OutputStream out = new java.util.zip.GZIPOutputStream(Files.newOutputStream(gz))) {
+            out.write(data.toString().getBytes());
+        }
+
+        OrgAnalyzer reader = new OrgAnalyzer();
+        try (BufferedReader br = Files.newBufferedReader(csv)) {
+            reader.readData(br);
+        }
+        reader.buildHierarchy();
+        assertEquals(47L, reader.ceo().getId());
+        String expected = outcome(47L, reader.analyzeStructure(), reader.diagnostics);
+        assertTrue(expected.contains("long=[26, 27]"), expected);
+        reader.saveSnapshot(tempDir.resolve("roots.snapshot"));
+
+        Map<String, String> outcomes = new LinkedHashMap<>();
+        for (String path : new String[]{"mapped", "parallel", "pipelined", "pipelinedParallel", "gzip", "snapshot"}) {
+            OrgAnalyzer a = new OrgAnalyzer();
+            a.ingestThreads = path.endsWith("arallel") ? 3 : 1;
+            switch (path) {
+                case "pipelined", "pipelinedParallel" -> a.readPipelined(csv);
+                case "snapshot" -> a.loadSnapshot(tempDir.resolve("roots.snapshot"));
+                default -> {
+                    a.readMappedFile(path.equals("gzip") ? gz : csv);
+                    a.buildHierarchy();
+                }
+            }
+            outcomes.put(path, outcome(a.ceo().getId(), a.analyzeStructure(), a.diagnostics));
+        }
+        Diagnostics graphDiagnostics = new Diagnostics();
+        OrgGraph graph = OrgGraph.fromCsv(csv, graphDiagnostics);
+        OrgAnalyzer graphAnalyzer = new OrgAnalyzer();
+        graphAnalyzer.diagnostics = graphDiagnostics;
+        outcomes.put("graph", outcome(graph.id(graph.ceo()), graphAnalyzer.analyzeStructure(graph), graphDiagnostics));
+        ExternalOrgAnalyzer external = new ExternalOrgAnalyzer(ExternalOrgAnalyzer.DEFAULT_MEMORY_BUDGET, tempDir);
+        OrgReport externalReport = new OrgReport();
+        external.analyze(csv, externalReport);
+        long externalCeo = external.diagnostics.samples(Diagnostics.Code.MULTIPLE_CEOS).get(0).detail();
+        outcomes.put("external", outcome(externalCeo, externalReport, external.diagnostics));
+
+        outcomes.forEach((path, actual) -> assertEquals(expected, actual, path));
+    }
+
+    @Test
+    void testLoadHierarchy_buildsTheGraphFromRecordsAndCreatesEmployeesOnDemand() throws Exception {
+        StringBuilder data = new StringBuilder("# header\n");
+        for (int i = 1; i <= 3_000; i++) {
+            long manager = i == 1 ? 0 : Math.max(1, i - 1 - (i * 7919L) % 8);
+            data.append(i).append(",First").append(i).append(",Last").append(i).append(',').append(30_000 + (i * 104_729L) % 150_000)
+                    .append(',').append(i == 1 ? "" : String.valueOf(manager)).append('\n');
+        }
+        data.append("5000,Lost,Manager,40000,99999\n5001,Bad,Salary,x,1\n2,Repeated,Row,90000,1\n");
+        Path csv = tempDir.resolve("employees.csv");
+        Files.writeString(csv, data);
+
+        OrgAnalyzer reference = new OrgAnalyzer();
+        try (BufferedReader br = Files.newBufferedReader(csv)) {
+            reference.readData(br);
+        }
+        reference.buildHierarchy();
+        String expected = issues(reference.analyzeStructure());
+
+        for (boolean pipelined : new boolean[]{true, false}) {
+            for (int threads : new int[]{1, 3}) {
+                OrgAnalyzer a = new OrgAnalyzer();
+                a.useSnapshot = false;
+                a.pipelinedLoad = pipelined;
+                a.ingestThreads = threads;
+                a.loadHierarchy(csv);
+                OrgGraph graph = a.graph();
+                assertEquals(expected, issues(a.analyzeStructure()));
+                assertEquals(1, a.diagnostics.count(Diagnostics.Code.MISSING_MANAGER));
+                assertEquals(1, a.metrics.getMissingManagers());
+                // Analyzing again reuses the graph, and no Employee was created for it
+                a.analyzeStructure();
+                assertSame(graph, a.graph());
+                assertFalse(employeesCreated(a));
+
+                Map<Long, Employee> employees = a.employees();
+                assertEquals(new ArrayList<>(reference.employees().keySet()), new ArrayList<>(employees.keySet()));
+                for (Employee e : reference.employees().values()) {
+                    Employee m = employees.get(e.getId());
+                    assertEquals(e.getFullName(), m.getFullName());
+                    assertEquals(e.getSalary(), m.getSalary());
+                    assertEquals(e.getManagerId(), m.getManagerId()); // 99999 included
+                    assertEquals(ids(e.getSubordinates()), ids(m.getSubordinates()));
+                }
+                assertSame(employees.get(1L), a.ceo());
+                assertSame(graph, a.graph());
+            }
+        }
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void testEmployeeMap_publicFieldsFollowTheLoadedGraphAndEditsReachTheAnalysis() throws Exception {
+        Path csv = tempDir.resolve("employees.csv");
+        Files.writeString(csv, "1,Ceo,One,70000,\n2,Mgr,Two,50000,1\n3,Sub,Three,50000,2\n");
+        OrgAnalyzer a = new OrgAnalyzer();
+        a.useSnapshot = false;
+        a.loadHierarchy(csv);
+        OrgGraph graph = a.graph();
+        assertNull(a.ceo);
+        // The public map is the lazy view: reading it creates the employees and sets the field
+        assertSame(a.employees(), a.employeeMap);
+        assertEquals(List.of(1L, 2L, 3L), new ArrayList<>(a.employeeMap.keySet()));
+        assertSame(a.employeeMap.get(1L), a.ceo);
+        assertSame(graph, a.graph());
+        assertTrue(a.analyzeStructure().orphanedEmployees.isEmpty());
+
+        // A new employee under a manager who is not in the dataset: the next analysis rebuilds the graph
+        a.employeeMap.put(4L, new Employee(4, "New", "Hire", 40_000.0, Optional.of(99L)));
+        OrgReport report = a.analyzeStructure();
+        assertNotSame(graph, a.graph());
+        assertEquals(List.of(4L), report.orphanedEmployees.stream().map(issue -> issue.employeeId).toList());
+        a.employeeMap.values().removeIf(e -> e.getId() == 4L);
+        assertTrue(a.analyzeStructure().orphanedEmployees.isEmpty());
+
+        // Employees changed in place are only seen after an explicit invalidation
+        OrgGraph rebuilt = a.graph();
+        assertSame(rebuilt, a.graph());
+        a.invalidateCaches();
+        assertNotSame(rebuilt, a.graph());
+    }
+
+    private static String issues(OrgReport report) {
+        report.sortById();
+        return report.lowEarningManagers + " " + report.highEarningManagers + " " + report.longReportingLines + " "
+                + report.cyclicReportingLines + " " + report.orphanedEmployees;
+    }
+
+    // CEO, the other roots and the ids of the reporting-line issues, which all depend on which root is the CEO
+    private static String outcome(long ceo, OrgReport report, Diagnostics diagnostics) {
+        report.sortById();
+        List<Long> otherRoots = new ArrayList<>();
+        for (Diagnostics.Entry entry : diagnostics.samples(Diagnostics.Code.MULTIPLE_CEOS)) {
+            assertEquals(ceo, entry.detail());
+            otherRoots.add(entry.id());
+        }
+        Collections.sort(otherRoots);
+        List<Long> orphaned = new ArrayList<>();
+        report.orphanedEmployees.forEach(issue -> orphaned.add(issue.employeeId));
+        List<Long> longLines = new ArrayList<>();
+        report.longReportingLines.forEach(issue -> longLines.add(issue.employeeId));
+        return "ceo=" + ceo + " otherRoots=" + otherRoots + " orphaned=" + orphaned + " long=" + longLines;
+    }
+
     // --- Helpers using reflection ---
 
     @SuppressWarnings("unchecked")
@@ -248,6 +731,16 @@ class OrgAnalyzerTest {
         }
     }
 
+    private boolean employeesCreated(OrgAnalyzer a) {
+        try {
+            Field f = OrgAnalyzer.class.getDeclaredField("unmaterialized");
+            f.setAccessible(true);
+            return f.get(a) == null;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     private void putEmployee(OrgAnalyzer a, Employee e) {
         getEmployeeMap(a).put(e.getId(), e);
     }
@@ -0,0 +1,325 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import orgReport.Diagnostics;
+import orgReport.Employee;
+import orgReport.LongIntIndex;
+import orgReport.OrgAnalyzer;
+import orgReport.OrgGraph;
+import orgReport.OrgReport;
+import orgReport.ReportingDepths;
+import orgReport.SubordinateStats;
+import orgReport.SubtreeQueryEngine;
+
+class OrgGraphTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testLongIntIndex_putGetResize() {
+        LongIntIndex index = new LongIntIndex(2);
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(LongIntIndex.ABSENT, index.put(i * 7919L - 5_000_000L, i));
+        }
+        assertEquals(10_000, index.size());
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i, index.get(i * 7919L - 5_000_000L));
+        }
+        assertEquals(LongIntIndex.ABSENT, index.get(1L));
+        assertEquals(3, index.put(3 * 7919L - 5_000_000L, 42));
+        assertEquals(42, index.get(3 * 7919L - 5_000_000L));
+        assertEquals(10_000, index.size());
+    }
+
+    @Test
+    void testOf_linksChildrenAndCeo() {
+        OrgAnalyzer analyzer = new OrgAnalyzer();
+        analyzer.employees().putAll(randomOrg(50, 1));
+        analyzer.buildHierarchy();
+        OrgGraph graph = OrgGraph.of(analyzer.employees(), analyzer.ceo());
+
+        assertEquals(analyzer.employees().size(), graph.size());
+        assertEquals(analyzer.ceo().getId(), graph.id(graph.ceo()));
+        for (Employee e : analyzer.employees().values()) {
+            int i = graph.indexOf(e.getId());
+            assertEquals(e.getSubordinates().size(), graph.childCount(i));
+            for (int k = graph.childStart(i); k < graph.childEnd(i); k++) {
+                assertEquals(i, graph.manager(graph.childAt(k)));
+            }
+        }
+        Map<Long, Employee> view = graph.toEmployeeMap();
+        assertEquals(analyzer.employees().keySet(), view.keySet());
+        assertEquals(analyzer.ceo().getSubordinates().size(), view.get(analyzer.ceo().getId()).getSubordinates().size());
+    }
+
+    @Test
+    void testBuilder_linksForwardReferencesAndReplacedRowsOnArrival() {
+        OrgGraph.Builder builder = new OrgGraph.Builder();
+        builder.add(3, "Sub", "Three", 40_000, true, 2);  // waits for 2
+        builder.add(4, "Sub", "Four", 40_000, true, 9);   // waits for 9, then moves to 2
+        builder.add(4, "Sub", "Four", 45_000, true, 2);
+        builder.add(5, "Lost", "Five", 40_000, true, 99); // never resolved
+        builder.add(2, "Mgr", "Two", 60_000, true, 1);
+        builder.add(9, "Late", "Nine", 50_000, true, 1);  // must not take 4 back
+        builder.add(1, "Ceo", "One", 100_000, false, 0);
+        Diagnostics diagnostics = new Diagnostics();
+        OrgGraph graph = builder.build(diagnostics);
+
+        assertEquals(1, graph.id(graph.ceo()));
+        int mgr = graph.indexOf(2);
+        assertEquals(mgr, graph.manager(graph.indexOf(3)));
+        assertEquals(mgr, graph.manager(graph.indexOf(4)));
+        assertEquals(List.of(3L, 4L), List.of(graph.id(graph.childAt(graph.childStart(mgr))), graph.id(graph.childAt(graph.childStart(mgr) + 1))));
+        assertEquals(0, graph.childCount(graph.indexOf(9)));
+        assertEquals(OrgGraph.MISSING_MANAGER, graph.manager(graph.indexOf(5)));
+        assertEquals(99, graph.missingManagerId(graph.indexOf(5)));
+        assertEquals(1, diagnostics.count(Diagnostics.Code.MISSING_MANAGER));
+    }
+
+    @Test
+    void testAnalyzeStructure_graphMatchesEmployeeChecks() throws Exception {
+        OrgAnalyzer analyzer = new OrgAnalyzer();
+        analyzer.employees().putAll(randomOrg(2_000, 7));
+        analyzer.buildHierarchy();
+
+        // Reference: the per-Employee checks applied in map order
+        OrgReport expected = new OrgReport();
+        for (Employee e : analyzer.employees().values()) {
+            if (e.isManager()) {
+                analyzer.checkSalaryCompliance(e, expected);
+            }
+        }
+        for (Employee e : analyzer.employees().values()) {
+            if (e != analyzer.ceo()) {
+                analyzer.checkReportingLineLength(e, expected);
+            }
+        }
+        assertFalse(expected.longReportingLines.isEmpty());
+
+        assertSameReport(expected, analyzer.analyzeStructure());
+
+        // Loading the CSV directly into a graph must give the same issues (row order == id order here)
+        Path csv = tempDir.resolve("employees.csv");
+        StringBuilder sb = new StringBuilder();
+        for (Employee e : new TreeMap<>(analyzer.employees()).values()) {
+            sb.append(e.getId()).append(',').append(e.getFirstName()).append(',').append(e.getLastName()).append(',')
+                    .append(e.getSalary().longValue()).append(',').append(e.getManagerId().map(String::valueOf).orElse("")).append('\n');
+        }
+        Files.writeString(csv, sb);
+        OrgReport fromCsv = analyzer.analyzeStructure(OrgGraph.fromCsv(csv));
+        assertEquals(expected.lowEarningManagers.size(), fromCsv.lowEarningManagers.size());
+        assertEquals(expected.highEarningManagers.size(), fromCsv.highEarningManagers.size());
+        assertEquals(expected.longReportingLines.size(), fromCsv.longReportingLines.size());
+    }
+
+    @Test
+    void testReportingDepths_deepChainInLinearTime() {
+        int n = 200_000;
+        OrgGraph.Builder builder = new OrgGraph.Builder();
+        // Rows listed bottom-up so the BFS order and the row order disagree
+        for (int i = n; i >= 1; i--) {
+            builder.add(i, "F", "L", 1000.0, i > 1, i - 1);
+        }
+        OrgGraph graph = builder.build();
+        ReportingDepths depths = ReportingDepths.compute(graph);
+        assertEquals(n - 1, depths.maxDepth());
+        assertEquals(0, depths.cyclicCount());
+        assertEquals(0, depths.orphanedCount());
+        for (int i = 1; i <= n; i++) {
+            assertEquals(i - 1, depths.depth(graph.indexOf(i)));
+        }
+    }
+
+    @Test
+    void testSubordinateStats_matchSubordinateLists() {
+        OrgAnalyzer analyzer = new OrgAnalyzer();
+        analyzer.employees().putAll(randomOrg(500, 3));
+        analyzer.buildHierarchy();
+        SubordinateStats stats = analyzer.subordinateStats();
+        OrgGraph graph = OrgGraph.of(analyzer.employees(), analyzer.ceo());
+        for (Employee e : analyzer.employees().values()) {
+            int i = graph.indexOf(e.getId());
+            DoubleSummaryStatistics expected = e.getSubordinates().stream().mapToDouble(Employee::getSalary).summaryStatistics();
+            assertEquals(expected.getCount(), stats.count(i));
+            if (expected.getCount() > 0) {
+                assertEquals(expected.getSum(), stats.sum(i));
+                assertEquals(expected.getMin(), stats.min(i));
+                assertEquals(expected.getMax(), stats.max(i));
+                assertEquals(expected.getAverage(), stats.average(i));
+            } else {
+                assertEquals(0.0, stats.average(i));
+            }
+        }
+    }
+
+    @Test
+    void testAnalyzeStructure_parallelMatchesSequential() {
+        OrgAnalyzer analyzer = new OrgAnalyzer();
+        analyzer.employees().putAll(randomOrg(300_000, 5));
+        analyzer.buildHierarchy();
+        OrgGraph graph = OrgGraph.of(analyzer.employees(), analyzer.ceo());
+
+        OrgReport sequential = analyzer.analyzeStructure(graph, 1);
+        assertFalse(sequential.longReportingLines.isEmpty());
+        for (int threads : new int[]{2, 4, 7}) {
+            assertSameReport(sequential, analyzer.analyzeStructure(graph, threads));
+        }
+    }
+
+    @Test
+    void testRenumbered_breadthFirstWithSameReport() {
+        OrgAnalyzer analyzer = new OrgAnalyzer();
+        analyzer.employees().putAll(randomOrg(20_000, 13));
+        analyzer.employees().put(30_001L, new Employee(30_001, "Cy", "One", 50_000.0, Optional.of(30_002L)));
+        analyzer.employees().put(30_002L, new Employee(30_002, "Cy", "Two", 50_000.0, Optional.of(30_001L)));
+        analyzer.employees().put(30_003L, new Employee(30_003, "Lost", "One", 50_000.0, Optional.of(99_999L)));
+        analyzer.employees().put(30_004L, new Employee(30_004, "Lost", "Two", 40_000.0, Optional.of(30_003L)));
+        analyzer.buildHierarchy();
+        OrgGraph graph = OrgGraph.of(analyzer.employees(), analyzer.ceo());
+        OrgGraph renumbered = graph.renumbered();
+
+        assertEquals(graph.size(), renumbered.size());
+        assertEquals(0, renumbered.ceo());
+        int next = 1;
+        for (int i = 0; i < renumbered.size(); i++) {
+            int original = graph.indexOf(renumbered.id(i));
+            assertEquals(i, renumbered.indexOf(renumbered.id(i)));
+            assertEquals(graph.salary(original), renumbered.salary(i));
+            assertEquals(graph.childCount(original), renumbered.childCount(i));
+            if (renumbered.manager(i) >= 0) {
+                assertEquals(graph.id(graph.manager(original)), renumbered.id(renumbered.manager(i)));
+            }
+            // Reachable part: children are the next consecutive indices in BFS order
+            if (i < 20_000) {
+                for (int p = renumbered.childStart(i); p < renumbered.childEnd(i); p++) {
+                    assertEquals(next++, renumbered.childAt(p));
+                }
+            }
+        }
+
+        OrgReport expected = analyzer.analyzeStructure(graph, 1).sortById();
+        OrgReport actual = analyzer.analyzeStructure(renumbered, 1).sortById();
+        assertSameReport(expected, actual);
+        assertEquals(List.of(30_001L, 30_002L), actual.cyclicReportingLines.stream().map(issue -> issue.employeeId).toList());
+        assertEquals(List.of(30_003L, 30_004L), actual.orphanedEmployees.stream().map(issue -> issue.employeeId).toList());
+    }
+
+    @Test
+    void testSubtreeQueryEngine_matchesNaiveWalks() {
+        OrgAnalyzer analyzer = new OrgAnalyzer();
+        analyzer.employees().putAll(randomOrg(3_000, 5));
+        analyzer.employees().put(5_000L, new Employee(5_000, "Lost", "One", 40_000.0, Optional.of(4_999L)));
+        analyzer.buildHierarchy();
+        OrgGraph graph = analyzer.graph();
+        SubtreeQueryEngine queries = analyzer.subtreeQueries();
+
+        assertFalse(queries.isReachable(graph.indexOf(5_000L)));
+        assertEquals(-1, queries.lowestCommonManager(graph.indexOf(5_000L), graph.ceo()));
+        for (Employee e : analyzer.employees().values()) {
+            if (e.getId() == 5_000L) {
+                continue;
+            }
+            int i = graph.indexOf(e.getId());
+            double[] payroll = {0};
+            int[] size = {0};
+            int[] maxDepth = {0};
+            walk(e, 0, payroll, size, maxDepth);
+            assertEquals(payroll[0], queries.subtreePayroll(i));
+            assertEquals(size[0], queries.subtreeSize(i));
+            assertEquals(queries.depth(i) + maxDepth[0], queries.subtreeMaxDepth(i));
+            assertEquals(maxDepth[0], queries.subtreeHeight(i));
+        }
+
+        Random random = new Random(3);
+        for (int q = 0; q < 5_000; q++) {
+            long a = 1 + random.nextInt(3_000);
+            long b = 1 + random.nextInt(3_000);
+            List<Long> chainA = chain(analyzer, a);
+            List<Long> chainB = chain(analyzer, b);
+            int ia = graph.indexOf(a);
+            int ib = graph.indexOf(b);
+            assertEquals(a != b && chainB.contains(a), queries.isInChain(ia, ib));
+            long expected = chainA.stream().filter(chainB::contains).findFirst().orElseThrow();
+            assertEquals(expected, graph.id(queries.lowestCommonManager(ia, ib)));
+        }
+    }
+
+    @Test
+    void testSubtreeQueryEngine_deepChain() {
+        int n = 200_000;
+        OrgGraph.Builder builder = new OrgGraph.Builder();
+        for (int i = 1; i <= n; i++) {
+            builder.add(i, "F", "L", 1_000, i > 1, i - 1);
+        }
+        // A second branch off the middle of the chain
+        builder.add(n + 1, "F", "L", 1_000, true, n / 2);
+        SubtreeQueryEngine queries = SubtreeQueryEngine.compute(builder.build());
+
+        assertEquals(n + 1, queries.subtreeSize(0));
+        assertEquals(n - 1, queries.subtreeHeight(0));
+        assertTrue(queries.isInChain(0, n - 1));
+        assertFalse(queries.isInChain(n - 1, 0));
+        assertEquals(n / 2 - 1, queries.lowestCommonManager(n - 1, n));
+        assertEquals(1234, queries.ancestorAtDepth(n - 1, 1234));
+    }
+
+    private static void walk(Employee e, int depth, double[] payroll, int[] size, int[] maxDepth) {
+        payroll[0] += e.getSalary();
+        size[0]++;
+        maxDepth[0] = Math.max(maxDepth[0], depth);
+        for (Employee sub : e.getSubordinates()) {
+            walk(sub, depth + 1, payroll, size, maxDepth);
+        }
+    }
+
+    // The employee followed by its managers up to the CEO
+    private static List<Long> chain(OrgAnalyzer analyzer, long id) {
+        List<Long> chain = new ArrayList<>();
+        for (Employee e = analyzer.employees().get(id); e != null; e = e.getManagerId().map(analyzer.employees()::get).orElse(null)) {
+            chain.add(e.getId());
+        }
+        return chain;
+    }
+
+    static void assertSameReport(OrgReport expected, OrgReport actual) {
+        assertSameSalaryIssues(expected.lowEarningManagers, actual.lowEarningManagers);
+        assertSameSalaryIssues(expected.highEarningManagers, actual.highEarningManagers);
+        assertEquals(expected.longReportingLines.size(), actual.longReportingLines.size());
+        for (int i = 0; i < expected.longReportingLines.size(); i++) {
+            OrgAnalyzer.ReportingLineIssue e = expected.longReportingLines.get(i);
+            OrgAnalyzer.ReportingLineIssue a = actual.longReportingLines.get(i);
+            assertEquals(e.employeeId, a.employeeId);
+            assertEquals(e.employeeName, a.employeeName);
+            assertEquals(e.actualLength, a.actualLength);
+            assertEquals(e.excessiveManagers, a.excessiveManagers);
+        }
+    }
+
+    static void assertSameSalaryIssues(List<OrgAnalyzer.ManagerSalaryIssue> expected, List<OrgAnalyzer.ManagerSalaryIssue> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).managerId, actual.get(i).managerId);
+            assertEquals(expected.get(i).managerName, actual.get(i).managerName);
+            assertEquals(expected.get(i).expectedMin, actual.get(i).expectedMin);
+            assertEquals(expected.get(i).expectedMax, actual.get(i).expectedMax);
+            assertEquals(expected.get(i).difference, actual.get(i).difference);
+        }
+    }
+
+    /**
+     * Random tree: every employee reports to an earlier one, so chains get long enough to be flagged.
+     */
+    static Map<Long, Employee> randomOrg(int size, long seed) {
+        Random random = new Random(seed);
+        Map<Long, Employee> map = new HashMap<>();
+        for (int i = 1; i <= size; i++) {
+            Optional<Long> manager = i == 1 ? Optional.empty() : Optional.of((long) Math.max(1, i - 1 - random.nextInt(8)));
+            map.put((long) i, new Employee(i, "First" + i, "Last" + i, 30_000.0 + random.nextInt(150_000), manager));
+        }
+        return map;
+    }
+}
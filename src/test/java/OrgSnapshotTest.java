@@ -0,0 +1,162 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import orgReport.Diagnostics;
+import orgReport.Employee;
+import orgReport.OrgAnalyzer;
+import orgReport.OrgMetrics;
+import orgReport.OrgReport;
+import orgReport.OrgSnapshot;
+
+class OrgSnapshotTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testSnapshot_roundTripKeepsOrderLinksAndReport() throws Exception {
+        OrgAnalyzer analyzer = new OrgAnalyzer();
+        analyzer.employees().putAll(OrgGraphTest.randomOrg(5_000, 3));
+        analyzer.employees().put(-7L, new Employee(-7, "Zoë", "Müller", 61_000.0, Optional.of(99_999L)));
+        analyzer.employees().put(Long.MAX_VALUE, new Employee(Long.MAX_VALUE, "", "Ünicode 名前", 52_000.0, Optional.of(-7L)));
+        analyzer.buildHierarchy();
+        OrgReport expected = analyzer.analyzeStructure();
+
+        Path snapshot = tempDir.resolve("employees.snapshot");
+        analyzer.saveSnapshot(snapshot);
+        OrgAnalyzer loaded = new OrgAnalyzer();
+        loaded.loadSnapshot(snapshot);
+
+        // The report comes from the mapped graph; Employee objects only exist once asked for
+        OrgReport actual = loaded.analyzeStructure();
+        OrgGraphTest.assertSameReport(expected, actual);
+        assertEquals(2, actual.orphanedEmployees.size());
+        java.lang.reflect.Field unmaterialized = OrgAnalyzer.class.getDeclaredField("unmaterialized");
+        unmaterialized.setAccessible(true);
+        assertNotNull(unmaterialized.get(loaded));
+
+        assertEquals(new ArrayList<>(analyzer.employees().keySet()), new ArrayList<>(loaded.employees().keySet()));
+        assertEquals(analyzer.ceo().getId(), loaded.ceo().getId());
+        for (Employee e : analyzer.employees().values()) {
+            Employee l = loaded.employees().get(e.getId());
+            assertEquals(e.getFirstName(), l.getFirstName());
+            assertEquals(e.getLastName(), l.getLastName());
+            assertEquals(e.getSalary(), l.getSalary());
+            assertEquals(e.getManagerId(), l.getManagerId());
+            assertEquals(e.getSubordinates().stream().map(Employee::getId).toList(),
+                    l.getSubordinates().stream().map(Employee::getId).toList());
+        }
+        OrgGraphTest.assertSameReport(expected, loaded.analyzeStructure());
+    }
+
+    @Test
+    void testLoadHierarchy_usesSnapshotOnlyForTheExactCsv() throws Exception {
+        Path dir = Files.createDirectory(tempDir.resolve("snapshot"));
+        Path csv = dir.resolve("employees.csv");
+        Path snapshot = OrgAnalyzer.snapshotPath(csv);
+        Files.writeString(csv, "1,Ceo,One,100000,\n2,Mgr,Two,60000,1\n");
+
+        // Off unless asked for
+        new OrgAnalyzer().loadHierarchy(csv);
+        assertFalse(Files.exists(snapshot));
+
+        OrgAnalyzer first = load(csv);
+        assertTrue(Files.exists(snapshot));
+        assertEquals(60_000.0, first.employees().get(2L).getSalary());
+        OrgAnalyzer cached = load(csv);
+        assertEquals(1, cached.metrics.phaseCalls(OrgMetrics.Phase.SNAPSHOT_LOAD));
+        assertEquals(60_000.0, cached.employees().get(2L).getSalary());
+
+        // Edited but backdated to the old modification time: the size gives it away
+        FileTime written = Files.getLastModifiedTime(csv);
+        Files.writeString(csv, "1,Ceo,One,100000,\n2,Mgr,Two,75000,1\n3,New,Three,40000,2\n");
+        Files.setLastModifiedTime(csv, written);
+        OrgAnalyzer resized = load(csv);
+        assertEquals(0, resized.metrics.phaseCalls(OrgMetrics.Phase.SNAPSHOT_LOAD));
+        assertEquals(75_000.0, resized.employees().get(2L).getSalary());
+
+        // Same size, older than the snapshot: still not the CSV it was built from
+        Files.writeString(csv, "1,Ceo,One,100000,\n2,Mgr,Two,80000,1\n3,New,Three,40000,2\n");
+        Files.setLastModifiedTime(csv, FileTime.fromMillis(0));
+        OrgAnalyzer backdated = load(csv);
+        assertEquals(0, backdated.metrics.phaseCalls(OrgMetrics.Phase.SNAPSHOT_LOAD));
+        assertEquals(80_000.0, backdated.employees().get(2L).getSalary());
+        assertEquals(80_000.0, load(csv).employees().get(2L).getSalary());
+
+        // A damaged snapshot falls back to the CSV
+        Files.write(snapshot, new byte[]{1, 2, 3});
+        OrgAnalyzer recovered = load(csv);
+        assertEquals(3, recovered.employees().size());
+    }
+
+    @Test
+    void testLoadHierarchy_warmStartReportsTheSameDataProblems() throws Exception {
+        Path csv = Files.createDirectory(tempDir.resolve("snapshot")).resolve("employees.csv");
+        StringBuilder rows = new StringBuilder("1,Ceo,One,100000,\n");
+        for (int i = 2; i < 40; i++) {
+            rows.append(i).append(",E,").append(i).append(',').append(i % 7 == 0 ? "lots" : "50000").append(',')
+                    .append(i % 5 == 0 ? 999 : 1).append('\n');
+        }
+        rows.append("40,Too,Few\n").append("41,Second,Ceo,90000,\n");
+        Files.writeString(csv, rows);
+
+        OrgAnalyzer cold = load(csv);
+        OrgAnalyzer warm = load(csv);
+        assertEquals(1, warm.metrics.phaseCalls(OrgMetrics.Phase.SNAPSHOT_LOAD));
+        assertFalse(cold.diagnostics.isEmpty());
+        assertEquals(cold.diagnostics.total(), warm.diagnostics.total());
+        for (Diagnostics.Code code : Diagnostics.Code.values()) {
+            assertEquals(cold.diagnostics.count(code), warm.diagnostics.count(code), code.name());
+            assertEquals(cold.diagnostics.samples(code), warm.diagnostics.samples(code), code.name());
+        }
+        assertEquals(cold.metrics.getSkippedLines(), warm.metrics.getSkippedLines());
+        assertEquals(cold.metrics.getMissingManagers(), warm.metrics.getMissingManagers());
+        ByteArrayOutputStream coldText = new ByteArrayOutputStream();
+        ByteArrayOutputStream warmText = new ByteArrayOutputStream();
+        cold.diagnostics.print(new PrintStream(coldText, true, StandardCharsets.UTF_8));
+        warm.diagnostics.print(new PrintStream(warmText, true, StandardCharsets.UTF_8));
+        assertEquals(coldText.toString(StandardCharsets.UTF_8), warmText.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testLoadHierarchy_snapshotWithOutOfRangeLinksFallsBackToTheCsv() throws Exception {
+        Path csv = Files.createDirectory(tempDir.resolve("snapshot")).resolve("employees.csv");
+        Path snapshot = OrgAnalyzer.snapshotPath(csv);
+        Files.writeString(csv, "1,Ceo,One,100000,\n2,Mgr,Two,60000,1\n3,Dev,Three,40000,2\n");
+        OrgReport expected = load(csv).analyzeStructure();
+        byte[] intact = Files.readAllBytes(snapshot);
+
+        // Header (56 bytes, CEO index at 12), then for n = 3: ids, salaries, manager indices at 104,
+        // child offsets at 116 and children at 132
+        int[][] corruptions = {{12, 3}, {104 + 8, 7}, {104 + 4, -3}, {116 + 8, 0}, {116 + 12, 5}, {132 + 4, 1_000_000}};
+        for (int[] corruption : corruptions) {
+            byte[] damaged = intact.clone();
+            ByteBuffer.wrap(damaged).order(ByteOrder.LITTLE_ENDIAN).putInt(corruption[0], corruption[1]);
+            Files.write(snapshot, damaged);
+            String where = "offset " + corruption[0];
+            assertThrows(IOException.class, () -> OrgSnapshot.read(snapshot), where);
+
+            OrgAnalyzer recovered = load(csv);
+            assertEquals(3, recovered.employees().size(), where);
+            assertEquals(Optional.of(2L), recovered.employees().get(3L).getManagerId(), where);
+            OrgGraphTest.assertSameReport(expected, recovered.analyzeStructure());
+        }
+        Files.write(snapshot, intact);
+        assertDoesNotThrow(() -> OrgSnapshot.read(snapshot));
+    }
+
+    private static OrgAnalyzer load(Path csv) throws IOException {
+        OrgAnalyzer analyzer = new OrgAnalyzer();
+        analyzer.useSnapshot = true;
+        analyzer.loadHierarchy(csv);
+        return analyzer;
+    }
+}
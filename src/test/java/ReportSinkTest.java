@@ -0,0 +1,220 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+import orgReport.CsvReportSink;
+import orgReport.Employee;
+import orgReport.JsonLinesReportSink;
+import orgReport.OrgAnalyzer;
+import orgReport.OrgReport;
+import orgReport.ReportSink;
+import orgReport.TextReportSink;
+import orgReport.TopKReportSink;
+
+class ReportSinkTest {
+
+    @Test
+    void testTextSink_matchesPrintfFormatting() {
+        OrgReport report = new OrgReport();
+        double[] amounts = {0.0, 0.004, 0.005, 12.5, 999.999, 1234.5, 35000, 1234567.891, 98765432.105};
+        for (double amount : amounts) {
+            report.lowEarningManagers.add(salaryIssue("Low, Guy", 7, amount));
+            report.highEarningManagers.add(salaryIssue("High \"Q\"", 8, amount));
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        TextReportSink.render(report, new PrintStream(bytes, true, StandardCharsets.UTF_8));
+        String text = bytes.toString(StandardCharsets.UTF_8);
+
+        for (double amount : amounts) {
+            assertTrue(text.contains(String.format("  - Low, Guy (ID: 7): Earns $%,.2f less than the minimum required salary of $%,.2f.\n",
+                    amount, amount * 2)), "missing low line for " + amount);
+            assertTrue(text.contains(String.format("  - High \"Q\" (ID: 8): Earns $%,.2f more than the maximum allowed salary of $%,.2f.\n",
+                    amount, amount * 3)), "missing high line for " + amount);
+        }
+    }
+
+    @Test
+    void testTextSink_roundsLikePrintfForRandomAmounts() {
+        // Two and three decimal amounts (many exact .5 ties), arbitrary doubles and tiny negatives
+        Random random = new Random(17);
+        OrgReport report = new OrgReport();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            double amount = switch (i % 4) {
+                case 0 -> random.nextInt(100_000_000) / 1000.0;
+                case 1 -> random.nextInt(10_000_000) / 100.0;
+                case 2 -> random.nextDouble() * Math.pow(10, random.nextInt(12));
+                default -> -random.nextDouble() / Math.pow(10, random.nextInt(6));
+            };
+            report.lowEarningManagers.add(salaryIssue("E", i, amount));
+            expected.add(String.format("  - E (ID: %d): Earns $%,.2f less than the minimum required salary of $%,.2f.", i, amount, amount * 2));
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        TextReportSink.render(report, new PrintStream(bytes, true, StandardCharsets.UTF_8));
+
+        List<String> actual = bytes.toString(StandardCharsets.UTF_8).lines().filter(line -> line.startsWith("  - E ")).toList();
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void testCsvAndJsonSinks_escapeAndFormat() throws IOException {
+        StringWriter csv = new StringWriter();
+        StringWriter json = new StringWriter();
+        for (ReportSink sink : List.of(new CsvReportSink(csv), new JsonLinesReportSink(json))) {
+            sink.highEarningManager(salaryIssue("Bob, \"The\" M1", 2, 22500));
+            OrgAnalyzer.ReportingLineIssue line = new OrgAnalyzer.ReportingLineIssue();
+            line.employeeName = "Eva E7";
+            line.employeeId = 10;
+            line.actualLength = 7;
+            line.excessiveManagers = 2;
+            sink.longReportingLine(line);
+            sink.finish();
+        }
+        assertEquals(CsvReportSink.HEADER + "\n"
+                + "high_salary,2,\"Bob, \"\"The\"\" M1\",45000.00,67500.00,22500.00,,\n"
+                + "long_reporting_line,10,Eva E7,,,,7,2\n", csv.toString());
+        assertEquals("{\"category\":\"high_salary\",\"employeeId\":2,\"name\":\"Bob, \\\"The\\\" M1\",\"expectedMin\":45000.00,\"expectedMax\":67500.00,\"difference\":22500.00}\n"
+                + "{\"category\":\"long_reporting_line\",\"employeeId\":10,\"name\":\"Eva E7\",\"lineLength\":7,\"excessManagers\":2}\n", json.toString());
+    }
+
+    @Test
+    void testAnalyzeStructure_streamingSinkSeesSameIssues() throws IOException {
+        OrgAnalyzer analyzer = new OrgAnalyzer();
+        analyzer.employees().putAll(OrgGraphTest.randomOrg(3_000, 9));
+        analyzer.employees().put(9_999L, new Employee(9_999, "Lost", "One", 50_000.0, Optional.of(12_345L)));
+        analyzer.buildHierarchy();
+        OrgReport expected = analyzer.analyzeStructure();
+
+        OrgReport streamed = new OrgReport();
+        analyzer.analyzeStructure(streamed);
+        OrgGraphTest.assertSameReport(expected, streamed);
+        assertEquals(1, streamed.orphanedEmployees.size());
+
+        StringWriter csv = new StringWriter();
+        analyzer.analyzeStructure(new CsvReportSink(csv));
+        int issues = expected.lowEarningManagers.size() + expected.highEarningManagers.size()
+                + expected.longReportingLines.size() + expected.orphanedEmployees.size();
+        assertEquals(issues + 1, csv.toString().split("\n").length);
+    }
+
+    @Test
+    void testTopKSink_sameAsSortingAndTruncating() throws IOException {
+        OrgAnalyzer analyzer = new OrgAnalyzer();
+        analyzer.employees().putAll(OrgGraphTest.randomOrg(5_000, 21));
+        analyzer.buildHierarchy();
+        OrgReport full = analyzer.analyzeStructure();
+        // Many equal differences, so the id tie-break matters
+        Random random = new Random(3);
+        List<OrgAnalyzer.ManagerSalaryIssue> salaries = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            salaries.add(salaryIssue("M" + i, random.nextInt(100_000), random.nextInt(50) * 100.0));
+        }
+
+        for (int k : new int[]{0, 1, 25, 10_000}) {
+            TopKReportSink top = new TopKReportSink(k);
+            analyzer.analyzeStructure(top);
+            salaries.forEach(top::lowEarningManager);
+            OrgReport kept = top.result();
+
+            List<OrgAnalyzer.ManagerSalaryIssue> low = new ArrayList<>(full.lowEarningManagers);
+            low.addAll(salaries);
+            low.sort(Comparator.comparingDouble((OrgAnalyzer.ManagerSalaryIssue issue) -> -issue.difference)
+                    .thenComparingLong(issue -> issue.managerId));
+            assertEquals(managerIds(low.subList(0, Math.min(k, low.size()))), managerIds(kept.lowEarningManagers));
+            List<OrgAnalyzer.ReportingLineIssue> lines = new ArrayList<>(full.longReportingLines);
+            lines.sort(Comparator.comparingInt((OrgAnalyzer.ReportingLineIssue issue) -> -issue.excessiveManagers)
+                    .thenComparingLong(issue -> issue.employeeId));
+            assertEquals(lines.subList(0, Math.min(k, lines.size())).stream().map(issue -> issue.employeeId).toList(),
+                    kept.longReportingLines.stream().map(issue -> issue.employeeId).toList());
+            assertEquals(low.size(), top.lowEarningTotal());
+            assertTrue(kept.highEarningManagers.size() <= k);
+        }
+
+        // Threshold plus downstream sink: only big differences reach the CSV, worst first
+        StringWriter csv = new StringWriter();
+        TopKReportSink top = new TopKReportSink(new CsvReportSink(csv), 3, 4_000, Integer.MAX_VALUE);
+        salaries.forEach(top::lowEarningManager);
+        top.finish();
+        String[] rows = csv.toString().split("\n");
+        assertEquals(4, rows.length);
+        assertTrue(rows[1].contains(",4900.00,"), rows[1]);
+        assertEquals(salaries.stream().filter(issue -> issue.difference >= 4_000).count(), top.lowEarningTotal());
+    }
+
+    @Test
+    void testMain_csvFormatKeepsStatusMessagesOffStdout() throws IOException {
+        OrgAnalyzer reference = new OrgAnalyzer();
+        reference.useSnapshot = false;
+        reference.loadHierarchy();
+        OrgReport expected = reference.analyzeStructure();
+
+        PrintStream stdout = System.out;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        System.setProperty("orgReport.format", "csv");
+        try {
+            System.setOut(new PrintStream(captured, true, StandardCharsets.UTF_8));
+            OrgAnalyzer.main(new String[0]);
+        } finally {
+            System.setOut(stdout);
+            System.clearProperty("orgReport.format");
+        }
+
+        String[] rows = captured.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(CsvReportSink.HEADER, rows[0]);
+        Map<String, Integer> counts = new TreeMap<>();
+        for (int i = 1; i < rows.length; i++) {
+            List<String> fields = csvFields(rows[i]);
+            assertEquals(8, fields.size(), rows[i]);
+            Long.parseLong(fields.get(1));
+            counts.merge(fields.get(0), 1, Integer::sum);
+        }
+        Map<String, Integer> expectedCounts = new TreeMap<>();
+        expectedCounts.put("low_salary", expected.lowEarningManagers.size());
+        expectedCounts.put("high_salary", expected.highEarningManagers.size());
+        expectedCounts.put("long_reporting_line", expected.longReportingLines.size());
+        expectedCounts.put("cyclic_reporting_line", expected.cyclicReportingLines.size());
+        expectedCounts.put("orphaned_employee", expected.orphanedEmployees.size());
+        expectedCounts.values().removeIf(count -> count == 0);
+        assertEquals(expectedCounts, counts);
+    }
+
+    // Splits one CSV row, honouring quoted fields with doubled quotes
+    private static List<String> csvFields(String row) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < row.length(); i++) {
+            char c = row.charAt(i);
+            if (quoted && c == '"' && i + 1 < row.length() && row.charAt(i + 1) == '"') {
+                field.append('"');
+                i++;
+            } else if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static List<Long> managerIds(List<OrgAnalyzer.ManagerSalaryIssue> issues) {
+        return issues.stream().map(issue -> issue.managerId).toList();
+    }
+
+    private static OrgAnalyzer.ManagerSalaryIssue salaryIssue(String name, long id, double difference) {
+        OrgAnalyzer.ManagerSalaryIssue issue = new OrgAnalyzer.ManagerSalaryIssue();
+        issue.managerName = name;
+        issue.managerId = id;
+        issue.difference = difference;
+        issue.expectedMin = difference * 2;
+        issue.expectedMax = difference * 3;
+        return issue;
+    }
+}
@@ -0,0 +1,75 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+import orgReport.Employee;
+import orgReport.OrgAnalyzer;
+import orgReport.OrgGraph;
+import orgReport.OrgReport;
+import orgReport.OrgRule;
+import orgReport.RuleEngine;
+import orgReport.RuleReport;
+
+class RuleEngineTest {
+
+    @Test
+    void testDefaultRules_matchAnalyzeStructure() {
+        OrgAnalyzer analyzer = new OrgAnalyzer();
+        analyzer.employees().putAll(OrgGraphTest.randomOrg(150_000, 11));
+        analyzer.employees().put(200_001L, new Employee(200_001, "Cy", "One", 50_000.0, Optional.of(200_002L)));
+        analyzer.employees().put(200_002L, new Employee(200_002, "Cy", "Two", 50_000.0, Optional.of(200_001L)));
+        analyzer.buildHierarchy();
+        OrgGraph graph = OrgGraph.of(analyzer.employees(), analyzer.ceo());
+        OrgReport expected = analyzer.analyzeStructure(graph, 1);
+
+        RuleEngine engine = new RuleEngine(RuleEngine.defaultRules());
+        assertFalse(engine.needs(OrgRule.Aggregate.SUBTREE));
+        for (int threads : new int[]{1, 4}) {
+            RuleReport report = engine.run(graph, threads);
+            OrgGraphTest.assertSameReport(expected, report);
+            assertEquals(List.of(200_001L, 200_002L), report.cyclicReportingLines.stream().map(issue -> issue.employeeId).sorted().toList());
+            assertTrue(report.violations.isEmpty());
+        }
+
+        analyzer.analysisThreads = 3;
+        OrgGraphTest.assertSameReport(expected, analyzer.analyzeRules(RuleEngine.defaultRules()));
+    }
+
+    @Test
+    void testCustomRules_spanOfControlScopedToSubtree() {
+        OrgAnalyzer analyzer = new OrgAnalyzer();
+        // 1 -> 2 -> {4, 5, 6}, 1 -> 3 -> {7, 8, 9, 10}
+        long[][] rows = {{1, 0}, {2, 1}, {3, 1}, {4, 2}, {5, 2}, {6, 2}, {7, 3}, {8, 3}, {9, 3}, {10, 3}};
+        for (long[] row : rows) {
+            Optional<Long> manager = row[1] == 0 ? Optional.empty() : Optional.of(row[1]);
+            analyzer.employees().put(row[0], new Employee(row[0], "E" + row[0], "L", 60_000.0, manager));
+        }
+        analyzer.buildHierarchy();
+        OrgRule span = OrgRule.of("span-of-control", EnumSet.of(OrgRule.Aggregate.SPAN_OF_CONTROL), (node, out) -> {
+            if (node.directReports() > 2) {
+                out.violation("span-of-control", node, node.directReports() + " direct reports");
+            }
+        });
+
+        RuleReport all = analyzer.analyzeRules(List.of(span));
+        assertEquals(List.of(2L, 3L), all.violations.stream().map(OrgRule.Violation::employeeId).sorted().toList());
+
+        RuleReport scoped = analyzer.analyzeRules(List.of(OrgRule.scopedTo(3, span)));
+        assertEquals(1, scoped.violations.size());
+        assertEquals(3L, scoped.violations.get(0).employeeId());
+        assertEquals("4 direct reports", scoped.violations.get(0).message());
+        assertTrue(analyzer.analyzeRules(List.of(OrgRule.scopedTo(99, span))).violations.isEmpty());
+    }
+
+    @Test
+    void testUndeclaredAggregate_throws() {
+        OrgAnalyzer analyzer = new OrgAnalyzer();
+        analyzer.employees().putAll(OrgGraphTest.randomOrg(10, 1));
+        analyzer.buildHierarchy();
+        OrgRule sneaky = OrgRule.of("sneaky", EnumSet.noneOf(OrgRule.Aggregate.class), (node, out) -> node.depth());
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> analyzer.analyzeRules(List.of(sneaky)));
+        assertTrue(e.getMessage().contains("sneaky"));
+    }
+}
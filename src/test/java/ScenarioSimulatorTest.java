@@ -0,0 +1,109 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+import orgReport.Employee;
+import orgReport.OrgAnalyzer;
+import orgReport.OrgReport;
+import orgReport.SalaryScenario;
+import orgReport.ScenarioSimulator;
+
+class ScenarioSimulatorTest {
+
+    @Test
+    void testSimulate_matchesFullAnalysisOfChangedHierarchy() {
+        OrgAnalyzer analyzer = new OrgAnalyzer();
+        analyzer.employees().putAll(OrgGraphTest.randomOrg(5_000, 3));
+        analyzer.buildHierarchy();
+        ScenarioSimulator simulator = analyzer.scenarios();
+
+        List<SalaryScenario> scenarios = new ArrayList<>();
+        List<Map<Long, Double>> applied = new ArrayList<>();
+        scenarios.add(new SalaryScenario("unchanged"));
+        applied.add(salaries(analyzer));
+        scenarios.add(new SalaryScenario("ceo").adjust(1, 80_000).adjust(1, -5_000));
+        Map<Long, Double> ceo = salaries(analyzer);
+        ceo.merge(1L, 75_000.0, Double::sum);
+        applied.add(ceo);
+        Random random = new Random(9);
+        for (int s = 0; s < 40; s++) {
+            SalaryScenario scenario = new SalaryScenario("plan-" + s);
+            Map<Long, Double> salaries = salaries(analyzer);
+            long head = 1 + random.nextInt(200);
+            double percent = random.nextInt(20);
+            scenario.raiseSubtree(head, percent);
+            raise(analyzer.employees().get(head), 1.0 + percent / 100.0, salaries);
+            head = 1 + random.nextInt(5_000);
+            percent = -random.nextInt(10);
+            scenario.raiseSubtree(head, percent);
+            raise(analyzer.employees().get(head), 1.0 + percent / 100.0, salaries);
+            for (int k = 0; k < 20; k++) {
+                long id = 1 + random.nextInt(5_000);
+                double delta = random.nextInt(40_000) - 20_000;
+                scenario.adjust(id, delta);
+                salaries.merge(id, delta, Double::sum);
+            }
+            scenario.adjust(99_999, 1_000); // not in the hierarchy
+            scenarios.add(scenario);
+            applied.add(salaries);
+        }
+
+        List<OrgReport> reports = simulator.simulateAll(scenarios);
+        assertEquals(scenarios.size(), reports.size());
+        OrgGraphTest.assertSameReport(analyzer.analyzeStructure(), reports.get(0));
+        for (int s = 0; s < scenarios.size(); s++) {
+            OrgReport expected = analyzeWith(applied.get(s));
+            OrgGraphTest.assertSameReport(expected, reports.get(s));
+            OrgGraphTest.assertSameReport(expected, simulator.simulate(scenarios.get(s)));
+        }
+        // Scenarios do not touch the shared baseline
+        OrgGraphTest.assertSameReport(analyzer.analyzeStructure(), simulator.baseline());
+    }
+
+    @Test
+    void testRaiseSubtree_flagsManagerAboveRaisedTeam() {
+        OrgAnalyzer analyzer = new OrgAnalyzer();
+        analyzer.employees().put(1L, new Employee(1, "Top", "Boss", 170_000.0, Optional.empty()));
+        analyzer.employees().put(2L, new Employee(2, "Team", "Lead", 130_000.0, Optional.of(1L)));
+        analyzer.employees().put(3L, new Employee(3, "Dev", "One", 100_000.0, Optional.of(2L)));
+        analyzer.employees().put(4L, new Employee(4, "Dev", "Two", 100_000.0, Optional.of(2L)));
+        analyzer.buildHierarchy();
+        ScenarioSimulator simulator = analyzer.scenarios();
+        assertTrue(simulator.baseline().lowEarningManagers.isEmpty());
+
+        // Lead and devs +20%: the lead stays in band, the boss (170k for a 156k lead) drops below 120%
+        OrgReport report = simulator.simulate(new SalaryScenario("team raise").raiseSubtree(2, 20));
+        assertEquals(1, report.lowEarningManagers.size());
+        assertEquals(1, report.lowEarningManagers.get(0).managerId);
+        assertTrue(report.highEarningManagers.isEmpty());
+    }
+
+    private static Map<Long, Double> salaries(OrgAnalyzer analyzer) {
+        Map<Long, Double> salaries = new HashMap<>();
+        for (Employee e : analyzer.employees().values()) {
+            salaries.put(e.getId(), e.getSalary());
+        }
+        return salaries;
+    }
+
+    private static void raise(Employee head, double factor, Map<Long, Double> salaries) {
+        salaries.put(head.getId(), salaries.get(head.getId()) * factor);
+        for (Employee sub : head.getSubordinates()) {
+            raise(sub, factor, salaries);
+        }
+    }
+
+    /**
+     * Reference: the same employees with the scenario salaries, analyzed from scratch.
+     */
+    private static OrgReport analyzeWith(Map<Long, Double> salaries) {
+        OrgAnalyzer analyzer = new OrgAnalyzer();
+        analyzer.employees().putAll(OrgGraphTest.randomOrg(5_000, 3));
+        for (Employee e : List.copyOf(analyzer.employees().values())) {
+            analyzer.employees().put(e.getId(), new Employee(e.getId(), e.getFirstName(), e.getLastName(), salaries.get(e.getId()), e.getManagerId()));
+        }
+        analyzer.buildHierarchy();
+        return analyzer.analyzeStructure();
+    }
+}
@@ -0,0 +1,207 @@
+package orgReport;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic generator of employee CSV data for benchmarks and scale tests.
+ * Employee 1 is the CEO; every other employee reports to an employee with a smaller id, so the
+ * data is always a tree (unless malformed lines remove a manager).
+ * <p>
+ * Shape is controlled by fan-out (children per manager in the balanced layout) and depth skew
+ * (probability that an employee reports to the previous employee instead, which grows long chains).
+ * Scrambled ids spread the same hierarchy over arbitrary-looking ids, like real HR exports.
+ */
+public class SyntheticOrgGenerator {
+    private static final String[] FIRST_NAMES = {"John", "Jane", "Bob", "Alice", "Mike", "Sue", "Tom", "Ken", "Lisa", "Pat",
+            "Eva", "Mark", "Anna", "Paul", "Maria", "Chris", "Laura", "David", "Emma", "Omar", "Yuki", "Zoë"};
+    private static final String[] LAST_NAMES = {"Smith", "Doe", "Lee", "Wong", "Brown", "Garcia", "Miller", "Davis", "Khan",
+            "Nguyen", "Martin", "Rossi", "Müller", "Silva", "Kim", "Novak", "Jones", "Taylor"};
+
+    private int size = 10_000;
+    private int fanOut = 8;
+    private double depthSkew = 0.0;
+    private double malformedShare = 0.0;
+    private long seed = 42;
+    private boolean scrambleIds = false;
+    private boolean shuffleRows = false;
+
+    public SyntheticOrgGenerator size(int size) {
+        this.size = size;
+        return this;
+    }
+
+    public SyntheticOrgGenerator fanOut(int fanOut) {
+        if (fanOut < 1) {
+            throw new IllegalArgumentException("fanOut must be >= 1: " + fanOut);
+        }
+        this.fanOut = fanOut;
+        return this;
+    }
+
+    /**
+     * 0.0 gives a balanced tree, 1.0 a single chain.
+     */
+    public SyntheticOrgGenerator depthSkew(double depthSkew) {
+        this.depthSkew = depthSkew;
+        return this;
+    }
+
+    /**
+     * Share of lines written with a bad number or a wrong field count.
+     */
+    public SyntheticOrgGenerator malformedShare(double malformedShare) {
+        this.malformedShare = malformedShare;
+        return this;
+    }
+
+    public SyntheticOrgGenerator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Replaces every id n by a distinct pseudo-random id below 2^40, so id order no longer follows the hierarchy.
+     */
+    public SyntheticOrgGenerator scrambleIds(boolean scrambleIds) {
+        this.scrambleIds = scrambleIds;
+        return this;
+    }
+
+    /**
+     * Emits the rows in a pseudo-random order (the CEO still first), so most managers arrive after some of
+     * their subordinates and a loader has to hold those forward references until the manager shows up.
+     * The rows themselves are the same as without shuffling.
+     */
+    public SyntheticOrgGenerator shuffleRows(boolean shuffleRows) {
+        this.shuffleRows = shuffleRows;
+        return this;
+    }
+
+    /**
+     * Receives generated rows in generation order, every manager before its subordinates, unless rows are shuffled.
+     */
+    public interface RowSink {
+        void row(long id, String firstName, String lastName, long salary, long managerId, boolean malformed) throws IOException;
+    }
+
+    public void generate(RowSink sink) throws IOException {
+        if (shuffleRows) {
+            generateShuffled(sink);
+        } else {
+            generateInOrder(sink);
+        }
+    }
+
+    private void generateInOrder(RowSink sink) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        for (long id = 1; id <= size; id++) {
+            long managerId;
+            if (id == 1) {
+                managerId = 0;
+            } else if (random.nextDouble() < depthSkew) {
+                managerId = id - 1;
+            } else {
+                managerId = (id - 2) / fanOut + 1;
+            }
+            String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+            String last = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+            long salary = 30_000 + random.nextInt(170) * 1_000L;
+            boolean malformed = id > 1 && random.nextDouble() < malformedShare;
+            if (scrambleIds) {
+                sink.row(scramble(id), first, last, salary, managerId == 0 ? 0 : scramble(managerId), malformed);
+            } else {
+                sink.row(id, first, last, salary, managerId, malformed);
+            }
+        }
+    }
+
+    // Buffers the rows in generation order, then replays them with rows 2..size in a random permutation
+    private void generateShuffled(RowSink sink) throws IOException {
+        long[] ids = new long[size];
+        String[] firsts = new String[size];
+        String[] lasts = new String[size];
+        long[] salaries = new long[size];
+        long[] managerIds = new long[size];
+        boolean[] malformed = new boolean[size];
+        int[] n = {0};
+        generateInOrder((id, first, last, salary, managerId, bad) -> {
+            int k = n[0]++;
+            ids[k] = id;
+            firsts[k] = first;
+            lasts[k] = last;
+            salaries[k] = salary;
+            managerIds[k] = managerId;
+            malformed[k] = bad;
+        });
+        int[] order = new int[size];
+        for (int k = 0; k < size; k++) {
+            order[k] = k;
+        }
+        SplittableRandom random = new SplittableRandom(~seed);
+        for (int k = size - 1; k > 1; k--) {
+            int j = 1 + random.nextInt(k);
+            int swap = order[k];
+            order[k] = order[j];
+            order[j] = swap;
+        }
+        for (int k : order) {
+            sink.row(ids[k], firsts[k], lasts[k], salaries[k], managerIds[k], malformed[k]);
+        }
+    }
+
+    // Multiplication by an odd constant is a bijection modulo 2^40, and never 0 for 0 < id < 2^40
+    private static long scramble(long id) {
+        return id * 0x9E3779B97F4A7C15L & (1L << 40) - 1;
+    }
+
+    public void writeCsv(Appendable out) throws IOException {
+        StringBuilder line = new StringBuilder(64);
+        generate((id, first, last, salary, managerId, malformed) -> {
+            line.setLength(0);
+            line.append(id).append(',').append(first).append(',').append(last).append(',');
+            if (malformed && (id & 1) == 0) {
+                line.append("n/a").append(',').append(managerId);
+            } else if (malformed) {
+                line.append(salary).append(',').append(managerId).append(",extra");
+            } else {
+                line.append(salary).append(',');
+                if (managerId != 0) {
+                    line.append(managerId);
+                }
+            }
+            out.append(line).append('\n');
+        });
+    }
+
+    public void writeCsv(Path path) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writeCsv(writer);
+        }
+    }
+
+    /**
+     * The rows that would survive parsing, as unlinked employees in generation order.
+     */
+    public Map<Long, Employee> toEmployeeMap() {
+        Map<Long, Employee> map = new LinkedHashMap<>();
+        try {
+            generate((id, first, last, salary, managerId, malformed) -> {
+                if (!malformed) {
+                    map.put(id, new Employee(id, first, last, (double) salary,
+                            managerId == 0 ? Optional.empty() : Optional.of(managerId)));
+                }
+            });
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // the sink above never throws
+        }
+        return map;
+    }
+}